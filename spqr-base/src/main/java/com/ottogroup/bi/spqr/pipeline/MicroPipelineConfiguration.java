@@ -47,6 +47,12 @@ public class MicroPipelineConfiguration implements Serializable {
 	/** metrics reporter */
 	@JsonProperty(value="metricsReporter", required=false)
 	private List<MicroPipelineMetricsReporterConfiguration> metricsReporter = new ArrayList<MicroPipelineMetricsReporterConfiguration>();
+	/** fuse linear chains of direct response operators into a single runtime environment, default: true */
+	@JsonProperty(value="operatorFusion", required=false)
+	private boolean operatorFusion = true;
+	/** name of codec used on queues connecting operators which support it, eg. smile - sources and emitters always use JSON, default: json */
+	@JsonProperty(value="messageCodec", required=false)
+	private String messageCodec = null;
 	
 	public String getId() {
 		return id;
@@ -72,5 +78,17 @@ public class MicroPipelineConfiguration implements Serializable {
 	public void setMetricsReporter(
 			List<MicroPipelineMetricsReporterConfiguration> metricsReporter) {
 		this.metricsReporter = metricsReporter;
-	}	
+	}
+	public boolean isOperatorFusion() {
+		return operatorFusion;
+	}
+	public void setOperatorFusion(boolean operatorFusion) {
+		this.operatorFusion = operatorFusion;
+	}
+	public String getMessageCodec() {
+		return messageCodec;
+	}
+	public void setMessageCodec(String messageCodec) {
+		this.messageCodec = messageCodec;
+	}
 }
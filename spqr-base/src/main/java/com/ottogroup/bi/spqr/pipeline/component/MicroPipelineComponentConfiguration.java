@@ -58,6 +58,21 @@ public class MicroPipelineComponentConfiguration implements Serializable {
 	/** attach processing timer */
 	@JsonProperty(value="attachProcessingTimer", required=false)
 	private boolean attachProcessingTimer = false;
+	/** number of operator instances processing messages in parallel (direct response and mergeable delayed response operators only), default: 1 */
+	@JsonProperty(value="parallelism", required=false)
+	private int parallelism = 1;
+	/** dot separated path to a json field or - prefixed by '@' - name of a message header whose value is used to assign messages to operator instances, default: round-robin */
+	@JsonProperty(value="partitionKey", required=false)
+	private String partitionKey = null;
+	/** write responses of parallel operator instances in order of the input messages, default: false */
+	@JsonProperty(value="preserveOrder", required=false)
+	private boolean preserveOrder = false;
+	/** sources only: share a single instance among all pipelines on the node referencing the same name, version and settings, default: false */
+	@JsonProperty(value="shared", required=false)
+	private boolean shared = false;
+	/** shared sources only: conditions on json fields a message must satisfy to be passed to the pipeline, default: all messages */
+	@JsonProperty(value="subscription", required=false)
+	private Properties subscription = new Properties();
 	
 	
 	public String getId() {
@@ -116,4 +131,34 @@ public class MicroPipelineComponentConfiguration implements Serializable {
 	public void setAttachProcessingTimer(boolean attachProcessingTimer) {
 		this.attachProcessingTimer = attachProcessingTimer;
 	}
+	public int getParallelism() {
+		return parallelism;
+	}
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+	public String getPartitionKey() {
+		return partitionKey;
+	}
+	public void setPartitionKey(String partitionKey) {
+		this.partitionKey = partitionKey;
+	}
+	public boolean isPreserveOrder() {
+		return preserveOrder;
+	}
+	public void setPreserveOrder(boolean preserveOrder) {
+		this.preserveOrder = preserveOrder;
+	}
+	public boolean isShared() {
+		return shared;
+	}
+	public void setShared(boolean shared) {
+		this.shared = shared;
+	}
+	public Properties getSubscription() {
+		return subscription;
+	}
+	public void setSubscription(Properties subscription) {
+		this.subscription = subscription;
+	}
 }
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
+
+/**
+ * {@link DirectResponseOperator} which is able to work on {@link StreamingDataMessageView message views}. If the queue 
+ * attached to the operator supports views, the runtime environment hands over views instead of messages which avoids 
+ * copying the content of each message out of the queue storage. Typical candidates are filters which forward a small 
+ * fraction of the messages they inspect. 
+ * @author mnxfst
+ * @since Feb 4, 2016
+ */
+public interface DirectResponseViewOperator extends DirectResponseOperator {
+
+	/**
+	 * Receives a single message view, processes its contents and responds with zero or multiple {@link StreamingDataMessage} 
+	 * instances. The view must not be kept after returning as it becomes invalid, messages to forward must be created 
+	 * through {@link StreamingDataMessageView#toMessage()}
+	 * @param message
+	 * @return
+	 */
+	public StreamingDataMessage[] onMessageView(final StreamingDataMessageView message);
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * {@link DelayedResponseOperatorWaitStrategy} driven by the {@link StreamingDataMessage#getTimestamp() timestamps} of incoming
+ * messages rather than by wall-clock time. Runtime environments hand over incoming messages to these strategies instead of the 
+ * attached {@link DelayedResponseOperator}. The strategy decides when each message gets {@link #poll() passed on} to the operator 
+ * and may hold back messages belonging to a period which has not started yet. Thus a release covers exactly the messages
+ * passed on before.  
+ * @author mnxfst
+ * @since Feb 11, 2016
+ */
+public interface EventTimeWaitStrategy extends DelayedResponseOperatorWaitStrategy {
+
+	/**
+	 * Returns the current watermark: the strategy does not expect any more messages having an older timestamp 
+	 * @return
+	 */
+	public long getWatermark();
+	
+	/**
+	 * Returns the next message to pass on to the {@link DelayedResponseOperator} or null if all messages received so far have
+	 * been passed on or are held back. Runtime environments call this method after each {@link #onMessage(StreamingDataMessage) notification}
+	 * until it returns null and handle requested releases after each call, before passing on the returned message.
+	 * @return
+	 */
+	public StreamingDataMessage poll();
+	
+}
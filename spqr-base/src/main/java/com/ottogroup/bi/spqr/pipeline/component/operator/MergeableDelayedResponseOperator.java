@@ -0,0 +1,38 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+/**
+ * Optional contract for {@link DelayedResponseOperator delayed response operators} whose state may be split into partitions. If
+ * implemented, the runtime may execute multiple instances of the same operator in parallel, each receiving a subset of all incoming
+ * messages and building a partial result from it. Each time the {@link DelayedResponseOperatorWaitStrategy} releases the results, 
+ * the runtime {@link #merge(MergeableDelayedResponseOperator) merges} all partial results into a single instance before calling
+ * {@link DelayedResponseOperator#getResult()} on it. The merge function must be associative, eg. counts, sums, min and max values.
+ * @author mnxfst
+ * @since Feb 11, 2016
+ */
+public interface MergeableDelayedResponseOperator extends DelayedResponseOperator {
+
+	/**
+	 * Merges the partial result collected by the provided instance into the state of this instance and resets
+	 * the provided instance afterwards - as if its {@link DelayedResponseOperator#getResult() result} had been fetched. Both 
+	 * instances are of the same type and share the same configuration. The runtime ensures that neither instance receives
+	 * messages while merging.
+	 * @param partial
+	 */
+	public void merge(final MergeableDelayedResponseOperator partial);
+	
+}
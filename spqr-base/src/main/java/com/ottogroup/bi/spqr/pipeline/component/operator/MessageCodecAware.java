@@ -0,0 +1,45 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
+
+/**
+ * Optional contract for {@link Operator operators} able to read and write message bodies in formats other than JSON. If the pipeline
+ * configuration names an internal {@link StreamingDataMessageCodec codec}, each queue connecting only components which support that codec
+ * carries messages in that format. Queues written by sources or read by emitters keep using {@link StreamingDataMessageCodec#JSON}, thus
+ * conversion takes place at the edges of the pipeline only. Components not implementing this interface always receive and produce JSON.
+ * @author mnxfst
+ * @since Feb 15, 2016
+ */
+public interface MessageCodecAware {
+
+	/**
+	 * Returns true if the component is able to read and write message bodies using the provided codec
+	 * @param codec
+	 * @return
+	 */
+	public boolean supportsMessageCodec(final StreamingDataMessageCodec codec);
+
+	/**
+	 * Assigns the codecs used by incoming messages and expected for outgoing messages. Invoked once after initialization
+	 * and before the first message is received. Messages forwarded unchanged must be converted if both codecs differ
+	 * @param inputCodec
+	 * @param outputCodec
+	 */
+	public void setMessageCodecs(final StreamingDataMessageCodec inputCodec, final StreamingDataMessageCodec outputCodec);
+
+}
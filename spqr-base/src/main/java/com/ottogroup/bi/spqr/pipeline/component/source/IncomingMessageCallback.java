@@ -30,10 +30,14 @@ import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
 public interface IncomingMessageCallback {
 
 	/**
-	 * Executed for each incoming {@link StreamingDataMessage} received by a {@link Source}. 
+	 * Executed for each incoming {@link StreamingDataMessage} received by a {@link Source}. The call blocks
+	 * as long as the downstream queue has reached its capacity and applies overflow policy 'block'. Sources 
+	 * should therefore invoke it from the thread which pulls data from the external system to stop reading
+	 * until the pipeline catches up. 
 	 * @param message
+	 * @return <i>true</i> if the message has been accepted, <i>false</i> if it has been dropped 
 	 */
-	public void onMessage(final StreamingDataMessage message);
+	public boolean onMessage(final StreamingDataMessage message);
 
 	
 }
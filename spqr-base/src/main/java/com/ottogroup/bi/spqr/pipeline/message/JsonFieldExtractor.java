@@ -0,0 +1,207 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+
+/**
+ * Extracts the values of a fixed set of fields from JSON documents in a single streaming pass - without building a tree
+ * representation. The field paths (eg. <code>data.wt.cs-host</code> split into its segments) are compiled into a prefix tree
+ * once. While streaming through a document, objects not lying on any path are skipped as a whole and parsing stops as soon
+ * as all fields have been found. Thus any content following the last field of interest is neither parsed nor validated.<br/><br/>
+ * Paths reference object fields only, arrays are not descended into. If a field occurs more than once within the same object,
+ * its first occurrence wins. Extracted values are written to a reusable {@link JsonFieldValues} instance where they are found at
+ * the position of their path as provided during compilation.<br/><br/>
+ * Instances are immutable and may be shared between threads, {@link JsonFieldValues} may not.
+ * @author mnxfst
+ * @since Feb 16, 2016
+ */
+public class JsonFieldExtractor {
+
+	/** shared factory used if none is provided */
+	private static final JsonFactory DEFAULT_FACTORY = new JsonFactory();
+
+	/** root of the compiled path tree */
+	private final PathNode root = new PathNode();
+	/** number of compiled paths */
+	private final int numOfFields;
+
+	/**
+	 * Compiles the provided paths, each one given as array of field names
+	 * @param paths
+	 * @throws RequiredInputMissingException
+	 */
+	public JsonFieldExtractor(final List<String[]> paths) throws RequiredInputMissingException {
+		if(paths == null)
+			throw new RequiredInputMissingException("Missing required paths");
+
+		for(int i = 0; i < paths.size(); i++) {
+			final String[] path = paths.get(i);
+			if(path == null || path.length < 1)
+				throw new RequiredInputMissingException("Missing required path at position " + i);
+
+			PathNode node = this.root;
+			for(final String segment : path) {
+				if(segment == null)
+					throw new RequiredInputMissingException("Missing required path segment at position " + i);
+				PathNode child = node.children.get(segment);
+				if(child == null) {
+					child = new PathNode();
+					node.children.put(segment, child);
+				}
+				node = child;
+			}
+			node.fields = (node.fields == null ? new int[]{i} : appendField(node.fields, i));
+		}
+		this.numOfFields = paths.size();
+	}
+
+	/**
+	 * Returns a new value holder sized for this extractor
+	 * @return
+	 */
+	public JsonFieldValues newValues() {
+		return new JsonFieldValues(this.numOfFields);
+	}
+
+	/**
+	 * Extracts the field values from the provided content
+	 * @param factory factory creating a parser for the content format - null leads to plain JSON
+	 * @param content
+	 * @param values receives the field values, any previous content is reset
+	 * @return false if the content does not hold an object or could not be parsed
+	 */
+	public boolean extract(final JsonFactory factory, final byte[] content, final JsonFieldValues values) {
+		values.reset();
+		if(content == null || content.length < 1)
+			return false;
+		try(JsonParser parser = (factory != null ? factory : DEFAULT_FACTORY).createParser(content)) {
+			return extract(parser, values);
+		} catch(IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Extracts the field values from the provided stream
+	 * @param factory factory creating a parser for the content format - null leads to plain JSON
+	 * @param content
+	 * @param values receives the field values, any previous content is reset
+	 * @return false if the content does not hold an object or could not be parsed
+	 */
+	public boolean extract(final JsonFactory factory, final InputStream content, final JsonFieldValues values) {
+		values.reset();
+		if(content == null)
+			return false;
+		try(JsonParser parser = (factory != null ? factory : DEFAULT_FACTORY).createParser(content)) {
+			return extract(parser, values);
+		} catch(IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Extracts the field values from the document the parser points to. The parser must not have consumed any token
+	 * @param parser
+	 * @param values
+	 * @return false if the content does not hold an object
+	 * @throws IOException
+	 */
+	protected boolean extract(final JsonParser parser, final JsonFieldValues values) throws IOException {
+		if(parser.nextToken() != JsonToken.START_OBJECT)
+			return false;
+		if(this.numOfFields > 0)
+			extractObject(parser, this.root, values, this.numOfFields);
+		return true;
+	}
+
+	/**
+	 * Steps through the fields of the object the parser points to, records the values of all fields referenced by the path node
+	 * and descends into objects lying on a path. All other values are skipped
+	 * @param parser parser pointing to {@link JsonToken#START_OBJECT}
+	 * @param node
+	 * @param values
+	 * @param remaining number of fields not found so far
+	 * @return number of fields not found so far - zero if parsing may stop
+	 * @throws IOException
+	 */
+	private int extractObject(final JsonParser parser, final PathNode node, final JsonFieldValues values, int remaining) throws IOException {
+		while(parser.nextToken() == JsonToken.FIELD_NAME) {
+			final PathNode child = node.children.get(parser.getCurrentName());
+			final JsonToken token = parser.nextToken();
+			if(child == null) {
+				parser.skipChildren();
+				continue;
+			}
+
+			if(child.fields != null) {
+				for(final int field : child.fields) {
+					if(!values.isFound(field)) {
+						values.set(field, parser, token);
+						remaining--;
+					}
+				}
+			}
+
+			if(token == JsonToken.START_OBJECT && !child.children.isEmpty())
+				remaining = extractObject(parser, child, values, remaining);
+			else
+				parser.skipChildren();
+
+			if(remaining <= 0)
+				return 0;
+		}
+		return remaining;
+	}
+
+	/**
+	 * Returns a copy of the provided array having the field appended
+	 * @param fields
+	 * @param field
+	 * @return
+	 */
+	private static int[] appendField(final int[] fields, final int field) {
+		final int[] result = Arrays.copyOf(fields, fields.length + 1);
+		result[fields.length] = field;
+		return result;
+	}
+
+	public int getNumOfFields() {
+		return numOfFields;
+	}
+
+	/**
+	 * Node of the compiled path tree
+	 * @author mnxfst
+	 * @since Feb 16, 2016
+	 */
+	private static class PathNode {
+		/** nodes referenced by field name */
+		private final Map<String, PathNode> children = new HashMap<>();
+		/** positions of fields whose path ends here - null if none does */
+		private int[] fields = null;
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
+
+/**
+ * Reusable holder of the field values extracted by {@link JsonFieldExtractor}. Values are referenced by the position of
+ * their path. Numbers are kept in their primitive representation, textual values are converted on access only.
+ * @author mnxfst
+ * @since Feb 16, 2016
+ */
+public class JsonFieldValues {
+
+	/** token of each value - null if the field was not found */
+	private final JsonToken[] tokens;
+	/** textual representation of scalar values */
+	private final String[] texts;
+	/** integral representation of numerical values */
+	private final long[] longValues;
+	/** floating point representation of numerical values */
+	private final double[] doubleValues;
+
+	/**
+	 * Initializes the holder for the given number of fields
+	 * @param numOfFields
+	 */
+	public JsonFieldValues(final int numOfFields) {
+		this.tokens = new JsonToken[numOfFields];
+		this.texts = new String[numOfFields];
+		this.longValues = new long[numOfFields];
+		this.doubleValues = new double[numOfFields];
+	}
+
+	/**
+	 * Marks all fields as not found
+	 */
+	public void reset() {
+		Arrays.fill(this.tokens, null);
+		Arrays.fill(this.texts, null);
+	}
+
+	/**
+	 * Records the value the parser currently points to
+	 * @param field
+	 * @param parser
+	 * @param token
+	 * @throws IOException
+	 */
+	protected void set(final int field, final JsonParser parser, final JsonToken token) throws IOException {
+		this.tokens[field] = token;
+		switch(token) {
+			case VALUE_NUMBER_INT: {
+				this.texts[field] = parser.getText();
+				this.doubleValues[field] = parser.getDoubleValue();
+				try {
+					this.longValues[field] = parser.getLongValue();
+				} catch(JsonParseException e) {
+					// value exceeds long range
+					this.longValues[field] = (long)this.doubleValues[field];
+				}
+				break;
+			}
+			case VALUE_NUMBER_FLOAT: {
+				this.texts[field] = parser.getText();
+				this.doubleValues[field] = parser.getDoubleValue();
+				this.longValues[field] = (long)this.doubleValues[field];
+				break;
+			}
+			case VALUE_STRING:
+			case VALUE_TRUE:
+			case VALUE_FALSE: {
+				this.texts[field] = parser.getText();
+				break;
+			}
+			default: {
+				// null values and structures do not provide a scalar representation
+				this.texts[field] = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the referenced field was found - even if it holds null
+	 * @param field
+	 * @return
+	 */
+	public boolean isFound(final int field) {
+		return this.tokens[field] != null;
+	}
+
+	/**
+	 * Returns true if the referenced field holds a number
+	 * @param field
+	 * @return
+	 */
+	public boolean isNumber(final int field) {
+		return this.tokens[field] == JsonToken.VALUE_NUMBER_INT || this.tokens[field] == JsonToken.VALUE_NUMBER_FLOAT;
+	}
+
+	/**
+	 * Returns the token of the referenced field or null if it was not found
+	 * @param field
+	 * @return
+	 */
+	public JsonToken getToken(final int field) {
+		return this.tokens[field];
+	}
+
+	/**
+	 * Returns the textual representation of the referenced scalar value or null if the field was not found, holds null or a structure
+	 * @param field
+	 * @return
+	 */
+	public String getText(final int field) {
+		return this.texts[field];
+	}
+
+	/**
+	 * Returns the referenced value as long: numbers are truncated, strings parsed, true is converted into 1. All other values lead to 0
+	 * @param field
+	 * @return
+	 */
+	public long getLong(final int field) {
+		if(isNumber(field))
+			return this.longValues[field];
+		if(this.tokens[field] == JsonToken.VALUE_STRING)
+			return NumberInput.parseAsLong(this.texts[field], 0);
+		return (this.tokens[field] == JsonToken.VALUE_TRUE ? 1 : 0);
+	}
+
+	/**
+	 * Returns the referenced value as double: strings are parsed, true is converted into 1. All other non-numerical values lead to 0
+	 * @param field
+	 * @return
+	 */
+	public double getDouble(final int field) {
+		if(isNumber(field))
+			return this.doubleValues[field];
+		if(this.tokens[field] == JsonToken.VALUE_STRING)
+			return NumberInput.parseAsDouble(this.texts[field], 0);
+		return (this.tokens[field] == JsonToken.VALUE_TRUE ? 1 : 0);
+	}
+
+	/**
+	 * Returns the number of fields
+	 * @return
+	 */
+	public int size() {
+		return this.tokens.length;
+	}
+}
@@ -16,12 +16,19 @@
 package com.ottogroup.bi.spqr.pipeline.message;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonRootName;
 
 /**
- * Data structure used to transport data through a {@link MicroPipeline}
+ * Data structure used to transport data through a {@link MicroPipeline}. Besides the body, a message may carry 
+ * {@link StreamingDataMessageHeaders headers} which allow routing or partitioning without parsing the body.<br/><br/>
+ * Messages acquired from a {@link StreamingDataMessagePool} are reference counted: components keeping them beyond the
+ * current processing step must {@link #retain()} them and {@link #release()} them when done. For messages created via 
+ * constructor both calls have no effect
  * @author mnxfst
  * @since Mar 5, 2015
  */
@@ -38,6 +45,23 @@ public class StreamingDataMessage implements Serializable {
 	@JsonProperty ( value = "timestamp", required = true )
 	private long timestamp = 0;
 	
+	/** optional headers - null if none were set */
+	@JsonProperty ( value = "headers", required = false )
+	@JsonInclude ( JsonInclude.Include.NON_NULL )
+	private StreamingDataMessageHeaders headers = null;
+	
+	/** updates the reference count */
+	private static final AtomicIntegerFieldUpdater<StreamingDataMessage> REF_COUNT_UPDATER = AtomicIntegerFieldUpdater.newUpdater(StreamingDataMessage.class, "refCount");
+	/** pool the message returns to once released - null for messages not being pooled */
+	@JsonIgnore
+	private transient StreamingDataMessagePool pool = null;
+	/** number of components holding a reference - pooled messages only */
+	@JsonIgnore
+	private transient volatile int refCount = 1;
+	/** tracks the message until it gets released - pooled messages having leak detection enabled only */
+	@JsonIgnore
+	private transient StreamingDataMessagePool.LeakRecord leakRecord = null;
+	
 	/**
 	 * Default constructor
 	 */
@@ -54,6 +78,116 @@ public class StreamingDataMessage implements Serializable {
 		this.timestamp = timestamp;
 	}
 
+	/**
+	 * Initializes the message using the provided input
+	 * @param body
+	 * @param timestamp
+	 * @param headers optional headers
+	 */
+	public StreamingDataMessage(final byte[] body, final long timestamp, final StreamingDataMessageHeaders headers) {
+		this.body = body;
+		this.timestamp = timestamp;
+		this.headers = headers;
+	}
+	
+	/**
+	 * Returns true if at least one header is set
+	 * @return
+	 */
+	public boolean hasHeaders() {
+		return this.headers != null && !this.headers.isEmpty();
+	}
+	
+	/**
+	 * Returns the value of the referenced header or null if it does not exist 
+	 * @param name
+	 * @return
+	 */
+	public String getHeader(final String name) {
+		return (this.headers != null ? this.headers.get(name) : null);
+	}
+	
+	/**
+	 * Sets the value of the referenced header - headers are created on first use
+	 * @param name
+	 * @param value
+	 */
+	public void setHeader(final String name, final String value) {
+		if(this.headers == null)
+			this.headers = new StreamingDataMessageHeaders();
+		this.headers.set(name, value);
+	}
+
+	/**
+	 * Increments the reference count of a pooled message. Must be called by each component keeping a reference 
+	 * to the message beyond the current processing step, eg. queues storing the instance
+	 * @return this instance
+	 */
+	public StreamingDataMessage retain() {
+		if(this.pool != null) {
+			if(REF_COUNT_UPDATER.getAndIncrement(this) < 1) {
+				REF_COUNT_UPDATER.getAndDecrement(this);
+				throw new IllegalStateException("Message has already been released");
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Decrements the reference count of a pooled message and returns it to its pool once the count reaches zero. The 
+	 * message must not be accessed by the caller afterwards
+	 * @return true if the message has been returned to the pool
+	 */
+	public boolean release() {
+		if(this.pool == null)
+			return false;
+		
+		final int count = REF_COUNT_UPDATER.decrementAndGet(this);
+		if(count == 0) {
+			this.pool.recycle(this);
+			return true;
+		}
+		if(count < 0) {
+			REF_COUNT_UPDATER.incrementAndGet(this);
+			throw new IllegalStateException("Message has already been released");
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns true if the message was acquired from a {@link StreamingDataMessagePool}
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isPooled() {
+		return this.pool != null;
+	}
+	
+	/**
+	 * Returns the current reference count
+	 * @return
+	 */
+	@JsonIgnore
+	public int getReferenceCount() {
+		return this.refCount;
+	}
+	
+	protected void setPool(StreamingDataMessagePool pool) {
+		this.pool = pool;
+	}
+	
+	protected void resetReferenceCount() {
+		REF_COUNT_UPDATER.set(this, 1);
+	}
+
+	protected StreamingDataMessagePool.LeakRecord getLeakRecord() {
+		return leakRecord;
+	}
+
+	protected void setLeakRecord(StreamingDataMessagePool.LeakRecord leakRecord) {
+		this.leakRecord = leakRecord;
+	}
+
 	public byte[] getBody() {
 		return body;
 	}
@@ -69,4 +203,12 @@ public class StreamingDataMessage implements Serializable {
 	public void setTimestamp(long timestamp) {
 		this.timestamp = timestamp;
 	}
+
+	public StreamingDataMessageHeaders getHeaders() {
+		return headers;
+	}
+
+	public void setHeaders(StreamingDataMessageHeaders headers) {
+		this.headers = headers;
+	}
 }
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+
+/**
+ * Format of the {@link StreamingDataMessage#getBody() message body} exchanged between pipeline components. Any format supported
+ * by a Jackson {@link JsonFactory} may be used, thus components read and write content through the same streaming and tree
+ * model API regardless of the actual format. Besides {@link #JSON} - used by all sources and emitters - the binary {@link #SMILE}
+ * format is available which avoids text parsing and number conversion on internal hops. Additional codecs may be made available
+ * via {@link #register(StreamingDataMessageCodec)}.
+ * @author mnxfst
+ * @since Feb 15, 2016
+ */
+public class StreamingDataMessageCodec {
+
+	/** text JSON - default format */
+	public static final StreamingDataMessageCodec JSON = new StreamingDataMessageCodec("json", "application/json", new JsonFactory());
+	/** binary JSON as defined by the Smile specification */
+	public static final StreamingDataMessageCodec SMILE = new StreamingDataMessageCodec("smile", "application/x-jackson-smile", new SmileFactory());
+
+	/** codecs available by name */
+	private static final ConcurrentMap<String, StreamingDataMessageCodec> codecs = new ConcurrentHashMap<>();
+	static {
+		codecs.put(JSON.getName(), JSON);
+		codecs.put(SMILE.getName(), SMILE);
+	}
+
+	/** unique codec name (lower case) */
+	private final String name;
+	/** content type, eg. set as message header */
+	private final String contentType;
+	/** maps content into object representations and vice versa */
+	private final ObjectMapper mapper;
+
+	/**
+	 * Initializes the codec using the provided input
+	 * @param name
+	 * @param contentType
+	 * @param factory
+	 */
+	public StreamingDataMessageCodec(final String name, final String contentType, final JsonFactory factory) {
+		this.name = StringUtils.lowerCase(StringUtils.trim(name));
+		this.contentType = contentType;
+		this.mapper = new ObjectMapper(factory);
+	}
+
+	/**
+	 * Makes the provided codec available via {@link #getCodec(String)}. An existing codec of the same name is replaced
+	 * @param codec
+	 * @throws RequiredInputMissingException
+	 */
+	public static void register(final StreamingDataMessageCodec codec) throws RequiredInputMissingException {
+		if(codec == null)
+			throw new RequiredInputMissingException("Missing required codec");
+		if(StringUtils.isBlank(codec.getName()))
+			throw new RequiredInputMissingException("Missing required codec name");
+		codecs.put(codec.getName(), codec);
+	}
+
+	/**
+	 * Returns the codec registered for the given name or null if no such codec exists
+	 * @param name
+	 * @return
+	 */
+	public static StreamingDataMessageCodec getCodec(final String name) {
+		if(StringUtils.isBlank(name))
+			return null;
+		return codecs.get(StringUtils.lowerCase(StringUtils.trim(name)));
+	}
+
+	/**
+	 * Reads the provided content into a tree representation
+	 * @param content
+	 * @return
+	 * @throws IOException
+	 */
+	public JsonNode readTree(final byte[] content) throws IOException {
+		return this.mapper.readTree(content);
+	}
+
+	/**
+	 * Writes the provided object into its byte representation
+	 * @param value
+	 * @return
+	 * @throws JsonProcessingException
+	 */
+	public byte[] writeValueAsBytes(final Object value) throws JsonProcessingException {
+		return this.mapper.writeValueAsBytes(value);
+	}
+
+	/**
+	 * Converts the provided content into the format of the target codec. The content is streamed token by token
+	 * without building a tree representation. If both codecs are the same, the content is returned as it is
+	 * @param content
+	 * @param target
+	 * @return
+	 * @throws IOException
+	 */
+	public byte[] transcode(final byte[] content, final StreamingDataMessageCodec target) throws IOException {
+		if(content == null || target == null || target == this)
+			return content;
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+		try(JsonParser parser = getFactory().createParser(content); JsonGenerator generator = target.getFactory().createGenerator(out)) {
+			while(parser.nextToken() != null)
+				generator.copyCurrentEvent(parser);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns a copy of the provided message whose body is converted into the format of the target codec. The content type
+	 * header of the copy is set accordingly. If both codecs are the same, the message is returned as it is
+	 * @param message
+	 * @param target
+	 * @return
+	 * @throws IOException
+	 */
+	public StreamingDataMessage transcode(final StreamingDataMessage message, final StreamingDataMessageCodec target) throws IOException {
+		if(message == null || target == null || target == this)
+			return message;
+
+		final StreamingDataMessage result = new StreamingDataMessage(transcode(message.getBody(), target), message.getTimestamp(),
+				(message.hasHeaders() ? new StreamingDataMessageHeaders(message.getHeaders()) : null));
+		target.applyContentType(result);
+		return result;
+	}
+
+	/**
+	 * Sets the content type header of the provided message. Messages using {@link #JSON} do not receive a header as
+	 * it is the default format
+	 * @param message
+	 */
+	public void applyContentType(final StreamingDataMessage message) {
+		if(message == null)
+			return;
+		if(this != JSON || message.getHeader(StreamingDataMessageHeaders.CONTENT_TYPE) != null)
+			message.setHeader(StreamingDataMessageHeaders.CONTENT_TYPE, this.contentType);
+	}
+
+	/**
+	 * Returns the factory used for creating streaming parsers and generators
+	 * @return
+	 */
+	public JsonFactory getFactory() {
+		return this.mapper.getFactory();
+	}
+
+	/**
+	 * Returns the mapper used for converting content into object representations and vice versa
+	 * @return
+	 */
+	public ObjectMapper getObjectMapper() {
+		return this.mapper;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return this.name;
+	}
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+
+/**
+ * Small set of textual headers attached to a {@link StreamingDataMessage}. Headers carry information required by routing,
+ * partitioning or filtering stages - eg. the {@link #KEY message key} or its {@link #CONTENT_TYPE content type} - which
+ * thus do not need to parse the message body. Besides the well-known headers having typed accessors, any custom header
+ * may be set.<br/><br/>
+ * Headers are kept in two parallel arrays as messages usually carry a handful of them only. When written to a queue,
+ * well-known header names are encoded by a single byte (see {@link #writeTo(DataOutput)}).
+ * @author mnxfst
+ * @since Feb 12, 2016
+ */
+@JsonAutoDetect(getterVisibility=Visibility.NONE, isGetterVisibility=Visibility.NONE, setterVisibility=Visibility.NONE, fieldVisibility=Visibility.NONE)
+public class StreamingDataMessageHeaders implements Serializable {
+
+	private static final long serialVersionUID = -3361924707208331085L;
+
+	/////////////////////////////////////////////////////////////////////
+	// well-known headers
+	/** key identifying the entity the message refers to - used for partitioning */
+	public static final String KEY = "key";
+	/** type of content found in message body, eg. application/json */
+	public static final String CONTENT_TYPE = "contentType";
+	/** identifier of component the message originates from */
+	public static final String ORIGIN = "origin";
+	/** identifier used to trace a message across pipelines */
+	public static final String TRACE_ID = "traceId";
+	/////////////////////////////////////////////////////////////////////
+
+	/** well-known header names, the array index + 1 is used as encoded name */
+	private static final String[] WELL_KNOWN_HEADERS = new String[]{KEY, CONTENT_TYPE, ORIGIN, TRACE_ID};
+	/** encoded name marking a custom header whose name follows */
+	private static final byte CUSTOM_HEADER = 0;
+	/** max. number of headers */
+	public static final int MAX_HEADERS = 127;
+
+	/** header names */
+	private String[] names = new String[4];
+	/** header values */
+	private String[] values = new String[4];
+	/** number of headers */
+	private int size = 0;
+
+	/**
+	 * Default constructor
+	 */
+	public StreamingDataMessageHeaders() {
+	}
+
+	/**
+	 * Initializes the headers with a copy of the provided ones
+	 * @param headers
+	 */
+	public StreamingDataMessageHeaders(final StreamingDataMessageHeaders headers) {
+		if(headers != null) {
+			this.names = headers.names.clone();
+			this.values = headers.values.clone();
+			this.size = headers.size;
+		}
+	}
+
+	/**
+	 * Returns the value of the referenced header or null if it does not exist
+	 * @param name
+	 * @return
+	 */
+	public String get(final String name) {
+		final int index = indexOf(name);
+		return (index >= 0 ? this.values[index] : null);
+	}
+
+	/**
+	 * Sets the value of the referenced header. If the value is null, the header is removed
+	 * @param name
+	 * @param value
+	 * @return this instance
+	 */
+	@JsonAnySetter
+	public StreamingDataMessageHeaders set(final String name, final String value) {
+		if(name == null)
+			return this;
+
+		final int index = indexOf(name);
+		if(value == null) {
+			if(index >= 0) {
+				this.size--;
+				this.names[index] = this.names[this.size];
+				this.values[index] = this.values[this.size];
+				this.names[this.size] = null;
+				this.values[this.size] = null;
+			}
+			return this;
+		}
+
+		if(index >= 0) {
+			this.values[index] = value;
+		} else {
+			if(this.size == MAX_HEADERS)
+				throw new IllegalStateException("Max. number of headers exceeded [max="+MAX_HEADERS+"]");
+			if(this.size == this.names.length) {
+				this.names = Arrays.copyOf(this.names, Math.min(this.size * 2, MAX_HEADERS));
+				this.values = Arrays.copyOf(this.values, this.names.length);
+			}
+			this.names[this.size] = name;
+			this.values[this.size] = value;
+			this.size++;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the name of the header found at the given position
+	 * @param index
+	 * @return
+	 */
+	public String getName(final int index) {
+		if(index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of header bounds [0, " + this.size + ")");
+		return this.names[index];
+	}
+
+	/**
+	 * Returns the value of the header found at the given position
+	 * @param index
+	 * @return
+	 */
+	public String getValue(final int index) {
+		if(index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of header bounds [0, " + this.size + ")");
+		return this.values[index];
+	}
+
+	/**
+	 * Returns the number of headers
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if no header is set
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns all headers as map - used for JSON serialization
+	 * @return
+	 */
+	@JsonAnyGetter
+	public Map<String, String> toMap() {
+		final Map<String, String> result = new LinkedHashMap<>();
+		for(int i = 0; i < this.size; i++)
+			result.put(this.names[i], this.values[i]);
+		return result;
+	}
+
+	/**
+	 * Writes the headers to the provided output: one byte holding the number of headers followed by each header. A header
+	 * consists of one byte holding the encoded name and the value as UTF string. Custom header names are written as UTF
+	 * string following the encoded name {@link #CUSTOM_HEADER}
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(final DataOutput out) throws IOException {
+		out.writeByte(this.size);
+		for(int i = 0; i < this.size; i++) {
+			final int code = encodeName(this.names[i]);
+			out.writeByte(code);
+			if(code == CUSTOM_HEADER)
+				out.writeUTF(this.names[i]);
+			out.writeUTF(this.values[i]);
+		}
+	}
+
+	/**
+	 * Reads headers previously written via {@link #writeTo(DataOutput)} from the provided input
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static StreamingDataMessageHeaders readFrom(final DataInput in) throws IOException {
+		final int count = in.readByte();
+		final StreamingDataMessageHeaders headers = new StreamingDataMessageHeaders();
+		for(int i = 0; i < count; i++) {
+			final int code = in.readByte();
+			final String name = (code == CUSTOM_HEADER ? in.readUTF() : decodeName(code));
+			headers.set(name, in.readUTF());
+		}
+		return headers;
+	}
+
+	/**
+	 * Returns the encoded name of the given header
+	 * @param name
+	 * @return
+	 */
+	private static int encodeName(final String name) {
+		for(int i = 0; i < WELL_KNOWN_HEADERS.length; i++)
+			if(WELL_KNOWN_HEADERS[i].equals(name))
+				return i + 1;
+		return CUSTOM_HEADER;
+	}
+
+	/**
+	 * Returns the header name for the given code
+	 * @param code
+	 * @return
+	 * @throws IOException
+	 */
+	private static String decodeName(final int code) throws IOException {
+		if(code < 1 || code > WELL_KNOWN_HEADERS.length)
+			throw new IOException("Unknown header code: " + code);
+		return WELL_KNOWN_HEADERS[code - 1];
+	}
+
+	/**
+	 * Returns the position of the referenced header or -1 if it does not exist
+	 * @param name
+	 * @return
+	 */
+	private int indexOf(final String name) {
+		for(int i = 0; i < this.size; i++)
+			if(this.names[i].equals(name))
+				return i;
+		return -1;
+	}
+
+	public String getKey() {
+		return get(KEY);
+	}
+
+	public StreamingDataMessageHeaders setKey(String key) {
+		return set(KEY, key);
+	}
+
+	public String getContentType() {
+		return get(CONTENT_TYPE);
+	}
+
+	public StreamingDataMessageHeaders setContentType(String contentType) {
+		return set(CONTENT_TYPE, contentType);
+	}
+
+	public String getOrigin() {
+		return get(ORIGIN);
+	}
+
+	public StreamingDataMessageHeaders setOrigin(String origin) {
+		return set(ORIGIN, origin);
+	}
+
+	public String getTraceId() {
+		return get(TRACE_ID);
+	}
+
+	public StreamingDataMessageHeaders setTraceId(String traceId) {
+		return set(TRACE_ID, traceId);
+	}
+}
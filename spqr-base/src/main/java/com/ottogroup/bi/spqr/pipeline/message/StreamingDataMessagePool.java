@@ -0,0 +1,269 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps released {@link StreamingDataMessage} instances together with their body arrays for reuse. Messages are handed out
+ * by {@link #acquire(int, long)} having a reference count of one. Each component keeping a reference beyond the current
+ * processing step must {@link StreamingDataMessage#retain() retain} the message and {@link StreamingDataMessage#release() release}
+ * it once done. When the count drops to zero, the message returns to the pool.<br/><br/>
+ * As the length of the body array is the body length throughout the code base, arrays cannot be rounded up to a few size
+ * classes. Instead each distinct body length forms a class of its own, holding up to {@link #getMaxMessagesPerClass()} messages.
+ * Bodies larger than {@link #getMaxBodyLength()} are never pooled. As varying body lengths would otherwise let the pool retain
+ * up to {@link #getMaxMessagesPerClass()} messages for each length, the bodies kept by all classes together must not exceed
+ * {@link #getMaxRetainedBytes()}. Messages released while the budget is exhausted are left to the garbage collector.<br/><br/>
+ * If leak detection is enabled (default if debug logging is enabled for this class), each acquired message is tracked
+ * through a weak reference together with the stack trace of its acquisition. Messages garbage collected without being
+ * released are reported as errors.
+ * @author mnxfst
+ * @since Feb 13, 2016
+ */
+public class StreamingDataMessagePool {
+
+	/** our faithful logging facility ... ;-) */
+	private static final Logger logger = Logger.getLogger(StreamingDataMessagePool.class);
+
+	/** default max. number of messages kept per body length */
+	public static final int DEFAULT_MAX_MESSAGES_PER_CLASS = 256;
+	/** default max. body length of pooled messages */
+	public static final int DEFAULT_MAX_BODY_LENGTH = 64 * 1024;
+	/** default max. number of body bytes kept by the pool */
+	public static final long DEFAULT_MAX_RETAINED_BYTES = 16 * 1024 * 1024;
+
+	/** released messages by body length */
+	private final ConcurrentMap<Integer, SizeClass> sizeClasses = new ConcurrentHashMap<>();
+	/** max. number of messages kept per body length */
+	private final int maxMessagesPerClass;
+	/** max. body length of pooled messages */
+	private final int maxBodyLength;
+	/** max. number of body bytes kept by the pool */
+	private final long maxRetainedBytes;
+	/** number of body bytes currently kept by the pool */
+	private final AtomicLong retainedBytes = new AtomicLong(0);
+	/** report messages which have not been released */
+	private final boolean leakDetection;
+	/** tracked messages - leak detection only */
+	private final ConcurrentMap<LeakRecord, Boolean> leakRecords = new ConcurrentHashMap<>();
+	/** receives the records of collected messages - leak detection only */
+	private final ReferenceQueue<StreamingDataMessage> collectedMessages = new ReferenceQueue<>();
+	/** number of messages taken from the pool */
+	private final AtomicLong numOfReused = new AtomicLong(0);
+	/** number of leaks detected */
+	private final AtomicLong numOfLeaks = new AtomicLong(0);
+
+	/**
+	 * Initializes the pool using default settings. Leak detection is enabled if debug logging is
+	 */
+	public StreamingDataMessagePool() {
+		this(DEFAULT_MAX_MESSAGES_PER_CLASS, DEFAULT_MAX_BODY_LENGTH, DEFAULT_MAX_RETAINED_BYTES, logger.isDebugEnabled());
+	}
+
+	/**
+	 * Initializes the pool using the provided input and {@link #DEFAULT_MAX_RETAINED_BYTES}
+	 * @param maxMessagesPerClass max. number of messages kept per body length - values below 1 lead to {@link #DEFAULT_MAX_MESSAGES_PER_CLASS}
+	 * @param maxBodyLength max. body length of pooled messages - values below 0 lead to {@link #DEFAULT_MAX_BODY_LENGTH}
+	 * @param leakDetection report messages which have not been released
+	 */
+	public StreamingDataMessagePool(final int maxMessagesPerClass, final int maxBodyLength, final boolean leakDetection) {
+		this(maxMessagesPerClass, maxBodyLength, DEFAULT_MAX_RETAINED_BYTES, leakDetection);
+	}
+
+	/**
+	 * Initializes the pool using the provided input
+	 * @param maxMessagesPerClass max. number of messages kept per body length - values below 1 lead to {@link #DEFAULT_MAX_MESSAGES_PER_CLASS}
+	 * @param maxBodyLength max. body length of pooled messages - values below 0 lead to {@link #DEFAULT_MAX_BODY_LENGTH}
+	 * @param maxRetainedBytes max. number of body bytes kept by the pool - values below 0 lead to {@link #DEFAULT_MAX_RETAINED_BYTES}
+	 * @param leakDetection report messages which have not been released
+	 */
+	public StreamingDataMessagePool(final int maxMessagesPerClass, final int maxBodyLength, final long maxRetainedBytes, final boolean leakDetection) {
+		this.maxMessagesPerClass = (maxMessagesPerClass > 0 ? maxMessagesPerClass : DEFAULT_MAX_MESSAGES_PER_CLASS);
+		this.maxBodyLength = (maxBodyLength >= 0 ? maxBodyLength : DEFAULT_MAX_BODY_LENGTH);
+		this.maxRetainedBytes = (maxRetainedBytes >= 0 ? maxRetainedBytes : DEFAULT_MAX_RETAINED_BYTES);
+		this.leakDetection = leakDetection;
+	}
+
+	/**
+	 * Returns a message having a body of the requested length and a reference count of one. The content of the
+	 * body is undefined and must be overwritten by the caller
+	 * @param bodyLength
+	 * @param timestamp
+	 * @return
+	 */
+	public StreamingDataMessage acquire(final int bodyLength, final long timestamp) {
+
+		StreamingDataMessage message = null;
+		if(bodyLength <= this.maxBodyLength) {
+			final SizeClass sizeClass = this.sizeClasses.get(bodyLength);
+			if(sizeClass != null && (message = sizeClass.messages.poll()) != null) {
+				sizeClass.size.decrementAndGet();
+				this.retainedBytes.addAndGet(-bodyLength);
+				this.numOfReused.incrementAndGet();
+			}
+		}
+
+		if(message == null) {
+			message = new StreamingDataMessage(new byte[bodyLength], timestamp);
+			message.setPool(this);
+		}
+		message.setTimestamp(timestamp);
+		message.setHeaders(null);
+		message.resetReferenceCount();
+
+		if(this.leakDetection) {
+			reportLeaks();
+			final LeakRecord record = new LeakRecord(message, this.collectedMessages);
+			this.leakRecords.put(record, Boolean.TRUE);
+			message.setLeakRecord(record);
+		}
+		return message;
+	}
+
+	/**
+	 * Returns the message to the pool - invoked by {@link StreamingDataMessage#release()} only
+	 * @param message
+	 */
+	protected void recycle(final StreamingDataMessage message) {
+
+		if(this.leakDetection && message.getLeakRecord() != null) {
+			this.leakRecords.remove(message.getLeakRecord());
+			message.getLeakRecord().clear();
+			message.setLeakRecord(null);
+		}
+
+		final byte[] body = message.getBody();
+		if(body == null || body.length > this.maxBodyLength)
+			return;
+
+		SizeClass sizeClass = this.sizeClasses.get(body.length);
+		if(sizeClass == null) {
+			sizeClass = new SizeClass();
+			final SizeClass existing = this.sizeClasses.putIfAbsent(body.length, sizeClass);
+			if(existing != null)
+				sizeClass = existing;
+		}
+
+		if(sizeClass.size.incrementAndGet() > this.maxMessagesPerClass) {
+			sizeClass.size.decrementAndGet();
+			return;
+		}
+		if(this.retainedBytes.addAndGet(body.length) > this.maxRetainedBytes) {
+			this.retainedBytes.addAndGet(-body.length);
+			sizeClass.size.decrementAndGet();
+			return;
+		}
+		sizeClass.messages.offer(message);
+	}
+
+	/**
+	 * Reports all messages garbage collected without being released
+	 */
+	protected void reportLeaks() {
+		LeakRecord record = null;
+		while((record = (LeakRecord)this.collectedMessages.poll()) != null) {
+			if(this.leakRecords.remove(record) != null) {
+				this.numOfLeaks.incrementAndGet();
+				logger.error("Pooled message was garbage collected without being released. Acquired at:", record.acquisition);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of messages currently kept by the pool
+	 * @return
+	 */
+	public int getNumOfPooledMessages() {
+		int count = 0;
+		for(final SizeClass sizeClass : this.sizeClasses.values())
+			count += sizeClass.size.get();
+		return count;
+	}
+
+	/**
+	 * Returns the number of body bytes currently kept by the pool
+	 * @return
+	 */
+	public long getNumOfRetainedBytes() {
+		return this.retainedBytes.get();
+	}
+
+	/**
+	 * Returns the number of messages taken from the pool instead of being allocated
+	 * @return
+	 */
+	public long getNumOfReused() {
+		return this.numOfReused.get();
+	}
+
+	/**
+	 * Returns the number of leaks detected so far - leak detection only
+	 * @return
+	 */
+	public long getNumOfLeaks() {
+		reportLeaks();
+		return this.numOfLeaks.get();
+	}
+
+	public int getMaxMessagesPerClass() {
+		return maxMessagesPerClass;
+	}
+
+	public int getMaxBodyLength() {
+		return maxBodyLength;
+	}
+
+	public long getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	public boolean isLeakDetection() {
+		return leakDetection;
+	}
+
+	/**
+	 * Released messages sharing the same body length
+	 * @author mnxfst
+	 * @since Feb 13, 2016
+	 */
+	private static class SizeClass {
+		private final Queue<StreamingDataMessage> messages = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger(0);
+	}
+
+	/**
+	 * Tracks an acquired message until it gets released - leak detection only
+	 * @author mnxfst
+	 * @since Feb 13, 2016
+	 */
+	protected static class LeakRecord extends WeakReference<StreamingDataMessage> {
+		/** stack trace of acquisition */
+		private final Throwable acquisition = new Throwable("message acquisition");
+
+		private LeakRecord(final StreamingDataMessage message, final ReferenceQueue<StreamingDataMessage> queue) {
+			super(message, queue);
+		}
+	}
+}
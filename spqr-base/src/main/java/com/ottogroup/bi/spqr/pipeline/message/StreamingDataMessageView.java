@@ -0,0 +1,68 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view on a message which is still located inside the storage of the queue it was read from. Compared to 
+ * {@link StreamingDataMessage} the body is not copied into a dedicated array but accessed directly, eg. inside
+ * the memory mapped file of a chronicle. Views are flyweights: the instance as well as all buffers returned by it
+ * are reused and remain valid only until the next view gets requested from the same queue. Components which need 
+ * to keep the content or forward it to another queue must call {@link #toMessage()}. 
+ * @author mnxfst
+ * @since Feb 4, 2016
+ */
+public interface StreamingDataMessageView {
+
+	/**
+	 * Returns the time the message entered the system
+	 * @return
+	 */
+	public long getTimestamp();
+	
+	/**
+	 * Returns the {@link StreamingDataMessageHeaders headers} attached to the message or null if there are none. The 
+	 * headers are decoded without touching the body and - unlike the view - remain valid after the view moved on
+	 * @return
+	 */
+	public StreamingDataMessageHeaders getHeaders();
+	
+	/**
+	 * Returns the number of bytes contained in the message body
+	 * @return
+	 */
+	public int getBodyLength();
+	
+	/**
+	 * Returns the body byte found at the given index
+	 * @param index
+	 * @return
+	 */
+	public byte getByte(final int index);
+
+	/**
+	 * Returns a read-only {@link ByteBuffer} on the message body (position: 0, limit: body length)
+	 * @return
+	 */
+	public ByteBuffer getBody();
+	
+	/**
+	 * Copies the content into a newly created {@link StreamingDataMessage} which remains valid after the view moved on
+	 * @return
+	 */
+	public StreamingDataMessage toMessage();
+}
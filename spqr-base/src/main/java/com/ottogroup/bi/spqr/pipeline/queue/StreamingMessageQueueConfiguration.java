@@ -40,6 +40,15 @@ public class StreamingMessageQueueConfiguration implements Serializable {
 	/** add message retrieval counter */
 	@JsonProperty(value="attachRetrievalCounter", required=false)
 	private boolean attachRetrievalCounter = false;
+	/** max. number of messages waiting inside the queue - values below 1 denote an unbounded queue */
+	@JsonProperty(value="capacity", required=false)
+	private long capacity = 0;
+	/** policy applied by producers when the queue reached its capacity: block (default), dropNewest, dropOldest, fail */
+	@JsonProperty(value="overflowPolicy", required=false)
+	private String overflowPolicy = null;
+	/** provide each reading component with its own cursor instead of splitting messages between them */
+	@JsonProperty(value="broadcast", required=false)
+	private boolean broadcast = false;
 	/** queue settings */
 	@JsonProperty(value="queueSettings", required=true)
 	private Properties properties = null;
@@ -81,5 +90,29 @@ public class StreamingMessageQueueConfiguration implements Serializable {
 
 	public void setAttachRetrievalCounter(boolean attachRetrievalCounter) {
 		this.attachRetrievalCounter = attachRetrievalCounter;
-	}	
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(long capacity) {
+		this.capacity = capacity;
+	}
+
+	public String getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public void setOverflowPolicy(String overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public boolean isBroadcast() {
+		return broadcast;
+	}
+
+	public void setBroadcast(boolean broadcast) {
+		this.broadcast = broadcast;
+	}
 }
@@ -17,6 +17,7 @@ package uk.co.real_logic.queues;
 
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -25,7 +26,11 @@ import java.util.concurrent.locks.ReentrantLock;
  * Implements a wait strategy in the style of {@link https://github.com/jbrisbin/disruptor/blob/master/src/main/java/com/lmax/disruptor/BlockingWaitStrategy.java}.
  * It tries to read messages from an assigned {@link Queue}. If there is no content the strategy blocks until
  * either a timeout is reached or sleeping is interrupted from the outside. Apply this strategy when throughput and latency may
- * be spoiled in favor of CPU consumption. 
+ * be spoiled in favor of CPU consumption.<br/><br/>
+		// nobody to wake up - skip the lock. The read-modify-write fences the message published before against 
+		// reading the counter: a consumer not yet counted finds the message when checking the queue again
+		if(waiters.getAndAdd(0) == 0)
+			return;
  * @author mnxfst
  * @since Apr 20, 2015
  */
@@ -33,6 +38,8 @@ public class BlockingWaitStrategy implements MessageWaitStrategy<byte[]> {
 	
 	private final Lock lock = new ReentrantLock();
 	private final Condition condition = lock.newCondition();
+	/** number of consumers blocked on or about to block on the condition */
+	private final AtomicInteger waiters = new AtomicInteger(0);
 	
 	/**
 	 * @see uk.co.real_logic.queues.MessageWaitStrategy#waitFor(java.util.Queue)
@@ -43,7 +50,8 @@ public class BlockingWaitStrategy implements MessageWaitStrategy<byte[]> {
 		
 		if((message = queue.poll()) == null) {
 			
-			// acquire lock			
+			// announce the consumer before acquiring the lock and checking the queue again
+			waiters.incrementAndGet();
 			lock.lock();
 			try {				
 				// try to fetch the next element from the queue.
@@ -55,6 +63,7 @@ public class BlockingWaitStrategy implements MessageWaitStrategy<byte[]> {
 			} finally {
 				// release lock
 				lock.unlock();
+				waiters.decrementAndGet();
 			}			
 		}
 		
@@ -69,13 +78,15 @@ public class BlockingWaitStrategy implements MessageWaitStrategy<byte[]> {
 		
 		if((message = queue.poll()) == null) {
 			
-			// acquire lock			
+			// announce the consumer before acquiring the lock and checking the queue again
+			waiters.incrementAndGet();
 			lock.lock();
 			try {				
 				// try to fetch the next element from the queue.
 				// if there is no entry available, wait for time out and try again
 				while((message = queue.poll()) == null) {
 					if(!condition.await(timeout, timeoutUnit)) {
+						message = queue.poll();
 						break;
 					}
 				}
@@ -83,17 +94,31 @@ public class BlockingWaitStrategy implements MessageWaitStrategy<byte[]> {
 			} finally {
 				// release lock
 				lock.unlock();
+				waiters.decrementAndGet();
 			}			
 		}
 		
 		return message;
 	}
 
+	/**
+	 * Returns the number of consumers currently blocked
+	 * @return
+	 */
+	public int getWaiters() {
+		return waiters.get();
+	}
+
 	/**
 	 * @see uk.co.real_logic.queues.MessageWaitStrategy#forceLockRelease()
 	 */
 	public void forceLockRelease() {
 		
+		// nobody to wake up - skip the lock. The read-modify-write fences the message published before against 
+		// reading the counter: a consumer not yet counted finds the message when checking the queue again
+		if(waiters.getAndAdd(0) == 0)
+			return;
+		
 		// acquire lock
 		lock.lock();
 		try {
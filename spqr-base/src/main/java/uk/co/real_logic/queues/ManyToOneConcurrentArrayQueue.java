@@ -0,0 +1,138 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.queues;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, preallocated array queue which supports multiple concurrent producers but only a single consumer. Producers
+ * claim a slot by advancing the tail through compare-and-set and publish their element with an ordered write into the
+ * claimed slot. The consumer detects published elements by reading the slot at head position. Compared to
+ * {@link OneToOneConcurrentArrayQueue3} the producer path requires a CAS operation, the consumer path stays the same.
+ * @author mnxfst
+ * @since Feb 2, 2016
+ */
+public final class ManyToOneConcurrentArrayQueue<E> extends AbstractQueue<E> {
+
+	private final int capacity;
+	private final int mask;
+	private final AtomicReferenceArray<E> buffer;
+
+	/** next slot to be claimed by any producer */
+	private final AtomicLong tail = new PaddedAtomicLong(0);
+	/** next slot to be read by the consumer */
+	private final AtomicLong head = new PaddedAtomicLong(0);
+	/** head value last seen by any producer - avoids reading the consumer owned counter on each insert */
+	private final AtomicLong sharedHeadCache = new PaddedAtomicLong(0);
+
+	/**
+	 * Initializes the queue using the provided capacity which is rounded up to the next power of two
+	 * @param capacity
+	 */
+	public ManyToOneConcurrentArrayQueue(final int capacity) {
+		this.capacity = OneToOneConcurrentArrayQueue3.findNextPositivePowerOfTwo(capacity);
+		this.mask = this.capacity - 1;
+		this.buffer = new AtomicReferenceArray<E>(this.capacity);
+	}
+
+	/**
+	 * @see java.util.Queue#offer(java.lang.Object)
+	 */
+	public boolean offer(final E e) {
+		if(e == null)
+			throw new NullPointerException("Null is not a valid element");
+
+		long currentTail;
+		do {
+			currentTail = tail.get();
+			final long wrapPoint = currentTail - capacity;
+			if(sharedHeadCache.get() <= wrapPoint) {
+				final long currentHead = head.get();
+				if(currentHead <= wrapPoint)
+					return false;
+				sharedHeadCache.lazySet(currentHead);
+			}
+		} while(!tail.compareAndSet(currentTail, currentTail + 1));
+
+		// publish element - the consumer waits for the slot to become non-null
+		buffer.lazySet((int)currentTail & mask, e);
+		return true;
+	}
+
+	/**
+	 * @see java.util.Queue#poll()
+	 */
+	public E poll() {
+		final long currentHead = head.get();
+		final int index = (int)currentHead & mask;
+		final E e = buffer.get(index);
+		if(e != null) {
+			buffer.lazySet(index, null);
+			head.lazySet(currentHead + 1);
+		}
+		return e;
+	}
+
+	/**
+	 * @see java.util.Queue#peek()
+	 */
+	public E peek() {
+		return buffer.get((int)head.get() & mask);
+	}
+
+	/**
+	 * @see java.util.AbstractCollection#size()
+	 */
+	public int size() {
+		// read head first to avoid reporting a negative size while producers are active
+		final long currentHead = head.get();
+		final long currentTail = tail.get();
+		return (int)Math.min(currentTail - currentHead, capacity);
+	}
+
+	/**
+	 * @see java.util.AbstractCollection#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return tail.get() == head.get();
+	}
+
+	/**
+	 * Returns the capacity of the queue
+	 * @return
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @see java.util.AbstractCollection#iterator()
+	 */
+	public Iterator<E> iterator() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @see java.util.AbstractQueue#clear()
+	 */
+	public void clear() {
+		while(poll() != null)
+			;
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+
+/**
+ * Test case for {@link JsonFieldExtractor}
+ * @author mnxfst
+ * @since Feb 16, 2016
+ */
+public class JsonFieldExtractorTest {
+
+	/**
+	 * Test case for {@link JsonFieldExtractor#JsonFieldExtractor(java.util.List)} being provided an empty path
+	 */
+	@Test(expected=RequiredInputMissingException.class)
+	public void testConstructor_withEmptyPath() throws Exception {
+		new JsonFieldExtractor(Arrays.asList(new String[]{"a"}, new String[0]));
+	}
+
+	/**
+	 * Test case for {@link JsonFieldExtractor#extract(com.fasterxml.jackson.core.JsonFactory, byte[], JsonFieldValues)} being
+	 * provided nested, missing, duplicate and non-scalar fields
+	 */
+	@Test
+	public void testExtract_withNestedFields() throws Exception {
+		JsonFieldExtractor extractor = new JsonFieldExtractor(Arrays.asList(
+				new String[]{"data", "host"}, new String[]{"data", "size"}, new String[]{"missing"}, new String[]{"data", "host"}, new String[]{"data"}, new String[]{"flag"}));
+		JsonFieldValues values = extractor.newValues();
+
+		byte[] content = "{\"skip\":{\"host\":\"wrong\"},\"list\":[1,{\"data\":2}],\"data\":{\"host\":\"www.otto.de\",\"size\":\"42\"},\"flag\":true}".getBytes();
+		Assert.assertTrue("Content must be parsed", extractor.extract(null, content, values));
+		Assert.assertEquals("Values must be equal", "www.otto.de", values.getText(0));
+		Assert.assertEquals("Values must be equal", 42, values.getLong(1));
+		Assert.assertFalse("Field must not be found", values.isFound(2));
+		Assert.assertNull("Missing field has no text", values.getText(2));
+		Assert.assertEquals("Values must be equal", "www.otto.de", values.getText(3));
+		Assert.assertTrue("Structure must be found", values.isFound(4));
+		Assert.assertNull("Structure has no text", values.getText(4));
+		Assert.assertEquals("Values must be equal", 1, values.getLong(5));
+
+		Assert.assertFalse("Array is no object", extractor.extract(null, "[1,2]".getBytes(), values));
+		Assert.assertFalse("Values must be reset", values.isFound(0));
+		Assert.assertFalse("Invalid content", extractor.extract(null, "{\"data\":".getBytes(), values));
+	}
+
+	/**
+	 * Test case for {@link JsonFieldExtractor#extract(com.fasterxml.jackson.core.JsonFactory, byte[], JsonFieldValues)}: parsing
+	 * must stop once all fields are found, thus invalid content following them is not detected
+	 */
+	@Test
+	public void testExtract_withEarlyStop() throws Exception {
+		JsonFieldExtractor extractor = new JsonFieldExtractor(Arrays.asList(new String[]{"price"}, new String[]{"ratio"}));
+		JsonFieldValues values = extractor.newValues();
+		Assert.assertTrue("Parsing must stop early", extractor.extract(null, "{\"price\":12345678901,\"ratio\":0.75, this is no json".getBytes(), values));
+		Assert.assertTrue("Value must be a number", values.isNumber(0));
+		Assert.assertEquals("Values must be equal", 12345678901L, values.getLong(0));
+		Assert.assertEquals("Values must be equal", 0.75, values.getDouble(1), 0.0);
+		Assert.assertEquals("Values must be equal", 0, values.getLong(1));
+	}
+
+	/**
+	 * Test case for {@link JsonFieldExtractor#extract(com.fasterxml.jackson.core.JsonFactory, byte[], JsonFieldValues)} being
+	 * provided content encoded by the smile codec
+	 */
+	@Test
+	public void testExtract_withSmileContent() throws Exception {
+		byte[] content = StreamingDataMessageCodec.JSON.transcode("{\"a\":{\"b\":\"value\",\"c\":7}}".getBytes(), StreamingDataMessageCodec.SMILE);
+		JsonFieldExtractor extractor = new JsonFieldExtractor(Arrays.asList(new String[]{"a", "b"}, new String[]{"a", "c"}));
+		JsonFieldValues values = extractor.newValues();
+		Assert.assertTrue("Content must be parsed", extractor.extract(StreamingDataMessageCodec.SMILE.getFactory(), content, values));
+		Assert.assertEquals("Values must be equal", "value", values.getText(0));
+		Assert.assertEquals("Values must be equal", 7, values.getLong(1));
+	}
+}
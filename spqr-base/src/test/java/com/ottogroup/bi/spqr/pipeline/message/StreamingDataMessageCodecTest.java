@@ -0,0 +1,64 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Test case for {@link StreamingDataMessageCodec}
+ * @author mnxfst
+ * @since Feb 15, 2016
+ */
+public class StreamingDataMessageCodecTest {
+
+	/**
+	 * Test case for {@link StreamingDataMessageCodec#getCodec(String)} being provided unknown and differently cased names
+	 */
+	@Test
+	public void testGetCodec_withVariousNames() {
+		Assert.assertNull("Null must be ignored", StreamingDataMessageCodec.getCodec(null));
+		Assert.assertNull("Unknown codec", StreamingDataMessageCodec.getCodec("unknown"));
+		Assert.assertSame("Codecs must be the same", StreamingDataMessageCodec.JSON, StreamingDataMessageCodec.getCodec(" JSON "));
+		Assert.assertSame("Codecs must be the same", StreamingDataMessageCodec.SMILE, StreamingDataMessageCodec.getCodec("smile"));
+	}
+
+	/**
+	 * Test case for {@link StreamingDataMessageCodec#transcode(StreamingDataMessage, StreamingDataMessageCodec)}: content converted
+	 * to smile and back must equal the original content, headers must be copied and the content type must be set
+	 */
+	@Test
+	public void testTranscode_withJsonAndSmile() throws Exception {
+		final byte[] json = "{\"name\":\"test\",\"values\":[1,2.5,true,null],\"nested\":{\"id\":4711}}".getBytes("UTF-8");
+		final StreamingDataMessage message = new StreamingDataMessage(json, 123, new StreamingDataMessageHeaders().setKey("key"));
+		Assert.assertSame("Message must be returned as it is", message, StreamingDataMessageCodec.JSON.transcode(message, StreamingDataMessageCodec.JSON));
+
+		final StreamingDataMessage smile = StreamingDataMessageCodec.JSON.transcode(message, StreamingDataMessageCodec.SMILE);
+		Assert.assertEquals("Values must be equal", 123, smile.getTimestamp());
+		Assert.assertEquals("Values must be equal", "key", smile.getHeader(StreamingDataMessageHeaders.KEY));
+		Assert.assertEquals("Values must be equal", StreamingDataMessageCodec.SMILE.getContentType(), smile.getHeader(StreamingDataMessageHeaders.CONTENT_TYPE));
+		Assert.assertNull("Original headers must not be modified", message.getHeader(StreamingDataMessageHeaders.CONTENT_TYPE));
+
+		final JsonNode original = StreamingDataMessageCodec.JSON.readTree(json);
+		Assert.assertEquals("Values must be equal", original, StreamingDataMessageCodec.SMILE.readTree(smile.getBody()));
+
+		final StreamingDataMessage back = StreamingDataMessageCodec.SMILE.transcode(smile, StreamingDataMessageCodec.JSON);
+		Assert.assertEquals("Values must be equal", original, StreamingDataMessageCodec.JSON.readTree(back.getBody()));
+		Assert.assertEquals("Values must be equal", StreamingDataMessageCodec.JSON.getContentType(), back.getHeader(StreamingDataMessageHeaders.CONTENT_TYPE));
+	}
+}
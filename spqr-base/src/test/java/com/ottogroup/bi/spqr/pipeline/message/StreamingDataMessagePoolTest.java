@@ -0,0 +1,134 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.message;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link StreamingDataMessagePool}
+ * @author mnxfst
+ * @since Feb 13, 2016
+ */
+public class StreamingDataMessagePoolTest {
+
+	/**
+	 * Test case for {@link StreamingDataMessagePool#acquire(int, long)} and {@link StreamingDataMessage#release()}: released
+	 * messages must be reused for the same body length only and retained messages must not be returned before their last release
+	 */
+	@Test
+	public void testAcquire_withReleasedMessages() {
+		StreamingDataMessagePool pool = new StreamingDataMessagePool(2, 1024, false);
+		StreamingDataMessage message = pool.acquire(10, 1);
+		Assert.assertTrue("Message must be pooled", message.isPooled());
+		Assert.assertEquals("Values must be equal", 10, message.getBody().length);
+		Assert.assertEquals("Values must be equal", 1, message.getReferenceCount());
+		message.setHeader(StreamingDataMessageHeaders.KEY, "key");
+		
+		message.retain();
+		Assert.assertFalse("Message is still referenced", message.release());
+		Assert.assertEquals("Values must be equal", 0, pool.getNumOfPooledMessages());
+		Assert.assertTrue("Message must be returned to pool", message.release());
+		Assert.assertEquals("Values must be equal", 1, pool.getNumOfPooledMessages());
+		
+		Assert.assertNotSame("Different body length", message, pool.acquire(11, 2));
+		StreamingDataMessage reused = pool.acquire(10, 3);
+		Assert.assertSame("Message must be reused", message, reused);
+		Assert.assertEquals("Values must be equal", 3, reused.getTimestamp());
+		Assert.assertFalse("Headers must be reset", reused.hasHeaders());
+		Assert.assertEquals("Values must be equal", 1, reused.getReferenceCount());
+		Assert.assertEquals("Values must be equal", 1, pool.getNumOfReused());
+	}
+	
+	/**
+	 * Test case for {@link StreamingDataMessage#release()} being called more often than the message was retained
+	 */
+	@Test(expected=IllegalStateException.class)
+	public void testRelease_withReleasedMessage() {
+		StreamingDataMessagePool pool = new StreamingDataMessagePool();
+		StreamingDataMessage message = pool.acquire(10, 1);
+		message.release();
+		message.release();
+	}
+	
+	/**
+	 * Test case for {@link StreamingDataMessage#retain()} and {@link StreamingDataMessage#release()} being called on messages
+	 * which were not acquired from a pool
+	 */
+	@Test
+	public void testRelease_withUnpooledMessage() {
+		StreamingDataMessage message = new StreamingDataMessage(new byte[10], 1);
+		Assert.assertFalse("Message must not be pooled", message.isPooled());
+		Assert.assertSame("Values must be equal", message, message.retain());
+		Assert.assertFalse("Message must not be returned to a pool", message.release());
+		Assert.assertFalse("Message must not be returned to a pool", message.release());
+	}
+	
+	/**
+	 * Test case for {@link StreamingDataMessagePool} limits: bodies exceeding the max. length and messages exceeding 
+	 * the max. number per body length must not be kept
+	 */
+	@Test
+	public void testRecycle_withLimitsExceeded() {
+		StreamingDataMessagePool pool = new StreamingDataMessagePool(2, 100, false);
+		pool.acquire(101, 1).release();
+		Assert.assertEquals("Values must be equal", 0, pool.getNumOfPooledMessages());
+		
+		StreamingDataMessage[] messages = new StreamingDataMessage[]{pool.acquire(10, 1), pool.acquire(10, 1), pool.acquire(10, 1)};
+		for(final StreamingDataMessage message : messages)
+			message.release();
+		Assert.assertEquals("Values must be equal", 2, pool.getNumOfPooledMessages());
+	}
+	
+	/**
+	 * Test case for {@link StreamingDataMessagePool} retained memory: releasing messages of many different body lengths
+	 * must not let the pool keep more body bytes than configured, while messages fitting into the budget are still reused
+	 */
+	@Test
+	public void testRecycle_withVaryingBodyLengths() {
+		StreamingDataMessagePool pool = new StreamingDataMessagePool(256, 1024, 10000, false);
+		StreamingDataMessage[] messages = new StreamingDataMessage[1000];
+		for(int i = 0; i < messages.length; i++)
+			messages[i] = pool.acquire(i + 1, i);
+		for(final StreamingDataMessage message : messages)
+			message.release();
+
+		// bodies of length 1 to 140 sum up to 9870 bytes, all longer ones exceed the remaining budget
+		Assert.assertEquals("Values must be equal", 9870, pool.getNumOfRetainedBytes());
+		Assert.assertEquals("Values must be equal", 140, pool.getNumOfPooledMessages());
+
+		for(int i = 0; i < 140; i++)
+			Assert.assertSame("Message must be reused", messages[i], pool.acquire(i + 1, 1));
+		Assert.assertEquals("Values must be equal", 140, pool.getNumOfReused());
+		Assert.assertEquals("Values must be equal", 0, pool.getNumOfRetainedBytes());
+		Assert.assertEquals("Values must be equal", 0, pool.getNumOfPooledMessages());
+	}
+	
+	/**
+	 * Test case for leak detection: messages garbage collected without being released must be reported 
+	 */
+	@Test
+	public void testGetNumOfLeaks_withUnreleasedMessage() throws Exception {
+		StreamingDataMessagePool pool = new StreamingDataMessagePool(2, 100, true);
+		pool.acquire(10, 1).release();
+		pool.acquire(10, 1);
+		for(int i = 0; i < 20 && pool.getNumOfLeaks() == 0; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		Assert.assertEquals("Values must be equal", 1, pool.getNumOfLeaks());
+	}
+}
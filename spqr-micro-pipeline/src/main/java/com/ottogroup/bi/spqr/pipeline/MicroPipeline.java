@@ -25,7 +25,10 @@ import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent;
 import com.ottogroup.bi.spqr.pipeline.component.emitter.EmitterRuntimeEnvironment;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorRuntimeEnvironment;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseOperatorRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.operator.ParallelDelayedResponseOperatorRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.operator.ParallelDirectResponseOperatorRuntimeEnvironment;
 import com.ottogroup.bi.spqr.pipeline.component.source.SourceRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.source.shared.SharedSourceSubscription;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
 
 /**
@@ -44,10 +47,16 @@ public class MicroPipeline {
 	private final MicroPipelineConfiguration configuration;
 	/** references to source runtime environments */
 	private final Map<String, SourceRuntimeEnvironment> sources = new HashMap<>();
+	/** subscriptions to sources shared with other pipelines */
+	private final Map<String, SharedSourceSubscription> sharedSources = new HashMap<>();
 	/** references to direct response operator runtime environments */
 	private final Map<String, DirectResponseOperatorRuntimeEnvironment> directResponseOperators = new HashMap<>();
+	/** direct response operators running multiple instances in parallel */
+	private final Map<String, ParallelDirectResponseOperatorRuntimeEnvironment> parallelDirectResponseOperators = new HashMap<>();
 	/** references to delayed response operator runtime environments */
 	private final Map<String, DelayedResponseOperatorRuntimeEnvironment> delayedResponseOperators = new HashMap<>();
+	/** delayed response operators running multiple instances in parallel */
+	private final Map<String, ParallelDelayedResponseOperatorRuntimeEnvironment> parallelDelayedResponseOperators = new HashMap<>();
 	/** references to emitter runtime environments */
 	private final Map<String, EmitterRuntimeEnvironment> emitters = new HashMap<>();
 	/** references to queues interconnecting the components */
@@ -85,6 +94,17 @@ public class MicroPipeline {
 			logger.debug("Source [id="+id+"] successfully attached to pipeline [id="+this.id+"]");
 	}
 	
+	/**
+	 * Adds a new {@link SharedSourceSubscription}
+	 * @param id
+	 * @param subscription
+	 */
+	public void addSharedSource(final String id, final SharedSourceSubscription subscription) {
+		this.sharedSources.put(id, subscription);
+		if(logger.isDebugEnabled())
+			logger.debug("Shared source [id="+id+"] successfully attached to pipeline [id="+this.id+"]");
+	}
+	
 	/**
 	 * Adds a new {@link DirectResponseOperatorRuntimeEnvironment}
 	 * @param id
@@ -97,6 +117,17 @@ public class MicroPipeline {
 			logger.debug("Direct response operator [id="+id+"] successfully attached to pipeline [id="+this.id+"]");
 	}
 	
+	/**
+	 * Adds a new {@link ParallelDirectResponseOperatorRuntimeEnvironment}
+	 * @param id
+	 * @param operatorRuntimeEnvironment
+	 */
+	public void addOperator(final String id, final ParallelDirectResponseOperatorRuntimeEnvironment operatorRuntimeEnvironment) {
+		this.parallelDirectResponseOperators.put(id, operatorRuntimeEnvironment);
+		if(logger.isDebugEnabled())
+			logger.debug("Parallel direct response operator [id="+id+", parallelism="+operatorRuntimeEnvironment.getParallelism()+"] successfully attached to pipeline [id="+this.id+"]");
+	}
+	
 	/**
 	 * Adds a new {@link DelayedResponseOperatorRuntimeEnvironment}
 	 * @param id
@@ -109,6 +140,17 @@ public class MicroPipeline {
 			logger.debug("Delayed response operator [id="+id+"] successfully attached to pipeline [id="+this.id+"]");
 	}
 	
+	/**
+	 * Adds a new {@link ParallelDelayedResponseOperatorRuntimeEnvironment}
+	 * @param id
+	 * @param operatorRuntimeEnvironment
+	 */
+	public void addOperator(final String id, final ParallelDelayedResponseOperatorRuntimeEnvironment operatorRuntimeEnvironment) {
+		this.parallelDelayedResponseOperators.put(id, operatorRuntimeEnvironment);
+		if(logger.isDebugEnabled())
+			logger.debug("Parallel delayed response operator [id="+id+", parallelism="+operatorRuntimeEnvironment.getParallelism()+"] successfully attached to pipeline [id="+this.id+"]");
+	}
+	
 	/**
 	 * Adds a new {@link EmitterRuntimeEnvironment}
 	 * @param id
@@ -160,7 +202,7 @@ public class MicroPipeline {
 	 * TODO test
 	 */
 	public boolean hasComponent(final String id) {
-		return (this.sources.containsKey(id) || this.directResponseOperators.containsKey(id) || this.delayedResponseOperators.containsKey(id) || this.emitters.containsKey(id));
+		return (this.sources.containsKey(id) || this.sharedSources.containsKey(id) || this.directResponseOperators.containsKey(id) || this.parallelDirectResponseOperators.containsKey(id) || this.delayedResponseOperators.containsKey(id) || this.parallelDelayedResponseOperators.containsKey(id) || this.emitters.containsKey(id));
 	}
 
 	/**
@@ -178,6 +220,15 @@ public class MicroPipeline {
 
 		//////////////////////////////////////////////////////////////////////////////////////////
 		// shutting down runtime environments: sources, operators, emitters
+		for(final String srcId : this.sharedSources.keySet()) {
+			try {
+				this.sharedSources.get(srcId).cancel();
+				if(logger.isDebugEnabled())
+					logger.debug("Shared source subscription cancelled [id="+srcId+"]");
+			} catch(Exception e) {
+				logger.error("Failed to cancel shared source subscription [id="+srcId+"]. Reason: " + e.getMessage());
+			}
+		}
 		for(final String srcId : this.sources.keySet()) {
 			SourceRuntimeEnvironment srcEnv = this.sources.get(srcId);
 			try {
@@ -198,6 +249,16 @@ public class MicroPipeline {
 				logger.error("Failed to shut down direct response operator runtime environment [id="+operatorId+"]. Reason: " + e.getMessage());
 			}
 		}
+		for(final String operatorId : this.parallelDirectResponseOperators.keySet()) {
+			ParallelDirectResponseOperatorRuntimeEnvironment operatorEnv = this.parallelDirectResponseOperators.get(operatorId);
+			try {
+				operatorEnv.shutdown();
+				if(logger.isDebugEnabled())
+					logger.debug("Parallel direct response operator runtime environment shut down [id="+operatorId+"]");
+			} catch(Exception e) {
+				logger.error("Failed to shut down parallel direct response operator runtime environment [id="+operatorId+"]. Reason: " + e.getMessage());
+			}
+		}
 		for(final String operatorId : this.delayedResponseOperators.keySet()) {
 			DelayedResponseOperatorRuntimeEnvironment operatorEnv = this.delayedResponseOperators.get(operatorId);
 			try {
@@ -208,6 +269,16 @@ public class MicroPipeline {
 				logger.error("Failed to shut down delayed response operator runtime environment [id="+operatorId+"]. Reason: " + e.getMessage());
 			}
 		}
+		for(final String operatorId : this.parallelDelayedResponseOperators.keySet()) {
+			ParallelDelayedResponseOperatorRuntimeEnvironment operatorEnv = this.parallelDelayedResponseOperators.get(operatorId);
+			try {
+				operatorEnv.shutdown();
+				if(logger.isDebugEnabled())
+					logger.debug("Parallel delayed response operator runtime environment shut down [id="+operatorId+"]");
+			} catch(Exception e) {
+				logger.error("Failed to shut down parallel delayed response operator runtime environment [id="+operatorId+"]. Reason: " + e.getMessage());
+			}
+		}
 		for(final String emitterId : this.emitters.keySet()) {
 			EmitterRuntimeEnvironment emitterEnv = this.emitters.get(emitterId);
 			try {
@@ -248,6 +319,10 @@ public class MicroPipeline {
 		return sources;
 	}
 
+	public Map<String, SharedSourceSubscription> getSharedSources() {
+		return sharedSources;
+	}
+
 	public Map<String, DelayedResponseOperatorRuntimeEnvironment> getDelayedResponseOperators() {
 		return delayedResponseOperators;
 	}
@@ -260,6 +335,14 @@ public class MicroPipeline {
 		return directResponseOperators;
 	}
 
+	public Map<String, ParallelDirectResponseOperatorRuntimeEnvironment> getParallelDirectResponseOperators() {
+		return parallelDirectResponseOperators;
+	}
+
+	public Map<String, ParallelDelayedResponseOperatorRuntimeEnvironment> getParallelDelayedResponseOperators() {
+		return parallelDelayedResponseOperators;
+	}
+
 	public Map<String, StreamingMessageQueue> getQueues() {
 		return queues;
 	}
@@ -15,11 +15,17 @@
  */
 package com.ottogroup.bi.spqr.pipeline;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -32,6 +38,8 @@ import com.ottogroup.bi.spqr.exception.QueueInitializationFailedException;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.metrics.MetricsHandler;
 import com.ottogroup.bi.spqr.metrics.MetricsReporterFactory;
+import com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeScheduler;
 import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent;
 import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentConfiguration;
 import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
@@ -41,17 +49,32 @@ import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperator
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorRuntimeEnvironment;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseOperator;
+import com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseOperatorChain;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseOperatorRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.operator.EventTimeWindowWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.component.operator.HashedWheelReleaseTimer;
+import com.ottogroup.bi.spqr.pipeline.component.operator.MergeableDelayedResponseOperator;
+import com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware;
 import com.ottogroup.bi.spqr.pipeline.component.operator.MessageCountResponseWaitStrategy;
 import com.ottogroup.bi.spqr.pipeline.component.operator.OperatorTriggeredWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.component.operator.ParallelDelayedResponseOperatorRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.operator.ParallelDirectResponseOperatorRuntimeEnvironment;
 import com.ottogroup.bi.spqr.pipeline.component.operator.TimerBasedResponseWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.HeaderMessagePartitioner;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.JsonFieldMessagePartitioner;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.RoundRobinMessagePartitioner;
 import com.ottogroup.bi.spqr.pipeline.component.source.Source;
 import com.ottogroup.bi.spqr.pipeline.component.source.SourceRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.source.shared.SharedSourceRegistry;
+import com.ottogroup.bi.spqr.pipeline.component.source.shared.SharedSourceSubscription;
 import com.ottogroup.bi.spqr.pipeline.exception.UnknownWaitStrategyException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConfiguration;
 import com.ottogroup.bi.spqr.pipeline.queue.chronicle.DefaultStreamingMessageQueue;
 import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.ring.RingBufferStreamingMessageQueue;
 import com.ottogroup.bi.spqr.repository.ComponentRepository;
 
 /**
@@ -67,6 +90,10 @@ public class MicroPipelineFactory {
 	private final ComponentRepository componentRepository;
 	/** identifier of processing node this factory lives on */
 	private final String processingNodeId;
+	/** node-wide timer driving the release callbacks of all timer based response wait strategies */
+	private final HashedWheelReleaseTimer releaseTimer = new HashedWheelReleaseTimer();
+	/** node-wide registry of sources shared among pipelines */
+	private final SharedSourceRegistry sharedSourceRegistry;
 	
 	/**
 	 * Initializes the factory using the provided input
@@ -76,6 +103,7 @@ public class MicroPipelineFactory {
 	public MicroPipelineFactory(final String processingNodeId, final ComponentRepository componentRepository) {
 		this.processingNodeId = processingNodeId;
 		this.componentRepository = componentRepository;
+		this.sharedSourceRegistry = new SharedSourceRegistry(processingNodeId);
 	}
 	
 	
@@ -88,6 +116,22 @@ public class MicroPipelineFactory {
 	 * TODO validate micro pipeline for path from source to emitter
 	 */
 	public MicroPipeline instantiatePipeline(final MicroPipelineConfiguration cfg, final ExecutorService executorService) throws RequiredInputMissingException, QueueInitializationFailedException, ComponentInitializationFailedException {
+		return instantiatePipeline(cfg, executorService, null);
+	}
+	
+	/**
+	 * Instantiates the {@link MicroPipeline} according to the provided {@link MicroPipelineComponentConfiguration}. If a
+	 * {@link CooperativeRuntimeScheduler} is provided, all operator and emitter runtime environments are handed over to it
+	 * instead of being submitted to the {@link ExecutorService}. Sources still require a thread of their own as they block 
+	 * on external input, direct response operators running in parallel are rejected as their lanes require threads of their own. 
+	 * Timer based response wait strategies are driven by the node-wide {@link HashedWheelReleaseTimer}.  
+	 * @param cfg
+	 * @param executorService
+	 * @param scheduler optional scheduler executing operators and emitters (may be null)
+	 * @return
+	 * @throws RequiredInputMissingException
+	 */
+	public MicroPipeline instantiatePipeline(final MicroPipelineConfiguration cfg, final ExecutorService executorService, final CooperativeRuntimeScheduler scheduler) throws RequiredInputMissingException, QueueInitializationFailedException, ComponentInitializationFailedException {
 		
 		///////////////////////////////////////////////////////////////////////////////////
 		// validate input
@@ -117,19 +161,32 @@ public class MicroPipelineFactory {
 		// entry. if creation fails for any reason, all previously created queues are shut down and
 		// a queue initialization exception is thrown
 		MicroPipeline microPipeline = new MicroPipeline(StringUtils.lowerCase(StringUtils.trim(cfg.getId())), cfg);
+		final Map<String, Integer> queueProducers = getQueueProducers(cfg);
+		
+		// queues connecting the operators of a fused chain are never accessed, thus they are not initialized at all. component 
+		// validation still requires them to be configured, hence they are known to it without referencing an instance  
+		final List<List<MicroPipelineComponentConfiguration>> operatorChains = getFusableOperatorChains(cfg);
+		final Set<String> fusedQueueIds = getFusedQueueIds(operatorChains);
+		final Map<String, StreamingMessageQueue> knownQueues = new HashMap<>();
 		for(final StreamingMessageQueueConfiguration queueConfig : cfg.getQueues()) {
 			String id = StringUtils.lowerCase(StringUtils.trim(queueConfig.getId()));
 			
 			// a queue for that identifier already exists: kill the pipeline and tell the caller about it
-			if(microPipeline.hasQueue(id)) {
+			if(knownQueues.containsKey(id)) {
 				logger.error("queue initialization failed [id="+id+"]. Forcing shutdown of all queues.");
 				microPipeline.shutdown();
 				throw new QueueInitializationFailedException("Non-unique queue identifier found [id="+id+"]");
 			}
+			
+			if(fusedQueueIds.contains(id)) {
+				knownQueues.put(id, null);
+				logger.info("queue skipped as it connects fused operators [id="+id+"]");
+				continue;
+			}
 		
 			// try to instantiate the queue, if it fails .... shutdown queues initialized so far and throw an exception
 			try {
-				StreamingMessageQueue queueInstance = initializeQueue(queueConfig);
+				StreamingMessageQueue queueInstance = initializeQueue(queueConfig, (queueProducers.containsKey(id) ? queueProducers.get(id) : 0));
 				
 
 				/////////////////////////////////////////////////////////////////////
@@ -169,7 +226,8 @@ public class MicroPipelineFactory {
 				}
 				/////////////////////////////////////////////////////////////////////
 				
-				microPipeline.addQueue(id, queueInstance);				
+				microPipeline.addQueue(id, queueInstance);
+				knownQueues.put(id, queueInstance);
 				logger.info("queue initialized[id="+id+"]");
 			} catch(Exception e) {
 				logger.error("queue initialization failed [id="+id+"]. Forcing shutdown of all queues.");
@@ -183,27 +241,71 @@ public class MicroPipelineFactory {
 		///////////////////////////////////////////////////////////////////////////////////
 		// (2) initialize components
 		final Map<String, MicroPipelineComponent> components = new HashMap<>();
+		
+		// direct response operators being part of a fusable chain are collected and attached to a shared runtime environment afterwards
+		final Set<String> fusedOperatorIds = new HashSet<>();
+		for(final List<MicroPipelineComponentConfiguration> operatorChain : operatorChains)
+			for(final MicroPipelineComponentConfiguration operatorCfg : operatorChain)
+				fusedOperatorIds.add(StringUtils.lowerCase(StringUtils.trim(operatorCfg.getId())));
+		final Map<String, DirectResponseOperator> fusedOperators = new HashMap<>();
+		final Map<String, Counter> fusedOperatorCounters = new HashMap<>();
+		
+		// all components are instantiated up front as the codec used by a queue depends on each component reading from or writing to it
+		final Map<String, MicroPipelineComponent> instances = new HashMap<>();
+		for(final MicroPipelineComponentConfiguration componentCfg : cfg.getComponents()) {
+			String id = StringUtils.lowerCase(StringUtils.trim(componentCfg.getId()));
+			
+			// a component for that identifier already exists: kill the pipeline and tell the caller about it
+			if(instances.containsKey(id)) {
+				logger.error("component initialization failed [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Forcing shutdown of all queues and components.");
+				shutdownComponents(instances.values());
+				microPipeline.shutdown();
+				throw new ComponentInitializationFailedException("Non-unique component identifier found [id="+id+"]");
+			}
+			
+			try {
+				instances.put(id, initializeComponent(componentCfg, knownQueues));
+			} catch(Exception e) {
+				logger.error("component initialization failed [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Forcing shutdown of all queues and components. Reason: " + e.getMessage(), e);
+				shutdownComponents(instances.values());
+				microPipeline.shutdown();
+				throw new ComponentInitializationFailedException("Failed to initialize component [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Reason: " + e.getMessage(), e);
+			}
+		}
+		final Map<String, StreamingDataMessageCodec> queueCodecs = getQueueMessageCodecs(cfg, instances);
+		
 		boolean sourceComponentFound = false;
 		boolean emitterComponentFound = false;
 		for(final MicroPipelineComponentConfiguration componentCfg : cfg.getComponents()) {
 			String id = StringUtils.lowerCase(StringUtils.trim(componentCfg.getId()));
 			
 			// a component for that identifier already exists: kill the pipeline and tell the caller about it
-			if(microPipeline.hasComponent(id)) {
+			if(microPipeline.hasComponent(id) || components.containsKey(id)) {
 				logger.error("component initialization failed [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Forcing shutdown of all queues and components.");
+				shutdownComponents(instances.values());
+				shutdownComponents(fusedOperators.values());
 				microPipeline.shutdown();
 				throw new ComponentInitializationFailedException("Non-unique component identifier found [id="+id+"]");
 			}
 			
-			// try to instantiate component, if it fails .... shutdown queues and components initialized so far and throw an exception
+			// try to set up the runtime environment, if it fails .... shutdown queues and components initialized so far and throw an exception
 			try {
-				MicroPipelineComponent component = initializeComponent(componentCfg, microPipeline.getQueues());
+				MicroPipelineComponent component = instances.remove(id);
+				applyMessageCodecs(component, componentCfg, queueCodecs);
 				if(component.getType() == null) {
 					logger.error("component initialization failed [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Type missing. Forcing shutdown of all queues and components.");
+					component.shutdown();
+					shutdownComponents(instances.values());
 					microPipeline.shutdown();
 					throw new ComponentInitializationFailedException("Failed to initialize component [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Reason: type missing");
 				}
-				
+
+				// chains are derived from the configured types - the queues connecting their operators do not exist
+				if(fusedOperatorIds.contains(id) && component.getType() != MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR) {
+					component.shutdown();
+					throw new ComponentInitializationFailedException("Failed to initialize component [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Reason: configured as direct response operator but found type " + component.getType());
+				}
+
 				final StreamingMessageQueue fromQueue = microPipeline.getQueue(StringUtils.lowerCase(StringUtils.trim(componentCfg.getFromQueue())));
 				final StreamingMessageQueue toQueue = microPipeline.getQueue(StringUtils.lowerCase(StringUtils.trim(componentCfg.getToQueue())));
 				
@@ -223,6 +325,15 @@ public class MicroPipelineFactory {
 				
 				switch(component.getType()) {
 					case SOURCE: {
+						if(componentCfg.isShared()) {
+							final SharedSourceSubscription subscription = this.sharedSourceRegistry.subscribe(cfg.getId(), componentCfg, (Source)component, toQueue.getProducer(), executorService);
+							if(messageCounter != null)
+								subscription.setMessageCounter(messageCounter);
+							microPipeline.addSharedSource(id, subscription);
+							sourceComponentFound = true;
+							break;
+						}
+						
 						SourceRuntimeEnvironment srcEnv = new SourceRuntimeEnvironment(this.processingNodeId, cfg.getId(), (Source)component, toQueue.getProducer());
 
 						///////////////////////////////////////////////
@@ -237,8 +348,28 @@ public class MicroPipelineFactory {
 					}
 					case DIRECT_RESPONSE_OPERATOR: {
 
+						if(fusedOperatorIds.contains(id)) {
+							fusedOperators.put(id, (DirectResponseOperator)component);
+							if(messageCounter != null)
+								fusedOperatorCounters.put(id, messageCounter);
+							break;
+						}
+						
+						if(componentCfg.getParallelism() > 1) {
+							// lanes and response collector wait for each other, thus they require threads of their own
+							if(scheduler != null) {
+								component.shutdown();
+								throw new ComponentInitializationFailedException("Failed to initialize component [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Reason: parallel direct response operators are not supported in execution mode '"+
+										MicroPipelineManager.EXECUTION_MODE_COOPERATIVE+"'");
+							}
+							ParallelDirectResponseOperatorRuntimeEnvironment parallelEnv = initializeParallelOperator(cfg.getId(), componentCfg, (DirectResponseOperator)component, 
+									microPipeline, fromQueue, toQueue, executorService, messageCounter, metricsHandler, queueCodecs);
+							microPipeline.addOperator(id, parallelEnv);
+							break;
+						}
+						
 						DirectResponseOperatorRuntimeEnvironment directResponseEnv = new DirectResponseOperatorRuntimeEnvironment(this.processingNodeId, cfg.getId(), (DirectResponseOperator)component, 
-								fromQueue.getConsumer(), toQueue.getProducer());
+								fromQueue.getConsumer(id), toQueue.getProducer());
 
 						///////////////////////////////////////////////
 						// attach monitoring components
@@ -264,8 +395,19 @@ public class MicroPipelineFactory {
 						break;
 					}
 					case DELAYED_RESPONSE_OPERATOR: {
+						
+						if(componentCfg.getParallelism() > 1) {
+							if(component instanceof MergeableDelayedResponseOperator) {
+								ParallelDelayedResponseOperatorRuntimeEnvironment parallelEnv = initializeParallelDelayedOperator(cfg.getId(), componentCfg, 
+										(MergeableDelayedResponseOperator)component, microPipeline, fromQueue, toQueue, executorService, messageCounter, queueCodecs);
+								microPipeline.addOperator(id, parallelEnv);
+								break;
+							}
+							logger.warn("Delayed response operator does not support merging partial results. Parallelism ignored [id="+id+", parallelism="+componentCfg.getParallelism()+"]");
+						}
+						
 						DelayedResponseOperatorRuntimeEnvironment delayedResponseEnv = new DelayedResponseOperatorRuntimeEnvironment(this.processingNodeId, cfg.getId(), (DelayedResponseOperator)component, getResponseWaitStrategy(componentCfg), 
-								fromQueue.getConsumer(), toQueue.getProducer(), executorService);
+								fromQueue.getConsumer(id), toQueue.getProducer(), executorService, this.releaseTimer);
 						
 						///////////////////////////////////////////////
 						// attach monitoring components
@@ -277,7 +419,7 @@ public class MicroPipelineFactory {
 						break;
 					}
 					case EMITTER: {
-						EmitterRuntimeEnvironment emitterEnv = new EmitterRuntimeEnvironment(this.processingNodeId, cfg.getId(), (Emitter)component, fromQueue.getConsumer());
+						EmitterRuntimeEnvironment emitterEnv = new EmitterRuntimeEnvironment(this.processingNodeId, cfg.getId(), (Emitter)component, fromQueue.getConsumer(id));
 
 						///////////////////////////////////////////////
 						// attach monitoring components
@@ -309,11 +451,25 @@ public class MicroPipelineFactory {
 				components.put(id, component);
 			} catch(Exception e) {
 				logger.error("component initialization failed [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Forcing shutdown of all queues and components. Reason: " + e.getMessage(), e);
+				shutdownComponents(instances.values());
+				shutdownComponents(fusedOperators.values());
 				microPipeline.shutdown();
 				throw new ComponentInitializationFailedException("Failed to initialize component [id="+id+", class="+componentCfg.getName()+", version="+componentCfg.getVersion()+"]. Reason: " + e.getMessage(), e);
 			}
 		}
 		
+		for(final List<MicroPipelineComponentConfiguration> operatorChain : operatorChains) {
+			final String headId = StringUtils.lowerCase(StringUtils.trim(operatorChain.get(0).getId()));
+			try {
+				microPipeline.addOperator(headId, initializeOperatorChain(cfg.getId(), operatorChain, microPipeline, fusedOperators, fusedOperatorCounters, metricsHandler));
+			} catch(Exception e) {
+				logger.error("operator chain initialization failed [head="+headId+"]. Forcing shutdown of all queues and components. Reason: " + e.getMessage(), e);
+				shutdownComponents(fusedOperators.values());
+				microPipeline.shutdown();
+				throw new ComponentInitializationFailedException("Failed to initialize operator chain [head="+headId+"]. Reason: " + e.getMessage(), e);
+			}
+		}
+		
 		if(!sourceComponentFound) {
 			microPipeline.shutdown();
 			throw new RequiredInputMissingException("Missing required source component");
@@ -330,25 +486,43 @@ public class MicroPipelineFactory {
 		
 		///////////////////////////////////////////////////////////////////////////////////
 		// (3) start components --> ramp up their runtime environments 
-		for(String sourceId : microPipeline.getSources().keySet()) {
-			executorService.submit(microPipeline.getSources().get(sourceId));
-			if(logger.isDebugEnabled())
-				logger.debug("Started runtime environment for source [id="+sourceId+"]");
-		}
-		for(String directResponseOperatorId : microPipeline.getDirectResponseOperators().keySet()) {
-			executorService.submit(microPipeline.getDirectResponseOperators().get(directResponseOperatorId));
-			if(logger.isDebugEnabled())
-				logger.debug("Started runtime environment for direct response operator [id="+directResponseOperatorId+"]");
-		}
-		for(String delayedResponseOperatorId : microPipeline.getDelayedResponseOperators().keySet()) {
-			executorService.submit(microPipeline.getDelayedResponseOperators().get(delayedResponseOperatorId));
-			if(logger.isDebugEnabled())
-				logger.debug("Started runtime environment for delayed response operator [id="+delayedResponseOperatorId+"]");
-		}
-		for(String emitterId : microPipeline.getEmitters().keySet()) {
-			executorService.submit(microPipeline.getEmitters().get(emitterId));
-			if(logger.isDebugEnabled())
-				logger.debug("Started runtime environment for emitter [id="+emitterId+"]");
+		// bounded executor services reject runtime environments beyond their capacity rather than queueing them as they never terminate
+		try {
+			for(String sourceId : microPipeline.getSources().keySet()) {
+				executorService.submit(microPipeline.getSources().get(sourceId));
+				if(logger.isDebugEnabled())
+					logger.debug("Started runtime environment for source [id="+sourceId+"]");
+			}
+			for(String directResponseOperatorId : microPipeline.getDirectResponseOperators().keySet()) {
+				start(microPipeline.getDirectResponseOperators().get(directResponseOperatorId), executorService, scheduler);
+				if(logger.isDebugEnabled())
+					logger.debug("Started runtime environment for direct response operator [id="+directResponseOperatorId+"]");
+			}
+			for(String parallelOperatorId : microPipeline.getParallelDirectResponseOperators().keySet()) {
+				executorService.submit(microPipeline.getParallelDirectResponseOperators().get(parallelOperatorId));
+				if(logger.isDebugEnabled())
+					logger.debug("Started runtime environment for parallel direct response operator [id="+parallelOperatorId+"]");
+			}
+			for(String parallelOperatorId : microPipeline.getParallelDelayedResponseOperators().keySet()) {
+				executorService.submit(microPipeline.getParallelDelayedResponseOperators().get(parallelOperatorId));
+				if(logger.isDebugEnabled())
+					logger.debug("Started runtime environment for parallel delayed response operator [id="+parallelOperatorId+"]");
+			}
+			for(String delayedResponseOperatorId : microPipeline.getDelayedResponseOperators().keySet()) {
+				start(microPipeline.getDelayedResponseOperators().get(delayedResponseOperatorId), executorService, scheduler);
+				if(logger.isDebugEnabled())
+					logger.debug("Started runtime environment for delayed response operator [id="+delayedResponseOperatorId+"]");
+			}
+			for(String emitterId : microPipeline.getEmitters().keySet()) {
+				start(microPipeline.getEmitters().get(emitterId), executorService, scheduler);
+				if(logger.isDebugEnabled())
+					logger.debug("Started runtime environment for emitter [id="+emitterId+"]");
+			}
+		} catch(RejectedExecutionException e) {
+			logger.error("runtime environment start failed [pipeline="+cfg.getId()+"]. Executor service exhausted. Forcing shutdown of all queues and components.");
+			microPipeline.shutdown();
+			throw new ComponentInitializationFailedException("Failed to start runtime environments [pipeline="+cfg.getId()+"]. Reason: executor service exhausted. Increase the number of threads or switch to execution mode '"+
+					MicroPipelineManager.EXECUTION_MODE_VIRTUAL_THREADS+"'", e);
 		}
 		
 		if(logger.isDebugEnabled())
@@ -359,6 +533,453 @@ public class MicroPipelineFactory {
 		return microPipeline;
 	}
 	
+	/**
+	 * Counts the components writing to each queue. Operators running in parallel are counted once as their lanes
+	 * hand over all responses through a single collector
+	 * @param cfg
+	 * @return number of producing components referenced by queue identifier
+	 */
+	protected Map<String, Integer> getQueueProducers(final MicroPipelineConfiguration cfg) {
+		final Map<String, Integer> queueProducers = new HashMap<>();
+		if(cfg == null || cfg.getComponents() == null)
+			return queueProducers;
+		for(final MicroPipelineComponentConfiguration componentCfg : cfg.getComponents()) {
+			if(componentCfg == null || componentCfg.getType() == null || componentCfg.getType() == MicroPipelineComponentType.EMITTER)
+				continue;
+			final String toQueue = StringUtils.lowerCase(StringUtils.trim(componentCfg.getToQueue()));
+			if(StringUtils.isNotBlank(toQueue))
+				queueProducers.put(toQueue, (queueProducers.containsKey(toQueue) ? queueProducers.get(toQueue) + 1 : 1));
+		}
+		return queueProducers;
+	}
+	
+	/**
+	 * Identifies linear chains of {@link DirectResponseOperator direct response operators} which may be fused into a single
+	 * runtime environment: two operators are chained if the first one writes to a queue which is read by the second one only
+	 * and has no other producer. Operators running in parallel are never fused. Intermediate queues of a chain are not initialized, see
+	 * {@link #getFusedQueueIds(List)}. Fusion may be disabled via {@link MicroPipelineConfiguration#isOperatorFusion()}.
+	 * @param cfg
+	 * @return list of chains, each one holding at least two operator configurations in order of execution
+	 */
+	protected List<List<MicroPipelineComponentConfiguration>> getFusableOperatorChains(final MicroPipelineConfiguration cfg) {
+		
+		final List<List<MicroPipelineComponentConfiguration>> chains = new ArrayList<>();
+		if(cfg == null || !cfg.isOperatorFusion() || cfg.getComponents() == null)
+			return chains;
+
+		///////////////////////////////////////////////////////////////////////////////////
+		// count consumers per queue and keep track of direct response operators reading from it
+		final Map<String, Integer> queueProducers = getQueueProducers(cfg);
+		final Map<String, Integer> queueConsumers = new HashMap<>();
+		final Map<String, MicroPipelineComponentConfiguration> operatorsByFromQueue = new HashMap<>();
+		for(final MicroPipelineComponentConfiguration componentCfg : cfg.getComponents()) {
+			if(componentCfg == null || componentCfg.getType() == null)
+				continue;
+			final String fromQueue = StringUtils.lowerCase(StringUtils.trim(componentCfg.getFromQueue()));
+			if(componentCfg.getType() != MicroPipelineComponentType.SOURCE && StringUtils.isNotBlank(fromQueue)) {
+				queueConsumers.put(fromQueue, (queueConsumers.containsKey(fromQueue) ? queueConsumers.get(fromQueue) + 1 : 1));
+				if(componentCfg.getType() == MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR && componentCfg.getParallelism() <= 1)
+					operatorsByFromQueue.put(fromQueue, componentCfg);
+			}
+		}
+		///////////////////////////////////////////////////////////////////////////////////
+
+		///////////////////////////////////////////////////////////////////////////////////
+		// link each direct response operator to its exclusive successor
+		final Map<MicroPipelineComponentConfiguration, MicroPipelineComponentConfiguration> successors = new HashMap<>();
+		for(final MicroPipelineComponentConfiguration componentCfg : cfg.getComponents()) {
+			if(componentCfg == null || componentCfg.getType() != MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR || componentCfg.getParallelism() > 1)
+				continue;
+			final String toQueue = StringUtils.lowerCase(StringUtils.trim(componentCfg.getToQueue()));
+			final MicroPipelineComponentConfiguration successor = operatorsByFromQueue.get(toQueue);
+			if(successor != null && successor != componentCfg && 
+					Integer.valueOf(1).equals(queueProducers.get(toQueue)) && Integer.valueOf(1).equals(queueConsumers.get(toQueue)))
+				successors.put(componentCfg, successor);
+		}
+		///////////////////////////////////////////////////////////////////////////////////
+
+		///////////////////////////////////////////////////////////////////////////////////
+		// follow the links starting at each operator without predecessor - operators forming a cycle are never fused
+		final Set<MicroPipelineComponentConfiguration> hasPredecessor = new HashSet<>(successors.values());
+		for(final MicroPipelineComponentConfiguration componentCfg : cfg.getComponents()) {
+			if(!successors.containsKey(componentCfg) || hasPredecessor.contains(componentCfg))
+				continue;
+			final List<MicroPipelineComponentConfiguration> chain = new ArrayList<>();
+			MicroPipelineComponentConfiguration current = componentCfg;
+			while(current != null && !chain.contains(current)) {
+				chain.add(current);
+				current = successors.get(current);
+			}
+			chains.add(chain);
+			logger.info("fusing direct response operators [pipeline="+cfg.getId()+", chain="+chainToString(chain)+"]");
+		}
+		///////////////////////////////////////////////////////////////////////////////////
+		
+		return chains;
+	}
+	
+	/**
+	 * Returns the identifiers of all queues connecting the operators of the provided chains. As fused operators hand over messages
+	 * directly, these queues are neither read nor written
+	 * @param operatorChains chains as returned by {@link #getFusableOperatorChains(MicroPipelineConfiguration)}
+	 * @return
+	 */
+	protected Set<String> getFusedQueueIds(final List<List<MicroPipelineComponentConfiguration>> operatorChains) {
+		final Set<String> fusedQueueIds = new HashSet<>();
+		if(operatorChains == null)
+			return fusedQueueIds;
+		for(final List<MicroPipelineComponentConfiguration> operatorChain : operatorChains)
+			for(int i = 0; i < operatorChain.size() - 1; i++)
+				fusedQueueIds.add(StringUtils.lowerCase(StringUtils.trim(operatorChain.get(i).getToQueue())));
+		return fusedQueueIds;
+	}
+	
+	/**
+	 * Creates a {@link DirectResponseOperatorRuntimeEnvironment} running the provided chain of already initialized operators. The
+	 * environment reads from the source queue of the first operator and writes to the destination queue of the last one.
+	 * @param pipelineId
+	 * @param operatorChain
+	 * @param microPipeline
+	 * @param operators initialized operators referenced by identifier
+	 * @param messageCounters message counters referenced by operator identifier
+	 * @param metricsHandler
+	 * @return
+	 * @throws RequiredInputMissingException
+	 */
+	protected DirectResponseOperatorRuntimeEnvironment initializeOperatorChain(final String pipelineId, final List<MicroPipelineComponentConfiguration> operatorChain, 
+			final MicroPipeline microPipeline, final Map<String, DirectResponseOperator> operators, final Map<String, Counter> messageCounters, 
+			final MetricsHandler metricsHandler) throws RequiredInputMissingException {
+		
+		final List<DirectResponseOperator> stages = new ArrayList<>();
+		for(final MicroPipelineComponentConfiguration operatorCfg : operatorChain) {
+			final DirectResponseOperator operator = operators.get(StringUtils.lowerCase(StringUtils.trim(operatorCfg.getId())));
+			if(operator == null)
+				throw new RequiredInputMissingException("Missing required operator [id="+operatorCfg.getId()+"]");
+			stages.add(operator);
+		}
+		
+		final MicroPipelineComponentConfiguration head = operatorChain.get(0);
+		final MicroPipelineComponentConfiguration tail = operatorChain.get(operatorChain.size() - 1);
+		final String headId = StringUtils.lowerCase(StringUtils.trim(head.getId()));
+		
+		final DirectResponseOperatorChain chain = DirectResponseOperatorChain.fromOperators(stages);
+		for(int i = 1; i < operatorChain.size(); i++)
+			chain.setStageMessageCounter(i, messageCounters.get(StringUtils.lowerCase(StringUtils.trim(operatorChain.get(i).getId()))));
+		
+		final DirectResponseOperatorRuntimeEnvironment env = new DirectResponseOperatorRuntimeEnvironment(this.processingNodeId, pipelineId, chain, 
+				microPipeline.getQueue(StringUtils.lowerCase(StringUtils.trim(head.getFromQueue()))).getConsumer(headId), 
+				microPipeline.getQueue(StringUtils.lowerCase(StringUtils.trim(tail.getToQueue()))).getProducer());
+		
+		///////////////////////////////////////////////
+		// attach monitoring components
+		if(head.isAttachProcessingTimer()) {
+			final Timer messageProcessingTimer = metricsHandler.timer(
+					MetricRegistry.name(
+							StringUtils.lowerCase(StringUtils.trim(this.processingNodeId)),
+							StringUtils.lowerCase(StringUtils.trim(pipelineId)),
+							"component",
+							headId,
+							"messages",
+							"timer"
+					)
+			);
+			env.setMessageProcessingTimer(messageProcessingTimer);
+		}
+		if(messageCounters.get(headId) != null)
+			env.setMessageCounter(messageCounters.get(headId));
+		///////////////////////////////////////////////
+		
+		return env;
+	}
+	
+	/**
+	 * Creates a {@link ParallelDirectResponseOperatorRuntimeEnvironment} running {@link MicroPipelineComponentConfiguration#getParallelism()}
+	 * instances of the referenced operator. The provided operator is used as first instance, all others are created via {@link ComponentRepository}.
+	 * @param pipelineId
+	 * @param componentCfg
+	 * @param operator already initialized operator instance
+	 * @param microPipeline
+	 * @param fromQueue
+	 * @param toQueue
+	 * @param executorService
+	 * @param messageCounter optional message counter
+	 * @param metricsHandler
+	 * @param queueCodecs codecs referenced by queue identifier, see {@link #getQueueMessageCodecs(MicroPipelineConfiguration, Map)}
+	 * @return
+	 * @throws RequiredInputMissingException
+	 * @throws ComponentInitializationFailedException
+	 */
+	protected ParallelDirectResponseOperatorRuntimeEnvironment initializeParallelOperator(final String pipelineId, final MicroPipelineComponentConfiguration componentCfg, 
+			final DirectResponseOperator operator, final MicroPipeline microPipeline, final StreamingMessageQueue fromQueue, final StreamingMessageQueue toQueue, 
+			final ExecutorService executorService, final Counter messageCounter, final MetricsHandler metricsHandler, 
+			final Map<String, StreamingDataMessageCodec> queueCodecs) throws RequiredInputMissingException, ComponentInitializationFailedException {
+		
+		final String id = StringUtils.lowerCase(StringUtils.trim(componentCfg.getId()));
+		final List<DirectResponseOperator> operators = new ArrayList<>();
+		operators.add(operator);
+		try {
+			for(int i = 1; i < componentCfg.getParallelism(); i++) {
+				final MicroPipelineComponent instance = initializeComponent(componentCfg, microPipeline.getQueues());
+				applyMessageCodecs(instance, componentCfg, queueCodecs);
+				operators.add((DirectResponseOperator)instance);
+			}
+		} catch(RequiredInputMissingException | ComponentInitializationFailedException e) {
+			for(final DirectResponseOperator instance : operators)
+				instance.shutdown();
+			throw e;
+		}
+		
+		final MessagePartitioner partitioner = getPartitioner(componentCfg, getMessageCodec(queueCodecs, componentCfg.getFromQueue()));
+		final ParallelDirectResponseOperatorRuntimeEnvironment env = new ParallelDirectResponseOperatorRuntimeEnvironment(this.processingNodeId, pipelineId, operators, 
+				partitioner, componentCfg.isPreserveOrder(), fromQueue.getConsumer(id), toQueue.getProducer(), executorService);
+
+		///////////////////////////////////////////////
+		// attach monitoring components
+		if(componentCfg.isAttachProcessingTimer()) {
+			final Timer messageProcessingTimer = metricsHandler.timer(
+					MetricRegistry.name(
+							StringUtils.lowerCase(StringUtils.trim(this.processingNodeId)),
+							StringUtils.lowerCase(StringUtils.trim(pipelineId)),
+							"component",
+							id,
+							"messages",
+							"timer"
+					)
+			);
+			env.setMessageProcessingTimer(messageProcessingTimer);
+		}
+		if(messageCounter != null)
+			env.setMessageCounter(messageCounter);
+		///////////////////////////////////////////////
+		
+		logger.info("parallel operator initialized [id="+id+", parallelism="+operators.size()+", partitionKey="+componentCfg.getPartitionKey()+", preserveOrder="+componentCfg.isPreserveOrder()+"]");
+		return env;
+	}
+	
+	/**
+	 * Creates a {@link ParallelDelayedResponseOperatorRuntimeEnvironment} running {@link MicroPipelineComponentConfiguration#getParallelism()}
+	 * instances of the referenced operator which share a single {@link DelayedResponseOperatorWaitStrategy}. The provided operator 
+	 * is used as first instance, all others are created via {@link ComponentRepository}.
+	 * @param pipelineId
+	 * @param componentCfg
+	 * @param operator already initialized operator instance
+	 * @param microPipeline
+	 * @param fromQueue
+	 * @param toQueue
+	 * @param executorService
+	 * @param messageCounter optional message counter
+	 * @param queueCodecs codecs referenced by queue identifier, see {@link #getQueueMessageCodecs(MicroPipelineConfiguration, Map)}
+	 * @return
+	 * @throws RequiredInputMissingException
+	 * @throws ComponentInitializationFailedException
+	 * @throws UnknownWaitStrategyException
+	 */
+	protected ParallelDelayedResponseOperatorRuntimeEnvironment initializeParallelDelayedOperator(final String pipelineId, final MicroPipelineComponentConfiguration componentCfg, 
+			final MergeableDelayedResponseOperator operator, final MicroPipeline microPipeline, final StreamingMessageQueue fromQueue, final StreamingMessageQueue toQueue, 
+			final ExecutorService executorService, final Counter messageCounter, final Map<String, StreamingDataMessageCodec> queueCodecs) throws RequiredInputMissingException, ComponentInitializationFailedException, UnknownWaitStrategyException {
+		
+		final String id = StringUtils.lowerCase(StringUtils.trim(componentCfg.getId()));
+		final List<MergeableDelayedResponseOperator> operators = new ArrayList<>();
+		operators.add(operator);
+		try {
+			for(int i = 1; i < componentCfg.getParallelism(); i++) {
+				final MicroPipelineComponent instance = initializeComponent(componentCfg, microPipeline.getQueues());
+				applyMessageCodecs(instance, componentCfg, queueCodecs);
+				operators.add((MergeableDelayedResponseOperator)instance);
+			}
+		} catch(RequiredInputMissingException | ComponentInitializationFailedException e) {
+			for(final MergeableDelayedResponseOperator instance : operators)
+				instance.shutdown();
+			throw e;
+		}
+		
+		final MessagePartitioner partitioner = getPartitioner(componentCfg, getMessageCodec(queueCodecs, componentCfg.getFromQueue()));
+		final ParallelDelayedResponseOperatorRuntimeEnvironment env = new ParallelDelayedResponseOperatorRuntimeEnvironment(this.processingNodeId, pipelineId, operators, 
+				partitioner, getResponseWaitStrategy(componentCfg), fromQueue.getConsumer(id), toQueue.getProducer(), executorService, this.releaseTimer);
+
+		///////////////////////////////////////////////
+		// attach monitoring components
+		if(messageCounter != null)
+			env.setMessageCounter(messageCounter);
+		///////////////////////////////////////////////
+		
+		logger.info("parallel delayed operator initialized [id="+id+", parallelism="+operators.size()+", partitionKey="+componentCfg.getPartitionKey()+"]");
+		return env;
+	}
+	
+	/**
+	 * Returns the {@link MessagePartitioner} configured for the parallel operator: messages are assigned by the value of a header
+	 * if the partition key references one (eg. <code>@key</code>), by the value of a JSON field if the partition key holds any 
+	 * other value and round-robin if no partition key is configured 
+	 * @param componentCfg
+	 * @return
+	 * @throws RequiredInputMissingException
+	 */
+	protected MessagePartitioner getPartitioner(final MicroPipelineComponentConfiguration componentCfg) throws RequiredInputMissingException {
+		return getPartitioner(componentCfg, StreamingDataMessageCodec.JSON);
+	}
+	
+	/**
+	 * Returns the {@link MessagePartitioner} configured for the parallel operator reading messages encoded by the given codec
+	 * @param componentCfg
+	 * @param inputCodec
+	 * @return
+	 * @throws RequiredInputMissingException
+	 * @see #getPartitioner(MicroPipelineComponentConfiguration)
+	 */
+	protected MessagePartitioner getPartitioner(final MicroPipelineComponentConfiguration componentCfg, final StreamingDataMessageCodec inputCodec) throws RequiredInputMissingException {
+		if(StringUtils.isBlank(componentCfg.getPartitionKey()))
+			return new RoundRobinMessagePartitioner();
+		if(HeaderMessagePartitioner.isHeaderReference(componentCfg.getPartitionKey()))
+			return new HeaderMessagePartitioner(componentCfg.getPartitionKey());
+		return new JsonFieldMessagePartitioner(componentCfg.getPartitionKey(), (inputCodec != null ? inputCodec.getFactory() : null));
+	}
+	
+	/**
+	 * Returns the codec used by each queue. If the pipeline configuration names an {@link MicroPipelineConfiguration#getMessageCodec() internal codec},
+	 * it is assigned to all queues which are exclusively written and read by {@link MessageCodecAware} components supporting it. All other
+	 * queues - especially those written by sources or read by emitters - use {@link StreamingDataMessageCodec#JSON}. Thus messages are converted
+	 * at the edges of the pipeline only.
+	 * @param cfg
+	 * @param components initialized components referenced by identifier
+	 * @return codecs referenced by queue identifier - queues not contained use {@link StreamingDataMessageCodec#JSON}
+	 */
+	protected Map<String, StreamingDataMessageCodec> getQueueMessageCodecs(final MicroPipelineConfiguration cfg, final Map<String, MicroPipelineComponent> components) {
+		
+		final Map<String, StreamingDataMessageCodec> queueCodecs = new HashMap<>();
+		if(cfg == null || cfg.getComponents() == null || StringUtils.isBlank(cfg.getMessageCodec()))
+			return queueCodecs;
+		
+		final StreamingDataMessageCodec internalCodec = StreamingDataMessageCodec.getCodec(cfg.getMessageCodec());
+		if(internalCodec == null) {
+			logger.warn("Unknown message codec. Using JSON on all queues [pipeline="+cfg.getId()+", codec="+cfg.getMessageCodec()+"]");
+			return queueCodecs;
+		}
+		if(internalCodec == StreamingDataMessageCodec.JSON)
+			return queueCodecs;
+
+		///////////////////////////////////////////////////////////////////////////////////
+		// collect all queues accessed by components and those accessed by at least one component not supporting the codec
+		final Set<String> queues = new HashSet<>();
+		final Set<String> jsonQueues = new HashSet<>();
+		for(final MicroPipelineComponentConfiguration componentCfg : cfg.getComponents()) {
+			if(componentCfg == null || componentCfg.getType() == null)
+				continue;
+			final MicroPipelineComponent component = components.get(StringUtils.lowerCase(StringUtils.trim(componentCfg.getId())));
+			final boolean supported = (component instanceof MessageCodecAware) && ((MessageCodecAware)component).supportsMessageCodec(internalCodec);
+			
+			final String fromQueue = StringUtils.lowerCase(StringUtils.trim(componentCfg.getFromQueue()));
+			final String toQueue = StringUtils.lowerCase(StringUtils.trim(componentCfg.getToQueue()));
+			if(componentCfg.getType() != MicroPipelineComponentType.SOURCE && StringUtils.isNotBlank(fromQueue)) {
+				queues.add(fromQueue);
+				if(!supported)
+					jsonQueues.add(fromQueue);
+			}
+			if(componentCfg.getType() != MicroPipelineComponentType.EMITTER && StringUtils.isNotBlank(toQueue)) {
+				queues.add(toQueue);
+				if(!supported)
+					jsonQueues.add(toQueue);
+			}
+		}
+		///////////////////////////////////////////////////////////////////////////////////
+		
+		queues.removeAll(jsonQueues);
+		for(final String queue : queues)
+			queueCodecs.put(queue, internalCodec);
+		if(!queueCodecs.isEmpty())
+			logger.info("internal message codec assigned [pipeline="+cfg.getId()+", codec="+internalCodec+", queues="+queueCodecs.keySet()+"]");
+		return queueCodecs;
+	}
+	
+	/**
+	 * Assigns the codecs of its source and destination queue to the component - if it is {@link MessageCodecAware}
+	 * @param component
+	 * @param componentCfg
+	 * @param queueCodecs codecs referenced by queue identifier
+	 */
+	protected void applyMessageCodecs(final MicroPipelineComponent component, final MicroPipelineComponentConfiguration componentCfg, final Map<String, StreamingDataMessageCodec> queueCodecs) {
+		if(component instanceof MessageCodecAware)
+			((MessageCodecAware)component).setMessageCodecs(getMessageCodec(queueCodecs, componentCfg.getFromQueue()), getMessageCodec(queueCodecs, componentCfg.getToQueue()));
+	}
+	
+	/**
+	 * Returns the codec used by the referenced queue
+	 * @param queueCodecs
+	 * @param queueId
+	 * @return
+	 */
+	private static StreamingDataMessageCodec getMessageCodec(final Map<String, StreamingDataMessageCodec> queueCodecs, final String queueId) {
+		final StreamingDataMessageCodec codec = (queueCodecs != null ? queueCodecs.get(StringUtils.lowerCase(StringUtils.trim(queueId))) : null);
+		return (codec != null ? codec : StreamingDataMessageCodec.JSON);
+	}
+	
+	/**
+	 * Shuts down the provided components which are not yet attached to a runtime environment 
+	 * @param components
+	 */
+	private static void shutdownComponents(final Collection<? extends MicroPipelineComponent> components) {
+		for(final MicroPipelineComponent component : components) {
+			try {
+				component.shutdown();
+			} catch(Exception e) {
+				logger.error("Failed to shut down component [id="+component.getId()+"]. Reason: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Returns a readable representation of the given operator chain
+	 * @param operatorChain
+	 * @return
+	 */
+	private static String chainToString(final List<MicroPipelineComponentConfiguration> operatorChain) {
+		final StringBuilder result = new StringBuilder();
+		for(final MicroPipelineComponentConfiguration operatorCfg : operatorChain) {
+			if(result.length() > 0)
+				result.append("->");
+			result.append(operatorCfg.getId());
+		}
+		return result.toString();
+	}
+	
+	/**
+	 * Stops the node-wide {@link HashedWheelReleaseTimer} and all shared sources. Timer based response wait strategies of pipelines still running do not release any more results
+	 */
+	public void shutdown() {
+		this.releaseTimer.shutdown();
+		this.sharedSourceRegistry.shutdown();
+	}
+	
+	/**
+	 * Returns the node-wide {@link HashedWheelReleaseTimer}
+	 * @return
+	 */
+	public HashedWheelReleaseTimer getReleaseTimer() {
+		return releaseTimer;
+	}
+	
+	/**
+	 * Returns the node-wide {@link SharedSourceRegistry}
+	 * @return
+	 */
+	public SharedSourceRegistry getSharedSourceRegistry() {
+		return sharedSourceRegistry;
+	}
+	
+	/**
+	 * Hands over the runtime environment to the {@link CooperativeRuntimeScheduler} - if provided - or
+	 * submits it to the {@link ExecutorService} otherwise
+	 * @param runtimeEnvironment
+	 * @param executorService
+	 * @param scheduler
+	 */
+	protected <T extends Runnable & CooperativeRuntimeEnvironment> void start(final T runtimeEnvironment, final ExecutorService executorService, final CooperativeRuntimeScheduler scheduler) {
+		if(scheduler != null)
+			scheduler.schedule(runtimeEnvironment);
+		else
+			executorService.submit(runtimeEnvironment);
+	}
+	
 	/**
 	 * Initializes a {@link StreamingMessageQueue} instance according to provided information.
 	 * @param queueConfiguration+
@@ -367,6 +988,20 @@ public class MicroPipelineFactory {
 	 * @throws QueueInitializationFailedException
 	 */
 	protected StreamingMessageQueue initializeQueue(final StreamingMessageQueueConfiguration queueConfiguration) throws RequiredInputMissingException, QueueInitializationFailedException {
+		return initializeQueue(queueConfiguration, 1);
+	}
+	
+	/**
+	 * Initializes a {@link StreamingMessageQueue} instance according to provided information. A {@link RingBufferStreamingMessageQueue} 
+	 * written by more than one component switches to the {@link RingBufferStreamingMessageQueue#PRODUCER_TYPE_MULTI multi producer} ring
+	 * unless the single producer ring is configured explicitly, which is rejected
+	 * @param queueConfiguration
+	 * @param numOfProducers number of components writing to the queue
+	 * @return
+	 * @throws RequiredInputMissingException
+	 * @throws QueueInitializationFailedException
+	 */
+	protected StreamingMessageQueue initializeQueue(final StreamingMessageQueueConfiguration queueConfiguration, final int numOfProducers) throws RequiredInputMissingException, QueueInitializationFailedException {
 
 		///////////////////////////////////////////////////////////////////////////////////
 		// validate input
@@ -379,28 +1014,42 @@ public class MicroPipelineFactory {
 
 		///////////////////////////////////////////////////////////////////////////////////
 		// check properties for optional settings
-		boolean inMemoryQueue = false;
-		if(queueConfiguration.getProperties() != null && !queueConfiguration.getProperties().isEmpty()) {
-			String queueType = StringUtils.lowerCase(StringUtils.trim(queueConfiguration.getProperties().getProperty(StreamingMessageQueue.CFG_QUEUE_TYPE)));
-			inMemoryQueue = StringUtils.equalsIgnoreCase(queueType, InMemoryStreamingMessageQueue.CFG_QUEUE_TYPE);
+		final Properties queueProperties = new Properties();
+		if(queueConfiguration.getProperties() != null)
+			queueProperties.putAll(queueConfiguration.getProperties());
+		String queueType = StringUtils.lowerCase(StringUtils.trim(queueProperties.getProperty(StreamingMessageQueue.CFG_QUEUE_TYPE)));
+		
+		// capacity, overflow policy and broadcast mode provided via configuration take precedence over queue settings 
+		if(queueConfiguration.getCapacity() > 0)
+			queueProperties.setProperty(StreamingMessageQueue.CFG_QUEUE_CAPACITY, String.valueOf(queueConfiguration.getCapacity()));
+		if(StringUtils.isNotBlank(queueConfiguration.getOverflowPolicy()))
+			queueProperties.setProperty(StreamingMessageQueue.CFG_QUEUE_OVERFLOW_POLICY, StringUtils.trim(queueConfiguration.getOverflowPolicy()));
+		if(queueConfiguration.isBroadcast())
+			queueProperties.setProperty(StreamingMessageQueue.CFG_QUEUE_BROADCAST, "true");
+		
+		// the single producer ring must not be written by more than one component
+		if(StringUtils.equalsIgnoreCase(queueType, RingBufferStreamingMessageQueue.CFG_QUEUE_TYPE) && numOfProducers > 1) {
+			final String producerType = StringUtils.trim(queueProperties.getProperty(RingBufferStreamingMessageQueue.CFG_QUEUE_RING_PRODUCER_TYPE));
+			if(StringUtils.equalsIgnoreCase(producerType, RingBufferStreamingMessageQueue.PRODUCER_TYPE_SINGLE))
+				throw new QueueInitializationFailedException("Failed to initialize streaming message queue '"+queueConfiguration.getId()+"'. Error: producer type '"+
+						RingBufferStreamingMessageQueue.PRODUCER_TYPE_SINGLE+"' configured for a queue written by "+numOfProducers+" components");
+			if(!StringUtils.equalsIgnoreCase(producerType, RingBufferStreamingMessageQueue.PRODUCER_TYPE_MULTI)) {
+				logger.info("queue written by multiple components [id="+queueConfiguration.getId()+", producers="+numOfProducers+"]. Using producer type '"+RingBufferStreamingMessageQueue.PRODUCER_TYPE_MULTI+"'");
+				queueProperties.setProperty(RingBufferStreamingMessageQueue.CFG_QUEUE_RING_PRODUCER_TYPE, RingBufferStreamingMessageQueue.PRODUCER_TYPE_MULTI);
+			}
 		}
 		///////////////////////////////////////////////////////////////////////////////////
 
-		if(inMemoryQueue) {
-			try {
-				StreamingMessageQueue queue = new InMemoryStreamingMessageQueue();
-				queue.setId(StringUtils.lowerCase(StringUtils.trim(queueConfiguration.getId())));
-				queue.initialize((queueConfiguration.getProperties() != null ? queueConfiguration.getProperties() : new Properties()));
-				return queue;
-			} catch(Exception e) {
-				throw new QueueInitializationFailedException("Failed to initialize streaming message queue '"+queueConfiguration.getId()+"'. Error: " + e.getMessage());
-			}
-		}
-		
 		try {
-			StreamingMessageQueue queue = new DefaultStreamingMessageQueue(); 
+			StreamingMessageQueue queue = null;
+			if(StringUtils.equalsIgnoreCase(queueType, InMemoryStreamingMessageQueue.CFG_QUEUE_TYPE))
+				queue = new InMemoryStreamingMessageQueue();
+			else if(StringUtils.equalsIgnoreCase(queueType, RingBufferStreamingMessageQueue.CFG_QUEUE_TYPE))
+				queue = new RingBufferStreamingMessageQueue();
+			else
+				queue = new DefaultStreamingMessageQueue(); 
 			queue.setId(StringUtils.lowerCase(StringUtils.trim(queueConfiguration.getId())));
-			queue.initialize((queueConfiguration.getProperties() != null ? queueConfiguration.getProperties() : new Properties()));
+			queue.initialize(queueProperties);
 			return queue;
 		} catch(Exception e) {
 			throw new QueueInitializationFailedException("Failed to initialize streaming message queue '"+queueConfiguration.getId()+"'. Error: " + e.getMessage());
@@ -552,6 +1201,10 @@ public class MicroPipelineFactory {
 			OperatorTriggeredWaitStrategy strategy = new OperatorTriggeredWaitStrategy();
 			strategy.initialize(strategyProperties);
 			return strategy;
+		} else if(StringUtils.equalsIgnoreCase(strategyName, EventTimeWindowWaitStrategy.WAIT_STRATEGY_NAME)) {
+			EventTimeWindowWaitStrategy strategy = new EventTimeWindowWaitStrategy();
+			strategy.initialize(strategyProperties);
+			return strategy;
 		}
 		
 		throw new UnknownWaitStrategyException("Unknown wait strategy '"+strategyName+"'");
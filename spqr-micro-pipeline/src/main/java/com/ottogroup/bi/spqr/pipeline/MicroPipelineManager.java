@@ -21,6 +21,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -30,6 +34,7 @@ import com.ottogroup.bi.spqr.exception.NonUniqueIdentifierException;
 import com.ottogroup.bi.spqr.exception.PipelineInstantiationFailedException;
 import com.ottogroup.bi.spqr.exception.QueueInitializationFailedException;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeScheduler;
 import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent;
 import com.ottogroup.bi.spqr.repository.ComponentRepository;
 
@@ -43,10 +48,22 @@ public class MicroPipelineManager {
 
 	private static final Logger logger = Logger.getLogger(MicroPipelineManager.class);
 	
+	/////////////////////////////////////////////////////////////////////
+	// available execution modes
+	/** each runtime environment runs on a thread of its own (default) */ 
+	public static final String EXECUTION_MODE_THREAD_PER_COMPONENT = "threadPerComponent";
+	/** operators and emitters share the worker threads of a {@link CooperativeRuntimeScheduler} - direct response operators running in parallel are not supported */
+	public static final String EXECUTION_MODE_COOPERATIVE = "cooperative";
+	/** each runtime environment runs on a virtual thread of its own - requires a runtime supporting virtual threads */
+	public static final String EXECUTION_MODE_VIRTUAL_THREADS = "virtualThreads";
+	/////////////////////////////////////////////////////////////////////
+	
 	/** keeps track of all registered pipeline instances */
 	private final Map<String, MicroPipeline> pipelines = new HashMap<>();
 	/** reference towards execution service which is to be used for runtime environment execution */
 	private final ExecutorService executorService;
+	/** scheduler executing operators and emitters in cooperative execution mode - null otherwise */
+	private final CooperativeRuntimeScheduler scheduler;
 	/** micro pipeline factory */
 	private final MicroPipelineFactory microPipelineFactory;
 	/** identifier of processing node this factory lives on */
@@ -60,6 +77,21 @@ public class MicroPipelineManager {
 	 * @throws RequiredInputMissingException   
 	 */
 	public MicroPipelineManager(final String processingNodeId, final ComponentRepository componentRepository, final int maxNumberOfThreads) throws RequiredInputMissingException {
+		this(processingNodeId, componentRepository, maxNumberOfThreads, EXECUTION_MODE_THREAD_PER_COMPONENT, 0);
+	}
+	
+	/**
+	 * Initializes the micro pipeline manager
+	 * @param processingNodeId identifier of node this manager lives on
+	 * @param componentRepository reference to {@link ComponentRepository} which provides access to all {@link MicroPipelineComponent}
+	 * @param maxNumberOfThreads max. number of threads assigned to {@link ExecutorService} (1 = single threaded, n = fixed number of threads, other = cached thread pool) - ignored in virtual thread mode
+	 * @param executionMode {@link #EXECUTION_MODE_THREAD_PER_COMPONENT} (default), {@link #EXECUTION_MODE_COOPERATIVE} or {@link #EXECUTION_MODE_VIRTUAL_THREADS}
+	 * @param schedulerThreads number of worker threads used in cooperative execution mode (values below 1 lead to one thread per core)
+	 * @throws RequiredInputMissingException   
+	 * @throws IllegalStateException virtual thread mode was requested on a runtime without virtual thread support
+	 */
+	public MicroPipelineManager(final String processingNodeId, final ComponentRepository componentRepository, final int maxNumberOfThreads,
+			final String executionMode, final int schedulerThreads) throws RequiredInputMissingException {
 
 		//////////////////////////////////////////////////////////////////////////////
 		// validate provided input
@@ -73,13 +105,17 @@ public class MicroPipelineManager {
 		this.processingNodeId = StringUtils.lowerCase(StringUtils.trim(processingNodeId));
 		this.microPipelineFactory = new MicroPipelineFactory(this.processingNodeId, componentRepository);
 		
-		if(maxNumberOfThreads == 1)
-			this.executorService = Executors.newSingleThreadExecutor();
-		else if(maxNumberOfThreads > 1)
-			this.executorService = Executors.newFixedThreadPool(maxNumberOfThreads);
+		if(StringUtils.equalsIgnoreCase(StringUtils.trim(executionMode), EXECUTION_MODE_VIRTUAL_THREADS))
+			this.executorService = newVirtualThreadExecutor();
+		else if(maxNumberOfThreads > 0)
+			this.executorService = newBoundedThreadPool(maxNumberOfThreads);
 		else
 			this.executorService = Executors.newCachedThreadPool();
 		
+		if(StringUtils.equalsIgnoreCase(StringUtils.trim(executionMode), EXECUTION_MODE_COOPERATIVE))
+			this.scheduler = new CooperativeRuntimeScheduler(schedulerThreads, CooperativeRuntimeScheduler.DEFAULT_BATCH_SIZE, CooperativeRuntimeScheduler.DEFAULT_MAX_IDLE_NANOS);
+		else
+			this.scheduler = null;
 	}
 	
 	/**
@@ -105,6 +141,7 @@ public class MicroPipelineManager {
 		this.processingNodeId = StringUtils.lowerCase(StringUtils.trim(processingNodeId));
 		this.microPipelineFactory = factory;
 		this.executorService = executorService;
+		this.scheduler = null;
 	}
 	
 	/**
@@ -130,11 +167,12 @@ public class MicroPipelineManager {
 			throw new NonUniqueIdentifierException("A pipeline already exists for id '"+id+"'");		
 		
 		
-		MicroPipeline pipeline = this.microPipelineFactory.instantiatePipeline(configuration, this.executorService);		
-		if(pipeline != null) 
-			this.pipelines.put(id, pipeline);
-		else
+		MicroPipeline pipeline = (this.scheduler != null ? 
+				this.microPipelineFactory.instantiatePipeline(configuration, this.executorService, this.scheduler) :
+				this.microPipelineFactory.instantiatePipeline(configuration, this.executorService));		
+		if(pipeline == null)
 			throw new PipelineInstantiationFailedException("Failed to instantiate pipeline '"+configuration.getId()+"'. Reason: null returned by pipeline factory");
+		this.pipelines.put(id, pipeline);
 		
 		if(logger.isDebugEnabled())
 			logger.debug("pipeline registered[id="+configuration.getId()+"]");
@@ -212,6 +250,35 @@ public class MicroPipelineManager {
 				logger.error("failed to shutdown pipeline [id="+pipelineId+"]. Reason: " + e.getMessage(), e);
 			}
 		}
+		if(this.scheduler != null)
+			this.scheduler.shutdown();
+		this.microPipelineFactory.shutdown();
+	}
+
+	/**
+	 * Returns an {@link ExecutorService} running each submitted task on a virtual thread of its own. As the code base 
+	 * must run on runtimes without virtual thread support, the executor is looked up reflectively
+	 * @return
+	 * @throws IllegalStateException the current runtime does not support virtual threads
+	 */
+	protected static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(Exception e) {
+			logger.error("Virtual threads are not supported by the current runtime [java.version="+System.getProperty("java.version")+"]");
+			throw new IllegalStateException("Execution mode '"+EXECUTION_MODE_VIRTUAL_THREADS+"' requires a runtime supporting virtual threads [java.version="+System.getProperty("java.version")+"]", e);
+		}
+	}
+	
+	/**
+	 * Returns an {@link ExecutorService} running up to the given number of tasks. As runtime environments never terminate, 
+	 * tasks submitted beyond that capacity would never be executed: instead of being queued they are rejected by 
+	 * throwing a {@link RejectedExecutionException}
+	 * @param maxNumberOfThreads
+	 * @return
+	 */
+	protected static ExecutorService newBoundedThreadPool(final int maxNumberOfThreads) {
+		return new ThreadPoolExecutor(maxNumberOfThreads, maxNumberOfThreads, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(), new ThreadPoolExecutor.AbortPolicy());
 	}
 
 	/**
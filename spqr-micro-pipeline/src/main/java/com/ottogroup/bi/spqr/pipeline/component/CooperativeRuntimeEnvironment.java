@@ -0,0 +1,40 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component;
+
+/**
+ * Implemented by runtime environments which may be executed by the {@link CooperativeRuntimeScheduler}. Instead of 
+ * blocking a dedicated thread while waiting for messages, the environment gets polled repeatedly by one of the scheduler
+ * workers and returns control after processing a bounded batch of messages. 
+ * @author mnxfst
+ * @since Feb 8, 2016
+ */
+public interface CooperativeRuntimeEnvironment {
+
+	/**
+	 * Processes up to the given number of messages currently available without waiting for further 
+	 * messages. Must never block. 
+	 * @param maxMessages max. number of messages to process
+	 * @return number of processed messages
+	 */
+	public int poll(final int maxMessages);
+
+	/**
+	 * Returns true as long as the environment has not been shut down
+	 * @return
+	 */
+	public boolean isRunning();
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executes {@link CooperativeRuntimeEnvironment} instances on a small, fixed number of worker threads (default: one 
+ * per core) instead of assigning a dedicated thread to each of them. Each registered environment is owned by exactly one
+ * worker which polls all its environments round-robin, allowing each of them to process a bounded batch of messages 
+ * before moving on. Environments owning a worker exclusively thus never get polled concurrently. If a full round did not 
+ * produce any work, the worker backs off by parking for an increasing period of time bounded by the configured max. idle time.<br/><br/>
+ * Environments which are shut down are removed from their worker automatically.
+ * @author mnxfst
+ * @since Feb 8, 2016
+ */
+public class CooperativeRuntimeScheduler {
+
+	/** our faithful logging facility ... ;-) */ 
+	private static final Logger logger = Logger.getLogger(CooperativeRuntimeScheduler.class);
+	
+	/** default max. number of messages an environment may process before the worker moves on */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	/** default max. time an idle worker gets parked before polling its environments again */
+	public static final long DEFAULT_MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	/** initial idle park time - doubled with each idle round */
+	private static final long MIN_IDLE_NANOS = 1000;
+	
+	/** workers executing the environments */
+	private final Worker[] workers;
+	/** threads running the workers */
+	private final Thread[] workerThreads;
+	/** used to assign environments to workers round-robin */
+	private final AtomicInteger nextWorker = new AtomicInteger(0);
+	/** max. number of messages an environment may process before the worker moves on */
+	private final int batchSize;
+	/** max. time an idle worker gets parked */
+	private final long maxIdleNanos;
+	/** set to false on shutdown */
+	private volatile boolean running = true;
+	
+	/**
+	 * Initializes the scheduler using one worker per available core
+	 */
+	public CooperativeRuntimeScheduler() {
+		this(0, DEFAULT_BATCH_SIZE, DEFAULT_MAX_IDLE_NANOS);
+	}
+	
+	/**
+	 * Initializes the scheduler using the provided input
+	 * @param numOfWorkers number of worker threads - values below 1 lead to one worker per available core 
+	 * @param batchSize max. number of messages an environment may process before the worker moves on
+	 * @param maxIdleNanos max. time an idle worker gets parked before polling its environments again
+	 */
+	public CooperativeRuntimeScheduler(final int numOfWorkers, final int batchSize, final long maxIdleNanos) {
+		final int workerCount = (numOfWorkers > 0 ? numOfWorkers : Runtime.getRuntime().availableProcessors());
+		this.batchSize = (batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+		this.maxIdleNanos = (maxIdleNanos > 0 ? maxIdleNanos : DEFAULT_MAX_IDLE_NANOS);
+		this.workers = new Worker[workerCount];
+		this.workerThreads = new Thread[workerCount];
+		for(int i = 0; i < workerCount; i++) {
+			this.workers[i] = new Worker();
+			this.workerThreads[i] = new Thread(this.workers[i], "spqr-cooperative-worker-" + i);
+			this.workerThreads[i].setDaemon(true);
+			this.workerThreads[i].start();
+		}
+		logger.info("cooperative runtime scheduler initialized [workers="+workerCount+", batchSize="+this.batchSize+", maxIdleNanos="+this.maxIdleNanos+"]");
+	}
+	
+	/**
+	 * Assigns the {@link CooperativeRuntimeEnvironment} to one of the workers
+	 * @param environment
+	 */
+	public void schedule(final CooperativeRuntimeEnvironment environment) {
+		if(environment == null)
+			return;
+		final int index = (this.nextWorker.getAndIncrement() & Integer.MAX_VALUE) % this.workers.length;
+		this.workers[index].environments.add(environment);
+		LockSupport.unpark(this.workerThreads[index]);
+	}
+	
+	/**
+	 * Returns the number of environments currently assigned to workers
+	 * @return
+	 */
+	public int getNumOfEnvironments() {
+		int count = 0;
+		for(final Worker worker : this.workers)
+			count += worker.environments.size();
+		return count;
+	}
+	
+	/**
+	 * Returns the number of worker threads
+	 * @return
+	 */
+	public int getNumOfWorkers() {
+		return this.workers.length;
+	}
+	
+	/**
+	 * Stops all workers. Assigned environments are not shut down
+	 */
+	public void shutdown() {
+		this.running = false;
+		for(final Thread thread : this.workerThreads)
+			LockSupport.unpark(thread);
+	}
+	
+	/**
+	 * Polls all environments assigned to it round-robin
+	 * @author mnxfst
+	 * @since Feb 8, 2016
+	 */
+	private class Worker implements Runnable {
+		
+		/** environments owned by this worker */
+		private final List<CooperativeRuntimeEnvironment> environments = new CopyOnWriteArrayList<>();
+
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			long idleNanos = MIN_IDLE_NANOS;
+			while(running) {
+				int processed = 0;
+				for(final CooperativeRuntimeEnvironment environment : this.environments) {
+					if(!environment.isRunning()) {
+						this.environments.remove(environment);
+						continue;
+					}
+					try {
+						processed += environment.poll(batchSize);
+					} catch(Exception e) {
+						logger.error("processing error [worker="+Thread.currentThread().getName()+"]: " + e.getMessage(), e);
+					}
+				}
+				
+				if(processed > 0) {
+					idleNanos = MIN_IDLE_NANOS;
+				} else {
+					LockSupport.parkNanos(idleNanos);
+					idleNanos = Math.min(idleNanos << 1, maxIdleNanos);
+				}
+			}
+		}
+	}
+}
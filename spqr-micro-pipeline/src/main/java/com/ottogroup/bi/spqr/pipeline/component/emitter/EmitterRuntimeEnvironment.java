@@ -21,6 +21,7 @@ import org.apache.log4j.Logger;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeEnvironment;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
@@ -28,15 +29,20 @@ import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitSt
 /**
  * Provides a runtime environment for {@link Emitter} instances. The environment retrieves all
  * incoming {@link StreamingDataMessage} instances from the attached {@link StreamingMessageQueueConsumer}
- * and provides them to the assigned {@link Emitter} for further processing.
+ * and provides them to the assigned {@link Emitter} for further processing. Messages are read in micro-batches: 
+ * the environment waits for the first message and drains all other available messages (up to the configured
+ * batch size) without waiting afterwards. Alternatively the environment may be executed as {@link CooperativeRuntimeEnvironment}.
  * @author mnxfst
  *
  */
-public class EmitterRuntimeEnvironment implements Runnable {
+public class EmitterRuntimeEnvironment implements Runnable, CooperativeRuntimeEnvironment {
 
 	/** our faithful logging facility ... ;-) */ 
 	private static final Logger logger = Logger.getLogger(EmitterRuntimeEnvironment.class);
 
+	/** default max. number of messages processed in one batch */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
 	/** identifier of processing node the runtime environment belongs to*/
 	private final String processingNodeId;
 	/** identifier of pipeline the runtime environment belongs to */
@@ -48,11 +54,15 @@ public class EmitterRuntimeEnvironment implements Runnable {
 	/** provides read access to assigned source queue */
 	private final StreamingMessageQueueConsumer queueConsumer;
 	/** indicates whether the environment is still running */
-	private boolean running = false;
+	private volatile boolean running = false;
+	/** buffer used by the cooperative processing mode - owned by the polling scheduler worker */
+	private StreamingDataMessage[] pollBuffer = null;
 	/** message counter metric */
 	private Counter messageCounter = null;
 	/** insertion timer metric */
 	private Timer messageEmitDurationTimer = null;
+	/** max. number of messages processed in one batch */
+	private int batchSize = DEFAULT_BATCH_SIZE;
 
 
 	/**
@@ -99,23 +109,20 @@ public class EmitterRuntimeEnvironment implements Runnable {
 		
 		// fetch the wait strategy attached to the queue (provided through the queue consumer)
 		StreamingMessageQueueWaitStrategy queueWaitStrategy = this.queueConsumer.getWaitStrategy();
+		final StreamingDataMessage[] batch = new StreamingDataMessage[Math.max(this.batchSize - 1, 1)];
 		while(running) {
 
 			try {
-				// fetch message from queue consumer via strategy
+				// fetch message from queue consumer via strategy and all other available messages without waiting afterwards
 				StreamingDataMessage message = queueWaitStrategy.waitFor(this.queueConsumer);
-				if(message != null && message.getBody() != null) {
-					
-					@SuppressWarnings("resource") // context#close() calls context#stop -> avoid additional call, thus accept warning
-					Timer.Context timerContext = (this.messageEmitDurationTimer != null ? this.messageEmitDurationTimer.time() : null);
-
-					this.emitter.onMessage(message);
+				if(message != null) {
+					emitMessage(message);
 					
-					if(timerContext != null)
-						timerContext.stop();
-
-					if(this.messageCounter != null)
-						this.messageCounter.inc();
+					final int batchLength = this.queueConsumer.drainTo(batch, this.batchSize - 1);
+					for(int i = 0; i < batchLength; i++) {
+						emitMessage(batch[i]);
+						batch[i] = null;
+					}
 				} 
 
 			} catch(InterruptedException e) {
@@ -127,6 +134,61 @@ public class EmitterRuntimeEnvironment implements Runnable {
 		}		
 	}
 
+	/**
+	 * Processes all messages currently available (up to the given max) without waiting
+	 * @see com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeEnvironment#poll(int)
+	 */
+	public int poll(final int maxMessages) {
+		
+		if(!running || maxMessages < 1)
+			return 0;
+		
+		if(this.pollBuffer == null || this.pollBuffer.length < maxMessages)
+			this.pollBuffer = new StreamingDataMessage[maxMessages];
+
+		int processed = 0;
+		try {
+			processed = this.queueConsumer.drainTo(this.pollBuffer, maxMessages);
+			for(int i = 0; i < processed; i++) {
+				emitMessage(this.pollBuffer[i]);
+				this.pollBuffer[i] = null;
+			}
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", emitter="+this.emitterId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors
+		}
+		return processed;
+	}
+
+	/**
+	 * Hands over the message to the emitter
+	 * @param message
+	 */
+	protected void emitMessage(final StreamingDataMessage message) {
+		
+		if(message == null || message.getBody() == null)
+			return;
+		
+		try {
+			@SuppressWarnings("resource") // context#close() calls context#stop -> avoid additional call, thus accept warning
+			Timer.Context timerContext = (this.messageEmitDurationTimer != null ? this.messageEmitDurationTimer.time() : null);
+	
+			this.emitter.onMessage(message);
+			
+			if(timerContext != null)
+				timerContext.stop();
+	
+			if(this.messageCounter != null)
+				this.messageCounter.inc();
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", emitter="+this.emitterId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors
+		}
+		
+		// pooled messages return to their pool - emitters handing over the body asynchronously must copy it
+		message.release();
+	}
+
 	/**
 	 * Shuts down the runtime environment as well as the attached {@link Emitter}
 	 */
@@ -156,6 +218,13 @@ public class EmitterRuntimeEnvironment implements Runnable {
 		this.messageCounter = messageCounter;
 	}
 
+	/**
+	 * @param batchSize max. number of messages processed in one batch
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = (batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+	}
+
 	/**
 	 * @param messageEmitDurationTimer the messageEmitDurationTimer to set
 	 */
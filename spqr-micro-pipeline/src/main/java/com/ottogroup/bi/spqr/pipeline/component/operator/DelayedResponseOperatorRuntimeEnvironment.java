@@ -23,6 +23,7 @@ import org.apache.log4j.Logger;
 
 import com.codahale.metrics.Counter;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeEnvironment;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
@@ -33,15 +34,28 @@ import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitSt
  * messages from the assigned {@link StreamingMessageQueueConsumer} and forwards them for further processing
  * to the {@link DirectResponseOperator}. In case the condition evaluated by the {@link DelayedResponseOperatorWaitStrategy}
  * provided on startup holds, the environment asks the operator to return its {@link DelayedResponseOperator#getResult() results}
- * which are forwarded to the {@link StreamingMessageQueueProducer} (order is preserved as received from operator).
+ * which are forwarded to the {@link StreamingMessageQueueProducer} (order is preserved as received from operator).<br/><br/>
+ * Incoming messages are read in micro-batches: the environment waits for the first message and drains all 
+ * other available messages (up to the configured batch size) without waiting afterwards. Alternatively the environment
+ * may be executed as {@link CooperativeRuntimeEnvironment} while the response wait strategy keeps running on the executor service.<br/><br/>
+ * The operator state is accessed by the processing thread only. A {@link #retrieveMessages() release} - possibly issued by a different thread,
+ * eg. a timer - just increments the release epoch and wakes up the processing thread if it waits for messages. The processing thread compares 
+ * the epoch against the last epoch handled after each message and whenever it gets woken up. If it differs, the thread fetches the operator result 
+ * itself. This way releases are never interleaved with {@link DelayedResponseOperator#onMessage(StreamingDataMessage)} and the message path 
+ * requires neither locks nor atomic updates. Multiple releases issued before the processing thread gets aware of them are collapsed into one.
+ * An idle processing thread waits until either a message arrives or a release gets requested. Messages are handed over to 
+ * {@link EventTimeWaitStrategy event time strategies} first which decide when to pass them on to the operator.
  * @author mnxfst
  * @since Mar 11, 2015
  */
-public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, DelayedResponseCollector {
+public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, DelayedResponseCollector, CooperativeRuntimeEnvironment {
 
 	/** our faithful logging facility ... ;-) */ 
 	private static final Logger logger = Logger.getLogger(DelayedResponseOperatorRuntimeEnvironment.class);
 
+	/** default max. number of messages processed in one batch */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
 	/** identifier of processing node the runtime environment belongs to*/
 	private final String processingNodeId;
 	/** identifier of pipeline the runtime environment belongs to */
@@ -54,10 +68,14 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 	private final DelayedResponseOperatorWaitStrategy responseWaitStrategy;
 	/** provides read access to assigned source queue */
 	private final StreamingMessageQueueConsumer queueConsumer;
+	/** source queue consumer handed to the wait strategy - reports pending releases */
+	private final ReleaseAwareQueueConsumer releaseAwareConsumer;
 	/** provides write access to assigned destination queue */
 	private final StreamingMessageQueueProducer queueProducer;	
 	/** indicates whether the operator runtime is still running or not */
-	private boolean running = false;
+	private volatile boolean running = false;
+	/** buffer used by the cooperative processing mode - owned by the polling scheduler worker */
+	private StreamingDataMessage[] pollBuffer = null;
 	/** executor environment used to run the response wait strategy */
 	private final ExecutorService executorService;
 	/** local executor service? - must be shut down as well, otherwise the provider must take care of it */
@@ -68,6 +86,10 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 	private final StreamingMessageQueueWaitStrategy destinationQueueWaitStrategy;
 	/** message counter metric */
 	private Counter messageCounter = null;
+	/** max. number of messages processed in one batch */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	/** set if the response wait strategy is event time based - it decides when to pass on messages to the operator */
+	private final EventTimeWaitStrategy eventTimeWaitStrategy;
 
 
 	/**
@@ -100,6 +122,25 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 	public DelayedResponseOperatorRuntimeEnvironment(final String processingNodeId, final String pipelineId, final DelayedResponseOperator delayedResponseOperator, final DelayedResponseOperatorWaitStrategy responseWaitStrategy,
 			final StreamingMessageQueueConsumer queueConsumer, final StreamingMessageQueueProducer queueProducer, 
 			final ExecutorService executorService) throws RequiredInputMissingException {
+		this(processingNodeId, pipelineId, delayedResponseOperator, responseWaitStrategy, queueConsumer, queueProducer, executorService, null);
+	}
+	
+	/**
+	 * Initializes the runtime environment using the provided input. {@link TimerDrivenWaitStrategy Timer driven strategies} are
+	 * registered with the given {@link HashedWheelReleaseTimer} - if provided - instead of being submitted to the executor service
+	 * @param processingNodeId
+	 * @param pipelineId
+	 * @param delayedResponseOperator
+	 * @param responseWaitStrategy
+	 * @param queueConsumer
+	 * @param queueProducer
+	 * @param executorService
+	 * @param releaseTimer optional node-wide release timer
+	 * @throws RequiredInputMissingException
+	 */
+	public DelayedResponseOperatorRuntimeEnvironment(final String processingNodeId, final String pipelineId, final DelayedResponseOperator delayedResponseOperator, final DelayedResponseOperatorWaitStrategy responseWaitStrategy,
+			final StreamingMessageQueueConsumer queueConsumer, final StreamingMessageQueueProducer queueProducer, 
+			final ExecutorService executorService, final HashedWheelReleaseTimer releaseTimer) throws RequiredInputMissingException {
 		
 		/////////////////////////////////////////////////////////////
 		// input validation
@@ -125,14 +166,17 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 		this.delayedResponseOperator = delayedResponseOperator;
 		this.responseWaitStrategy = responseWaitStrategy;
 		this.responseWaitStrategy.setDelayedResponseCollector(this);
+		this.eventTimeWaitStrategy = (responseWaitStrategy instanceof EventTimeWaitStrategy ? (EventTimeWaitStrategy)responseWaitStrategy : null);
 		this.delayedResponseOperator.setWaitStrategy(this.responseWaitStrategy);
 		this.queueConsumer = queueConsumer;
 		this.queueProducer = queueProducer;
 		this.executorService = executorService;		
-		this.executorService.submit(this.responseWaitStrategy);
+		if(!registerWithTimer(this.responseWaitStrategy, releaseTimer))
+			this.executorService.submit(this.responseWaitStrategy);
 		this.running = true;
 		this.consumerQueueWaitStrategy = queueConsumer.getWaitStrategy();
 		this.destinationQueueWaitStrategy = queueProducer.getWaitStrategy();
+		this.releaseAwareConsumer = new ReleaseAwareQueueConsumer(queueConsumer, this.consumerQueueWaitStrategy);
 
 		if(logger.isDebugEnabled())
 			logger.debug("delayed response operator init [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]");
@@ -143,20 +187,26 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 	 */
 	public void run() {
 		
+		final StreamingDataMessage[] batch = new StreamingDataMessage[Math.max(this.batchSize - 1, 1)];
+		
 		while(running) {
 
 			try {
-				StreamingDataMessage message = this.consumerQueueWaitStrategy.waitFor(this.queueConsumer); // this.queueConsumer.next();
-				if(message != null && message.getBody() != null) {
-					// forward retrieved message to operator for further processing
-					this.delayedResponseOperator.onMessage(message);
-					// notify response wait strategy on retrieved message
-					this.responseWaitStrategy.onMessage(message);
-					
-					if(this.messageCounter != null)
-						this.messageCounter.inc();
+				// wait for the first message and fetch all other available messages without waiting afterwards - waiting 
+				// ends as well if a release gets requested 
+				StreamingDataMessage message = this.consumerQueueWaitStrategy.waitFor(this.releaseAwareConsumer);
+				if(message != null && message != ReleaseAwareQueueConsumer.RELEASE_REQUESTED) {
+					processMessage(message);
+
+					final int batchLength = this.queueConsumer.drainTo(batch, this.batchSize - 1);
+					for(int i = 0; i < batchLength; i++) {
+						processMessage(batch[i]);
+						batch[i] = null;
+					}
+				} else {
+					handlePendingRelease();
 				}
-		} catch(InterruptedException e) {
+			} catch(InterruptedException e) {
 				// do nothing - waiting was interrupted				
 			} catch(Exception e) {
 				logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
@@ -166,17 +216,122 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 	}
 
 	/**
-	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseCollector#retrieveMessages()
+	 * Processes all messages currently available (up to the given max) without waiting
+	 * @see com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeEnvironment#poll(int)
 	 */
-	public void retrieveMessages() {		
+	public int poll(final int maxMessages) {
+		
+		if(!running || maxMessages < 1)
+			return 0;
+		
+		if(this.pollBuffer == null || this.pollBuffer.length < maxMessages)
+			this.pollBuffer = new StreamingDataMessage[maxMessages];
+
+		int processed = 0;
+		try {
+			processed = this.queueConsumer.drainTo(this.pollBuffer, maxMessages);
+			for(int i = 0; i < processed; i++) {
+				processMessage(this.pollBuffer[i]);
+				this.pollBuffer[i] = null;
+			}
+			if(processed == 0)
+				handlePendingRelease();
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors
+		}
+		return processed;
+	}
+
+	/**
+	 * Hands over the message to the operator and notifies the response wait strategy
+	 * @param message
+	 */
+	protected void processMessage(final StreamingDataMessage message) {
+		
+		if(message == null || message.getBody() == null)
+			return;
+		
+		if(this.eventTimeWaitStrategy != null) {
+			processEventTimeMessage(message);
+			return;
+		}
+		
+		try {
+			// forward retrieved message to operator for further processing
+			this.delayedResponseOperator.onMessage(message);
+			// notify response wait strategy on retrieved message
+			this.responseWaitStrategy.onMessage(message);
+			
+			if(this.messageCounter != null)
+				this.messageCounter.inc();
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors
+		}
+		
+		// releases requested by the wait strategy or the operator while processing the message are handled right away
+		handlePendingRelease();
+		
+		// pooled messages return to their pool as the operator must not keep references beyond processing 
+		message.release();
+	}
+	
+	/**
+	 * Hands over the message to the event time strategy and passes on all messages released by the strategy to the operator. 
+	 * Windows closed meanwhile are handled before passing on the next message, thus messages of a later window - including 
+	 * the one just received - never become part of the result of an earlier window
+	 * @param message
+	 */
+	protected void processEventTimeMessage(final StreamingDataMessage message) {
+		
+		try {
+			this.eventTimeWaitStrategy.onMessage(message);
+			if(this.messageCounter != null)
+				this.messageCounter.inc();
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors
+		}
+		
+		while(true) {
+			StreamingDataMessage next = null;
+			try {
+				next = this.eventTimeWaitStrategy.poll();
+			} catch(Exception e) {
+				logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+				// TODO add handler for responding to errors
+			}
+			handlePendingRelease();
+			if(next == null)
+				return;
+
+			try {
+				this.delayedResponseOperator.onMessage(next);
+			} catch(Exception e) {
+				logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+				// TODO add handler for responding to errors
+			}
+			handlePendingRelease();
+			next.release();
+		}
+	}
+	
+	/**
+	 * Fetches the operator result and forwards it to the destination queue if a release was requested since the last call.
+	 * Must be called by the processing thread only. 
+	 */
+	protected void handlePendingRelease() {
+		if(!this.releaseAwareConsumer.acknowledgeRelease())
+			return;
+		
 		try {		
 			// try to fetch messages from underlying operator
 			StreamingDataMessage[] retrievedMessages = this.delayedResponseOperator.getResult();
 
 			// forward messages to assigned queue if any messages are available 
-			if(retrievedMessages != null) {
-				for(StreamingDataMessage rm : retrievedMessages)
-					this.queueProducer.insert(rm);
+			if(retrievedMessages != null && retrievedMessages.length > 0) {
+				this.queueProducer.insertBatch(retrievedMessages);
 				this.destinationQueueWaitStrategy.forceLockRelease();
 			}
 		} catch(Exception e) {
@@ -185,6 +340,25 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 		}
 	}
 
+	/**
+	 * Requests the processing thread to fetch and forward the operator result. The call returns immediately, the result 
+	 * is forwarded after the current message has been processed or - if idle - as soon as the processing thread wakes up.
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseCollector#retrieveMessages()
+	 */
+	public void retrieveMessages() {		
+		this.releaseAwareConsumer.requestRelease();
+	}
+
+	/**
+	 * Registers the {@link TimerDrivenWaitStrategy} with the node-wide release timer
+	 * @param responseWaitStrategy
+	 * @param releaseTimer
+	 * @return true if the strategy is driven by the timer, false if it must be executed on a thread of its own
+	 */
+	protected static boolean registerWithTimer(final DelayedResponseOperatorWaitStrategy responseWaitStrategy, final HashedWheelReleaseTimer releaseTimer) {
+		return (releaseTimer != null && responseWaitStrategy instanceof TimerDrivenWaitStrategy && ((TimerDrivenWaitStrategy)responseWaitStrategy).register(releaseTimer));
+	}
+
 	/**
 	 * Shuts down the runtime environment as well as the attached {@link Operator}
 	 */
@@ -227,4 +401,11 @@ public class DelayedResponseOperatorRuntimeEnvironment implements Runnable, Dela
 	public void setMessageCounter(Counter messageCounter) {
 		this.messageCounter = messageCounter;
 	}
+
+	/**
+	 * @param batchSize max. number of messages processed in one batch
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = (batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+	}
 }
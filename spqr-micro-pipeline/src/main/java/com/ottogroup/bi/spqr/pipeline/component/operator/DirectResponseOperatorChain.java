@@ -0,0 +1,204 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Fuses a linear chain of {@link DirectResponseOperator} instances into a single operator. Each message is handed
+ * over to the first operator, all responses are passed on to the next one and so on. Only responses of the last operator 
+ * are returned. This way the chain runs inside a single {@link DirectResponseOperatorRuntimeEnvironment} without any
+ * intermediate queue.<br/><br/>
+ * Metrics attached to the runtime environment cover the whole chain, message counters of all following operators
+ * may be assigned via {@link #setStageMessageCounter(int, Counter)}. Instances are expected to be used by a single
+ * thread only.
+ * @author mnxfst
+ * @since Feb 9, 2016
+ */
+public class DirectResponseOperatorChain implements DirectResponseOperator {
+
+	/** returned if a stage did not produce any response */
+	private static final StreamingDataMessage[] EMPTY_RESPONSE = new StreamingDataMessage[0];
+
+	/** chain identifier - matches the identifier of the first operator */
+	private String id = null;
+	/** fused operators in order of execution */
+	protected final DirectResponseOperator[] stages;
+	/** message counters per stage (optional) */
+	private final Counter[] stageMessageCounters;
+	/** reused to collect responses of a stage producing more than one message */
+	private final List<StreamingDataMessage> stageResponses = new ArrayList<>();
+	
+	/**
+	 * Initializes the chain using the provided operators
+	 * @param stages
+	 */
+	protected DirectResponseOperatorChain(final DirectResponseOperator[] stages) {
+		this.stages = stages;
+		this.stageMessageCounters = new Counter[stages.length];
+		this.id = stages[0].getId();
+	}
+	
+	/**
+	 * Creates a new chain for the provided operators. If the first one is a {@link DirectResponseViewOperator} the
+	 * returned chain supports message views as well 
+	 * @param operators
+	 * @return
+	 * @throws RequiredInputMissingException
+	 */
+	public static DirectResponseOperatorChain fromOperators(final List<DirectResponseOperator> operators) throws RequiredInputMissingException {
+		
+		/////////////////////////////////////////////////////////////
+		// input validation
+		if(operators == null || operators.isEmpty())
+			throw new RequiredInputMissingException("Missing required operators");
+		for(final DirectResponseOperator operator : operators)
+			if(operator == null)
+				throw new RequiredInputMissingException("Missing required operator");
+		//
+		/////////////////////////////////////////////////////////////
+		
+		final DirectResponseOperator[] stages = operators.toArray(new DirectResponseOperator[operators.size()]);
+		if(stages[0] instanceof DirectResponseViewOperator)
+			return new DirectResponseViewOperatorChain(stages);
+		return new DirectResponseOperatorChain(stages);
+	}
+	
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseOperator#onMessage(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
+	 */
+	public StreamingDataMessage[] onMessage(StreamingDataMessage message) {
+		return forward(1, this.stages[0].onMessage(message));
+	}
+	
+	/**
+	 * Hands over the messages to the operator at the given stage and passes on its responses until the
+	 * end of the chain is reached
+	 * @param stage index of the operator to receive the messages 
+	 * @param messages
+	 * @return responses of the last operator
+	 */
+	protected StreamingDataMessage[] forward(final int stage, final StreamingDataMessage[] messages) {
+		
+		StreamingDataMessage[] current = messages;
+		for(int i = stage; i < this.stages.length; i++) {
+			if(current == null || current.length == 0)
+				return EMPTY_RESPONSE;
+			
+			// avoid copying responses for the common case of a single message
+			if(current.length == 1) {
+				if(current[0] == null || current[0].getBody() == null)
+					return EMPTY_RESPONSE;
+				if(this.stageMessageCounters[i] != null)
+					this.stageMessageCounters[i].inc();
+				current = this.stages[i].onMessage(current[0]);
+				continue;
+			}
+			
+			for(final StreamingDataMessage message : current) {
+				if(message == null || message.getBody() == null)
+					continue;
+				if(this.stageMessageCounters[i] != null)
+					this.stageMessageCounters[i].inc();
+				final StreamingDataMessage[] responses = this.stages[i].onMessage(message);
+				if(responses != null)
+					for(final StreamingDataMessage response : responses)
+						this.stageResponses.add(response);
+			}
+			current = this.stageResponses.toArray(new StreamingDataMessage[this.stageResponses.size()]);
+			this.stageResponses.clear();
+		}		
+		return (current != null ? current : EMPTY_RESPONSE);
+	}
+
+	/**
+	 * Assigns a message counter to the operator at the given stage. Messages received by the first 
+	 * operator are counted by the runtime environment 
+	 * @param stage
+	 * @param counter
+	 */
+	public void setStageMessageCounter(final int stage, final Counter counter) {
+		if(stage > 0 && stage < this.stages.length)
+			this.stageMessageCounters[stage] = counter;
+	}
+	
+	/**
+	 * Returns the number of fused operators
+	 * @return
+	 */
+	public int getNumOfStages() {
+		return this.stages.length;
+	}
+
+	/**
+	 * Operators are expected to be initialized when building the chain
+	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#initialize(java.util.Properties)
+	 */
+	public void initialize(Properties properties) throws RequiredInputMissingException, ComponentInitializationFailedException {		
+	}
+
+	/**
+	 * Shuts down all fused operators
+	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#shutdown()
+	 */
+	public boolean shutdown() {
+		boolean result = true;
+		for(final DirectResponseOperator operator : this.stages) {
+			try {
+				result = operator.shutdown() && result;
+			} catch(Exception e) {
+				result = false;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.Operator#getTotalNumOfMessages()
+	 */
+	public long getTotalNumOfMessages() {
+		return this.stages[0].getTotalNumOfMessages();
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#getType()
+	 */
+	public MicroPipelineComponentType getType() {
+		return MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#setId(java.lang.String)
+	 */
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#getId()
+	 */
+	public String getId() {
+		return this.id;
+	}
+}
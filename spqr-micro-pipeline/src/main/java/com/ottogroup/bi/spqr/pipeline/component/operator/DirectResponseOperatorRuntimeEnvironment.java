@@ -15,15 +15,22 @@
  */
 package com.ottogroup.bi.spqr.pipeline.component.operator;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeScheduler;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
 
 /**
@@ -31,14 +38,24 @@ import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitSt
  * messages from the assigned {@link StreamingMessageQueueConsumer}, forwards them for further processing
  * to the {@link DirectResponseOperator} and inserts all generated {@link StreamingDataMessage response messages}
  * into the {@link StreamingMessageQueueProducer}. The message order as received from the operator is 
- * preserved when handing over the messages to the queue producer.
+ * preserved when handing over the messages to the queue producer.<br/><br/>
+ * Messages are processed in micro-batches: the environment waits for the first message and afterwards drains
+ * all messages available (up to the configured batch size) without waiting. Responses generated for the whole 
+ * batch are handed over to the producer at once followed by a single wake-up of the destination queue.<br/><br/>
+ * If the operator implements {@link DirectResponseViewOperator} and the source queue provides a {@link StreamingMessageQueueViewConsumer}
+ * the environment hands over {@link StreamingDataMessageView views} on the queue storage instead of copied messages.<br/><br/>
+ * Instead of running on a dedicated thread the environment may be executed by a {@link CooperativeRuntimeScheduler} which
+ * repeatedly invokes {@link #poll(int)}.
  * @author mnxfst
  * @since Mar 5, 2015
  */
-public class DirectResponseOperatorRuntimeEnvironment implements Runnable {
+public class DirectResponseOperatorRuntimeEnvironment implements Runnable, CooperativeRuntimeEnvironment {
 
 	/** our faithful logging facility ... ;-) */ 
 	private static final Logger logger = Logger.getLogger(DirectResponseOperatorRuntimeEnvironment.class);
+	
+	/** default max. number of messages processed in one batch */
+	public static final int DEFAULT_BATCH_SIZE = 64;
 
 	/** identifier of processing node the runtime environment belongs to*/
 	private final String processingNodeId;
@@ -53,7 +70,7 @@ public class DirectResponseOperatorRuntimeEnvironment implements Runnable {
 	/** provides write access to assigned destination queue */
 	private final StreamingMessageQueueProducer queueProducer;
 	/** indicates whether the operator runtime is still running or not */
-	private boolean running = false;
+	private volatile boolean running = false;
 	/** consumer queue wait strategy */
 	private final StreamingMessageQueueWaitStrategy consumerQueueWaitStrategy;
 	/** destination queue wait strategy */
@@ -62,6 +79,14 @@ public class DirectResponseOperatorRuntimeEnvironment implements Runnable {
 	private Counter messageCounter = null;
 	/** message processing timer metric */
 	private Timer messageProcessingTimer = null;
+	/** max. number of messages processed in one batch */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	/** indicates whether operator and source queue support reading message views */
+	private final boolean viewMode;
+	/** buffer used by the cooperative processing mode - owned by the polling scheduler worker */
+	private StreamingDataMessage[] pollBuffer = null;
+	/** response list used by the cooperative processing mode - owned by the polling scheduler worker */
+	private final List<StreamingDataMessage> pollResponses = new ArrayList<>();
 
 
 	/**
@@ -99,38 +124,43 @@ public class DirectResponseOperatorRuntimeEnvironment implements Runnable {
 		this.running = true;
 		this.consumerQueueWaitStrategy = queueConsumer.getWaitStrategy();
 		this.destinationQueueWaitStrategy = queueProducer.getWaitStrategy();
+		this.viewMode = (directResponseOperator instanceof DirectResponseViewOperator) && (queueConsumer instanceof StreamingMessageQueueViewConsumer);
 
 		if(logger.isDebugEnabled())
-			logger.debug("direct response operator init [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]");
+			logger.debug("direct response operator init [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+", viewMode="+this.viewMode+"]");
 	}
 		
 	/**
 	 * @see java.lang.Runnable#run()
 	 */
 	public void run() {
+		
+		if(this.viewMode) {
+			runViewMode();
+			return;
+		}
 
+		final StreamingDataMessage[] batch = new StreamingDataMessage[Math.max(this.batchSize - 1, 1)];
+		final List<StreamingDataMessage> responses = new ArrayList<>();
+		
 		while(running) {
 			
+			StreamingDataMessage message = null;
+			int batchLength = 0;
 			try {				
-				StreamingDataMessage message = this.consumerQueueWaitStrategy.waitFor(this.queueConsumer);
-				if(message != null && message.getBody() != null) {
+				// wait for the first message and fetch all other available messages without waiting afterwards
+				message = this.consumerQueueWaitStrategy.waitFor(this.queueConsumer);
+				if(message != null) {
+					processMessage(message, responses);
 					
-					@SuppressWarnings("resource") // context#close() calls context#stop -> avoid additional call, thus accept warning
-					Timer.Context timerContext = (this.messageProcessingTimer != null ? this.messageProcessingTimer.time() : null);
-
-					StreamingDataMessage[] responseMessages = this.directResponseOperator.onMessage(message);
-					if(responseMessages != null && responseMessages.length > 0) {
-						for(final StreamingDataMessage responseMessage : responseMessages) {
-							this.queueProducer.insert(responseMessage);
-						}
+					batchLength = this.queueConsumer.drainTo(batch, this.batchSize - 1);
+					for(int i = 0; i < batchLength; i++)
+						processMessage(batch[i], responses);
+					
+					if(!responses.isEmpty()) {
+						this.queueProducer.insertBatch(responses.toArray(new StreamingDataMessage[responses.size()]));
 						this.destinationQueueWaitStrategy.forceLockRelease();
 					}
-					
-					if(timerContext != null)
-						timerContext.stop();
-
-					if(this.messageCounter != null)
-						this.messageCounter.inc();
 				}
 				
 			} catch(InterruptedException e) {
@@ -138,10 +168,171 @@ public class DirectResponseOperatorRuntimeEnvironment implements Runnable {
 			} catch(Exception e) {
 				logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
 				// TODO add handler for responding to errors 
+			} finally {
+				// responses are dropped even if handing them over failed as they would be inserted again along with the next batch
+				responses.clear();
+				// pooled input messages are released not before the responses have been handed over as operators may forward them
+				if(message != null)
+					message.release();
+				for(int i = 0; i < batchLength; i++) {
+					batch[i].release();
+					batch[i] = null;
+				}
+			}
+		}		
+	}
+	
+	/**
+	 * Processing loop applied in view mode: the environment waits for the first view and fetches
+	 * all other available views without waiting afterwards. As each view becomes invalid with the next one,
+	 * it is handed over to the operator immediately. 
+	 */
+	protected void runViewMode() {
+		
+		final StreamingMessageQueueViewConsumer viewConsumer = (StreamingMessageQueueViewConsumer)this.queueConsumer;
+		final DirectResponseViewOperator viewOperator = (DirectResponseViewOperator)this.directResponseOperator;
+		final List<StreamingDataMessage> responses = new ArrayList<>();
+		
+		while(running) {
+			
+			try {				
+				StreamingDataMessageView view = this.consumerQueueWaitStrategy.waitForView(viewConsumer);
+				int batchLength = 0;
+				while(view != null) {
+					processView(viewOperator, view, responses);
+					if(++batchLength >= this.batchSize)
+						break;
+					view = viewConsumer.nextView();
+				}
+				
+				if(!responses.isEmpty()) {
+					this.queueProducer.insertBatch(responses.toArray(new StreamingDataMessage[responses.size()]));
+					this.destinationQueueWaitStrategy.forceLockRelease();
+				}
+				
+			} catch(InterruptedException e) {
+				// do nothing - waiting was interrupted				
+			} catch(Exception e) {
+				logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+				// TODO add handler for responding to errors 
+			} finally {
+				responses.clear();
 			}
 		}		
 	}
 	
+	/**
+	 * Processes all views or messages currently available (up to the given max) without waiting 
+	 * and hands over the generated responses to the destination queue
+	 * @see com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeEnvironment#poll(int)
+	 */
+	public int poll(final int maxMessages) {
+		
+		if(!running || maxMessages < 1)
+			return 0;
+		
+		int processed = 0;
+		try {
+			if(this.viewMode) {
+				final StreamingMessageQueueViewConsumer viewConsumer = (StreamingMessageQueueViewConsumer)this.queueConsumer;
+				final DirectResponseViewOperator viewOperator = (DirectResponseViewOperator)this.directResponseOperator;
+				StreamingDataMessageView view = null;
+				while(processed < maxMessages && (view = viewConsumer.nextView()) != null) {
+					processView(viewOperator, view, this.pollResponses);
+					processed++;
+				}
+			} else {
+				if(this.pollBuffer == null || this.pollBuffer.length < maxMessages)
+					this.pollBuffer = new StreamingDataMessage[maxMessages];
+				processed = this.queueConsumer.drainTo(this.pollBuffer, maxMessages);
+				for(int i = 0; i < processed; i++)
+					processMessage(this.pollBuffer[i], this.pollResponses);
+			}
+			
+			if(!this.pollResponses.isEmpty()) {
+				this.queueProducer.insertBatch(this.pollResponses.toArray(new StreamingDataMessage[this.pollResponses.size()]));
+				this.destinationQueueWaitStrategy.forceLockRelease();
+			}
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors 
+		} finally {
+			this.pollResponses.clear();
+			// pooled input messages are released not before the responses have been handed over as operators may forward them
+			if(!this.viewMode) {
+				for(int i = 0; i < processed; i++) {
+					this.pollBuffer[i].release();
+					this.pollBuffer[i] = null;
+				}
+			}
+		}
+		return processed;
+	}
+	
+	/**
+	 * Hands over the view to the operator and adds all generated responses to the provided list
+	 * @param viewOperator
+	 * @param view
+	 * @param responses
+	 */
+	protected void processView(final DirectResponseViewOperator viewOperator, final StreamingDataMessageView view, final List<StreamingDataMessage> responses) {
+		
+		try {
+			@SuppressWarnings("resource") // context#close() calls context#stop -> avoid additional call, thus accept warning
+			Timer.Context timerContext = (this.messageProcessingTimer != null ? this.messageProcessingTimer.time() : null);
+	
+			StreamingDataMessage[] responseMessages = viewOperator.onMessageView(view);
+			if(responseMessages != null && responseMessages.length > 0) {
+				for(final StreamingDataMessage responseMessage : responseMessages) {
+					if(responseMessage != null)
+						responses.add(responseMessage);
+				}
+			}
+			
+			if(timerContext != null)
+				timerContext.stop();
+	
+			if(this.messageCounter != null)
+				this.messageCounter.inc();
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors 
+		}
+	}
+	
+	/**
+	 * Hands over the message to the operator and adds all generated responses to the provided list
+	 * @param message
+	 * @param responses
+	 */
+	protected void processMessage(final StreamingDataMessage message, final List<StreamingDataMessage> responses) {
+		
+		if(message == null || message.getBody() == null)
+			return;
+		
+		try {
+			@SuppressWarnings("resource") // context#close() calls context#stop -> avoid additional call, thus accept warning
+			Timer.Context timerContext = (this.messageProcessingTimer != null ? this.messageProcessingTimer.time() : null);
+	
+			StreamingDataMessage[] responseMessages = this.directResponseOperator.onMessage(message);
+			if(responseMessages != null && responseMessages.length > 0) {
+				for(final StreamingDataMessage responseMessage : responseMessages) {
+					if(responseMessage != null)
+						responses.add(responseMessage);
+				}
+			}
+			
+			if(timerContext != null)
+				timerContext.stop();
+	
+			if(this.messageCounter != null)
+				this.messageCounter.inc();
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors 
+		}
+	}
+	
 	/**
 	 * Shuts down the runtime environment as well as the attached {@link Operator}
 	 */
@@ -172,6 +363,13 @@ public class DirectResponseOperatorRuntimeEnvironment implements Runnable {
 		this.messageCounter = messageCounter;
 	}
 
+	/**
+	 * @param batchSize max. number of messages processed in one batch
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = (batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+	}
+
 	/**
 	 * @param messageProcessingTimer the messageProcessingTimer to set
 	 */
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
+
+/**
+ * {@link DirectResponseOperatorChain} whose first operator implements {@link DirectResponseViewOperator}. Views are handed over
+ * to the first operator, all following operators receive its responses as regular messages.  
+ * @author mnxfst
+ * @since Feb 9, 2016
+ */
+public class DirectResponseViewOperatorChain extends DirectResponseOperatorChain implements DirectResponseViewOperator {
+
+	/**
+	 * Initializes the chain using the provided operators
+	 * @param stages
+	 */
+	protected DirectResponseViewOperatorChain(final DirectResponseOperator[] stages) {
+		super(stages);
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseViewOperator#onMessageView(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView)
+	 */
+	public StreamingDataMessage[] onMessageView(StreamingDataMessageView view) {
+		return forward(1, ((DirectResponseViewOperator)this.stages[0]).onMessageView(view));
+	}
+}
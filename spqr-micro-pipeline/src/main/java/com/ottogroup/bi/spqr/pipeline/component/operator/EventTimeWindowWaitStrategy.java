@@ -0,0 +1,243 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Implements an {@link EventTimeWaitStrategy} releasing the operator results each time a tumbling window closes. Windows are aligned
+ * to the epoch, cover {@link #CFG_WINDOW_SIZE} ms each and are based on the {@link StreamingDataMessage#getTimestamp() message timestamps}.
+ * Messages may arrive out of order for up to {@link #CFG_MAX_OUT_OF_ORDERNESS} ms: the watermark follows the largest timestamp seen so far 
+ * minus that value and a window closes as soon as the watermark reaches its end. Messages belonging to a later window are held back until 
+ * all earlier windows have been closed and are passed on in timestamp order afterwards, thus each release covers the messages of exactly 
+ * one window. Messages older than the start of the open window are counted as late messages and are accounted to the open window. 
+ * Sliding windows are not supported: a {@link #CFG_WINDOW_SLIDE} differing from the window size is rejected.<br/><br/>
+ * The strategy is evaluated on the processing thread of the runtime environment only, thus no additional thread is required. As 
+ * event time advances with incoming messages only, the last window of a stalled stream is not closed before new messages arrive.
+ * Windows without any messages are closed along with the preceding window. The number of messages held back is bounded by the
+ * number of messages received within {@link #CFG_MAX_OUT_OF_ORDERNESS} ms.
+ * @author mnxfst
+ * @since Feb 11, 2016
+ */
+public class EventTimeWindowWaitStrategy implements EventTimeWaitStrategy {
+
+	private static final Logger logger = Logger.getLogger(EventTimeWindowWaitStrategy.class);
+	
+	public static final String WAIT_STRATEGY_NAME = "eventTimeWindow";
+	public static final long DEFAULT_WINDOW_SIZE = 1000;
+	public static final long DEFAULT_MAX_OUT_OF_ORDERNESS = 0;
+	public static final String CFG_WINDOW_SIZE = "windowSize";
+	public static final String CFG_WINDOW_SLIDE = "windowSlide";
+	public static final String CFG_MAX_OUT_OF_ORDERNESS = "maxOutOfOrderness";
+	
+	/** marks the window end as not yet initialized */
+	private static final long UNDEFINED = Long.MIN_VALUE;
+	/** orders held back messages by timestamp */
+	private static final Comparator<StreamingDataMessage> TIMESTAMP_ORDER = new Comparator<StreamingDataMessage>() {
+		public int compare(StreamingDataMessage m1, StreamingDataMessage m2) {
+			return Long.compare(m1.getTimestamp(), m2.getTimestamp());
+		}
+	};
+	
+	private DelayedResponseCollector delayedResponseCollector = null;
+	/** length of a window given in milliseconds */
+	private long windowSize = DEFAULT_WINDOW_SIZE;
+	/** max. number of milliseconds a message may arrive later than messages having a larger timestamp */
+	private long maxOutOfOrderness = DEFAULT_MAX_OUT_OF_ORDERNESS;
+	/** largest message timestamp seen so far */
+	private long maxTimestamp = UNDEFINED;
+	/** end of the open window */
+	private long windowEnd = UNDEFINED;
+	/** current watermark */
+	private volatile long watermark = UNDEFINED;
+	/** number of messages received after their window had been closed */
+	private long numOfLateMessages = 0;
+	/** message received last if it belongs to the open window and has not been passed on yet */
+	private StreamingDataMessage pendingMessage = null;
+	/** messages belonging to windows located after the open one */
+	private final PriorityQueue<StreamingDataMessage> heldMessages = new PriorityQueue<>(16, TIMESTAMP_ORDER);
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy#initialize(java.util.Properties)
+	 */
+	public void initialize(Properties properties) {
+		this.windowSize = parseDuration(properties, CFG_WINDOW_SIZE, DEFAULT_WINDOW_SIZE, 1);
+		final long windowSlide = parseDuration(properties, CFG_WINDOW_SLIDE, this.windowSize, 1);
+		if(windowSlide != this.windowSize)
+			throw new IllegalArgumentException("Sliding windows are not supported, '"+CFG_WINDOW_SLIDE+"' must be equal to '"+CFG_WINDOW_SIZE+"' [slide="+windowSlide+", size="+this.windowSize+"]");
+		this.maxOutOfOrderness = parseDuration(properties, CFG_MAX_OUT_OF_ORDERNESS, DEFAULT_MAX_OUT_OF_ORDERNESS, 0);
+		this.maxTimestamp = UNDEFINED;
+		this.windowEnd = UNDEFINED;
+		this.watermark = UNDEFINED;
+		this.numOfLateMessages = 0;
+		this.pendingMessage = null;
+		this.heldMessages.clear();
+		
+		if(logger.isDebugEnabled())
+			logger.debug("event time window wait strategy initialized [size="+this.windowSize+", maxOutOfOrderness="+this.maxOutOfOrderness+"]");
+	}
+	
+	/**
+	 * Parses the referenced duration setting
+	 * @param properties
+	 * @param key
+	 * @param defaultValue
+	 * @param minValue
+	 * @return
+	 */
+	private static long parseDuration(final Properties properties, final String key, final long defaultValue, final long minValue) {
+		if(properties == null || properties.getProperty(key) == null)
+			return defaultValue;
+		try {
+			final long value = Long.parseLong(properties.getProperty(key).trim());
+			return (value >= minValue ? value : defaultValue);
+		} catch(Exception e) {
+			if(logger.isDebugEnabled())
+				logger.debug("Failed to parse setting '"+key+"'. Reason: " + e.getMessage());
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		// no code as it is triggered directly on each message by runtime environment  ... no need for async behavior here 
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy#release()
+	 */
+	public void release() {
+		this.delayedResponseCollector.retrieveMessages();
+	}
+
+	/**
+	 * Advances the watermark and holds back the message if it belongs to a window located after the open one. Windows
+	 * are closed while {@link #poll() passing on} messages.
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy#onMessage(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
+	 */
+	public void onMessage(StreamingDataMessage message) {
+		if(message == null)
+			return;
+		
+		final long timestamp = message.getTimestamp();
+		if(timestamp > this.maxTimestamp)
+			this.maxTimestamp = timestamp;
+		this.watermark = this.maxTimestamp - this.maxOutOfOrderness;
+		
+		// first message: the open window is the one the watermark is located in
+		if(this.windowEnd == UNDEFINED)
+			this.windowEnd = getWindowEndAfter(this.watermark);
+
+		if(timestamp >= this.windowEnd) {
+			this.heldMessages.add(message);
+		} else {
+			if(timestamp < this.windowEnd - this.windowSize)
+				this.numOfLateMessages++;
+			this.pendingMessage = message;
+		}
+	}
+
+	/**
+	 * Passes on the message received last if it belongs to the open window, afterwards all held back messages of the open 
+	 * window. Once the open window is exhausted and the watermark has reached its end, the window gets closed - at most once
+	 * per call, thus the runtime environment handles the release before passing on messages of the next window. The next
+	 * window opened is the one holding the oldest held back message or - if located earlier - the one the watermark is located in.
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.EventTimeWaitStrategy#poll()
+	 */
+	public StreamingDataMessage poll() {
+		if(this.pendingMessage != null) {
+			final StreamingDataMessage message = this.pendingMessage;
+			this.pendingMessage = null;
+			return message;
+		}
+		
+		StreamingDataMessage message = this.heldMessages.peek();
+		if(message != null && message.getTimestamp() < this.windowEnd)
+			return this.heldMessages.poll();
+		if(this.windowEnd == UNDEFINED || this.watermark < this.windowEnd)
+			return null;
+		
+		long nextWindowEnd = getWindowEndAfter(this.watermark);
+		if(message != null)
+			nextWindowEnd = Math.min(nextWindowEnd, getWindowEndAfter(message.getTimestamp()));
+		this.windowEnd = nextWindowEnd;
+		release();
+		
+		return (message != null && message.getTimestamp() < this.windowEnd ? this.heldMessages.poll() : null);
+	}
+	
+	/**
+	 * Returns the end of the window the given timestamp is located in
+	 * @param timestamp
+	 * @return
+	 */
+	protected long getWindowEndAfter(final long timestamp) {
+		// floor division to handle timestamps located before the epoch properly
+		long windowIndex = timestamp / this.windowSize;
+		if(timestamp % this.windowSize != 0 && timestamp < 0)
+			windowIndex--;
+		return (windowIndex + 1) * this.windowSize;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.EventTimeWaitStrategy#getWatermark()
+	 */
+	public long getWatermark() {
+		return this.watermark;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy#shutdown()
+	 */
+	public void shutdown() {
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy#setDelayedResponseCollector(com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseCollector)
+	 */
+	public void setDelayedResponseCollector(DelayedResponseCollector delayedResponseCollector) {
+		this.delayedResponseCollector = delayedResponseCollector;
+	}
+
+	public long getWindowSize() {
+		return windowSize;
+	}
+
+	public long getMaxOutOfOrderness() {
+		return maxOutOfOrderness;
+	}
+
+	public long getNumOfLateMessages() {
+		return numOfLateMessages;
+	}
+
+	/**
+	 * Returns the number of messages currently held back
+	 * @return
+	 */
+	public int getNumOfHeldMessages() {
+		return this.heldMessages.size();
+	}
+	
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+
+/**
+ * Node-wide timer executing periodic release callbacks of {@link TimerDrivenWaitStrategy} instances on a single shared thread.
+ * Callbacks are kept in a hashed wheel: time is divided into ticks of {@link #DEFAULT_TICK_MILLIS} ms (by default) and each
+ * callback is assigned to the bucket its next deadline falls into. With each tick the timer thread visits one bucket only,
+ * thus the costs per tick do not depend on the number of registered callbacks but on the number of callbacks due.<br/><br/>
+ * Callbacks are executed on the timer thread and must return quickly - eg. by requesting a release via {@link DelayedResponseCollector#retrieveMessages()}
+ * which only increments a counter. The thread is started on the first registration and parks without deadline while no callback is registered.
+ * @author mnxfst
+ * @since Feb 12, 2016
+ */
+public class HashedWheelReleaseTimer {
+
+	/** our faithful logging facility ... ;-) */
+	private static final Logger logger = Logger.getLogger(HashedWheelReleaseTimer.class);
+
+	/** default tick duration */
+	public static final long DEFAULT_TICK_MILLIS = 1;
+	/** default number of buckets - must be a power of two */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	/** tick duration given in nanoseconds */
+	private final long tickNanos;
+	/** buckets holding the registrations by deadline - owned by the timer thread */
+	private final List<List<Registration>> wheel;
+	/** used to map a tick to its bucket */
+	private final int mask;
+	/** registrations not yet assigned to a bucket */
+	private final Queue<Registration> pendingRegistrations = new ConcurrentLinkedQueue<>();
+	/** number of active registrations */
+	private final AtomicInteger numOfRegistrations = new AtomicInteger(0);
+	/** thread executing the callbacks - started on first registration */
+	private Thread timerThread = null;
+	/** set to false on shutdown */
+	private volatile boolean running = true;
+	/** last tick processed - owned by the timer thread */
+	private long tick = 0;
+	/** start time of tick zero - owned by the timer thread */
+	private long startNanos = 0;
+
+	/**
+	 * Initializes the timer using the default tick duration and wheel size
+	 */
+	public HashedWheelReleaseTimer() {
+		this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Initializes the timer using the provided input
+	 * @param tickMillis tick duration - values below 1 lead to {@link #DEFAULT_TICK_MILLIS}
+	 * @param wheelSize number of buckets - rounded up to the next power of two, values below 1 lead to {@link #DEFAULT_WHEEL_SIZE}
+	 */
+	public HashedWheelReleaseTimer(final long tickMillis, final int wheelSize) {
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis > 0 ? tickMillis : DEFAULT_TICK_MILLIS);
+
+		int size = 1;
+		while(size < (wheelSize > 0 ? wheelSize : DEFAULT_WHEEL_SIZE))
+			size <<= 1;
+		this.mask = size - 1;
+		this.wheel = new ArrayList<>(size);
+		for(int i = 0; i < size; i++)
+			this.wheel.add(new ArrayList<Registration>());
+	}
+
+	/**
+	 * Registers a callback which is executed every <code>intervalMillis</code> ms on the timer thread until
+	 * {@link Registration#cancel() cancelled}. The first execution takes place one interval after registration
+	 * @param callback
+	 * @param intervalMillis
+	 * @return handle used for cancelling the registration
+	 * @throws RequiredInputMissingException
+	 */
+	public Registration schedule(final Runnable callback, final long intervalMillis) throws RequiredInputMissingException {
+
+		/////////////////////////////////////////////////////////////
+		// input validation
+		if(callback == null)
+			throw new RequiredInputMissingException("Missing required callback");
+		if(intervalMillis < 1)
+			throw new RequiredInputMissingException("Missing required interval");
+		//
+		/////////////////////////////////////////////////////////////
+
+		final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+		final Registration registration = new Registration(callback, Math.max(1, (intervalNanos + this.tickNanos - 1) / this.tickNanos));
+		this.numOfRegistrations.incrementAndGet();
+		this.pendingRegistrations.add(registration);
+
+		synchronized(this) {
+			if(!this.running) {
+				registration.cancel();
+			} else if(this.timerThread == null) {
+				this.timerThread = new Thread(new Worker(), "spqr-release-timer");
+				this.timerThread.setDaemon(true);
+				this.timerThread.start();
+				logger.info("release timer started [tickNanos="+this.tickNanos+", wheelSize="+this.wheel.size()+"]");
+			} else {
+				LockSupport.unpark(this.timerThread);
+			}
+		}
+		return registration;
+	}
+
+	/**
+	 * Returns the number of active registrations
+	 * @return
+	 */
+	public int getNumOfRegistrations() {
+		return this.numOfRegistrations.get();
+	}
+
+	/**
+	 * Stops the timer thread. Callbacks are not executed any more
+	 */
+	public synchronized void shutdown() {
+		this.running = false;
+		if(this.timerThread != null)
+			LockSupport.unpark(this.timerThread);
+	}
+
+	/**
+	 * Assigns all pending registrations to the bucket of their first deadline. Must be called by the timer thread only
+	 */
+	protected void transferPendingRegistrations() {
+		Registration registration = null;
+		while((registration = this.pendingRegistrations.poll()) != null) {
+			registration.deadline = this.tick + registration.intervalTicks;
+			this.wheel.get((int)(registration.deadline & this.mask)).add(registration);
+		}
+	}
+
+	/**
+	 * Executes all callbacks due with the current tick and re-assigns them to the bucket of their next deadline.
+	 * Registrations due in later rounds of the wheel are kept. Must be called by the timer thread only
+	 */
+	protected void expireRegistrations() {
+		final List<Registration> bucket = this.wheel.get((int)(this.tick & this.mask));
+		if(bucket.isEmpty())
+			return;
+
+		List<Registration> due = null;
+		int retained = 0;
+		for(int i = 0; i < bucket.size(); i++) {
+			final Registration registration = bucket.get(i);
+			if(registration.cancelled) {
+				this.numOfRegistrations.decrementAndGet();
+			} else if(registration.deadline > this.tick) {
+				bucket.set(retained++, registration);
+			} else {
+				if(due == null)
+					due = new ArrayList<>();
+				due.add(registration);
+			}
+		}
+		for(int i = bucket.size() - 1; i >= retained; i--)
+			bucket.remove(i);
+
+		if(due == null)
+			return;
+		for(final Registration registration : due) {
+			try {
+				registration.callback.run();
+			} catch(Exception e) {
+				logger.error("release callback failed: " + e.getMessage(), e);
+			}
+			registration.deadline += registration.intervalTicks;
+			if(registration.deadline <= this.tick) // timer fell behind: skip missed executions
+				registration.deadline = this.tick + registration.intervalTicks;
+			this.wheel.get((int)(registration.deadline & this.mask)).add(registration);
+		}
+	}
+
+	/**
+	 * Handle returned for each callback registration
+	 * @author mnxfst
+	 * @since Feb 12, 2016
+	 */
+	public static class Registration {
+		/** callback to execute */
+		private final Runnable callback;
+		/** interval given in ticks */
+		private final long intervalTicks;
+		/** tick of next execution - owned by the timer thread */
+		private long deadline = 0;
+		/** registration is removed from its bucket with the next visit */
+		private volatile boolean cancelled = false;
+
+		private Registration(final Runnable callback, final long intervalTicks) {
+			this.callback = callback;
+			this.intervalTicks = intervalTicks;
+		}
+
+		/**
+		 * Stops further executions of the callback
+		 */
+		public void cancel() {
+			this.cancelled = true;
+		}
+
+		/**
+		 * @return the cancelled
+		 */
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * Advances the wheel by one bucket per tick
+	 * @author mnxfst
+	 * @since Feb 12, 2016
+	 */
+	private class Worker implements Runnable {
+
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			startNanos = System.nanoTime();
+			while(running) {
+				if(numOfRegistrations.get() == 0) {
+					// nothing to do: wait for the next registration and continue counting ticks from there on
+					LockSupport.park(this);
+					startNanos = System.nanoTime() - tick * tickNanos;
+					continue;
+				}
+
+				final long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+				if(sleepNanos > 0) {
+					LockSupport.parkNanos(this, sleepNanos);
+					continue;
+				}
+
+				tick++;
+				transferPendingRegistrations();
+				expireRegistrations();
+			}
+			if(logger.isDebugEnabled())
+				logger.debug("release timer stopped");
+		}
+	}
+}
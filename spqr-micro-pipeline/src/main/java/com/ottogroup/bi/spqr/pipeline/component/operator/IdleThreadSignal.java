@@ -0,0 +1,72 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks a single thread consuming from lock-free rings while all of them are empty and lets producers wake it up after handing
+ * over messages. The consumer {@link #prepare() announces} that it is about to park, checks its rings a last time and either
+ * {@link #await() parks} or {@link #cancel() cancels}. Producers {@link #signal()} after publishing: the atomic exchange on the
+ * idle flag orders the publication before reading the flag, thus either the consumer finds the message or the producer finds the
+ * consumer idle and unparks it. As long as the consumer is busy, signaling reduces to a single atomic operation.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class IdleThreadSignal {
+
+	/** set while the consumer is parked or about to park */
+	private final AtomicBoolean idle = new AtomicBoolean(false);
+	/** thread consuming the messages - set on the first announcement */
+	private volatile Thread consumer = null;
+
+	/**
+	 * Announces that the calling consumer is about to park. Must be followed by a last check for messages
+	 */
+	public void prepare() {
+		this.consumer = Thread.currentThread();
+		this.idle.set(true);
+	}
+
+	/**
+	 * Withdraws the announcement as the last check found messages
+	 */
+	public void cancel() {
+		this.idle.lazySet(false);
+	}
+
+	/**
+	 * Parks the calling consumer until a producer {@link #signal() signals} or the thread gets interrupted
+	 */
+	public void await() {
+		while(this.idle.get()) {
+			LockSupport.park(this);
+			if(Thread.currentThread().isInterrupted()) {
+				this.idle.lazySet(false);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Wakes up the consumer if it is parked or about to park. Must be called after publishing messages
+	 */
+	public void signal() {
+		if(this.idle.getAndSet(false))
+			LockSupport.unpark(this.consumer);
+	}
+}
@@ -0,0 +1,452 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import uk.co.real_logic.queues.OneToOneConcurrentArrayQueue3;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+
+/**
+ * Provides a runtime environment for multiple instances of the same {@link MergeableDelayedResponseOperator} which process
+ * messages in parallel. The environment reads messages from the assigned {@link StreamingMessageQueueConsumer}, notifies the
+ * {@link DelayedResponseOperatorWaitStrategy} and distributes the messages among the operator instances as decided by the configured 
+ * {@link MessagePartitioner}. Each instance runs on a thread of its own (<i>lane</i>), receives its messages through a bounded 
+ * single-producer/single-consumer ring and builds a partial result from them.<br/><br/>
+ * As soon as the wait strategy releases the results, all partial results are {@link MergeableDelayedResponseOperator#merge(MergeableDelayedResponseOperator) merged}
+ * into the instance of the first lane which provides the {@link DelayedResponseOperator#getResult() result} to be forwarded to the assigned 
+ * {@link StreamingMessageQueueProducer}. Before merging, the dispatching thread waits until each lane has processed all messages handed 
+ * over to it, thus a result covers exactly the messages dispatched before the release. As no further messages are dispatched while 
+ * merging, the lanes are idle at that time and require no locks. Messages are handed over to {@link EventTimeWaitStrategy event time strategies}
+ * first which decide when to pass them on to the lanes, thus a release covers all messages of a window and none of a later one, no matter 
+ * which lane they were assigned to. Idle lanes park until the dispatching thread hands over the next message.<br/><br/>
+ * Like the {@link DelayedResponseOperatorRuntimeEnvironment single instance environment}, a {@link #retrieveMessages() release} - issued by
+ * the timer, the wait strategy or an operator instance - is handed over via a {@link ReleaseAwareQueueConsumer}: the calling thread returns
+ * immediately while merging and forwarding the result is done by the dispatching thread after the current message or as soon as it wakes up.
+ * @author mnxfst
+ * @since Feb 11, 2016
+ */
+public class ParallelDelayedResponseOperatorRuntimeEnvironment implements Runnable, DelayedResponseCollector {
+
+	/** our faithful logging facility ... ;-) */ 
+	private static final Logger logger = Logger.getLogger(ParallelDelayedResponseOperatorRuntimeEnvironment.class);
+	
+	/** default max. number of messages read from the source queue in one batch */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	/** default number of messages each lane is able to buffer */
+	public static final int DEFAULT_LANE_CAPACITY = 1024;
+	/** time the dispatching thread parks while waiting for a lane */
+	private static final long LANE_WAIT_NANOS = 1000;
+
+	/** identifier of processing node the runtime environment belongs to*/
+	private final String processingNodeId;
+	/** identifier of pipeline the runtime environment belongs to */
+	private final String pipelineId;
+	/** identifier of operator assigned to this runtime environment */
+	private final String operatorId; 
+	/** lanes running the operator instances - the first one receives the merged result */
+	private final Lane[] lanes;
+	/** assigns messages to lanes */
+	private final MessagePartitioner partitioner;
+	/** strategy to apply when waiting for responses */
+	private final DelayedResponseOperatorWaitStrategy responseWaitStrategy;
+	/** provides read access to assigned source queue */
+	private final StreamingMessageQueueConsumer queueConsumer;
+	/** provides write access to assigned destination queue */
+	private final StreamingMessageQueueProducer queueProducer;
+	/** consumer queue wait strategy */
+	private final StreamingMessageQueueWaitStrategy consumerQueueWaitStrategy;
+	/** destination queue wait strategy */
+	private final StreamingMessageQueueWaitStrategy destinationQueueWaitStrategy;
+	/** source queue consumer handed to the wait strategy - reports pending releases */
+	private final ReleaseAwareQueueConsumer releaseAwareConsumer;
+	/** set if the response wait strategy is event time based - it decides when to pass on messages to the lanes */
+	private final EventTimeWaitStrategy eventTimeWaitStrategy;
+	/** indicates whether the operator runtime is still running or not */
+	private volatile boolean running = false;
+	/** message counter metric */
+	private Counter messageCounter = null;
+	/** max. number of messages read from the source queue in one batch */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Initializes the runtime environment using the provided input and starts all lanes as well as the response wait strategy
+	 * @param processingNodeId
+	 * @param pipelineId
+	 * @param operators operator instances to run in parallel - all of the same type and configuration
+	 * @param partitioner
+	 * @param responseWaitStrategy
+	 * @param queueConsumer
+	 * @param queueProducer
+	 * @param executorService
+	 * @throws RequiredInputMissingException
+	 */
+	public ParallelDelayedResponseOperatorRuntimeEnvironment(final String processingNodeId, final String pipelineId, final List<MergeableDelayedResponseOperator> operators,
+			final MessagePartitioner partitioner, final DelayedResponseOperatorWaitStrategy responseWaitStrategy, final StreamingMessageQueueConsumer queueConsumer, 
+			final StreamingMessageQueueProducer queueProducer, final ExecutorService executorService) throws RequiredInputMissingException {
+		this(processingNodeId, pipelineId, operators, partitioner, responseWaitStrategy, queueConsumer, queueProducer, executorService, null);
+	}
+
+	/**
+	 * Initializes the runtime environment using the provided input and starts all lanes. {@link TimerDrivenWaitStrategy Timer driven strategies}
+	 * are registered with the given {@link HashedWheelReleaseTimer} - if provided - instead of being submitted to the executor service 
+	 * @param processingNodeId
+	 * @param pipelineId
+	 * @param operators operator instances to run in parallel - all of the same type and configuration
+	 * @param partitioner
+	 * @param responseWaitStrategy
+	 * @param queueConsumer
+	 * @param queueProducer
+	 * @param executorService
+	 * @param releaseTimer optional node-wide release timer
+	 * @throws RequiredInputMissingException
+	 */
+	public ParallelDelayedResponseOperatorRuntimeEnvironment(final String processingNodeId, final String pipelineId, final List<MergeableDelayedResponseOperator> operators,
+			final MessagePartitioner partitioner, final DelayedResponseOperatorWaitStrategy responseWaitStrategy, final StreamingMessageQueueConsumer queueConsumer, 
+			final StreamingMessageQueueProducer queueProducer, final ExecutorService executorService, final HashedWheelReleaseTimer releaseTimer) throws RequiredInputMissingException {
+		
+		/////////////////////////////////////////////////////////////
+		// input validation
+		if(StringUtils.isBlank(processingNodeId))
+			throw new RequiredInputMissingException("Missing required processing node identifier");
+		if(StringUtils.isBlank(pipelineId))
+			throw new RequiredInputMissingException("Missing required pipeline identifier");
+		if(operators == null || operators.isEmpty())
+			throw new RequiredInputMissingException("Missing required mergeable delayed response operators");
+		for(final MergeableDelayedResponseOperator operator : operators)
+			if(operator == null)
+				throw new RequiredInputMissingException("Missing required mergeable delayed response operator");
+		if(partitioner == null)
+			throw new RequiredInputMissingException("Missing required message partitioner");
+		if(responseWaitStrategy == null)
+			throw new RequiredInputMissingException("Missing required response wait strategy");
+		if(queueConsumer == null)
+			throw new RequiredInputMissingException("Missing required queue consumer");
+		if(queueProducer == null)
+			throw new RequiredInputMissingException("Missing required queue producer");
+		if(executorService == null)
+			throw new RequiredInputMissingException("Missing required executor service");
+		//
+		/////////////////////////////////////////////////////////////
+		
+		this.processingNodeId = StringUtils.lowerCase(StringUtils.trim(processingNodeId));
+		this.pipelineId = StringUtils.lowerCase(StringUtils.trim(pipelineId));
+		this.operatorId = StringUtils.lowerCase(StringUtils.trim(operators.get(0).getId()));
+		this.partitioner = partitioner;
+		this.responseWaitStrategy = responseWaitStrategy;
+		this.responseWaitStrategy.setDelayedResponseCollector(this);
+		this.eventTimeWaitStrategy = (responseWaitStrategy instanceof EventTimeWaitStrategy ? (EventTimeWaitStrategy)responseWaitStrategy : null);
+		this.queueConsumer = queueConsumer;
+		this.queueProducer = queueProducer;
+		this.consumerQueueWaitStrategy = queueConsumer.getWaitStrategy();
+		this.destinationQueueWaitStrategy = queueProducer.getWaitStrategy();
+		this.releaseAwareConsumer = new ReleaseAwareQueueConsumer(queueConsumer, this.consumerQueueWaitStrategy);
+		this.running = true;
+		
+		this.lanes = new Lane[operators.size()];
+		for(int i = 0; i < this.lanes.length; i++) {
+			operators.get(i).setWaitStrategy(this.responseWaitStrategy);
+			this.lanes[i] = new Lane(i, operators.get(i), DEFAULT_LANE_CAPACITY);
+		}
+
+		if(!DelayedResponseOperatorRuntimeEnvironment.registerWithTimer(this.responseWaitStrategy, releaseTimer))
+			executorService.submit(this.responseWaitStrategy);
+		for(final Lane lane : this.lanes)
+			executorService.submit(lane);
+		
+		if(logger.isDebugEnabled())
+			logger.debug("parallel delayed response operator init [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+", parallelism="+this.lanes.length+"]");
+	}
+	
+	/**
+	 * Reads messages from the source queue and hands them over to the lanes 
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		
+		final StreamingDataMessage[] batch = new StreamingDataMessage[Math.max(this.batchSize - 1, 1)];
+		
+		while(running) {
+			
+			try {				
+				// wait for the first message and fetch all other available messages without waiting afterwards - waiting 
+				// ends as well if a release gets requested 
+				StreamingDataMessage message = this.consumerQueueWaitStrategy.waitFor(this.releaseAwareConsumer);
+				if(message != null && message != ReleaseAwareQueueConsumer.RELEASE_REQUESTED) {
+					dispatch(message);
+					
+					final int batchLength = this.queueConsumer.drainTo(batch, this.batchSize - 1);
+					for(int i = 0; i < batchLength; i++) {
+						dispatch(batch[i]);
+						batch[i] = null;
+					}
+				} else {
+					handlePendingRelease();
+				}
+				
+			} catch(InterruptedException e) {
+				// do nothing - waiting was interrupted				
+			} catch(Exception e) {
+				logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+				// TODO add handler for responding to errors 
+			}
+		}		
+	}
+	
+	/**
+	 * Assigns the message to a lane and notifies the response wait strategy. Event time strategies receive the message first and 
+	 * decide when to pass it on. Releases requested meanwhile are handled right away
+	 * @param message
+	 */
+	protected void dispatch(final StreamingDataMessage message) {
+		
+		if(message == null || message.getBody() == null)
+			return;
+		
+		if(this.eventTimeWaitStrategy != null) {
+			notifyWaitStrategy(message);
+			// windows closed meanwhile are handled before passing on the next message 
+			while(true) {
+				StreamingDataMessage next = null;
+				try {
+					next = this.eventTimeWaitStrategy.poll();
+				} catch(Exception e) {
+					logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+					// TODO add handler for responding to errors 
+				}
+				handlePendingRelease();
+				if(next == null)
+					break;
+				handOver(next);
+			}
+		} else {
+			handOver(message);
+			notifyWaitStrategy(message);
+		}
+
+		if(this.messageCounter != null)
+			this.messageCounter.inc();
+		
+		handlePendingRelease();
+	}
+	
+	/**
+	 * Assigns the message to a lane and waits for the lane to accept it
+	 * @param message
+	 */
+	private void handOver(final StreamingDataMessage message) {
+		final int laneIndex = this.partitioner.partition(message, this.lanes.length);
+		final Lane lane = this.lanes[(laneIndex >= 0 && laneIndex < this.lanes.length ? laneIndex : 0)];		
+		while(running && !lane.input.offer(message)) {
+			lane.signal.signal();
+			LockSupport.parkNanos(LANE_WAIT_NANOS);
+		}
+		lane.dispatched++;
+		lane.signal.signal();
+	}
+
+	/**
+	 * Notifies the response wait strategy about the message
+	 * @param message
+	 */
+	private void notifyWaitStrategy(final StreamingDataMessage message) {
+		try {
+			this.responseWaitStrategy.onMessage(message);
+		} catch(Exception e) {
+			logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors 
+		}
+	}
+
+	/**
+	 * Merges the partial results of all lanes and forwards the result to the destination queue if a release was requested 
+	 * since the last call. Must be called by the dispatching thread only.
+	 */
+	protected void handlePendingRelease() {
+		if(!this.releaseAwareConsumer.acknowledgeRelease())
+			return;
+		
+		try {
+			final StreamingDataMessage[] retrievedMessages = mergeResults();
+			
+			// forward messages to assigned queue if any messages are available 
+			if(retrievedMessages != null && retrievedMessages.length > 0) {
+				this.queueProducer.insertBatch(retrievedMessages);
+				this.destinationQueueWaitStrategy.forceLockRelease();
+			}
+		} catch(Exception e) {
+			logger.error("message retrieval error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+			// TODO add handler for responding to errors 
+		}
+	}
+
+	/**
+	 * Requests the dispatching thread to merge and forward the partial results. The call returns immediately, thus a slow merge 
+	 * never holds up the calling thread - eg. the node-wide release timer.
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseCollector#retrieveMessages()
+	 */
+	public void retrieveMessages() {
+		this.releaseAwareConsumer.requestRelease();
+	}
+	
+	/**
+	 * Waits until all lanes have processed the messages dispatched so far, merges their partial results into the operator 
+	 * instance of the first lane and returns its result. Must be called by the dispatching thread only.
+	 * @return
+	 */
+	protected StreamingDataMessage[] mergeResults() {
+		for(final Lane lane : this.lanes) {
+			while(running && lane.processed.get() < lane.dispatched)
+				LockSupport.parkNanos(LANE_WAIT_NANOS);
+		}
+		
+		final Lane target = this.lanes[0];
+		for(int i = 1; i < this.lanes.length; i++)
+			target.operator.merge(this.lanes[i].operator);
+		return target.operator.getResult();
+	}
+	
+	/**
+	 * Shuts down the runtime environment, all lanes, the attached {@link MergeableDelayedResponseOperator operators} and the response wait strategy
+	 */
+	public void shutdown() {
+		this.running = false;
+		for(final Lane lane : this.lanes) {
+			lane.signal.signal();
+			try {
+				lane.operator.shutdown();
+			} catch(Exception e) {
+				logger.error("operator shutdown error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+", lane="+lane.index+"]: " + e.getMessage(), e);
+			}
+		}
+		try {
+			this.responseWaitStrategy.shutdown();
+		} catch(Exception e) {
+			logger.error("strategy shutdown error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+		}
+
+		if(logger.isDebugEnabled())
+			logger.debug("shutdown success [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]");
+	}
+
+	/**
+	 * @return the running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * Returns the number of operator instances running in parallel
+	 * @return
+	 */
+	public int getParallelism() {
+		return this.lanes.length;
+	}
+
+	/**
+	 * @param messageCounter the messageCounter to set
+	 */
+	public void setMessageCounter(Counter messageCounter) {
+		this.messageCounter = messageCounter;
+	}
+
+	/**
+	 * @param batchSize max. number of messages read from the source queue in one batch
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = (batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+	}
+	
+	/**
+	 * Runs a single operator instance: messages are read from the input ring and handed over to the operator. 
+	 * The lane parks while its ring is empty
+	 * @author mnxfst
+	 * @since Feb 11, 2016
+	 */
+	private class Lane implements Runnable {
+		
+		/** lane number */
+		private final int index;
+		/** operator instance owned by this lane */
+		private final MergeableDelayedResponseOperator operator;
+		/** messages assigned to this lane */
+		private final OneToOneConcurrentArrayQueue3<StreamingDataMessage> input;
+		/** wakes up the idle lane */
+		private final IdleThreadSignal signal = new IdleThreadSignal();
+		/** number of messages processed by the lane */
+		private final AtomicLong processed = new AtomicLong(0);
+		/** number of messages handed over to the lane - owned by the dispatching thread */
+		private long dispatched = 0;
+		
+		private Lane(final int index, final MergeableDelayedResponseOperator operator, final int capacity) {
+			this.index = index;
+			this.operator = operator;
+			this.input = new OneToOneConcurrentArrayQueue3<>(capacity);
+		}
+
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			// interrupted lanes leave as parking would return immediately 
+			while(running && !Thread.currentThread().isInterrupted()) {
+				StreamingDataMessage message = this.input.poll();
+				if(message == null) {
+					// announce before checking the ring a last time - the dispatching thread signals after each hand over
+					this.signal.prepare();
+					message = this.input.poll();
+					if(message == null) {
+						this.signal.await();
+						continue;
+					}
+					this.signal.cancel();
+				}
+				
+				process(message);
+				// publishes the operator state to the dispatching thread waiting for the lane to merge the partial results 
+				this.processed.lazySet(this.processed.get() + 1);
+			}
+		}
+		
+		/**
+		 * Hands over the message to the operator and returns pooled messages to their pool afterwards
+		 * @param message
+		 */
+		private void process(final StreamingDataMessage message) {
+			try {
+				this.operator.onMessage(message);
+			} catch(Exception e) {
+				logger.error("processing error [node="+processingNodeId+", pipeline="+pipelineId+", operator="+operatorId+", lane="+this.index+"]: " + e.getMessage(), e);
+				// TODO add handler for responding to errors 
+			}
+			message.release();
+		}
+	}
+}
@@ -0,0 +1,490 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import uk.co.real_logic.queues.OneToOneConcurrentArrayQueue3;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+
+/**
+ * Provides a runtime environment for multiple instances of the same {@link DirectResponseOperator} which process
+ * messages in parallel. The environment itself reads messages from the assigned {@link StreamingMessageQueueConsumer} and
+ * distributes them among the operator instances as decided by the configured {@link MessagePartitioner}. Each instance runs
+ * on a thread of its own (<i>lane</i>) and receives its messages through a bounded single-producer/single-consumer ring. If
+ * a lane runs full, the environment waits until the lane has caught up.<br/><br/>
+ * Responses are collected by a dedicated thread and written to the assigned {@link StreamingMessageQueueProducer}. If order 
+ * preservation is requested, the collector keeps track of the lane each input message was assigned to and forwards the
+ * responses in that order: as each lane processes its messages in order, the next response to forward is always the next 
+ * one provided by the lane the oldest pending message was assigned to. Otherwise responses are forwarded as soon as they
+ * are available.<br/><br/>
+ * Idle lanes and the idle collector park until the thread handing over messages to them signals through an {@link IdleThreadSignal}.
+ * Pooled input messages are released by the lanes once processed. If the operator forwards an input message, its reference is
+ * handed over along with the responses and released by the collector after writing them to the destination queue.<br/><br/>
+ * Lanes and collector run on threads of the provided {@link ExecutorService}, thus on virtual threads if the executor provides
+ * them. As they wait for each other, they cannot be executed by the {@link com.ottogroup.bi.spqr.pipeline.component.CooperativeRuntimeScheduler}.
+ * @author mnxfst
+ * @since Feb 10, 2016
+ */
+public class ParallelDirectResponseOperatorRuntimeEnvironment implements Runnable {
+
+	/** our faithful logging facility ... ;-) */ 
+	private static final Logger logger = Logger.getLogger(ParallelDirectResponseOperatorRuntimeEnvironment.class);
+	
+	/** default max. number of messages read from the source queue or written to the destination queue in one batch */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	/** default number of messages each lane is able to buffer */
+	public static final int DEFAULT_LANE_CAPACITY = 1024;
+	/** returned by a lane if the operator did not produce any response */
+	private static final StreamingDataMessage[] EMPTY_RESPONSE = new StreamingDataMessage[0];
+	/** time a thread gets parked while waiting for space on a full ring */
+	private static final long FULL_RING_PARK_NANOS = 1000;
+
+	/** identifier of processing node the runtime environment belongs to*/
+	private final String processingNodeId;
+	/** identifier of pipeline the runtime environment belongs to */
+	private final String pipelineId;
+	/** identifier of operator assigned to this runtime environment */
+	private final String operatorId; 
+	/** lanes running the operator instances */
+	private final Lane[] lanes;
+	/** assigns messages to lanes */
+	private final MessagePartitioner partitioner;
+	/** forward responses in order of input messages */
+	private final boolean preserveOrder;
+	/** wakes up the idle collector once a lane provides responses */
+	private final IdleThreadSignal collectorSignal = new IdleThreadSignal();
+	/** lane indices in order of message assignment - used for order preservation only */
+	private final OneToOneConcurrentArrayQueue3<Integer> assignments;
+	/** provides read access to assigned source queue */
+	private final StreamingMessageQueueConsumer queueConsumer;
+	/** provides write access to assigned destination queue */
+	private final StreamingMessageQueueProducer queueProducer;
+	/** consumer queue wait strategy */
+	private final StreamingMessageQueueWaitStrategy consumerQueueWaitStrategy;
+	/** destination queue wait strategy */
+	private final StreamingMessageQueueWaitStrategy destinationQueueWaitStrategy;
+	/** indicates whether the operator runtime is still running or not */
+	private volatile boolean running = false;
+	/** message counter metric */
+	private Counter messageCounter = null;
+	/** message processing timer metric */
+	private Timer messageProcessingTimer = null;
+	/** max. number of messages read or written in one batch */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Initializes the runtime environment using the provided input and starts all lanes as well as the response collector
+	 * @param processingNodeId
+	 * @param pipelineId
+	 * @param operators operator instances to run in parallel - all of the same type and configuration
+	 * @param partitioner
+	 * @param preserveOrder
+	 * @param queueConsumer
+	 * @param queueProducer
+	 * @param executorService
+	 * @throws RequiredInputMissingException
+	 */
+	public ParallelDirectResponseOperatorRuntimeEnvironment(final String processingNodeId, final String pipelineId, final List<DirectResponseOperator> operators,
+			final MessagePartitioner partitioner, final boolean preserveOrder, final StreamingMessageQueueConsumer queueConsumer, 
+			final StreamingMessageQueueProducer queueProducer, final ExecutorService executorService) throws RequiredInputMissingException {
+		
+		/////////////////////////////////////////////////////////////
+		// input validation
+		if(StringUtils.isBlank(processingNodeId))
+			throw new RequiredInputMissingException("Missing required processing node identifier");
+		if(StringUtils.isBlank(pipelineId))
+			throw new RequiredInputMissingException("Missing required pipeline identifier");
+		if(operators == null || operators.isEmpty())
+			throw new RequiredInputMissingException("Missing required direct response operators");
+		for(final DirectResponseOperator operator : operators)
+			if(operator == null)
+				throw new RequiredInputMissingException("Missing required direct response operator");
+		if(partitioner == null)
+			throw new RequiredInputMissingException("Missing required message partitioner");
+		if(queueConsumer == null)
+			throw new RequiredInputMissingException("Missing required queue consumer");
+		if(queueProducer == null)
+			throw new RequiredInputMissingException("Missing required queue producer");
+		if(executorService == null)
+			throw new RequiredInputMissingException("Missing required executor service");
+		//
+		/////////////////////////////////////////////////////////////
+		
+		this.processingNodeId = StringUtils.lowerCase(StringUtils.trim(processingNodeId));
+		this.pipelineId = StringUtils.lowerCase(StringUtils.trim(pipelineId));
+		this.operatorId = StringUtils.lowerCase(StringUtils.trim(operators.get(0).getId()));
+		this.partitioner = partitioner;
+		this.preserveOrder = preserveOrder;
+		this.queueConsumer = queueConsumer;
+		this.queueProducer = queueProducer;
+		this.consumerQueueWaitStrategy = queueConsumer.getWaitStrategy();
+		this.destinationQueueWaitStrategy = queueProducer.getWaitStrategy();
+		this.running = true;
+		
+		this.lanes = new Lane[operators.size()];
+		for(int i = 0; i < this.lanes.length; i++)
+			this.lanes[i] = new Lane(i, operators.get(i), DEFAULT_LANE_CAPACITY);
+		// each lane holds at most one message in processing plus its filled input and output rings 
+		this.assignments = (preserveOrder ? new OneToOneConcurrentArrayQueue3<Integer>(this.lanes.length * (2 * DEFAULT_LANE_CAPACITY + 2)) : null);
+
+		for(final Lane lane : this.lanes)
+			executorService.submit(lane);
+		executorService.submit(new ResponseCollector());
+		
+		if(logger.isDebugEnabled())
+			logger.debug("parallel direct response operator init [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+", parallelism="+this.lanes.length+", preserveOrder="+preserveOrder+"]");
+	}
+	
+	/**
+	 * Reads messages from the source queue and hands them over to the lanes 
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		
+		final StreamingDataMessage[] batch = new StreamingDataMessage[Math.max(this.batchSize - 1, 1)];
+		
+		while(running) {
+			
+			try {				
+				// wait for the first message and fetch all other available messages without waiting afterwards
+				StreamingDataMessage message = this.consumerQueueWaitStrategy.waitFor(this.queueConsumer);
+				if(message != null) {
+					dispatch(message);
+					
+					final int batchLength = this.queueConsumer.drainTo(batch, this.batchSize - 1);
+					for(int i = 0; i < batchLength; i++) {
+						dispatch(batch[i]);
+						batch[i] = null;
+					}
+				}
+				
+			} catch(InterruptedException e) {
+				// do nothing - waiting was interrupted				
+			} catch(Exception e) {
+				logger.error("processing error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]: " + e.getMessage(), e);
+				// TODO add handler for responding to errors 
+			}
+		}		
+	}
+	
+	/**
+	 * Assigns the message to a lane and waits for the lane to accept it
+	 * @param message
+	 */
+	protected void dispatch(final StreamingDataMessage message) {
+		
+		if(message == null || message.getBody() == null)
+			return;
+		
+		final int laneIndex = this.partitioner.partition(message, this.lanes.length);
+		final Lane lane = this.lanes[(laneIndex >= 0 && laneIndex < this.lanes.length ? laneIndex : 0)];
+		
+		if(this.preserveOrder) {
+			final Integer assignment = Integer.valueOf(lane.index);
+			while(running && !this.assignments.offer(assignment))
+				LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+		}
+		while(running && !lane.input.offer(message))
+			LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+		lane.signal.signal();
+	}
+	
+	/**
+	 * Shuts down the runtime environment, all lanes and the attached {@link DirectResponseOperator operators}
+	 */
+	public void shutdown() {
+		this.running = false;
+		this.collectorSignal.signal();
+		for(final Lane lane : this.lanes) {
+			lane.signal.signal();
+			try {
+				lane.operator.shutdown();
+			} catch(Exception e) {
+				logger.error("operator shutdown error [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+", lane="+lane.index+"]: " + e.getMessage(), e);
+			}
+		}
+
+		if(logger.isDebugEnabled())
+			logger.debug("shutdown success [node="+this.processingNodeId+", pipeline="+this.pipelineId+", operator="+this.operatorId+"]");
+	}
+
+	/**
+	 * @return the running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * Returns the number of operator instances running in parallel
+	 * @return
+	 */
+	public int getParallelism() {
+		return this.lanes.length;
+	}
+
+	/**
+	 * @param messageCounter the messageCounter to set
+	 */
+	public void setMessageCounter(Counter messageCounter) {
+		this.messageCounter = messageCounter;
+	}
+
+	/**
+	 * @param messageProcessingTimer the messageProcessingTimer to set
+	 */
+	public void setMessageProcessingTimer(Timer messageProcessingTimer) {
+		this.messageProcessingTimer = messageProcessingTimer;
+	}
+
+	/**
+	 * @param batchSize max. number of messages read or written in one batch
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = (batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+	}
+	
+	/**
+	 * Runs a single operator instance: messages are read from the input ring, processed and the 
+	 * responses are handed over to the output ring. The lane parks while its input ring is empty
+	 * @author mnxfst
+	 * @since Feb 10, 2016
+	 */
+	private class Lane implements Runnable {
+		
+		/** lane number */
+		private final int index;
+		/** operator instance owned by this lane */
+		private final DirectResponseOperator operator;
+		/** messages assigned to this lane */
+		private final OneToOneConcurrentArrayQueue3<StreamingDataMessage> input;
+		/** responses generated for each message - in order of input messages */
+		private final OneToOneConcurrentArrayQueue3<StreamingDataMessage[]> output;
+		/** wakes up the idle lane once a message has been assigned */
+		private final IdleThreadSignal signal = new IdleThreadSignal();
+		
+		private Lane(final int index, final DirectResponseOperator operator, final int capacity) {
+			this.index = index;
+			this.operator = operator;
+			this.input = new OneToOneConcurrentArrayQueue3<>(capacity);
+			this.output = new OneToOneConcurrentArrayQueue3<>(capacity);
+		}
+
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			while(running && !Thread.currentThread().isInterrupted()) {
+				StreamingDataMessage message = this.input.poll();
+				if(message == null) {
+					// announce parking before checking the ring a last time - the dispatcher signals after each assignment
+					this.signal.prepare();
+					if((message = this.input.poll()) == null) {
+						this.signal.await();
+						continue;
+					}
+					this.signal.cancel();
+				}
+				
+				final StreamingDataMessage[] responses = process(message);
+				// empty responses must be forwarded only if the collector keeps track of the message order 
+				if(responses.length > 0 || preserveOrder) {
+					while(running && !this.output.offer(responses))
+						LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+					collectorSignal.signal();
+				}
+			}
+		}
+		
+		/**
+		 * Hands over the message to the operator and returns its responses
+		 * @param message
+		 * @return
+		 */
+		private StreamingDataMessage[] process(final StreamingDataMessage message) {
+			StreamingDataMessage[] responses = null;
+			try {
+				@SuppressWarnings("resource") // context#close() calls context#stop -> avoid additional call, thus accept warning
+				Timer.Context timerContext = (messageProcessingTimer != null ? messageProcessingTimer.time() : null);
+				
+				responses = this.operator.onMessage(message);
+	
+				if(timerContext != null)
+					timerContext.stop();
+				if(messageCounter != null)
+					messageCounter.inc();
+				
+				return (responses != null ? responses : EMPTY_RESPONSE);
+			} catch(Exception e) {
+				logger.error("processing error [node="+processingNodeId+", pipeline="+pipelineId+", operator="+operatorId+", lane="+this.index+"]: " + e.getMessage(), e);
+				// TODO add handler for responding to errors 
+				responses = null;
+				return EMPTY_RESPONSE;
+			} finally {
+				release(message, responses);
+			}
+		}
+		
+		/**
+		 * Releases the processed message unless the operator forwards it. In that case the reference of the lane moves to the
+		 * first response referencing the message while each further response retains it. The collector releases all responses
+		 * once they have been written to the destination queue
+		 * @param message
+		 * @param responses
+		 */
+		private void release(final StreamingDataMessage message, final StreamingDataMessage[] responses) {
+			try {
+				boolean forwarded = false;
+				if(responses != null) {
+					for(final StreamingDataMessage response : responses) {
+						if(response == message) {
+							if(forwarded)
+								message.retain();
+							forwarded = true;
+						}
+					}
+				}
+				if(!forwarded)
+					message.release();
+			} catch(Exception e) {
+				logger.error("message release error [node="+processingNodeId+", pipeline="+pipelineId+", operator="+operatorId+", lane="+this.index+"]: " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Collects the responses of all lanes and writes them to the destination queue. The collector parks while no lane provides responses
+	 * @author mnxfst
+	 * @since Feb 10, 2016
+	 */
+	private class ResponseCollector implements Runnable {
+		
+		/** lane which provides the next response in order preserving mode, -1 if not yet known */
+		private int pendingLane = -1;
+		
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			final List<StreamingDataMessage> responses = new ArrayList<>();
+			while(running && !Thread.currentThread().isInterrupted()) {
+				try {
+					if(collect(responses) == 0) {
+						// announce parking before checking the lanes a last time - lanes signal after each hand over
+						collectorSignal.prepare();
+						if(collect(responses) == 0) {
+							collectorSignal.await();
+							continue;
+						}
+						collectorSignal.cancel();
+					}
+					
+					if(!responses.isEmpty()) {
+						final StreamingDataMessage[] batch = responses.toArray(new StreamingDataMessage[responses.size()]);
+						responses.clear();
+						queueProducer.insertBatch(batch);
+						destinationQueueWaitStrategy.forceLockRelease();
+						// the destination queue holds its own references to pooled messages forwarded by the operator 
+						for(final StreamingDataMessage response : batch)
+							response.release();
+					}
+				} catch(Exception e) {
+					responses.clear();
+					logger.error("processing error [node="+processingNodeId+", pipeline="+pipelineId+", operator="+operatorId+"]: " + e.getMessage(), e);
+					// TODO add handler for responding to errors 
+				}
+			}
+		}
+		
+		/**
+		 * Collects responses as configured
+		 * @param responses
+		 * @return number of processed input messages
+		 */
+		private int collect(final List<StreamingDataMessage> responses) {
+			return (preserveOrder ? collectOrdered(responses) : collectUnordered(responses));
+		}
+		
+		/**
+		 * Collects responses in order of input messages
+		 * @param responses
+		 * @return number of processed input messages
+		 */
+		private int collectOrdered(final List<StreamingDataMessage> responses) {
+			int collected = 0;
+			while(collected < batchSize) {
+				if(this.pendingLane < 0) {
+					final Integer next = assignments.poll();
+					if(next == null)
+						break;
+					this.pendingLane = next.intValue();
+				}
+				final StreamingDataMessage[] laneResponses = lanes[this.pendingLane].output.poll();
+				if(laneResponses == null)
+					break;
+				this.pendingLane = -1;
+				add(laneResponses, responses);
+				collected++;
+			}
+			return collected;
+		}
+		
+		/**
+		 * Collects all available responses (up to batch size per lane) in no particular order
+		 * @param responses
+		 * @return number of processed input messages
+		 */
+		private int collectUnordered(final List<StreamingDataMessage> responses) {
+			int collected = 0;
+			for(final Lane lane : lanes) {
+				StreamingDataMessage[] laneResponses = null;
+				int laneCollected = 0;
+				while(laneCollected < batchSize && (laneResponses = lane.output.poll()) != null) {
+					add(laneResponses, responses);
+					laneCollected++;
+				}
+				collected += laneCollected;
+			}
+			return collected;
+		}
+		
+		/**
+		 * Adds all non-null responses to the given list
+		 * @param laneResponses
+		 * @param responses
+		 */
+		private void add(final StreamingDataMessage[] laneResponses, final List<StreamingDataMessage> responses) {
+			for(final StreamingDataMessage response : laneResponses)
+				if(response != null)
+					responses.add(response);
+		}
+	}
+}
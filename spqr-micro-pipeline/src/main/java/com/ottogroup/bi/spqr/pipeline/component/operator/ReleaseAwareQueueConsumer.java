@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+
+/**
+ * Hands over release requests from arbitrary threads - eg. the {@link HashedWheelReleaseTimer} - to the thread processing the
+ * messages of a delayed response operator. A {@link #requestRelease() request} increments the release epoch and wakes up the processing
+ * thread if it waits for messages. The processing thread {@link #acknowledgeRelease() acknowledges} pending releases whenever
+ * convenient and fetches the operator result itself.<br/><br/>
+ * The consumer is handed to the {@link StreamingMessageQueueWaitStrategy} of the source queue instead of the queue consumer itself:
+ * it returns {@link #RELEASE_REQUESTED} as long as a release is pending. As wait strategies check the queue after being signaled, a
+ * waiting processing thread returns from waiting once a release gets requested. Except for {@link #requestRelease()}, all methods must
+ * be called by the processing thread only. Multiple requests issued before the processing thread acknowledges them are collapsed into one.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class ReleaseAwareQueueConsumer implements StreamingMessageQueueConsumer {
+
+	/** returned by {@link #next()} while a release is pending */
+	public static final StreamingDataMessage RELEASE_REQUESTED = new StreamingDataMessage(new byte[0], 0);
+
+	/** source queue consumer */
+	private final StreamingMessageQueueConsumer queueConsumer;
+	/** wait strategy of the source queue - signaled on release requests, may be null */
+	private final StreamingMessageQueueWaitStrategy waitStrategy;
+	/** incremented with each release request */
+	private final AtomicLong releaseEpoch = new AtomicLong(0);
+	/** release epoch acknowledged last - owned by the processing thread */
+	private long handledReleaseEpoch = 0;
+
+	/**
+	 * Initializes the consumer using the provided input
+	 * @param queueConsumer source queue consumer
+	 * @param waitStrategy wait strategy of the source queue
+	 */
+	public ReleaseAwareQueueConsumer(final StreamingMessageQueueConsumer queueConsumer, final StreamingMessageQueueWaitStrategy waitStrategy) {
+		this.queueConsumer = queueConsumer;
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Requests a release and wakes up the processing thread if it waits for messages. May be called by any thread, the call returns immediately
+	 */
+	public void requestRelease() {
+		this.releaseEpoch.incrementAndGet();
+		// the processing thread either finds the new epoch when checking the queue a last time before blocking or gets signaled
+		if(this.waitStrategy != null)
+			this.waitStrategy.forceLockRelease();
+	}
+
+	/**
+	 * Returns true if a release was requested since the last call and marks it as handled. Must be called by the processing thread only
+	 * @return
+	 */
+	public boolean acknowledgeRelease() {
+		final long epoch = this.releaseEpoch.get();
+		if(epoch == this.handledReleaseEpoch)
+			return false;
+		this.handledReleaseEpoch = epoch;
+		return true;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#getQueueId()
+	 */
+	public String getQueueId() {
+		return this.queueConsumer.getQueueId();
+	}
+
+	/**
+	 * Returns {@link #RELEASE_REQUESTED} if a release is pending, otherwise the next message of the source queue
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#next()
+	 */
+	public StreamingDataMessage next() {
+		if(this.releaseEpoch.get() != this.handledReleaseEpoch)
+			return RELEASE_REQUESTED;
+		return this.queueConsumer.next();
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#drainTo(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage[], int)
+	 */
+	public int drainTo(StreamingDataMessage[] buffer, int max) {
+		return this.queueConsumer.drainTo(buffer, max);
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#getWaitStrategy()
+	 */
+	public StreamingMessageQueueWaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#setMessageRetrievalCounter(com.codahale.metrics.Counter)
+	 */
+	public void setMessageRetrievalCounter(Counter counter) {
+		this.queueConsumer.setMessageRetrievalCounter(counter);
+	}
+}
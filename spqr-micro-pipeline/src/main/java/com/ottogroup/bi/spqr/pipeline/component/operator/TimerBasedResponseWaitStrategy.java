@@ -22,12 +22,14 @@ import org.apache.log4j.Logger;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
 
 /**
- * Implements a timer based {@link DelayedResponseOperatorWaitStrategy}.  
+ * Implements a timer based {@link DelayedResponseOperatorWaitStrategy}. If {@link #register(HashedWheelReleaseTimer) registered}
+ * with a {@link HashedWheelReleaseTimer}, releases are triggered by the shared timer thread and {@link #run()} returns immediately.
+ * Otherwise the strategy sleeps on a thread of its own between two releases.  
  * @author mnxfst
  * @since Mar 12, 2015
  *
  */
-public class TimerBasedResponseWaitStrategy implements DelayedResponseOperatorWaitStrategy {
+public class TimerBasedResponseWaitStrategy implements TimerDrivenWaitStrategy {
 	
 	private static final Logger logger = Logger.getLogger(TimerBasedResponseWaitStrategy.class);
 	
@@ -42,6 +44,8 @@ public class TimerBasedResponseWaitStrategy implements DelayedResponseOperatorWa
 	private long maxDuration = DEFAULT_MAX_DURATION;  
 	/** time of last collector run */
 	private long lastResultCollection = System.currentTimeMillis();
+	/** registration with the shared release timer - null if the strategy runs on a thread of its own */
+	private volatile HashedWheelReleaseTimer.Registration timerRegistration = null;
 
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy#initialize(java.util.Properties)
@@ -65,6 +69,9 @@ public class TimerBasedResponseWaitStrategy implements DelayedResponseOperatorWa
 	 * @see java.lang.Runnable#run()
 	 */
 	public void run() {
+		if(this.timerRegistration != null)
+			return; // releases are triggered by the shared timer
+		
 		this.running = true;
 		while(running) {
 			long tmp = System.currentTimeMillis() - lastResultCollection;
@@ -86,6 +93,25 @@ public class TimerBasedResponseWaitStrategy implements DelayedResponseOperatorWa
 	}
 
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.TimerDrivenWaitStrategy#register(com.ottogroup.bi.spqr.pipeline.component.operator.HashedWheelReleaseTimer)
+	 */
+	public boolean register(final HashedWheelReleaseTimer releaseTimer) {
+		if(releaseTimer == null)
+			return false;
+		try {
+			this.timerRegistration = releaseTimer.schedule(new Runnable() {
+				public void run() {
+					release();
+				}
+			}, this.maxDuration);
+			return true;
+		} catch(Exception e) {
+			logger.error("Failed to register with release timer. Reason: " + e.getMessage(), e);
+			return false;
+		}
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy#release()
 	 */
@@ -106,6 +132,8 @@ public class TimerBasedResponseWaitStrategy implements DelayedResponseOperatorWa
 	 */
 	public void shutdown() {
 		this.running = false;
+		if(this.timerRegistration != null)
+			this.timerRegistration.cancel();
 	}
 	
 	/**
@@ -115,4 +143,11 @@ public class TimerBasedResponseWaitStrategy implements DelayedResponseOperatorWa
 		this.delayedResponseCollector = delayedResponseCollector;
 	}
 
+	/**
+	 * @return the maxDuration
+	 */
+	public long getMaxDuration() {
+		return maxDuration;
+	}
+
 }
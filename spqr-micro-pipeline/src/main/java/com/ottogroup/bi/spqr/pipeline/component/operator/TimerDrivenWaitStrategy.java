@@ -0,0 +1,34 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+/**
+ * {@link DelayedResponseOperatorWaitStrategy} releasing results periodically. Instead of being submitted to an executor
+ * service, runtime environments may register these strategies with a node-wide {@link HashedWheelReleaseTimer}. The strategy
+ * then does not occupy a thread of its own and its {@link Runnable#run()} method must return immediately.
+ * @author mnxfst
+ * @since Feb 12, 2016
+ */
+public interface TimerDrivenWaitStrategy extends DelayedResponseOperatorWaitStrategy {
+
+	/**
+	 * Registers the release callback of the strategy with the provided timer. The registration must be cancelled on {@link #shutdown()}
+	 * @param releaseTimer
+	 * @return true if the callback was registered, false if the strategy must be executed as {@link Runnable} instead
+	 */
+	public boolean register(final HashedWheelReleaseTimer releaseTimer);
+
+}
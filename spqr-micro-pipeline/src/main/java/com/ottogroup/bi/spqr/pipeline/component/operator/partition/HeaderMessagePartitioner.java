@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator.partition;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageHeaders;
+
+/**
+ * Assigns messages to partitions by hashing the value of a {@link StreamingDataMessageHeaders message header}, eg. 
+ * the {@link StreamingDataMessageHeaders#KEY message key}. The message body is not touched at all. Messages which do
+ * not carry the header are assigned to partition 0. The partitioner is selected by prefixing the header name configured
+ * as partition key with {@link #HEADER_REFERENCE_PREFIX}, eg. <code>@key</code>    
+ * @author mnxfst
+ * @since Feb 12, 2016
+ * @see MessagePartitioner
+ */
+public class HeaderMessagePartitioner implements MessagePartitioner {
+
+	/** marks a partition key as reference to a message header */
+	public static final String HEADER_REFERENCE_PREFIX = "@";
+	
+	/** name of header holding the partition key */
+	private final String headerName;
+	
+	/**
+	 * Initializes the partitioner using the provided input
+	 * @param headerName name of header holding the partition key (with or without {@link #HEADER_REFERENCE_PREFIX})
+	 * @throws RequiredInputMissingException
+	 */
+	public HeaderMessagePartitioner(final String headerName) throws RequiredInputMissingException {
+		final String name = StringUtils.removeStart(StringUtils.trim(headerName), HEADER_REFERENCE_PREFIX);
+		if(StringUtils.isBlank(name))
+			throw new RequiredInputMissingException("Missing required header name");
+		this.headerName = name;
+	}
+	
+	/**
+	 * Returns true if the given partition key references a message header
+	 * @param partitionKey
+	 * @return
+	 */
+	public static boolean isHeaderReference(final String partitionKey) {
+		return StringUtils.startsWith(StringUtils.trim(partitionKey), HEADER_REFERENCE_PREFIX);
+	}
+	
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner#partition(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage, int)
+	 */
+	public int partition(StreamingDataMessage message, int numOfPartitions) {
+		if(numOfPartitions < 2 || message == null)
+			return 0;
+		
+		final String key = message.getHeader(this.headerName);
+		if(key == null)
+			return 0;
+		
+		final int hash = key.hashCode();
+		return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % numOfPartitions;
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator.partition;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
+
+/**
+ * Assigns messages to partitions by hashing the value of a JSON field which is referenced through a dot separated
+ * path, eg. <code>user.id</code>. Messages sharing the same value are always assigned to the same partition. The
+ * field is looked up by streaming through the message body without building a document tree; parsing
+ * stops as soon as the field has been found. Messages which do not contain the field, hold a non-scalar value
+ * or cannot be parsed are assigned to partition 0.  
+ * @author mnxfst
+ * @since Feb 10, 2016
+ * @see MessagePartitioner
+ */
+public class JsonFieldMessagePartitioner implements MessagePartitioner {
+
+	/** factory used for creating streaming parsers */
+	private final JsonFactory jsonFactory;
+	/** path towards the field holding the partition key */
+	private final String[] path;
+	
+	/**
+	 * Initializes the partitioner using the provided input
+	 * @param partitionKey dot separated path towards the field holding the partition key 
+	 * @throws RequiredInputMissingException
+	 */
+	public JsonFieldMessagePartitioner(final String partitionKey) throws RequiredInputMissingException {
+		this(partitionKey, null);
+	}
+	
+	/**
+	 * Initializes the partitioner using the provided input
+	 * @param partitionKey dot separated path towards the field holding the partition key 
+	 * @param jsonFactory factory creating parsers for the format of incoming messages, eg. the one of a {@link StreamingDataMessageCodec} - null leads to plain JSON
+	 * @throws RequiredInputMissingException
+	 */
+	public JsonFieldMessagePartitioner(final String partitionKey, final JsonFactory jsonFactory) throws RequiredInputMissingException {
+		if(StringUtils.isBlank(partitionKey))
+			throw new RequiredInputMissingException("Missing required partition key");
+		this.path = StringUtils.split(StringUtils.trim(partitionKey), '.');
+		this.jsonFactory = (jsonFactory != null ? jsonFactory : new JsonFactory());
+	}
+	
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner#partition(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage, int)
+	 */
+	public int partition(StreamingDataMessage message, int numOfPartitions) {
+		if(numOfPartitions < 2 || message == null || message.getBody() == null)
+			return 0;
+		
+		final String key = extractKey(message.getBody());
+		if(key == null)
+			return 0;
+		
+		final int hash = key.hashCode();
+		return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % numOfPartitions;
+	}
+	
+	/**
+	 * Returns the textual representation of the referenced field value or null if the field does not exist
+	 * or holds a non-scalar value 
+	 * @param content
+	 * @return
+	 */
+	protected String extractKey(final byte[] content) {
+		
+		try(JsonParser parser = this.jsonFactory.createParser(content)) {
+			if(parser.nextToken() != JsonToken.START_OBJECT)
+				return null;
+			
+			int depth = 0;
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String fieldName = parser.getCurrentName();
+				final JsonToken value = parser.nextToken();
+				
+				if(StringUtils.equals(fieldName, this.path[depth])) {
+					if(depth == this.path.length - 1)
+						return (value.isScalarValue() ? parser.getText() : null);
+					if(value != JsonToken.START_OBJECT)
+						return null;
+					// continue with the fields of the nested object
+					depth++;
+					continue;
+				}
+				parser.skipChildren();
+			}
+		} catch(Exception e) {
+			// invalid content - fall through 
+		}
+		return null;
+	}
+}
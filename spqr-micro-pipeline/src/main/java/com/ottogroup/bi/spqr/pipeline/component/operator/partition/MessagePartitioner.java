@@ -0,0 +1,35 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator.partition;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Assigns incoming {@link StreamingDataMessage messages} to one of multiple operator instances running in parallel. 
+ * Implementations are invoked by a single thread only.
+ * @author mnxfst
+ * @since Feb 10, 2016
+ */
+public interface MessagePartitioner {
+
+	/**
+	 * Returns the partition the message must be assigned to
+	 * @param message
+	 * @param numOfPartitions total number of partitions (&gt; 0)
+	 * @return partition index ranging from 0 to numOfPartitions - 1
+	 */
+	public int partition(final StreamingDataMessage message, final int numOfPartitions);
+}
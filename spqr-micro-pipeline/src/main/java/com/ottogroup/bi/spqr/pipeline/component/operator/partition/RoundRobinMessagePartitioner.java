@@ -0,0 +1,39 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator.partition;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Assigns messages to partitions in turn
+ * @author mnxfst
+ * @since Feb 10, 2016
+ * @see MessagePartitioner
+ */
+public class RoundRobinMessagePartitioner implements MessagePartitioner {
+
+	/** partition the next message is assigned to */
+	private int next = 0;
+	
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner#partition(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage, int)
+	 */
+	public int partition(StreamingDataMessage message, int numOfPartitions) {
+		if(this.next >= numOfPartitions)
+			this.next = 0;
+		return this.next++;
+	}
+}
@@ -115,12 +115,17 @@ public class SourceRuntimeEnvironment implements Runnable, IncomingMessageCallba
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.source.IncomingMessageCallback#onMessage(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
 	 */
-	public void onMessage(StreamingDataMessage message) {
-		this.queueProducer.insert(message);
-		this.queueProducer.getWaitStrategy().forceLockRelease();
+	public boolean onMessage(StreamingDataMessage message) {
+		// insertion blocks if the queue reached its capacity and applies overflow policy 'block'. as the 
+		// source calls this method from within its own thread, it stops receiving data until the queue frees capacity
+		final boolean inserted = this.queueProducer.insert(message);
+		if(inserted)
+			this.queueProducer.getWaitStrategy().forceLockRelease();
 		
 		if(this.messageCounter != null)
 			this.messageCounter.inc();
+		
+		return inserted;
 	}
 	
 	/**
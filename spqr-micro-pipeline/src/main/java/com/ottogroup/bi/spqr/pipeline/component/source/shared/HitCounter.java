@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.Arrays;
+
+/**
+ * Counts hits by identifier while keeping track of all identifiers hit at least once. Thus the hits of a message are
+ * inspected and {@link #reset() reset} without scanning the counters of all identifiers, which allows to reuse a
+ * single instance for all messages. Instances are not thread-safe.
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class HitCounter {
+
+	/** hits referenced by identifier */
+	private final int[] hits;
+	/** identifiers hit at least once since last reset */
+	private final int[] touched;
+	/** number of identifiers hit at least once since last reset */
+	private int numOfTouched = 0;
+
+	/**
+	 * Initializes the counter for identifiers 0 to size-1
+	 * @param size
+	 */
+	public HitCounter(final int size) {
+		this.hits = new int[size];
+		this.touched = new int[size];
+	}
+
+	/**
+	 * Increments the hits of the referenced identifier
+	 * @param id
+	 */
+	public void hit(final int id) {
+		if(this.hits[id]++ == 0)
+			this.touched[this.numOfTouched++] = id;
+	}
+
+	/**
+	 * Returns the hits of the referenced identifier
+	 * @param id
+	 * @return
+	 */
+	public int getHits(final int id) {
+		return this.hits[id];
+	}
+
+	/**
+	 * Returns the number of identifiers hit at least once since last reset
+	 * @return
+	 */
+	public int getNumOfTouched() {
+		return this.numOfTouched;
+	}
+
+	/**
+	 * Returns the identifier kept at the given position of the touched identifiers
+	 * @param index
+	 * @return
+	 */
+	public int getTouched(final int index) {
+		return this.touched[index];
+	}
+
+	/**
+	 * Orders the touched identifiers ascending
+	 */
+	public void sortTouched() {
+		Arrays.sort(this.touched, 0, this.numOfTouched);
+	}
+
+	/**
+	 * Resets the hits of all touched identifiers
+	 */
+	public void reset() {
+		for(int i = 0; i < this.numOfTouched; i++)
+			this.hits[this.touched[i]] = 0;
+		this.numOfTouched = 0;
+	}
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable centered interval tree answering stabbing queries: which of the registered numerical intervals contain a given
+ * value. Each node keeps the intervals overlapping its center sorted by lower and by upper bound, intervals lying entirely
+ * left or right of the center are passed on to the child nodes. Thus a query visits O(log n) nodes and inspects only those
+ * intervals it reports plus one per node.
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class IntervalTree {
+
+	/** orders intervals by ascending lower bound */
+	private static final Comparator<Interval> LOWER_ASC = new Comparator<Interval>() {
+		public int compare(Interval o1, Interval o2) {
+			return Double.compare(o1.lower, o2.lower);
+		}
+	};
+	/** orders intervals by descending upper bound */
+	private static final Comparator<Interval> UPPER_DESC = new Comparator<Interval>() {
+		public int compare(Interval o1, Interval o2) {
+			return Double.compare(o2.upper, o1.upper);
+		}
+	};
+
+	/** root node - null if the tree is empty */
+	private final Node root;
+	/** number of intervals */
+	private final int size;
+
+	/**
+	 * Builds the tree from the provided intervals
+	 * @param intervals
+	 */
+	public IntervalTree(final List<Interval> intervals) {
+		final List<Interval> valid = new ArrayList<>();
+		if(intervals != null) {
+			for(final Interval interval : intervals)
+				if(interval != null && !interval.isEmpty())
+					valid.add(interval);
+		}
+		this.size = valid.size();
+		this.root = build(valid);
+	}
+
+	/**
+	 * Counts a hit for each interval containing the provided value. Hits are referenced by {@link Interval#getId()}
+	 * @param value
+	 * @param counters
+	 */
+	public void stab(final double value, final HitCounter counters) {
+		if(Double.isNaN(value))
+			return;
+
+		Node node = this.root;
+		while(node != null) {
+			if(value < node.center) {
+				for(final Interval interval : node.byLower) {
+					if(interval.lower > value)
+						break;
+					if(interval.contains(value))
+						counters.hit(interval.id);
+				}
+				node = node.left;
+			} else if(value > node.center) {
+				for(final Interval interval : node.byUpper) {
+					if(interval.upper < value)
+						break;
+					if(interval.contains(value))
+						counters.hit(interval.id);
+				}
+				node = node.right;
+			} else {
+				for(final Interval interval : node.byLower)
+					if(interval.contains(value))
+						counters.hit(interval.id);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of intervals kept by the tree
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Recursively builds the tree from the provided intervals
+	 * @param intervals
+	 * @return
+	 */
+	private static Node build(final List<Interval> intervals) {
+		if(intervals.isEmpty())
+			return null;
+
+		// the median of all finite bounds is used as center, thus at least one interval is kept by each node
+		final List<Double> bounds = new ArrayList<>();
+		for(final Interval interval : intervals) {
+			if(!Double.isInfinite(interval.lower))
+				bounds.add(interval.lower);
+			if(!Double.isInfinite(interval.upper))
+				bounds.add(interval.upper);
+		}
+		Collections.sort(bounds);
+		final double center = (bounds.isEmpty() ? 0 : bounds.get(bounds.size() / 2));
+
+		final List<Interval> left = new ArrayList<>();
+		final List<Interval> right = new ArrayList<>();
+		final List<Interval> overlapping = new ArrayList<>();
+		for(final Interval interval : intervals) {
+			if(interval.upper < center)
+				left.add(interval);
+			else if(interval.lower > center)
+				right.add(interval);
+			else
+				overlapping.add(interval);
+		}
+
+		final Interval[] byLower = overlapping.toArray(new Interval[overlapping.size()]);
+		final Interval[] byUpper = byLower.clone();
+		Arrays.sort(byLower, LOWER_ASC);
+		Arrays.sort(byUpper, UPPER_DESC);
+		return new Node(center, byLower, byUpper, build(left), build(right));
+	}
+
+	/**
+	 * Node of the interval tree
+	 * @author mnxfst
+	 * @since Feb 17, 2016
+	 */
+	private static class Node {
+		private final double center;
+		/** intervals containing the center sorted by ascending lower bound */
+		private final Interval[] byLower;
+		/** intervals containing the center sorted by descending upper bound */
+		private final Interval[] byUpper;
+		/** intervals lying entirely below the center */
+		private final Node left;
+		/** intervals lying entirely above the center */
+		private final Node right;
+
+		private Node(final double center, final Interval[] byLower, final Interval[] byUpper, final Node left, final Node right) {
+			this.center = center;
+			this.byLower = byLower;
+			this.byUpper = byUpper;
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	/**
+	 * Numerical interval having inclusive or exclusive bounds. Infinite bounds describe open intervals
+	 * @author mnxfst
+	 * @since Feb 17, 2016
+	 */
+	public static class Interval {
+		private final double lower;
+		private final double upper;
+		private final boolean lowerExclusive;
+		private final boolean upperExclusive;
+		/** identifier referencing the counter incremented for each match */
+		private final int id;
+
+		public Interval(final double lower, final double upper, final boolean lowerExclusive, final boolean upperExclusive, final int id) {
+			this.lower = lower;
+			this.upper = upper;
+			this.lowerExclusive = lowerExclusive;
+			this.upperExclusive = upperExclusive;
+			this.id = id;
+		}
+
+		/**
+		 * Returns true if the interval contains the provided value
+		 * @param value
+		 * @return
+		 */
+		public boolean contains(final double value) {
+			return (this.lowerExclusive ? value > this.lower : value >= this.lower) && (this.upperExclusive ? value < this.upper : value <= this.upper);
+		}
+
+		/**
+		 * Returns true if no value may be contained by the interval
+		 * @return
+		 */
+		public boolean isEmpty() {
+			if(Double.isNaN(this.lower) || Double.isNaN(this.upper) || this.lower > this.upper)
+				return true;
+			return this.lower == this.upper && (this.lowerExclusive || this.upperExclusive);
+		}
+
+		public double getLower() {
+			return lower;
+		}
+
+		public double getUpper() {
+			return upper;
+		}
+
+		public int getId() {
+			return id;
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldExtractor;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldValues;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Immutable index over the conditions of all {@link SharedSourceSubscription subscriptions} to a shared source. The fields
+ * referenced by any subscription are extracted in a single streaming pass, each extracted value is then looked up in
+ * <ul>
+ *   <li>a hash index on the values of all equality conditions on that field and</li>
+ *   <li>an {@link IntervalTree} on the bounds of all numerical range conditions on that field.</li>
+ * </ul>
+ * Each hit increments the counter of the subscription owning the condition and a subscription matches if all of its conditions
+ * were hit. Thus the effort per message depends on the number of referenced fields and matching conditions but not on the
+ * number of subscriptions. Subscriptions without conditions receive all messages, messages not holding a valid JSON object
+ * are passed to those only.<br/><br/>
+ * The index is thread-safe and must be rebuilt whenever subscriptions change. Extracted values and hit counters are kept
+ * per thread and reused for all messages.
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class SharedSourceIndex {
+
+	/** subscriptions referenced by position */
+	private final SharedSourceSubscription[] subscriptions;
+	/** number of conditions each subscription must satisfy */
+	private final int[] requiredHits;
+	/** subscriptions without conditions */
+	private final List<SharedSourceSubscription> unconditional = new ArrayList<>();
+	/** extracts all referenced fields - null if none is referenced */
+	private final JsonFieldExtractor fieldExtractor;
+	/** per field: subscriptions referenced by textual values of their equality conditions */
+	private final List<Map<String, int[]>> textIndex = new ArrayList<>();
+	/** per field: subscriptions referenced by numerical values of their equality conditions */
+	private final List<Map<Double, int[]>> numberIndex = new ArrayList<>();
+	/** per field: bounds of range conditions referencing subscriptions */
+	private final List<IntervalTree> rangeIndex = new ArrayList<>();
+	/** per thread: extracted values and hit counters reused for all messages */
+	private final ThreadLocal<MatchState> matchState = new ThreadLocal<MatchState>() {
+		protected MatchState initialValue() {
+			return new MatchState();
+		}
+	};
+
+	/**
+	 * Builds the index for the provided subscriptions
+	 * @param subscriptions
+	 * @throws RequiredInputMissingException
+	 */
+	public SharedSourceIndex(final List<SharedSourceSubscription> subscriptions) throws RequiredInputMissingException {
+		if(subscriptions == null)
+			throw new RequiredInputMissingException("Missing required subscriptions");
+
+		this.subscriptions = subscriptions.toArray(new SharedSourceSubscription[subscriptions.size()]);
+		this.requiredHits = new int[this.subscriptions.length];
+
+		///////////////////////////////////////////////////////////////
+		// collect the conditions of all subscriptions by field
+		final Map<String, Integer> fields = new LinkedHashMap<>();
+		final List<Map<String, List<Integer>>> texts = new ArrayList<>();
+		final List<Map<Double, List<Integer>>> numbers = new ArrayList<>();
+		final List<List<IntervalTree.Interval>> ranges = new ArrayList<>();
+		for(int s = 0; s < this.subscriptions.length; s++) {
+			final List<SharedSourceSubscription.Condition> conditions = this.subscriptions[s].getConditions();
+			if(conditions.isEmpty()) {
+				this.unconditional.add(this.subscriptions[s]);
+				continue;
+			}
+			this.requiredHits[s] = conditions.size();
+
+			for(final SharedSourceSubscription.Condition condition : conditions) {
+				Integer field = fields.get(condition.getPath());
+				if(field == null) {
+					field = fields.size();
+					fields.put(condition.getPath(), field);
+					texts.add(new HashMap<String, List<Integer>>());
+					numbers.add(new HashMap<Double, List<Integer>>());
+					ranges.add(new ArrayList<IntervalTree.Interval>());
+				}
+
+				if(condition.isEquality()) {
+					// values like 1 and 1.0 share the same numerical key but must be counted once per condition
+					final Set<Double> numericalValues = new HashSet<>();
+					for(final String value : condition.getValues()) {
+						add(texts.get(field), value, s);
+						final Double number = parseNumber(value);
+						if(number != null && numericalValues.add(number))
+							add(numbers.get(field), number, s);
+					}
+				} else {
+					ranges.get(field).add(new IntervalTree.Interval(condition.getLower(), condition.getUpper(), condition.isLowerExclusive(), condition.isUpperExclusive(), s));
+				}
+			}
+		}
+		///////////////////////////////////////////////////////////////
+
+		final List<String[]> paths = new ArrayList<>();
+		for(final String path : fields.keySet())
+			paths.add(StringUtils.split(path, '.'));
+		this.fieldExtractor = (paths.isEmpty() ? null : new JsonFieldExtractor(paths));
+		for(int i = 0; i < paths.size(); i++) {
+			this.textIndex.add(toArrays(texts.get(i)));
+			this.numberIndex.add(toArrays(numbers.get(i)));
+			this.rangeIndex.add(new IntervalTree(ranges.get(i)));
+		}
+	}
+
+	/**
+	 * Returns all subscriptions whose conditions are satisfied by the provided message
+	 * @param message
+	 * @return matching subscriptions - the list must not be modified
+	 */
+	public List<SharedSourceSubscription> match(final StreamingDataMessage message) {
+		if(this.fieldExtractor == null || message == null)
+			return this.unconditional;
+
+		final MatchState state = this.matchState.get();
+		final JsonFieldValues values = state.values;
+		if(!this.fieldExtractor.extract(null, message.getBody(), values))
+			return this.unconditional;
+
+		final HitCounter hits = state.hits;
+		for(int i = 0; i < values.size(); i++) {
+			if(!values.isFound(i))
+				continue;
+
+			if(values.isNumber(i)) {
+				increment(this.numberIndex.get(i).get(toKey(values.getDouble(i))), hits);
+				this.rangeIndex.get(i).stab(values.getDouble(i), hits);
+			} else if(values.getText(i) != null) {
+				increment(this.textIndex.get(i).get(values.getText(i)), hits);
+				if(values.getToken(i) == JsonToken.VALUE_STRING && this.rangeIndex.get(i).size() > 0) {
+					final Double number = parseNumber(values.getText(i));
+					if(number != null)
+						this.rangeIndex.get(i).stab(number, hits);
+				}
+			}
+		}
+
+		// only subscriptions hit at least once are inspected - in order of registration
+		List<SharedSourceSubscription> result = null;
+		hits.sortTouched();
+		for(int t = 0; t < hits.getNumOfTouched(); t++) {
+			final int s = hits.getTouched(t);
+			if(hits.getHits(s) == this.requiredHits[s]) {
+				if(result == null)
+					result = new ArrayList<>(this.unconditional);
+				result.add(this.subscriptions[s]);
+			}
+		}
+		hits.reset();
+		return (result != null ? result : this.unconditional);
+	}
+
+	/**
+	 * Returns the number of indexed subscriptions
+	 * @return
+	 */
+	public int size() {
+		return this.subscriptions.length;
+	}
+
+	/**
+	 * Returns the number of fields extracted from each message
+	 * @return
+	 */
+	public int getNumOfFields() {
+		return (this.fieldExtractor != null ? this.fieldExtractor.getNumOfFields() : 0);
+	}
+
+	/**
+	 * Counts a hit for all referenced subscriptions
+	 * @param subscriptions
+	 * @param hits
+	 */
+	private static void increment(final int[] subscriptions, final HitCounter hits) {
+		if(subscriptions != null) {
+			for(final int s : subscriptions)
+				hits.hit(s);
+		}
+	}
+
+	/**
+	 * Returns the key used for numerical lookups - turns -0.0 into 0.0
+	 * @param value
+	 * @return
+	 */
+	private static Double toKey(final double value) {
+		return Double.valueOf(value + 0.0);
+	}
+
+	/**
+	 * Returns the number held by the provided string or null if it does not hold one
+	 * @param value
+	 * @return
+	 */
+	private static Double parseNumber(final String value) {
+		try {
+			return toKey(Double.parseDouble(value));
+		} catch(NumberFormatException | NullPointerException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the subscription to the list kept for the given key. A subscription is contained once for each of its conditions
+	 * @param index
+	 * @param key
+	 * @param subscription
+	 */
+	private static <K> void add(final Map<K, List<Integer>> index, final K key, final int subscription) {
+		List<Integer> subscriptions = index.get(key);
+		if(subscriptions == null) {
+			subscriptions = new ArrayList<>();
+			index.put(key, subscriptions);
+		}
+		subscriptions.add(subscription);
+	}
+
+	/**
+	 * Converts the lists kept by the provided index into arrays
+	 * @param index
+	 * @return
+	 */
+	private static <K> Map<K, int[]> toArrays(final Map<K, List<Integer>> index) {
+		if(index.isEmpty())
+			return Collections.emptyMap();
+		final Map<K, int[]> result = new HashMap<>();
+		for(final Map.Entry<K, List<Integer>> entry : index.entrySet()) {
+			final int[] subscriptions = new int[entry.getValue().size()];
+			for(int i = 0; i < subscriptions.length; i++)
+				subscriptions[i] = entry.getValue().get(i);
+			result.put(entry.getKey(), subscriptions);
+		}
+		return result;
+	}
+
+	/**
+	 * Extracted values and hit counters used by a single thread
+	 * @author mnxfst
+	 * @since Feb 17, 2016
+	 */
+	private class MatchState {
+		/** values of all referenced fields */
+		private final JsonFieldValues values = fieldExtractor.newValues();
+		/** hits by subscription */
+		private final HitCounter hits = new HitCounter(subscriptions.length);
+	}
+}
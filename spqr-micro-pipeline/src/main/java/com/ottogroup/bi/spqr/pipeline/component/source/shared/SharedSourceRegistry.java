@@ -0,0 +1,156 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentConfiguration;
+import com.ottogroup.bi.spqr.pipeline.component.source.Source;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+
+/**
+ * Node-wide registry of {@link SharedSourceRuntimeEnvironment shared sources}. Source configurations marked as
+ * {@link MicroPipelineComponentConfiguration#isShared() shared} and referencing the same component name, version and settings
+ * are served by a single source instance: its messages are read and parsed once, no matter how many pipelines subscribe
+ * to them. The source is started with the first subscription and shut down as soon as the last one is cancelled.
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class SharedSourceRegistry {
+
+	/** our faithful logging facility ... ;-) */
+	private static final Logger logger = Logger.getLogger(SharedSourceRegistry.class);
+
+	/** identifier of processing node the registry lives on */
+	private final String processingNodeId;
+	/** shared sources referenced by share key */
+	private final Map<String, SharedSourceRuntimeEnvironment> environments = new HashMap<>();
+
+	/**
+	 * Initializes the registry
+	 * @param processingNodeId
+	 */
+	public SharedSourceRegistry(final String processingNodeId) {
+		this.processingNodeId = processingNodeId;
+	}
+
+	/**
+	 * Subscribes the queue to the shared source described by the component configuration. If no such source is running, the
+	 * provided instance is started, otherwise it is shut down and the running instance is used instead
+	 * @param pipelineId identifier of subscribing pipeline
+	 * @param componentCfg source configuration
+	 * @param source initialized source instance
+	 * @param queueProducer producer of queue receiving matching messages
+	 * @param executorService executor service running a newly started source
+	 * @return
+	 * @throws RequiredInputMissingException
+	 * @throws ComponentInitializationFailedException
+	 */
+	public synchronized SharedSourceSubscription subscribe(final String pipelineId, final MicroPipelineComponentConfiguration componentCfg, final Source source,
+			final StreamingMessageQueueProducer queueProducer, final ExecutorService executorService) throws RequiredInputMissingException, ComponentInitializationFailedException {
+
+		///////////////////////////////////////////////////////////////
+		// validate input
+		if(componentCfg == null)
+			throw new RequiredInputMissingException("Missing required component configuration");
+		if(source == null)
+			throw new RequiredInputMissingException("Missing required source");
+		//
+		///////////////////////////////////////////////////////////////
+
+		final SharedSourceSubscription subscription = new SharedSourceSubscription(pipelineId, componentCfg.getId(), componentCfg.getSubscription(), queueProducer);
+		final String shareKey = getShareKey(componentCfg);
+
+		SharedSourceRuntimeEnvironment environment = this.environments.get(shareKey);
+		if(environment == null) {
+			environment = new SharedSourceRuntimeEnvironment(this.processingNodeId, shareKey, source, executorService);
+			this.environments.put(shareKey, environment);
+		} else {
+			try {
+				source.shutdown();
+			} catch(Exception e) {
+				logger.error("source shutdown error [node="+this.processingNodeId+", pipeline="+pipelineId+", source="+source.getId()+"]: " + e.getMessage(), e);
+			}
+		}
+
+		subscription.attach(this, environment);
+		try {
+			environment.subscribe(subscription);
+		} catch(RequiredInputMissingException e) {
+			if(environment.getNumOfSubscriptions() == 0) {
+				this.environments.remove(shareKey);
+				environment.shutdown();
+			}
+			throw e;
+		}
+		return subscription;
+	}
+
+	/**
+	 * Removes the subscription and shuts down the shared source if no subscription is left
+	 * @param subscription
+	 */
+	protected synchronized void unsubscribe(final SharedSourceSubscription subscription) {
+		final SharedSourceRuntimeEnvironment environment = subscription.getEnvironment();
+		if(environment == null || this.environments.get(environment.getShareKey()) != environment)
+			return;
+		if(environment.unsubscribe(subscription)) {
+			this.environments.remove(environment.getShareKey());
+			environment.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the number of running shared sources
+	 * @return
+	 */
+	public synchronized int getNumOfSharedSources() {
+		return this.environments.size();
+	}
+
+	/**
+	 * Shuts down all shared sources
+	 */
+	public synchronized void shutdown() {
+		for(final SharedSourceRuntimeEnvironment environment : this.environments.values())
+			environment.shutdown();
+		this.environments.clear();
+	}
+
+	/**
+	 * Returns the key identifying all source configurations which may share the same instance: component name, version and settings
+	 * must be equal
+	 * @param componentCfg
+	 * @return
+	 */
+	public static String getShareKey(final MicroPipelineComponentConfiguration componentCfg) {
+		// settings are sorted to get the same key for the same content
+		final Map<String, String> settings = new TreeMap<>();
+		if(componentCfg.getSettings() != null) {
+			for(final String name : componentCfg.getSettings().stringPropertyNames())
+				settings.put(name, componentCfg.getSettings().getProperty(name));
+		}
+		return StringUtils.lowerCase(StringUtils.trim(componentCfg.getName())) + ":" + StringUtils.trim(componentCfg.getVersion()) + ":" + settings;
+	}
+}
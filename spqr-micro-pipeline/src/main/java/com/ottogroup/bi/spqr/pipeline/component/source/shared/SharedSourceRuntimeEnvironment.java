@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.source.IncomingMessageCallback;
+import com.ottogroup.bi.spqr.pipeline.component.source.Source;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Runtime environment for a {@link Source} instance shared by multiple pipelines living on the same processing node. Each
+ * incoming message is evaluated against the {@link SharedSourceIndex} built from all {@link SharedSourceSubscription subscriptions}
+ * and inserted into the queue of each matching subscriber. Subscribers receive the same message instance, thus operators must not
+ * modify incoming messages.<br/><br/>
+ * As insertion blocks on queues applying overflow policy 'block', the shared source proceeds at the pace of its slowest subscriber.
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class SharedSourceRuntimeEnvironment implements IncomingMessageCallback {
+
+	/** our faithful logging facility ... ;-) */
+	private static final Logger logger = Logger.getLogger(SharedSourceRuntimeEnvironment.class);
+
+	/** identifier of processing node the runtime environment belongs to*/
+	private final String processingNodeId;
+	/** key identifying all source configurations sharing this environment */
+	private final String shareKey;
+	/** source instance executed by this runtime environment */
+	private final Source source;
+	/** executor service running the source instance */
+	private final ExecutorService executorService;
+	/** all subscriptions - replaced on each change */
+	private List<SharedSourceSubscription> subscriptions = Collections.emptyList();
+	/** index over all subscriptions - replaced on each change */
+	private volatile SharedSourceIndex index;
+	/** source submitted to executor service? */
+	private boolean running = false;
+
+	/**
+	 * Initializes the runtime environment using the provided input. The source is not started before the first subscription arrives
+	 * @param processingNodeId
+	 * @param shareKey
+	 * @param source
+	 * @param executorService
+	 * @throws RequiredInputMissingException
+	 */
+	public SharedSourceRuntimeEnvironment(final String processingNodeId, final String shareKey, final Source source, final ExecutorService executorService) throws RequiredInputMissingException {
+
+		///////////////////////////////////////////////////////////////
+		// validate input
+		if(StringUtils.isBlank(processingNodeId))
+			throw new RequiredInputMissingException("Missing required processing node identifier");
+		if(StringUtils.isBlank(shareKey))
+			throw new RequiredInputMissingException("Missing required share key");
+		if(source == null)
+			throw new RequiredInputMissingException("Missing required source");
+		if(executorService == null)
+			throw new RequiredInputMissingException("Missing required executor service");
+		//
+		///////////////////////////////////////////////////////////////
+
+		this.processingNodeId = StringUtils.lowerCase(StringUtils.trim(processingNodeId));
+		this.shareKey = shareKey;
+		this.source = source;
+		this.source.setIncomingMessageCallback(this);
+		this.executorService = executorService;
+		this.index = new SharedSourceIndex(this.subscriptions);
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.source.IncomingMessageCallback#onMessage(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
+	 */
+	public boolean onMessage(StreamingDataMessage message) {
+		boolean accepted = true;
+		for(final SharedSourceSubscription subscription : this.index.match(message)) {
+			if(!subscription.insert(message))
+				accepted = false;
+		}
+		return accepted;
+	}
+
+	/**
+	 * Adds the subscription and starts the source if not already running
+	 * @param subscription
+	 * @throws RequiredInputMissingException
+	 */
+	protected synchronized void subscribe(final SharedSourceSubscription subscription) throws RequiredInputMissingException {
+		final List<SharedSourceSubscription> subscriptions = new ArrayList<>(this.subscriptions);
+		subscriptions.add(subscription);
+		this.index = new SharedSourceIndex(subscriptions);
+		this.subscriptions = subscriptions;
+
+		if(!this.running) {
+			this.executorService.submit(this.source);
+			this.running = true;
+		}
+
+		logger.info("shared source subscription added [node="+this.processingNodeId+", source="+this.source.getId()+", pipeline="+subscription.getPipelineId()+
+				", subscriptions="+subscriptions.size()+", fields="+this.index.getNumOfFields()+"]");
+	}
+
+	/**
+	 * Removes the subscription
+	 * @param subscription
+	 * @return true if no subscription is left
+	 */
+	protected synchronized boolean unsubscribe(final SharedSourceSubscription subscription) {
+		final List<SharedSourceSubscription> subscriptions = new ArrayList<>(this.subscriptions);
+		if(subscriptions.remove(subscription)) {
+			try {
+				this.index = new SharedSourceIndex(subscriptions);
+			} catch(RequiredInputMissingException e) {
+				// not thrown for conditions of already indexed subscriptions
+			}
+			this.subscriptions = subscriptions;
+
+			logger.info("shared source subscription removed [node="+this.processingNodeId+", source="+this.source.getId()+", pipeline="+subscription.getPipelineId()+
+					", subscriptions="+subscriptions.size()+"]");
+		}
+		return subscriptions.isEmpty();
+	}
+
+	/**
+	 * Shuts down the attached {@link Source}
+	 */
+	public void shutdown() {
+		try {
+			this.source.shutdown();
+		} catch(Exception e) {
+			logger.error("shared source shutdown error [node="+this.processingNodeId+", source="+this.source.getId()+"]: " + e.getMessage(), e);
+		}
+
+		if(logger.isDebugEnabled())
+			logger.debug("shared source shutdown [node="+this.processingNodeId+", source="+this.source.getId()+"]");
+	}
+
+	public String getShareKey() {
+		return shareKey;
+	}
+
+	public synchronized int getNumOfSubscriptions() {
+		return this.subscriptions.size();
+	}
+}
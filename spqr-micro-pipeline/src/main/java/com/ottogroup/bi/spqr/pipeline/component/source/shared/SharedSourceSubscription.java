@@ -0,0 +1,282 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+
+/**
+ * Subscription of a single pipeline to a shared source. It references the queue receiving all messages satisfying the
+ * subscription conditions. Conditions are configured using the same scheme as the json content filter, all of them
+ * must be satisfied:
+ * <ul>
+ *   <li><i>field.[id].path</i> - path to field, eg. data.wt.cs-host (id starts with 1)</li>
+ *   <li><i>field.[id].operator</i> - one of ==, in, range, &lt;, &lt;=, &gt; or &gt;=</li>
+ *   <li><i>field.[id].expression</i> - value, comma separated values (in) or comma separated bounds (range)</li>
+ * </ul>
+ * Only operators which may be evaluated through the {@link SharedSourceIndex} are supported. Equality compares the textual
+ * representation, numbers are compared numerically. A subscription without any condition receives all messages.
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class SharedSourceSubscription {
+
+	/** prefix to all field settings */
+	public static final String CFG_FIELD_PREFIX = "field.";
+
+	public static final String OPERATOR_EQUAL = "==";
+	public static final String OPERATOR_IN = "in";
+	public static final String OPERATOR_RANGE = "range";
+	public static final String OPERATOR_LESS = "<";
+	public static final String OPERATOR_LESS_OR_EQUAL = "<=";
+	public static final String OPERATOR_GREATER = ">";
+	public static final String OPERATOR_GREATER_OR_EQUAL = ">=";
+
+	/** identifier of subscribing pipeline */
+	private final String pipelineId;
+	/** identifier of source component inside the subscribing pipeline */
+	private final String componentId;
+	/** conditions to be satisfied by all messages passed to the subscriber */
+	private final List<Condition> conditions;
+	/** producer of the queue receiving matching messages */
+	private final StreamingMessageQueueProducer queueProducer;
+	/** optional counter of received messages */
+	private Counter messageCounter = null;
+	/** registry keeping the shared source - assigned on subscription */
+	private SharedSourceRegistry registry = null;
+	/** environment running the shared source - assigned on subscription */
+	private SharedSourceRuntimeEnvironment environment = null;
+
+	/**
+	 * Initializes the subscription using the provided input
+	 * @param pipelineId
+	 * @param componentId
+	 * @param settings subscription conditions - may be null
+	 * @param queueProducer
+	 * @throws RequiredInputMissingException
+	 * @throws ComponentInitializationFailedException
+	 */
+	public SharedSourceSubscription(final String pipelineId, final String componentId, final Properties settings, final StreamingMessageQueueProducer queueProducer)
+			throws RequiredInputMissingException, ComponentInitializationFailedException {
+
+		///////////////////////////////////////////////////////////////
+		// validate input
+		if(StringUtils.isBlank(pipelineId))
+			throw new RequiredInputMissingException("Missing required pipeline identifier");
+		if(queueProducer == null)
+			throw new RequiredInputMissingException("Missing required queue producer");
+		//
+		///////////////////////////////////////////////////////////////
+
+		this.pipelineId = StringUtils.lowerCase(StringUtils.trim(pipelineId));
+		this.componentId = StringUtils.lowerCase(StringUtils.trim(componentId));
+		this.queueProducer = queueProducer;
+		this.conditions = Collections.unmodifiableList(parseConditions(settings));
+	}
+
+	/**
+	 * Parses the conditions contained in the provided settings
+	 * @param settings
+	 * @return
+	 * @throws ComponentInitializationFailedException
+	 */
+	protected static List<Condition> parseConditions(final Properties settings) throws ComponentInitializationFailedException {
+		final List<Condition> conditions = new ArrayList<>();
+		if(settings == null)
+			return conditions;
+
+		for(int i = 1; i < Integer.MAX_VALUE; i++) {
+			final String path = settings.getProperty(CFG_FIELD_PREFIX + i + ".path");
+			if(StringUtils.isBlank(path))
+				break;
+			final String operator = StringUtils.lowerCase(StringUtils.trim(settings.getProperty(CFG_FIELD_PREFIX + i + ".operator")));
+			final String expression = StringUtils.trim(settings.getProperty(CFG_FIELD_PREFIX + i + ".expression"));
+			if(expression == null)
+				throw new ComponentInitializationFailedException("Missing required expression for subscription field '"+path+"'");
+
+			if(StringUtils.isBlank(operator) || StringUtils.equals(operator, OPERATOR_EQUAL)) {
+				conditions.add(new Condition(path, Collections.singleton(expression)));
+			} else if(StringUtils.equals(operator, OPERATOR_IN)) {
+				final Set<String> values = new HashSet<>();
+				for(final String value : StringUtils.split(expression, ','))
+					values.add(StringUtils.trim(value));
+				conditions.add(new Condition(path, values));
+			} else if(StringUtils.equals(operator, OPERATOR_RANGE)) {
+				final String[] bounds = StringUtils.split(expression, ',');
+				if(bounds.length != 2)
+					throw new ComponentInitializationFailedException("Range '"+expression+"' must provide lower and upper bound separated by comma");
+				conditions.add(new Condition(path, toNumber(bounds[0]), toNumber(bounds[1]), false, false));
+			} else if(StringUtils.equals(operator, OPERATOR_LESS)) {
+				conditions.add(new Condition(path, Double.NEGATIVE_INFINITY, toNumber(expression), false, true));
+			} else if(StringUtils.equals(operator, OPERATOR_LESS_OR_EQUAL)) {
+				conditions.add(new Condition(path, Double.NEGATIVE_INFINITY, toNumber(expression), false, false));
+			} else if(StringUtils.equals(operator, OPERATOR_GREATER)) {
+				conditions.add(new Condition(path, toNumber(expression), Double.POSITIVE_INFINITY, true, false));
+			} else if(StringUtils.equals(operator, OPERATOR_GREATER_OR_EQUAL)) {
+				conditions.add(new Condition(path, toNumber(expression), Double.POSITIVE_INFINITY, false, false));
+			} else {
+				throw new ComponentInitializationFailedException("Unsupported subscription operator '"+operator+"' for field '"+path+"'");
+			}
+		}
+		return conditions;
+	}
+
+	/**
+	 * Converts the provided expression into a number
+	 * @param expression
+	 * @return
+	 * @throws ComponentInitializationFailedException
+	 */
+	private static double toNumber(final String expression) throws ComponentInitializationFailedException {
+		try {
+			return Double.parseDouble(StringUtils.trim(expression));
+		} catch(NumberFormatException | NullPointerException e) {
+			throw new ComponentInitializationFailedException("Failed to parse '"+expression+"' into a number");
+		}
+	}
+
+	/**
+	 * Inserts the message into the subscriber's queue
+	 * @param message
+	 * @return
+	 */
+	protected boolean insert(final StreamingDataMessage message) {
+		final boolean inserted = this.queueProducer.insert(message);
+		if(!inserted)
+			return false;
+		if(this.queueProducer.getWaitStrategy() != null)
+			this.queueProducer.getWaitStrategy().forceLockRelease();
+		if(this.messageCounter != null)
+			this.messageCounter.inc();
+		return true;
+	}
+
+	/**
+	 * Cancels the subscription. The shared source is shut down as soon as its last subscription gets cancelled
+	 */
+	public void cancel() {
+		final SharedSourceRegistry registry = this.registry;
+		if(registry != null)
+			registry.unsubscribe(this);
+	}
+
+	/**
+	 * Assigns the registry and environment the subscription is attached to
+	 * @param registry
+	 * @param environment
+	 */
+	protected void attach(final SharedSourceRegistry registry, final SharedSourceRuntimeEnvironment environment) {
+		this.registry = registry;
+		this.environment = environment;
+	}
+
+	public String getPipelineId() {
+		return pipelineId;
+	}
+
+	public String getComponentId() {
+		return componentId;
+	}
+
+	public List<Condition> getConditions() {
+		return conditions;
+	}
+
+	public SharedSourceRuntimeEnvironment getEnvironment() {
+		return environment;
+	}
+
+	/**
+	 * Sets the message {@link Counter}
+	 * @param counter
+	 */
+	public void setMessageCounter(final Counter counter) {
+		this.messageCounter = counter;
+	}
+
+	/**
+	 * Condition on a single field: either a set of values the field must equal or a numerical interval it must lie in
+	 * @author mnxfst
+	 * @since Feb 17, 2016
+	 */
+	public static class Condition {
+		private final String path;
+		/** accepted values - null for interval conditions */
+		private final Set<String> values;
+		private final double lower;
+		private final double upper;
+		private final boolean lowerExclusive;
+		private final boolean upperExclusive;
+
+		public Condition(final String path, final Set<String> values) {
+			this.path = StringUtils.trim(path);
+			this.values = values;
+			this.lower = Double.NaN;
+			this.upper = Double.NaN;
+			this.lowerExclusive = false;
+			this.upperExclusive = false;
+		}
+
+		public Condition(final String path, final double lower, final double upper, final boolean lowerExclusive, final boolean upperExclusive) {
+			this.path = StringUtils.trim(path);
+			this.values = null;
+			this.lower = lower;
+			this.upper = upper;
+			this.lowerExclusive = lowerExclusive;
+			this.upperExclusive = upperExclusive;
+		}
+
+		public boolean isEquality() {
+			return this.values != null;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public Set<String> getValues() {
+			return values;
+		}
+
+		public double getLower() {
+			return lower;
+		}
+
+		public double getUpper() {
+			return upper;
+		}
+
+		public boolean isLowerExclusive() {
+			return lowerExclusive;
+		}
+
+		public boolean isUpperExclusive() {
+			return upperExclusive;
+		}
+	}
+}
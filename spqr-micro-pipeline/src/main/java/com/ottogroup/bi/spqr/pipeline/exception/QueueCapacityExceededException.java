@@ -0,0 +1,46 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.exception;
+
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueOverflowPolicy;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+
+/**
+ * Thrown by a {@link StreamingMessageQueueProducer} in case the attached {@link StreamingMessageQueue} has
+ * reached its capacity and the configured overflow policy is {@link StreamingMessageQueueOverflowPolicy#FAIL}
+ * @author mnxfst
+ * @since Feb 3, 2016
+ */
+public class QueueCapacityExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = -3870529436217862713L;
+
+	public QueueCapacityExceededException() {		
+	}
+
+	public QueueCapacityExceededException(String message) {
+		super(message);
+	}
+
+	public QueueCapacityExceededException(Throwable cause) {
+		super(cause);
+	}
+
+	public QueueCapacityExceededException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -36,6 +36,10 @@ public interface StreamingMessageQueue  {
 	/////////////////////////////////////////////////////////////////////////
 	// available settings for queue instances
 	public static final String CFG_QUEUE_TYPE = "type";
+	public static final String CFG_QUEUE_CAPACITY = "queue.capacity";
+	public static final String CFG_QUEUE_OVERFLOW_POLICY = "queue.overflowPolicy";
+	public static final String CFG_QUEUE_BROADCAST = "queue.broadcast";
+	public static final String CFG_QUEUE_MESSAGE_POOLING = "queue.messagePooling";
 	/////////////////////////////////////////////////////////////////////////
 	
 	/**
@@ -88,6 +92,16 @@ public interface StreamingMessageQueue  {
 	 */
 	public StreamingMessageQueueConsumer getConsumer();
 	
+	/**
+	 * Returns the {@link StreamingMessageQueueConsumer} assigned to the referenced component. If the queue runs in
+	 * broadcast mode (see {@link #CFG_QUEUE_BROADCAST}) each component receives its own consumer having a 
+	 * separate cursor which sees all messages. Otherwise all components share the consumer returned
+	 * by {@link #getConsumer()} and thus split the messages between them 
+	 * @param consumerId identifier of component reading from the queue
+	 * @return
+	 */
+	public StreamingMessageQueueConsumer getConsumer(final String consumerId);
+	
 	/**
 	 * Attaches an optional {@link Counter} instance for counting inserted messages
 	 * @param counter
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import uk.co.real_logic.queues.PaddedAtomicLong;
+
+import com.ottogroup.bi.spqr.pipeline.exception.QueueCapacityExceededException;
+
+/**
+ * Keeps track of the number of messages waiting inside a {@link StreamingMessageQueue} and applies the
+ * configured {@link StreamingMessageQueueOverflowPolicy} as soon as the capacity is reached. The guard is
+ * shared between the {@link StreamingMessageQueueProducer} and {@link StreamingMessageQueueConsumer} of a queue:
+ * the producer calls {@link #acquire()} before writing a message, the consumer calls {@link #release()} for
+ * each message it reads.<br/><br/>
+ * Policy {@link StreamingMessageQueueOverflowPolicy#DROP_OLDEST} is implemented on the consumer side as the producer
+ * must not remove elements from the queue: the producer accounts for a pending drop and the consumer discards the
+ * next message it reads. As long as the consumer does not catch up, the number of physically stored messages may
+ * grow up to twice the capacity before the producer blocks.
+ * @author mnxfst
+ * @since Feb 3, 2016
+ */
+public class StreamingMessageQueueCapacityGuard {
+
+	/** our faithful logging facility ..... ;-) */
+	private static final Logger logger = Logger.getLogger(StreamingMessageQueueCapacityGuard.class);
+	
+	/** number of times a blocked producer yields before it gets parked */
+	private static final int MAX_YIELDS = 100;
+	/** max. time a blocked producer gets parked before it checks the capacity again */
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/** identifier of queue the guard is attached to */
+	private final String queueId;
+	/** max. number of messages waiting inside the queue */
+	private final long capacity;
+	/** policy applied when reaching the capacity */
+	private final StreamingMessageQueueOverflowPolicy overflowPolicy;
+	/** number of messages physically stored inside the queue */
+	private final AtomicLong size = new PaddedAtomicLong(0);
+	/** number of messages to be discarded by the consumer - used by policy {@link StreamingMessageQueueOverflowPolicy#DROP_OLDEST} only */
+	private final AtomicLong pendingDrops = new AtomicLong(0);
+	/** number of messages dropped since initialization */
+	private final AtomicLong droppedMessages = new AtomicLong(0);
+	/** set on queue shutdown to release blocked producers */
+	private volatile boolean closed = false;
+	
+	/**
+	 * Initializes the guard using the provided input
+	 * @param queueId
+	 * @param capacity
+	 * @param overflowPolicy
+	 */
+	public StreamingMessageQueueCapacityGuard(final String queueId, final long capacity, final StreamingMessageQueueOverflowPolicy overflowPolicy) {
+		this.queueId = queueId;
+		this.capacity = capacity;
+		this.overflowPolicy = (overflowPolicy != null ? overflowPolicy : StreamingMessageQueueOverflowPolicy.BLOCK);
+	}
+	
+	/**
+	 * Reads {@link StreamingMessageQueue#CFG_QUEUE_CAPACITY} and {@link StreamingMessageQueue#CFG_QUEUE_OVERFLOW_POLICY}
+	 * from the provided properties and returns a matching guard. If no valid capacity is found <i>null</i> is returned
+	 * which denotes an unbounded queue
+	 * @param queueId
+	 * @param properties
+	 * @return
+	 */
+	public static StreamingMessageQueueCapacityGuard fromProperties(final String queueId, final Properties properties) {
+		if(properties == null)
+			return null;
+
+		String capacityStr = StringUtils.trim(properties.getProperty(StreamingMessageQueue.CFG_QUEUE_CAPACITY));
+		if(StringUtils.isBlank(capacityStr))
+			return null;
+		
+		long capacity = 0;
+		try {
+			capacity = Long.parseLong(capacityStr);
+		} catch(Exception e) {
+			logger.info("Invalid queue capacity found: " + capacityStr + ". Queue '"+queueId+"' remains unbounded");
+			return null;
+		}		
+		if(capacity < 1)
+			return null;
+		
+		return new StreamingMessageQueueCapacityGuard(queueId, capacity, 
+				StreamingMessageQueueOverflowPolicy.fromName(properties.getProperty(StreamingMessageQueue.CFG_QUEUE_OVERFLOW_POLICY)));
+	}
+	
+	/**
+	 * Must be invoked by the producer before writing a message to the queue. Returns <i>true</i> if the
+	 * message may be written and <i>false</i> if it must be dropped. Depending on the configured policy 
+	 * the method blocks until capacity becomes available or throws a {@link QueueCapacityExceededException} 
+	 * @return
+	 */
+	public boolean acquire() {
+
+		int yields = 0;
+		long parkNanos = 1;
+		
+		while(!this.closed) {
+			
+			final long currentSize = this.size.get();
+			if(currentSize - this.pendingDrops.get() < this.capacity) {
+				if(this.size.compareAndSet(currentSize, currentSize + 1))
+					return true;
+				continue;
+			}
+			
+			switch(this.overflowPolicy) {
+				case DROP_NEWEST: {
+					this.droppedMessages.incrementAndGet();
+					return false;
+				}
+				case FAIL: {
+					throw new QueueCapacityExceededException("Queue '"+this.queueId+"' reached its capacity of " + this.capacity + " messages");
+				}
+				case DROP_OLDEST: {
+					final long currentDrops = this.pendingDrops.get();
+					if(currentDrops < this.capacity) {
+						if(this.pendingDrops.compareAndSet(currentDrops, currentDrops + 1)) {
+							this.size.incrementAndGet();
+							this.droppedMessages.incrementAndGet();
+							return true;
+						}
+						continue;
+					}
+					// consumer has not caught up yet: block until it discards pending messages
+					break;
+				}
+				default:
+					break;
+			}
+			
+			// block: yield first, park with increasing interval afterwards
+			if(yields < MAX_YIELDS) {
+				yields++;
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(parkNanos);
+				if(parkNanos < MAX_PARK_NANOS)
+					parkNanos = parkNanos << 1;
+				if(Thread.currentThread().isInterrupted())
+					return false;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Must be invoked by the consumer for each message read from the queue. Returns <i>false</i> if the 
+	 * message must be discarded as it has been replaced by a newer one 
+	 * @return
+	 */
+	public boolean release() {
+		this.size.decrementAndGet();
+		long currentDrops;
+		while((currentDrops = this.pendingDrops.get()) > 0) {
+			if(this.pendingDrops.compareAndSet(currentDrops, currentDrops - 1))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Releases all producers currently blocked by the guard. Subsequent calls to {@link #acquire()} return <i>false</i>
+	 */
+	public void close() {
+		this.closed = true;
+	}
+
+	/**
+	 * Returns the number of messages waiting inside the queue
+	 * @return
+	 */
+	public long getSize() {
+		return this.size.get() - this.pendingDrops.get();
+	}
+	
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public StreamingMessageQueueOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public long getDroppedMessages() {
+		return droppedMessages.get();
+	}
+	
+}
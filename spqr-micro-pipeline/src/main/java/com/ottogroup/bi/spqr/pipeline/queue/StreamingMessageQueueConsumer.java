@@ -37,6 +37,15 @@ public interface StreamingMessageQueueConsumer {
 	 * @return
 	 */
 	public StreamingDataMessage next();
+	
+	/**
+	 * Moves up to <i>max</i> available {@link StreamingDataMessage} instances from the underlying queue into 
+	 * the provided buffer, starting at index 0. The method does not wait for messages to arrive
+	 * @param buffer
+	 * @param max
+	 * @return number of messages written to buffer
+	 */
+	public int drainTo(final StreamingDataMessage[] buffer, final int max);
 
 	/**
 	 * Returns the optional {@link StreamingMessageQueueWaitStrategy} assigned to the queue
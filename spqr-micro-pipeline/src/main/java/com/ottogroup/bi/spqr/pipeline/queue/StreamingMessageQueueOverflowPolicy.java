@@ -0,0 +1,62 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.ottogroup.bi.spqr.pipeline.exception.QueueCapacityExceededException;
+
+/**
+ * Policies applied by a {@link StreamingMessageQueueProducer} when writing to a {@link StreamingMessageQueue}
+ * which has reached its configured capacity
+ * @author mnxfst
+ * @since Feb 3, 2016
+ */
+public enum StreamingMessageQueueOverflowPolicy {
+
+	/** producer waits until the consumer frees capacity - slows down upstream components and sources */
+	BLOCK("block"),
+	/** incoming message is rejected and {@link StreamingMessageQueueProducer#insert(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)} returns <i>false</i> */
+	DROP_NEWEST("dropNewest"),
+	/** incoming message is accepted while the oldest message waiting inside the queue gets discarded */
+	DROP_OLDEST("dropOldest"),
+	/** producer receives a {@link QueueCapacityExceededException} */
+	FAIL("fail");
+
+	private final String name;
+
+	private StreamingMessageQueueOverflowPolicy(final String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the policy referenced by the given name. If the name is blank or unknown {@link #BLOCK} is returned
+	 * @param name
+	 * @return
+	 */
+	public static StreamingMessageQueueOverflowPolicy fromName(final String name) {
+		String policyName = StringUtils.trim(name);
+		for(StreamingMessageQueueOverflowPolicy policy : values()) {
+			if(StringUtils.equalsIgnoreCase(policy.name, policyName) || StringUtils.equalsIgnoreCase(policy.name(), policyName))
+				return policy;
+		}
+		return BLOCK;
+	}
+}
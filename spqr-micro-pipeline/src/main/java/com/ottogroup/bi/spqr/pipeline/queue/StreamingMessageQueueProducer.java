@@ -39,6 +39,15 @@ public interface StreamingMessageQueueProducer {
 	 */
 	public boolean insert(final StreamingDataMessage message);
 	
+	/**
+	 * Inserts all {@link StreamingDataMessage} instances contained in the provided array into the underlying queue. 
+	 * Compared to {@link #insert(StreamingDataMessage)} implementations amortize locking and bookkeeping over 
+	 * the whole batch. <i>null</i> entries are ignored
+	 * @param messages
+	 * @return number of messages inserted
+	 */
+	public int insertBatch(final StreamingDataMessage[] messages);
+	
 	/**
 	 * Returns the optional {@link StreamingMessageQueueWaitStrategy} assigned to the underlying queue
 	 * @return 
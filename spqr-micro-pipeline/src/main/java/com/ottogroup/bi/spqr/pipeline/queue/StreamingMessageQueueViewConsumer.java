@@ -0,0 +1,38 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
+
+/**
+ * Extends {@link StreamingMessageQueueConsumer} by a read mode which does not copy the message body into a newly
+ * allocated {@link StreamingDataMessage} but provides a {@link StreamingDataMessageView} on the queue storage. The
+ * returned view is reused and remains valid only until the next call to {@link #nextView()}, {@link #next()} or 
+ * {@link #drainTo(StreamingDataMessage[], int)}. 
+ * @author mnxfst
+ * @since Feb 4, 2016
+ */
+public interface StreamingMessageQueueViewConsumer extends StreamingMessageQueueConsumer {
+
+	/**
+	 * Moves on to the next message and returns a view on it. If no message is available 
+	 * the method returns <i>null</i>
+	 * @return
+	 */
+	public StreamingDataMessageView nextView();
+	
+}
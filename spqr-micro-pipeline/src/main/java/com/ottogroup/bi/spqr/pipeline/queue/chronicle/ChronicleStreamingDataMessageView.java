@@ -0,0 +1,133 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue.chronicle;
+
+import java.nio.ByteBuffer;
+
+import net.openhft.chronicle.ExcerptTailer;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageHeaders;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
+
+/**
+ * {@link StreamingDataMessageView} implementation which reads the message body directly from the excerpt currently 
+ * referenced by an {@link ExcerptTailer}. The instance is reused by {@link DefaultStreamingMessageQueueConsumer} for
+ * each message and becomes invalid as soon as the tailer moves on.
+ * @author mnxfst
+ * @since Feb 4, 2016
+ */
+public class ChronicleStreamingDataMessageView implements StreamingDataMessageView {
+
+	/** tailer pointing to the excerpt holding the message */
+	private final ExcerptTailer queueReader;
+	/** time the message entered the system */
+	private long timestamp = 0;
+	/** number of bytes contained in message body */
+	private int bodyLength = 0;
+	/** offset of message body inside the excerpt */
+	private long bodyOffset = 0;
+	/** buffer reused for slicing the excerpt */
+	private ByteBuffer slice = null;
+	/** read-only body buffer handed out for the current excerpt */
+	private ByteBuffer body = null;
+	/** headers of the current excerpt - decoded on first request */
+	private StreamingDataMessageHeaders headers = null;
+	/** indicates whether the headers of the current excerpt have been decoded */
+	private boolean headersDecoded = false;
+	
+	/**
+	 * Initializes the view using the provided input
+	 * @param queueReader
+	 */
+	public ChronicleStreamingDataMessageView(final ExcerptTailer queueReader) {
+		this.queueReader = queueReader;
+	}
+	
+	/**
+	 * Points the view to the excerpt currently referenced by the tailer. The tailer must have been
+	 * moved to the next excerpt before and its position must point to the message header
+	 */
+	protected void reset() {
+		this.timestamp = this.queueReader.readLong();
+		this.bodyLength = this.queueReader.readInt();
+		this.bodyOffset = this.queueReader.position();
+		this.body = null;
+		this.headers = null;
+		this.headersDecoded = false;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView#getHeaders()
+	 */
+	public StreamingDataMessageHeaders getHeaders() {
+		if(!this.headersDecoded) {
+			this.queueReader.position(this.bodyOffset + this.bodyLength);
+			this.headers = DefaultStreamingMessageQueueConsumer.readHeaders(this.queueReader);
+			this.headersDecoded = true;
+		}
+		return this.headers;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView#getTimestamp()
+	 */
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView#getBodyLength()
+	 */
+	public int getBodyLength() {
+		return this.bodyLength;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView#getByte(int)
+	 */
+	public byte getByte(int index) {
+		if(index < 0 || index >= this.bodyLength)
+			throw new IndexOutOfBoundsException("Index " + index + " out of body bounds [0, " + this.bodyLength + ")");
+		return this.queueReader.readByte(this.bodyOffset + index);
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView#getBody()
+	 */
+	public ByteBuffer getBody() {
+		if(this.body == null) {
+			this.queueReader.position(this.bodyOffset);
+			this.slice = this.queueReader.sliceAsByteBuffer(this.slice);
+			this.slice.limit(this.bodyLength);
+			this.body = this.slice.asReadOnlyBuffer();
+		}
+		this.body.rewind();
+		return this.body;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView#toMessage()
+	 */
+	public StreamingDataMessage toMessage() {
+		byte[] content = new byte[this.bodyLength];
+		this.queueReader.position(this.bodyOffset);
+		this.queueReader.read(content);
+		final StreamingDataMessageHeaders messageHeaders = getHeaders();
+		return new StreamingDataMessage(content, this.timestamp, (messageHeaders != null ? new StreamingDataMessageHeaders(messageHeaders) : null));
+	}
+
+}
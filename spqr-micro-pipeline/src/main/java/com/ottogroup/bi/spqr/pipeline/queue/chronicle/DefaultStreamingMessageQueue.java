@@ -18,6 +18,8 @@ package com.ottogroup.bi.spqr.pipeline.queue.chronicle;
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
@@ -26,13 +28,13 @@ import org.apache.log4j.Logger;
 import com.codahale.metrics.Counter;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessagePool;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
-import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueBlockingWaitStrategy;
-import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueDirectPassStrategy;
-import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueSleepingWaitStrategy;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategyFactory;
 
 import net.openhft.chronicle.Chronicle;
 import net.openhft.chronicle.ChronicleQueueBuilder;
@@ -40,7 +42,14 @@ import net.openhft.chronicle.VanillaChronicle;
 import net.openhft.chronicle.tools.ChronicleTools;
 
 /**
- * Implements a {@link StreamingMessageQueue} based on {@link Chronicle}
+ * Implements a {@link StreamingMessageQueue} based on {@link Chronicle}. The queue is unbounded unless 
+ * {@link StreamingMessageQueue#CFG_QUEUE_CAPACITY} is provided. Any number of components may write to the queue
+ * concurrently (see {@link DefaultStreamingMessageQueueProducer}). By default all reading components share a single consumer.
+ * If {@link StreamingMessageQueue#CFG_QUEUE_BROADCAST} is enabled each component is assigned its own tailer instead 
+ * which sees all messages written to the chronicle. As consumers proceed at different speeds, broadcast queues 
+ * are always unbounded.<br/><br/>
+ * If {@link StreamingMessageQueue#CFG_QUEUE_MESSAGE_POOLING} is enabled, consumers read into messages taken from a
+ * {@link StreamingDataMessagePool} assigned to the queue. The consuming runtime environment releases them once processed.
  * @author mnxfst
  * @since Mar 5, 2015
  */
@@ -54,7 +63,7 @@ public class DefaultStreamingMessageQueue implements StreamingMessageQueue {
 	public static final String CFG_CHRONICLE_QUEUE_DELETE_ON_EXIT = "queue.chronicle.deleteOnExist";
 	public static final String CFG_CHRONICLE_QUEUE_ROLLING_INTERVAL = "queue.chronicle.rollingInterval";
 	public static final String CFG_CHRONICLE_QUEUE_CYCLE_FORMAT = "queue.chronicle.cycleFormat";
-	public static final String CFG_QUEUE_MESSAGE_WAIT_STRATEGY = "queue.message.waitStrategy";
+	public static final String CFG_QUEUE_MESSAGE_WAIT_STRATEGY = StreamingMessageQueueWaitStrategyFactory.CFG_QUEUE_MESSAGE_WAIT_STRATEGY;
 
 	/** unique queue identifier */
 	private String id = null;
@@ -74,8 +83,20 @@ public class DefaultStreamingMessageQueue implements StreamingMessageQueue {
 	private DefaultStreamingMessageQueueProducer queueProducer = null;
 	/** wait strategy applied on this queue */
 	private StreamingMessageQueueWaitStrategy queueWaitStrategy = null;
+	/** optional guard limiting the number of messages inside the queue */
+	private StreamingMessageQueueCapacityGuard capacityGuard = null;
+	/** provide each component with its own consumer */
+	private boolean broadcast = false;
+	/** consumers assigned to components in broadcast mode */
+	private final ConcurrentMap<String, DefaultStreamingMessageQueueConsumer> broadcastConsumers = new ConcurrentHashMap<>();
+	/** pool providing the messages read by consumers - null if pooling is disabled */
+	private StreamingDataMessagePool messagePool = null;
+	/** counter attached to all consumers */
+	private Counter messageRetrievalCounter = null;
 
 	public long getSize() {
+		if(this.capacityGuard != null)
+			return this.capacityGuard.getSize();
 		return chronicle.size();
 	}
 	
@@ -118,7 +139,16 @@ public class DefaultStreamingMessageQueue implements StreamingMessageQueue {
 			logger.info("Invalid queue rolling interval found: " + e.getMessage() + ". Using default: " + TimeUnit.MINUTES.toMillis(60));
 		}
 		
-		this.queueWaitStrategy = getWaitStrategy(StringUtils.trim(properties.getProperty(CFG_QUEUE_MESSAGE_WAIT_STRATEGY)));
+		this.queueWaitStrategy = StreamingMessageQueueWaitStrategyFactory.getWaitStrategy(properties);
+		this.broadcast = StringUtils.equalsIgnoreCase(StringUtils.trim(properties.getProperty(CFG_QUEUE_BROADCAST)), "true");
+		if(StringUtils.equalsIgnoreCase(StringUtils.trim(properties.getProperty(CFG_QUEUE_MESSAGE_POOLING)), "true"))
+			this.messagePool = new StreamingDataMessagePool();
+		if(this.broadcast) {
+			if(StringUtils.isNotBlank(properties.getProperty(CFG_QUEUE_CAPACITY)))
+				logger.warn("Capacity settings are not supported by broadcast queues. Ignoring them [queue="+this.id+"]");
+		} else {
+			this.capacityGuard = StreamingMessageQueueCapacityGuard.fromProperties(this.id, properties);
+		}
 		
 		//
 		////////////////////////////////////////////////////////////////////////////////
@@ -131,32 +161,22 @@ public class DefaultStreamingMessageQueue implements StreamingMessageQueue {
 		
         try {
         	this.chronicle = ChronicleQueueBuilder.vanilla(pathToChronicle).cycleLength((int)this.queueRollingInterval).cycleFormat(this.cycleFormat).build();
-        	this.queueConsumer = new DefaultStreamingMessageQueueConsumer(this.getId(), this.chronicle.createTailer(), this.queueWaitStrategy);
-			this.queueProducer = new DefaultStreamingMessageQueueProducer(this.getId(), this.chronicle.createAppender(), this.queueWaitStrategy);
+        	this.queueConsumer = new DefaultStreamingMessageQueueConsumer(this.getId(), this.chronicle.createTailer(), this.queueWaitStrategy, this.capacityGuard, this.messagePool);
+			this.queueProducer = new DefaultStreamingMessageQueueProducer(this.getId(), this.chronicle, this.queueWaitStrategy, this.capacityGuard);
 		} catch (IOException e) {
 			throw new RuntimeException("Failed to initialize chronicle at '"+pathToChronicle+"'. Error: " + e.getMessage());
 		}
         
-        logger.info("queue[type=chronicle, id="+this.id+", deleteOnExist="+this.deleteOnExit+", path="+pathToChronicle+"']");       		
+        logger.info("queue[type=chronicle, id="+this.id+", deleteOnExist="+this.deleteOnExit+", path="+pathToChronicle+", broadcast="+this.broadcast+", messagePooling="+(this.messagePool != null)+
+        		(this.capacityGuard != null ? ", capacity="+this.capacityGuard.getCapacity()+", overflowPolicy="+this.capacityGuard.getOverflowPolicy().getName() : "")+"]");       		
 	}
 
-	/**
-	 * Return an instance of the referenced {@link StreamingMessageQueueWaitStrategy}
-	 * @param waitStrategyName name of strategy to instantiate (eg. {@link StreamingMessageQueueBlockingWaitStrategy#STRATEGY_NAME} (default))
-	 * @return
-	 */
-	protected StreamingMessageQueueWaitStrategy getWaitStrategy(final String waitStrategyName) {			
-		if(StringUtils.equalsIgnoreCase(waitStrategyName, StreamingMessageQueueDirectPassStrategy.STRATEGY_NAME))
-			return new StreamingMessageQueueDirectPassStrategy();
-		else if(StringUtils.equalsIgnoreCase(waitStrategyName, StreamingMessageQueueSleepingWaitStrategy.STRATEGY_NAME))
-			return new StreamingMessageQueueSleepingWaitStrategy();
-		return new StreamingMessageQueueBlockingWaitStrategy();
-	}
-	
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#shutdown()
 	 */
 	public boolean shutdown() {
+		if(this.capacityGuard != null)
+			this.capacityGuard.close();
 		try {
 			this.chronicle.close();
 			return true;
@@ -194,6 +214,29 @@ public class DefaultStreamingMessageQueue implements StreamingMessageQueue {
 		return this.queueConsumer;
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#getConsumer(java.lang.String)
+	 */
+	public StreamingMessageQueueConsumer getConsumer(String consumerId) {
+		if(!this.broadcast || StringUtils.isBlank(consumerId))
+			return this.queueConsumer;
+		
+		DefaultStreamingMessageQueueConsumer consumer = this.broadcastConsumers.get(consumerId);
+		if(consumer == null) {
+			try {
+				// tailers are cached per thread by the chronicle, excerpts are always created separately
+				consumer = new DefaultStreamingMessageQueueConsumer(this.getId(), this.chronicle.createExcerpt(), this.queueWaitStrategy, null, this.messagePool);
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to create consumer '"+consumerId+"' for chronicle '"+this.id+"'. Error: " + e.getMessage());
+			}
+			consumer.setMessageRetrievalCounter(this.messageRetrievalCounter);
+			DefaultStreamingMessageQueueConsumer existing = this.broadcastConsumers.putIfAbsent(consumerId, consumer);
+			if(existing != null)
+				consumer = existing;
+		}
+		return consumer;
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setId(java.lang.String)
 	 */
@@ -219,7 +262,10 @@ public class DefaultStreamingMessageQueue implements StreamingMessageQueue {
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setMessageRetrievalCounter(com.codahale.metrics.Counter)
 	 */
 	public void setMessageRetrievalCounter(Counter counter) {
+		this.messageRetrievalCounter = counter;
 		this.queueConsumer.setMessageRetrievalCounter(counter);
+		for(final DefaultStreamingMessageQueueConsumer consumer : this.broadcastConsumers.values())
+			consumer.setMessageRetrievalCounter(counter);
 	}
 
 	
@@ -15,24 +15,40 @@
  */
 package com.ottogroup.bi.spqr.pipeline.queue.chronicle;
 
+import java.io.IOException;
+
 import com.codahale.metrics.Counter;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageHeaders;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessagePool;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
 
 import net.openhft.chronicle.ExcerptTailer;
 
 /**
- * Default {@link StreamingMessageQueueConsumer} implementation accessing {@link DefaultStreamingMessageQueue}
+ * Default {@link StreamingMessageQueueConsumer} implementation accessing {@link DefaultStreamingMessageQueue}. Besides
+ * copying messages it supports the {@link StreamingMessageQueueViewConsumer} mode which reads the body directly
+ * from the memory mapped excerpt
  * @author mnxfst
  * @since Mar 5, 2015
  */
-public class DefaultStreamingMessageQueueConsumer implements StreamingMessageQueueConsumer {
+public class DefaultStreamingMessageQueueConsumer implements StreamingMessageQueueViewConsumer {
 
 	private final String queueId;
 	private final ExcerptTailer queueReader;
 	private final StreamingMessageQueueWaitStrategy waitStrategy;
+	private final StreamingMessageQueueCapacityGuard capacityGuard;
+	/** pool providing the messages read - null if pooling is disabled */
+	private final StreamingDataMessagePool messagePool;
 	private Counter messageRetrievalCounter = null;
+	/** view reused for all messages read in view mode */
+	private final ChronicleStreamingDataMessageView view;
+	/** indicates that the excerpt referenced by the view has not been finished yet */
+	private boolean viewPending = false;
 	
 	/**
 	 * Initializes the consumer using the provided input
@@ -41,9 +57,37 @@ public class DefaultStreamingMessageQueueConsumer implements StreamingMessageQue
 	 * @param waitStrategy
 	 */
 	public DefaultStreamingMessageQueueConsumer(final String queueId, final ExcerptTailer queueReader, final StreamingMessageQueueWaitStrategy waitStrategy) {
+		this(queueId, queueReader, waitStrategy, null);
+	}
+	
+	/**
+	 * Initializes the consumer using the provided input
+	 * @param queueId
+	 * @param queueReader
+	 * @param waitStrategy
+	 * @param capacityGuard optional guard limiting the number of messages inside the queue
+	 */
+	public DefaultStreamingMessageQueueConsumer(final String queueId, final ExcerptTailer queueReader, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard) {
+		this(queueId, queueReader, waitStrategy, capacityGuard, null);
+	}
+	
+	/**
+	 * Initializes the consumer using the provided input
+	 * @param queueId
+	 * @param queueReader
+	 * @param waitStrategy
+	 * @param capacityGuard optional guard limiting the number of messages inside the queue
+	 * @param messagePool optional pool providing the messages read
+	 */
+	public DefaultStreamingMessageQueueConsumer(final String queueId, final ExcerptTailer queueReader, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard, final StreamingDataMessagePool messagePool) {
 		this.queueId = queueId;
+		this.messagePool = messagePool;
 		this.queueReader = queueReader;
 		this.waitStrategy = waitStrategy;
+		this.capacityGuard = capacityGuard;
+		this.view = new ChronicleStreamingDataMessageView(queueReader);
 	}
 	
 	/**
@@ -51,24 +95,122 @@ public class DefaultStreamingMessageQueueConsumer implements StreamingMessageQue
 	 */
 	public StreamingDataMessage next() {
 		
+		finishView();
+		
 		// check if a new message is available and read it from chronicle if possible
-		if(queueReader.nextIndex()) {
-			long timestamp = queueReader.readLong();
-			int bytes = queueReader.readInt();
-			byte[] body = new byte[bytes];
-			queueReader.read(body);
-			queueReader.finish();
+		while(queueReader.nextIndex()) {
+
+			// skip messages discarded by overflow policy
+			if(this.capacityGuard != null && !this.capacityGuard.release()) {
+				queueReader.finish();
+				continue;
+			}
+			
+			final StreamingDataMessage message = read();
 			
 			if(this.messageRetrievalCounter != null)
 				this.messageRetrievalCounter.inc();
 
-			return new StreamingDataMessage(body, timestamp);
+			return message;
 		}
 		
 		// otherwise return null;
 		return null;		
 	}
 	
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#drainTo(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage[], int)
+	 */
+	public int drainTo(StreamingDataMessage[] buffer, int max) {
+		finishView();
+
+		final int limit = Math.min(max, buffer.length);
+		int drained = 0;
+		while(drained < limit && queueReader.nextIndex()) {
+
+			// skip messages discarded by overflow policy
+			if(this.capacityGuard != null && !this.capacityGuard.release()) {
+				queueReader.finish();
+				continue;
+			}
+
+			buffer[drained++] = read();
+		}
+		
+		if(this.messageRetrievalCounter != null && drained > 0)
+			this.messageRetrievalCounter.inc(drained);
+		return drained;
+	}
+	
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer#nextView()
+	 */
+	public StreamingDataMessageView nextView() {
+		
+		finishView();
+		
+		while(queueReader.nextIndex()) {
+
+			// skip messages discarded by overflow policy
+			if(this.capacityGuard != null && !this.capacityGuard.release()) {
+				queueReader.finish();
+				continue;
+			}
+			
+			// the excerpt is kept open until the next request to allow the view to access it
+			this.view.reset();
+			this.viewPending = true;
+			
+			if(this.messageRetrievalCounter != null)
+				this.messageRetrievalCounter.inc();
+			
+			return this.view;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Reads the message from the excerpt the tailer currently points to and finishes the excerpt. If a pool is 
+	 * assigned, the content is read into a pooled message
+	 * @return
+	 */
+	protected StreamingDataMessage read() {
+		long timestamp = queueReader.readLong();
+		int bytes = queueReader.readInt();
+		final StreamingDataMessage message = (this.messagePool != null ? this.messagePool.acquire(bytes, timestamp) : new StreamingDataMessage(new byte[bytes], timestamp));
+		queueReader.read(message.getBody());
+		message.setHeaders(readHeaders(queueReader));
+		queueReader.finish();
+		return message;
+	}
+	
+	/**
+	 * Reads the {@link StreamingDataMessageHeaders headers} following the message body. Returns null if the excerpt 
+	 * does not contain any headers or they cannot be decoded
+	 * @param queueReader tailer positioned behind the message body
+	 * @return
+	 */
+	protected static StreamingDataMessageHeaders readHeaders(final ExcerptTailer queueReader) {
+		if(queueReader.remaining() < 1)
+			return null;
+		try {
+			return StreamingDataMessageHeaders.readFrom(queueReader);
+		} catch(IOException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Finishes the excerpt referenced by the previously returned view
+	 */
+	protected void finishView() {
+		if(this.viewPending) {
+			queueReader.finish();
+			this.viewPending = false;
+		}
+	}
+	
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#getWaitStrategy()
 	 */
@@ -15,37 +15,67 @@
  */
 package com.ottogroup.bi.spqr.pipeline.queue.chronicle;
 
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+
 import com.codahale.metrics.Counter;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageHeaders;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
 
+import net.openhft.chronicle.Chronicle;
 import net.openhft.chronicle.ExcerptAppender;
+import net.openhft.chronicle.VanillaChronicle;
 
 /**
- * Default {@link StreamingMessageQueueProducer} implementation accessing {@link DefaultStreamingMessageQueue}
+ * Default {@link StreamingMessageQueueProducer} implementation accessing {@link DefaultStreamingMessageQueue}. The producer
+ * supports multiple concurrent writers without serializing them through a shared lock: each writing thread is assigned 
+ * its own {@link ExcerptAppender}. As {@link VanillaChronicle} keeps a separate data file for each appender and claims
+ * index entries by compare-and-set, excerpts written by different threads are merged through the index while the order
+ * of messages written by a single thread is preserved. 
  * @author mnxfst
  * @since Mar 5, 2015
- * TODO async implementation required
  */
 public class DefaultStreamingMessageQueueProducer implements
 		StreamingMessageQueueProducer {
+	
+	/** our faithful logging facility ... ;-) */
+	private static final Logger logger = Logger.getLogger(DefaultStreamingMessageQueueProducer.class);
 
 	private final String queueId;
-	private final ExcerptAppender queueProducer;
+	private final Chronicle chronicle;
 	private final StreamingMessageQueueWaitStrategy waitStrategy;
+	private final StreamingMessageQueueCapacityGuard capacityGuard;
+	/** appender assigned to the current writer thread - kept here as the chronicle references it weakly only */
+	private final ThreadLocal<ExcerptAppender> appenders = new ThreadLocal<>();
 	private Counter messageInsertionCounter = null; 
 	
 	/**
 	 * Initializes the producer using the provided input
 	 * @param queueId
-	 * @param queueProducer
+	 * @param chronicle
+	 * @param waitStrategy
+	 */
+	public DefaultStreamingMessageQueueProducer(final String queueId, final Chronicle chronicle, final StreamingMessageQueueWaitStrategy waitStrategy) {
+		this(queueId, chronicle, waitStrategy, null);
+	}
+	
+	/**
+	 * Initializes the producer using the provided input
+	 * @param queueId
+	 * @param chronicle
 	 * @param waitStrategy
+	 * @param capacityGuard optional guard limiting the number of messages inside the queue
 	 */
-	public DefaultStreamingMessageQueueProducer(final String queueId, final ExcerptAppender queueProducer, final StreamingMessageQueueWaitStrategy waitStrategy) {
+	public DefaultStreamingMessageQueueProducer(final String queueId, final Chronicle chronicle, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard) {
 		this.queueId = queueId;
-		this.queueProducer = queueProducer;
+		this.chronicle = chronicle;
 		this.waitStrategy = waitStrategy;
+		this.capacityGuard = capacityGuard;
 	}
 	
 	/**
@@ -53,23 +83,83 @@ public class DefaultStreamingMessageQueueProducer implements
 	 */
 	public boolean insert(StreamingDataMessage message) {
 
-		// TODO add concurrency handler to support multiple writers properly   
-		if(message != null) {
-			synchronized (queueProducer) {
-				queueProducer.startExcerpt();
-				queueProducer.writeLong(message.getTimestamp());
-				queueProducer.writeInt(message.getBody().length);
-				queueProducer.write(message.getBody());
-				queueProducer.finish();
+		if(message == null)
+			return false;
+
+		final ExcerptAppender appender = getAppender();
+		if(appender == null || (this.capacityGuard != null && !this.capacityGuard.acquire()))
+			return false;
 		
-				if(this.messageInsertionCounter != null)
-					this.messageInsertionCounter.inc();
-				
-				return true;
+		write(appender, message);
+
+		if(this.messageInsertionCounter != null)
+			this.messageInsertionCounter.inc();
+		return true;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#insertBatch(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage[])
+	 */
+	public int insertBatch(StreamingDataMessage[] messages) {
+		if(messages == null)
+			return 0;
+		
+		final ExcerptAppender appender = getAppender();
+		if(appender == null)
+			return 0;
+		
+		int inserted = 0;
+		for(int i = 0; i < messages.length; i++) {
+			final StreamingDataMessage message = messages[i];
+			if(message == null || (this.capacityGuard != null && !this.capacityGuard.acquire()))
+				continue;
+			write(appender, message);
+			inserted++;
+		}
+
+		if(this.messageInsertionCounter != null && inserted > 0)
+			this.messageInsertionCounter.inc(inserted);
+		return inserted;
+	}
+	
+	/**
+	 * Writes the message to the provided appender: timestamp, body length and body followed by the {@link StreamingDataMessageHeaders headers}
+	 * - if any. Messages without headers thus keep the excerpt layout used before headers were introduced 
+	 * @param appender
+	 * @param message
+	 */
+	protected void write(final ExcerptAppender appender, final StreamingDataMessage message) {
+		appender.startExcerpt();
+		appender.writeLong(message.getTimestamp());
+		appender.writeInt(message.getBody().length);
+		appender.write(message.getBody());
+		if(message.hasHeaders()) {
+			try {
+				message.getHeaders().writeTo(appender);
+			} catch(IOException e) {
+				logger.error("Failed to write message headers [queue="+this.queueId+"]. Error: " + e.getMessage());
 			}
 		}
-		
-		return false;
+		appender.finish();
+	}
+	
+	/**
+	 * Returns the {@link ExcerptAppender} assigned to the current thread. If there is none, a new
+	 * one will be created
+	 * @return appender or <i>null</i> if the appender could not be created
+	 */
+	protected ExcerptAppender getAppender() {
+		ExcerptAppender appender = this.appenders.get();
+		if(appender == null) {
+			try {
+				appender = this.chronicle.createAppender();
+				this.appenders.set(appender);
+			} catch (IOException e) {
+				logger.error("Failed to create appender [queue="+this.queueId+", thread="+Thread.currentThread().getName()+"]. Error: " + e.getMessage());
+				return null;
+			}
+		}
+		return appender;
 	}
 
 	/**
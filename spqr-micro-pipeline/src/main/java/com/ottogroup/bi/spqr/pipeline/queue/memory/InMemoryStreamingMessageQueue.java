@@ -15,8 +15,12 @@
  */
 package com.ottogroup.bi.spqr.pipeline.queue.memory;
 
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -25,17 +29,19 @@ import com.codahale.metrics.Counter;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
 import com.ottogroup.bi.spqr.pipeline.queue.chronicle.DefaultStreamingMessageQueue;
-import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueBlockingWaitStrategy;
-import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueDirectPassStrategy;
-import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueSleepingWaitStrategy;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategyFactory;
 
 /**
  * Memory based implementation of {@link StreamingDataMessage}. Compared to {@link DefaultStreamingMessageQueue}
- * this is fully based on in-memory structures and thus does not provide any message persistence features.
+ * this is fully based on in-memory structures and thus does not provide any message persistence features. The queue
+ * is unbounded unless {@link StreamingMessageQueue#CFG_QUEUE_CAPACITY} is provided.<br/><br/>
+ * If {@link StreamingMessageQueue#CFG_QUEUE_BROADCAST} is enabled each reading component is assigned its own consumer
+ * having a separate queue which receives references to all inserted messages. Broadcast queues are always unbounded.
  * @author mnxfst
  * @since Jul 3, 2015
  */
@@ -46,7 +52,7 @@ public class InMemoryStreamingMessageQueue implements StreamingMessageQueue {
 	
 	/////////////////////////////////////////////////////////////////////
 	// available configuration options 
-	public static final String CFG_QUEUE_MESSAGE_WAIT_STRATEGY = "queue.message.waitStrategy";
+	public static final String CFG_QUEUE_MESSAGE_WAIT_STRATEGY = StreamingMessageQueueWaitStrategyFactory.CFG_QUEUE_MESSAGE_WAIT_STRATEGY;
 	/////////////////////////////////////////////////////////////////////
 
 	/////////////////////////////////////////////////////////////////////
@@ -58,6 +64,18 @@ public class InMemoryStreamingMessageQueue implements StreamingMessageQueue {
 	private String id = null;
 	/** internal queue holding elements */
 	private ConcurrentLinkedQueue<StreamingDataMessage> queue = new ConcurrentLinkedQueue<StreamingDataMessage>();
+	/** optional guard limiting the number of messages inside the queue */
+	private StreamingMessageQueueCapacityGuard capacityGuard = null;
+	/** queues written by the producer - holds a single queue unless broadcast mode is enabled */
+	private final List<ConcurrentLinkedQueue<StreamingDataMessage>> queues = new CopyOnWriteArrayList<>();
+	/** provide each component with its own consumer */
+	private boolean broadcast = false;
+	/** consumers assigned to components in broadcast mode */
+	private final ConcurrentMap<String, InMemoryStreamingMessageQueueConsumer> broadcastConsumers = new ConcurrentHashMap<>();
+	/** indicates whether the shared queue receives messages in broadcast mode */
+	private volatile boolean sharedQueueAttached = false;
+	/** counter attached to all consumers */
+	private Counter messageRetrievalCounter = null;
 	/** message queue consumer */
 	private InMemoryStreamingMessageQueueConsumer queueConsumer = null;
 	/** message queue producer */
@@ -78,23 +96,37 @@ public class InMemoryStreamingMessageQueue implements StreamingMessageQueue {
 		if(StringUtils.isBlank(this.id))
 			throw new RequiredInputMissingException("Missing required queue identifier");
 
-		this.queueWaitStrategy = getWaitStrategy(StringUtils.trim(properties.getProperty(CFG_QUEUE_MESSAGE_WAIT_STRATEGY)));
+		this.queueWaitStrategy = StreamingMessageQueueWaitStrategyFactory.getWaitStrategy(properties);
+		this.broadcast = StringUtils.equalsIgnoreCase(StringUtils.trim(properties.getProperty(CFG_QUEUE_BROADCAST)), "true");
+		if(this.broadcast) {
+			if(StringUtils.isNotBlank(properties.getProperty(CFG_QUEUE_CAPACITY)))
+				logger.warn("Capacity settings are not supported by broadcast queues. Ignoring them [queue="+this.id+"]");
+		} else {
+			this.capacityGuard = StreamingMessageQueueCapacityGuard.fromProperties(this.id, properties);
+		}
 		////////////////////////////////////////////////////////////////////////////////
 		
 		////////////////////////////////////////////////////////////////////////////////
 		// initialize producer and consumer instances
-		this.queueProducer = new InMemoryStreamingMessageQueueProducer(this.id, this.queue, this.queueWaitStrategy);
-		this.queueConsumer = new InMemoryStreamingMessageQueueConsumer(this.id, this.queue, this.queueWaitStrategy);
+		// in broadcast mode the shared queue is attached as soon as its consumer is requested
+		if(!this.broadcast)
+			this.queues.add(this.queue);
+		this.queueProducer = new InMemoryStreamingMessageQueueProducer(this.id, this.queues, this.queueWaitStrategy, this.capacityGuard);
+		this.queueConsumer = new InMemoryStreamingMessageQueueConsumer(this.id, this.queue, this.queueWaitStrategy, this.capacityGuard);
 		////////////////////////////////////////////////////////////////////////////////
 
-		logger.info("In-memory streaming message queue successfully initialized");
+		logger.info("In-memory streaming message queue successfully initialized" + (this.broadcast ? " [broadcast=true]" : "") + (this.capacityGuard != null ? 
+				" [capacity="+this.capacityGuard.getCapacity()+", overflowPolicy="+this.capacityGuard.getOverflowPolicy().getName()+"]" : ""));
 	}
 
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#shutdown()
 	 */
 	public boolean shutdown() {
-		this.queue.clear();
+		if(this.capacityGuard != null)
+			this.capacityGuard.close();
+		for(final ConcurrentLinkedQueue<StreamingDataMessage> q : this.queues)
+			q.clear();
 		return true;
 	}
 
@@ -102,16 +134,14 @@ public class InMemoryStreamingMessageQueue implements StreamingMessageQueue {
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#insert(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
 	 */
 	public boolean insert(StreamingDataMessage message) {
-		if(message != null)
-			return this.queue.offer(message);
-		return false;
+		return this.queueProducer.insert(message);
 	}
 
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#next()
 	 */
 	public StreamingDataMessage next() {
-		return this.queue.poll();
+		return getConsumer().next();
 	}
 
 	/**
@@ -125,9 +155,37 @@ public class InMemoryStreamingMessageQueue implements StreamingMessageQueue {
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#getConsumer()
 	 */
 	public StreamingMessageQueueConsumer getConsumer() {
+		if(this.broadcast && !this.sharedQueueAttached) {
+			synchronized(this.broadcastConsumers) {
+				if(!this.sharedQueueAttached) {
+					this.queues.add(this.queue);
+					this.sharedQueueAttached = true;
+				}
+			}
+		}
 		return this.queueConsumer;
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#getConsumer(java.lang.String)
+	 */
+	public StreamingMessageQueueConsumer getConsumer(String consumerId) {
+		if(!this.broadcast || StringUtils.isBlank(consumerId))
+			return getConsumer();
+		
+		synchronized(this.broadcastConsumers) {
+			InMemoryStreamingMessageQueueConsumer consumer = this.broadcastConsumers.get(consumerId);
+			if(consumer == null) {
+				final ConcurrentLinkedQueue<StreamingDataMessage> consumerQueue = new ConcurrentLinkedQueue<>();
+				consumer = new InMemoryStreamingMessageQueueConsumer(this.id, consumerQueue, this.queueWaitStrategy);
+				consumer.setMessageRetrievalCounter(this.messageRetrievalCounter);
+				this.broadcastConsumers.put(consumerId, consumer);
+				this.queues.add(consumerQueue);
+			}
+			return consumer;
+		}
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setMessageInsertionCounter(com.codahale.metrics.Counter)
 	 */
@@ -139,23 +197,12 @@ public class InMemoryStreamingMessageQueue implements StreamingMessageQueue {
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setMessageRetrievalCounter(com.codahale.metrics.Counter)
 	 */
 	public void setMessageRetrievalCounter(Counter counter) {
+		this.messageRetrievalCounter = counter;
 		this.queueConsumer.setMessageRetrievalCounter(counter);
+		for(final InMemoryStreamingMessageQueueConsumer consumer : this.broadcastConsumers.values())
+			consumer.setMessageRetrievalCounter(counter);
 	}
 
-	/**
-	 * Return an instance of the referenced {@link StreamingMessageQueueWaitStrategy}
-	 * @param waitStrategyName name of strategy to instantiate (eg. {@link StreamingMessageQueueBlockingWaitStrategy#STRATEGY_NAME} (default))
-	 * @return
-	 */
-	protected StreamingMessageQueueWaitStrategy getWaitStrategy(final String waitStrategyName) {			
-		if(StringUtils.equalsIgnoreCase(waitStrategyName, StreamingMessageQueueDirectPassStrategy.STRATEGY_NAME))
-			return new StreamingMessageQueueDirectPassStrategy();
-		else if(StringUtils.equalsIgnoreCase(waitStrategyName, StreamingMessageQueueSleepingWaitStrategy.STRATEGY_NAME))
-			return new StreamingMessageQueueSleepingWaitStrategy();
-		return new StreamingMessageQueueBlockingWaitStrategy();
-	}
-
-	
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setId(java.lang.String)
 	 */
@@ -171,6 +218,8 @@ public class InMemoryStreamingMessageQueue implements StreamingMessageQueue {
 	}
 
 	public long getSize() {
+		if(this.capacityGuard != null)
+			return this.capacityGuard.getSize();
 		return this.queue.size();
 	}
 }
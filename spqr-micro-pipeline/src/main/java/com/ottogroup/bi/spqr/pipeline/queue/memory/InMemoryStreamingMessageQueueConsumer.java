@@ -19,6 +19,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.codahale.metrics.Counter;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
 
@@ -35,6 +36,8 @@ public class InMemoryStreamingMessageQueueConsumer implements StreamingMessageQu
 	private final ConcurrentLinkedQueue<StreamingDataMessage> queue;
 	/** assigned wait strategy */
 	private final StreamingMessageQueueWaitStrategy waitStrategy;
+	/** optional guard limiting the number of messages inside the queue - null for unbounded queues */
+	private final StreamingMessageQueueCapacityGuard capacityGuard;
 	/** counter instance used for metric collection */
 	private Counter messageRetrievalCounter = null;
 	
@@ -45,9 +48,22 @@ public class InMemoryStreamingMessageQueueConsumer implements StreamingMessageQu
 	 * @param waitStrategy
 	 */
 	public InMemoryStreamingMessageQueueConsumer(final String queueId, final ConcurrentLinkedQueue<StreamingDataMessage> queue, final StreamingMessageQueueWaitStrategy waitStrategy) {
+		this(queueId, queue, waitStrategy, null);
+	}
+	
+	/**
+	 * Initializes the consumer using the provided input
+	 * @param queueId
+	 * @param queue
+	 * @param waitStrategy
+	 * @param capacityGuard optional guard limiting the number of messages inside the queue
+	 */
+	public InMemoryStreamingMessageQueueConsumer(final String queueId, final ConcurrentLinkedQueue<StreamingDataMessage> queue, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard) {
 		this.queueId = queueId;
 		this.queue = queue;
 		this.waitStrategy = waitStrategy;
+		this.capacityGuard = capacityGuard;
 	}
 	
 	/**
@@ -61,12 +77,44 @@ public class InMemoryStreamingMessageQueueConsumer implements StreamingMessageQu
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#next()
 	 */
 	public StreamingDataMessage next() {
-		final StreamingDataMessage nextMessage = this.queue.poll();
+		StreamingDataMessage nextMessage = this.queue.poll();
+		
+		// skip messages discarded by overflow policy - pooled messages are returned to their pool
+		if(this.capacityGuard != null) {
+			while(nextMessage != null && !this.capacityGuard.release()) {
+				nextMessage.release();
+				nextMessage = this.queue.poll();
+			}
+		}
+
 		if(this.messageRetrievalCounter != null && nextMessage != null)
 			this.messageRetrievalCounter.inc();
 		return nextMessage;
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#drainTo(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage[], int)
+	 */
+	public int drainTo(StreamingDataMessage[] buffer, int max) {
+		final int limit = Math.min(max, buffer.length);
+		int drained = 0;
+		while(drained < limit) {
+			final StreamingDataMessage nextMessage = this.queue.poll();
+			if(nextMessage == null)
+				break;
+			// skip messages discarded by overflow policy - pooled messages are returned to their pool
+			if(this.capacityGuard != null && !this.capacityGuard.release()) {
+				nextMessage.release();
+				continue;
+			}
+			buffer[drained++] = nextMessage;
+		}
+		
+		if(this.messageRetrievalCounter != null && drained > 0)
+			this.messageRetrievalCounter.inc(drained);
+		return drained;
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#getWaitStrategy()
 	 */
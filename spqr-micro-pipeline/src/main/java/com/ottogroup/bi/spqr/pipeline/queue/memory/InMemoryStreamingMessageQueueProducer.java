@@ -15,15 +15,19 @@
  */
 package com.ottogroup.bi.spqr.pipeline.queue.memory;
 
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.codahale.metrics.Counter;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
 
 /**
- * Produces messages to attached {@link InMemoryStreamingMessageQueue}
+ * Produces messages to attached {@link InMemoryStreamingMessageQueue}. In broadcast mode the producer
+ * hands over each message to all queues assigned to the registered consumers. The message itself is not copied.
  * @author mnxfst
  * @since Jul 3, 2015
  */
@@ -31,10 +35,12 @@ public class InMemoryStreamingMessageQueueProducer implements StreamingMessageQu
 
 	/** identifier of queue this consumer is attached to */
 	private final String queueId;
-	/** queue the consumer reads from */
-	private final ConcurrentLinkedQueue<StreamingDataMessage> queue;
+	/** queues the consumers read from - holds a single queue unless broadcast mode is enabled */
+	private final List<ConcurrentLinkedQueue<StreamingDataMessage>> queues;
 	/** assigned wait strategy for fetching messages */
 	private final StreamingMessageQueueWaitStrategy waitStrategy;
+	/** optional guard limiting the number of messages inside the queue - null for unbounded queues */
+	private final StreamingMessageQueueCapacityGuard capacityGuard;
 	/** counts the number of message insertions */
 	private Counter messageInsertionCounter = null;
 
@@ -45,9 +51,35 @@ public class InMemoryStreamingMessageQueueProducer implements StreamingMessageQu
 	 * @param waitStrategy
 	 */
 	public InMemoryStreamingMessageQueueProducer(final String queueId, final ConcurrentLinkedQueue<StreamingDataMessage> queue, final StreamingMessageQueueWaitStrategy waitStrategy) {
+		this(queueId, queue, waitStrategy, null);
+	}
+	
+	/**
+	 * Initializes the producer using the provided input
+	 * @param queueId
+	 * @param queue
+	 * @param waitStrategy
+	 * @param capacityGuard optional guard limiting the number of messages inside the queue
+	 */
+	public InMemoryStreamingMessageQueueProducer(final String queueId, final ConcurrentLinkedQueue<StreamingDataMessage> queue, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard) {
+		this(queueId, new CopyOnWriteArrayList<ConcurrentLinkedQueue<StreamingDataMessage>>(), waitStrategy, capacityGuard);
+		this.queues.add(queue);
+	}
+	
+	/**
+	 * Initializes the producer using the provided input
+	 * @param queueId
+	 * @param queues queues to write to - modifications applied after initialization must be thread-safe (eg. {@link CopyOnWriteArrayList})
+	 * @param waitStrategy
+	 * @param capacityGuard optional guard limiting the number of messages inside the queue
+	 */
+	public InMemoryStreamingMessageQueueProducer(final String queueId, final List<ConcurrentLinkedQueue<StreamingDataMessage>> queues, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard) {
 		this.queueId = queueId;
-		this.queue = queue;
+		this.queues = queues;
 		this.waitStrategy = waitStrategy;
+		this.capacityGuard = capacityGuard;
 	}
 	
 
@@ -56,13 +88,49 @@ public class InMemoryStreamingMessageQueueProducer implements StreamingMessageQu
 	 */
 	public boolean insert(StreamingDataMessage message) {		
 		if(message != null) {
-			this.queue.offer(message);
+			if(this.capacityGuard != null && !this.capacityGuard.acquire())
+				return false;
+			offer(message);
 			if(this.messageInsertionCounter != null)
 				this.messageInsertionCounter.inc();
+			return true;
 		}		
 		return false;
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#insertBatch(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage[])
+	 */
+	public int insertBatch(StreamingDataMessage[] messages) {
+		if(messages == null)
+			return 0;
+		
+		int inserted = 0;
+		for(int i = 0; i < messages.length; i++) {
+			if(messages[i] != null) {
+				if(this.capacityGuard != null && !this.capacityGuard.acquire())
+					continue;
+				offer(messages[i]);
+				inserted++;
+			}
+		}
+		
+		if(this.messageInsertionCounter != null && inserted > 0)
+			this.messageInsertionCounter.inc(inserted);
+		return inserted;
+	}
+
+	/**
+	 * Hands over the message to all assigned queues. As the queues keep the instance, pooled messages are retained once per queue
+	 * @param message
+	 */
+	protected void offer(final StreamingDataMessage message) {
+		for(int i = 0; i < this.queues.size(); i++) {
+			message.retain();
+			this.queues.get(i).offer(message);
+		}
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#getWaitStrategy()
 	 */
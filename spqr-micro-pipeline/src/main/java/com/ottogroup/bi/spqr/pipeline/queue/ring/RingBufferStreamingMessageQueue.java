@@ -0,0 +1,227 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue.ring;
+
+import java.util.Properties;
+import java.util.Queue;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import uk.co.real_logic.queues.ManyToOneConcurrentArrayQueue;
+import uk.co.real_logic.queues.OneToOneConcurrentArrayQueue3;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueOverflowPolicy;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategyFactory;
+
+/**
+ * Memory based implementation of {@link StreamingMessageQueue} which keeps its elements inside a preallocated and bounded
+ * array ring. Compared to {@link InMemoryStreamingMessageQueue} no node gets allocated per message and the number of
+ * buffered messages never exceeds the configured capacity. Depending on the configured producer type the queue
+ * applies a lock-free single producer implementation ({@link OneToOneConcurrentArrayQueue3}, default) or a multi producer
+ * implementation ({@link ManyToOneConcurrentArrayQueue}) which must be chosen as soon as more than one component writes
+ * to the queue - the {@link com.ottogroup.bi.spqr.pipeline.MicroPipelineFactory} does so unless the single producer type is set explicitly. The capacity is read from {@link StreamingMessageQueue#CFG_QUEUE_CAPACITY} or {@link #CFG_QUEUE_RING_CAPACITY}. 
+ * When reaching it, the {@link StreamingMessageQueueOverflowPolicy} configured via {@link StreamingMessageQueue#CFG_QUEUE_OVERFLOW_POLICY}
+ * is applied. The ring supports a single consumer only, thus {@link StreamingMessageQueue#CFG_QUEUE_BROADCAST} is not supported.
+ * @author mnxfst
+ * @since Feb 2, 2016
+ */
+public class RingBufferStreamingMessageQueue implements StreamingMessageQueue {
+
+	/** our faithful logging facility ..... ;-) */
+	private static final Logger logger = Logger.getLogger(RingBufferStreamingMessageQueue.class);
+
+	/////////////////////////////////////////////////////////////////////
+	// available configuration options
+	public static final String CFG_QUEUE_MESSAGE_WAIT_STRATEGY = StreamingMessageQueueWaitStrategyFactory.CFG_QUEUE_MESSAGE_WAIT_STRATEGY;
+	public static final String CFG_QUEUE_RING_CAPACITY = "queue.ring.capacity";
+	public static final String CFG_QUEUE_RING_PRODUCER_TYPE = "queue.ring.producerType";
+	/////////////////////////////////////////////////////////////////////
+
+	/////////////////////////////////////////////////////////////////////
+	// setting for 'type' property to get an instance of this type
+	public static final String CFG_QUEUE_TYPE = "ring";
+	/////////////////////////////////////////////////////////////////////
+
+	/////////////////////////////////////////////////////////////////////
+	// allowed values for producer type setting
+	public static final String PRODUCER_TYPE_SINGLE = "single";
+	public static final String PRODUCER_TYPE_MULTI = "multi";
+	/////////////////////////////////////////////////////////////////////
+
+	/** default capacity - rounded up to the next power of two if a different value is provided */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** unique queue identifier */
+	private String id = null;
+	/** number of elements the ring is able to hold */
+	private int capacity = DEFAULT_CAPACITY;
+	/** applies overflow policy when reaching the capacity */
+	private StreamingMessageQueueCapacityGuard capacityGuard = null;
+	/** indicates whether the queue must support multiple producers */
+	private boolean multiProducer = false;
+	/** internal ring holding elements */
+	private Queue<StreamingDataMessage> ring = null;
+	/** message queue consumer */
+	private RingBufferStreamingMessageQueueConsumer queueConsumer = null;
+	/** message queue producer */
+	private RingBufferStreamingMessageQueueProducer queueProducer = null;
+	/** wait strategy */
+	private StreamingMessageQueueWaitStrategy queueWaitStrategy = null;
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#initialize(java.util.Properties)
+	 */
+	public void initialize(Properties properties) throws RequiredInputMissingException {
+
+		////////////////////////////////////////////////////////////////////////////////
+		// extract and validate input
+		if(properties == null)
+			throw new RequiredInputMissingException("Missing required properties");
+
+		if(StringUtils.isBlank(this.id))
+			throw new RequiredInputMissingException("Missing required queue identifier");
+
+		String capacityStr = StringUtils.trim(properties.getProperty(CFG_QUEUE_CAPACITY, properties.getProperty(CFG_QUEUE_RING_CAPACITY)));
+		if(StringUtils.isNotBlank(capacityStr)) {
+			try {
+				this.capacity = Integer.parseInt(capacityStr);
+			} catch(Exception e) {
+				logger.info("Invalid ring capacity found: " + capacityStr + ". Using default: " + DEFAULT_CAPACITY);
+				this.capacity = DEFAULT_CAPACITY;
+			}
+			if(this.capacity < 1)
+				this.capacity = DEFAULT_CAPACITY;
+		}
+
+		if(StringUtils.equalsIgnoreCase(StringUtils.trim(properties.getProperty(CFG_QUEUE_BROADCAST)), "true"))
+			logger.warn("Broadcast mode is not supported by ring queues. All components share a single consumer [queue="+this.id+"]");
+
+		this.multiProducer = StringUtils.equalsIgnoreCase(StringUtils.trim(properties.getProperty(CFG_QUEUE_RING_PRODUCER_TYPE)), PRODUCER_TYPE_MULTI);
+		this.queueWaitStrategy = StreamingMessageQueueWaitStrategyFactory.getWaitStrategy(properties);
+		this.capacity = OneToOneConcurrentArrayQueue3.findNextPositivePowerOfTwo(this.capacity);
+		this.capacityGuard = new StreamingMessageQueueCapacityGuard(this.id, this.capacity, 
+				StreamingMessageQueueOverflowPolicy.fromName(properties.getProperty(CFG_QUEUE_OVERFLOW_POLICY)));
+		////////////////////////////////////////////////////////////////////////////////
+
+		////////////////////////////////////////////////////////////////////////////////
+		// initialize ring, producer and consumer instances
+		// policy 'drop oldest' requires space for messages waiting to be discarded by the consumer
+		final int ringSize = (this.capacityGuard.getOverflowPolicy() == StreamingMessageQueueOverflowPolicy.DROP_OLDEST ? this.capacity << 1 : this.capacity);
+		if(this.multiProducer)
+			this.ring = new ManyToOneConcurrentArrayQueue<StreamingDataMessage>(ringSize);
+		else
+			this.ring = new OneToOneConcurrentArrayQueue3<StreamingDataMessage>(ringSize);
+		this.queueProducer = new RingBufferStreamingMessageQueueProducer(this.id, this.ring, this.queueWaitStrategy, this.capacityGuard);
+		this.queueConsumer = new RingBufferStreamingMessageQueueConsumer(this.id, this.ring, this.queueWaitStrategy, this.capacityGuard);
+		////////////////////////////////////////////////////////////////////////////////
+
+		logger.info("queue[type=ring, id="+this.id+", capacity="+this.capacity+", producerType="+(this.multiProducer ? PRODUCER_TYPE_MULTI : PRODUCER_TYPE_SINGLE)+", overflowPolicy="+this.capacityGuard.getOverflowPolicy().getName()+"]");
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#shutdown()
+	 */
+	public boolean shutdown() {
+		this.capacityGuard.close();
+		this.ring.clear();
+		return true;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#insert(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
+	 */
+	public boolean insert(StreamingDataMessage message) {
+		return this.queueProducer.insert(message);
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#next()
+	 */
+	public StreamingDataMessage next() {
+		return this.queueConsumer.next();
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#getProducer()
+	 */
+	public StreamingMessageQueueProducer getProducer() {
+		return this.queueProducer;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#getConsumer()
+	 */
+	public StreamingMessageQueueConsumer getConsumer() {
+		return this.queueConsumer;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#getConsumer(java.lang.String)
+	 */
+	public StreamingMessageQueueConsumer getConsumer(String consumerId) {
+		return this.queueConsumer;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setMessageInsertionCounter(com.codahale.metrics.Counter)
+	 */
+	public void setMessageInsertionCounter(Counter counter) {
+		this.queueProducer.setMessageInsertionCounter(counter);
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setMessageRetrievalCounter(com.codahale.metrics.Counter)
+	 */
+	public void setMessageRetrievalCounter(Counter counter) {
+		this.queueConsumer.setMessageRetrievalCounter(counter);
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#setId(java.lang.String)
+	 */
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue#getId()
+	 */
+	public String getId() {
+		return this.id;
+	}
+
+	public long getSize() {
+		return this.capacityGuard.getSize();
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public boolean isMultiProducer() {
+		return this.multiProducer;
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue.ring;
+
+import java.util.Queue;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+
+/**
+ * Consumes messages from {@link RingBufferStreamingMessageQueue}
+ * @author mnxfst
+ * @since Feb 2, 2016
+ */
+public class RingBufferStreamingMessageQueueConsumer implements StreamingMessageQueueConsumer {
+
+	/** identifier of queue this consumer is attached to */
+	private final String queueId;
+	/** ring the consumer reads from */
+	private final Queue<StreamingDataMessage> ring;
+	/** assigned wait strategy */
+	private final StreamingMessageQueueWaitStrategy waitStrategy;
+	/** guard limiting the number of messages inside the ring */
+	private final StreamingMessageQueueCapacityGuard capacityGuard;
+	/** counter instance used for metric collection */
+	private Counter messageRetrievalCounter = null;
+
+	/**
+	 * Initializes the consumer using the provided input
+	 * @param queueId
+	 * @param ring
+	 * @param waitStrategy
+	 * @param capacityGuard
+	 */
+	public RingBufferStreamingMessageQueueConsumer(final String queueId, final Queue<StreamingDataMessage> ring, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard) {
+		this.queueId = queueId;
+		this.ring = ring;
+		this.waitStrategy = waitStrategy;
+		this.capacityGuard = capacityGuard;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#getQueueId()
+	 */
+	public String getQueueId() {
+		return this.queueId;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#next()
+	 */
+	public StreamingDataMessage next() {
+		StreamingDataMessage nextMessage = this.ring.poll();
+
+		// skip messages discarded by overflow policy - pooled messages are returned to their pool
+		while(nextMessage != null && !this.capacityGuard.release()) {
+			nextMessage.release();
+			nextMessage = this.ring.poll();
+		}
+
+		if(this.messageRetrievalCounter != null && nextMessage != null)
+			this.messageRetrievalCounter.inc();
+		return nextMessage;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#drainTo(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage[], int)
+	 */
+	public int drainTo(StreamingDataMessage[] buffer, int max) {
+		final int limit = Math.min(max, buffer.length);
+		int drained = 0;
+		while(drained < limit) {
+			final StreamingDataMessage nextMessage = this.ring.poll();
+			if(nextMessage == null)
+				break;
+			// skip messages discarded by overflow policy - pooled messages are returned to their pool
+			if(!this.capacityGuard.release()) {
+				nextMessage.release();
+				continue;
+			}
+			buffer[drained++] = nextMessage;
+		}
+		
+		if(this.messageRetrievalCounter != null && drained > 0)
+			this.messageRetrievalCounter.inc(drained);
+		return drained;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#getWaitStrategy()
+	 */
+	public StreamingMessageQueueWaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer#setMessageRetrievalCounter(com.codahale.metrics.Counter)
+	 */
+	public void setMessageRetrievalCounter(Counter counter) {
+		this.messageRetrievalCounter = counter;
+	}
+
+}
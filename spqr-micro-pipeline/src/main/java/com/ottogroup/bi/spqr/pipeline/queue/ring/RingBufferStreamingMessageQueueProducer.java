@@ -0,0 +1,124 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue.ring;
+
+import java.util.Queue;
+import java.util.concurrent.locks.LockSupport;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
+
+/**
+ * Produces messages to attached {@link RingBufferStreamingMessageQueue}
+ * @author mnxfst
+ * @since Feb 2, 2016
+ */
+public class RingBufferStreamingMessageQueueProducer implements StreamingMessageQueueProducer {
+
+	/** identifier of queue this producer is attached to */
+	private final String queueId;
+	/** ring the producer writes to */
+	private final Queue<StreamingDataMessage> ring;
+	/** assigned wait strategy for fetching messages */
+	private final StreamingMessageQueueWaitStrategy waitStrategy;
+	/** guard limiting the number of messages inside the ring */
+	private final StreamingMessageQueueCapacityGuard capacityGuard;
+	/** counts the number of message insertions */
+	private Counter messageInsertionCounter = null;
+
+	/**
+	 * Initializes the producer using the provided input
+	 * @param queueId
+	 * @param ring
+	 * @param waitStrategy
+	 * @param capacityGuard
+	 */
+	public RingBufferStreamingMessageQueueProducer(final String queueId, final Queue<StreamingDataMessage> ring, final StreamingMessageQueueWaitStrategy waitStrategy,
+			final StreamingMessageQueueCapacityGuard capacityGuard) {
+		this.queueId = queueId;
+		this.ring = ring;
+		this.waitStrategy = waitStrategy;
+		this.capacityGuard = capacityGuard;
+	}
+
+	/**
+	 * Inserts the given {@link StreamingDataMessage} into the underlying ring. If the ring has no more
+	 * capacity left the configured overflow policy is applied.
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#insert(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
+	 */
+	public boolean insert(StreamingDataMessage message) {
+		if(message == null || !this.capacityGuard.acquire())
+			return false;
+
+		// the ring is sized to hold all messages accepted by the guard, retry is required only while
+		// a concurrent consumer has not yet released the slot it just read from - as the ring keeps the 
+		// instance, pooled messages are retained
+		message.retain();
+		while(!this.ring.offer(message))
+			LockSupport.parkNanos(1);
+		
+		if(this.messageInsertionCounter != null)
+			this.messageInsertionCounter.inc();
+		return true;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#insertBatch(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage[])
+	 */
+	public int insertBatch(StreamingDataMessage[] messages) {
+		if(messages == null)
+			return 0;
+		
+		int inserted = 0;
+		for(int i = 0; i < messages.length; i++) {
+			if(messages[i] != null && this.capacityGuard.acquire()) {
+				messages[i].retain();
+				while(!this.ring.offer(messages[i]))
+					LockSupport.parkNanos(1);
+				inserted++;
+			}
+		}
+		
+		if(this.messageInsertionCounter != null && inserted > 0)
+			this.messageInsertionCounter.inc(inserted);
+		return inserted;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#getWaitStrategy()
+	 */
+	public StreamingMessageQueueWaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#setMessageInsertionCounter(com.codahale.metrics.Counter)
+	 */
+	public void setMessageInsertionCounter(Counter counter) {
+		this.messageInsertionCounter = counter;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer#getQueueId()
+	 */
+	public String getQueueId() {
+		return this.queueId;
+	}
+
+}
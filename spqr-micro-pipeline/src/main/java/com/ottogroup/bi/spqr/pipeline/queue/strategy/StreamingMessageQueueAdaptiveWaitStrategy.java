@@ -0,0 +1,322 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue.strategy;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
+
+/**
+ * Wait strategy which backs off in phases while the queue remains empty: it busy spins first, yields afterwards, 
+ * gets parked for exponentially growing periods (bounded by a max. park time) and finally blocks until it gets 
+ * signaled by {@link #forceLockRelease()}. Busy queues are served with low latency while idle queues consume 
+ * almost no CPU. As the strategy keeps track of the number of blocked consumers, {@link #forceLockRelease()} 
+ * skips acquiring the lock if nobody waits (may be disabled via {@link #CFG_SIGNAL_ONLY_IF_WAITER}).<br/><br/>
+ * Consumers announce themselves before checking the queue a last time, producers read the counter with a full fence 
+ * after publishing. Thus no signal gets lost and blocked consumers wait until signaled. A positive {@link #CFG_BLOCK_TIMEOUT_MILLIS}
+ * makes blocked consumers check the queue again after that time at the latest.
+ * @author mnxfst
+ * @since Feb 5, 2016
+ */
+public class StreamingMessageQueueAdaptiveWaitStrategy implements StreamingMessageQueueWaitStrategy {
+
+	/** our faithful logging facility ..... ;-) */
+	private static final Logger logger = Logger.getLogger(StreamingMessageQueueAdaptiveWaitStrategy.class);
+
+	public static final String STRATEGY_NAME = "adaptiveWait";
+	
+	/////////////////////////////////////////////////////////////////////
+	// available configuration options
+	public static final String CFG_SPIN_TRIES = "queue.message.waitStrategy.spinTries";
+	public static final String CFG_YIELD_TRIES = "queue.message.waitStrategy.yieldTries";
+	public static final String CFG_PARK_TRIES = "queue.message.waitStrategy.parkTries";
+	public static final String CFG_MAX_PARK_NANOS = "queue.message.waitStrategy.maxParkNanos";
+	public static final String CFG_BLOCK_TIMEOUT_MILLIS = "queue.message.waitStrategy.blockTimeoutMillis";
+	public static final String CFG_SIGNAL_ONLY_IF_WAITER = "queue.message.waitStrategy.signalOnlyIfWaiter";
+	/////////////////////////////////////////////////////////////////////
+
+	public static final int DEFAULT_SPIN_TRIES = 100;
+	public static final int DEFAULT_YIELD_TRIES = 100;
+	public static final int DEFAULT_PARK_TRIES = 50;
+	public static final long DEFAULT_MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	/** block until signaled */
+	public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 0;
+	
+	/** initial park time - doubled with each park try until the max. park time is reached */
+	private static final long MIN_PARK_NANOS = 1000;
+
+	/** number of empty polls answered by busy spinning */
+	private final int spinTries;
+	/** number of empty polls answered by yielding (counted after spin phase) */
+	private final int yieldTries;
+	/** number of empty polls answered by parking (counted after yield phase) */
+	private final int parkTries;
+	/** max. time a consumer gets parked before the queue is checked again */
+	private final long maxParkNanos;
+	/** max. time a consumer blocks before the queue is checked again - 0 blocks until signaled */
+	private final long blockTimeoutNanos;
+	/** skip signaling if no consumer is blocked */
+	private final boolean signalOnlyIfWaiter;
+	
+	/** number of consumers blocked on or about to block on the condition */
+	private final AtomicInteger waiters = new AtomicInteger(0);
+	private final Lock lock = new ReentrantLock();
+	private final Condition condition = lock.newCondition();
+	
+	/**
+	 * Initializes the strategy using default settings
+	 */
+	public StreamingMessageQueueAdaptiveWaitStrategy() {
+		this(DEFAULT_SPIN_TRIES, DEFAULT_YIELD_TRIES, DEFAULT_PARK_TRIES, DEFAULT_MAX_PARK_NANOS, DEFAULT_BLOCK_TIMEOUT_MILLIS, true);
+	}
+	
+	/**
+	 * Initializes the strategy using the provided input
+	 * @param spinTries
+	 * @param yieldTries
+	 * @param parkTries
+	 * @param maxParkNanos
+	 * @param blockTimeoutMillis max. time a blocked consumer waits before checking the queue again - zero or less blocks until signaled
+	 * @param signalOnlyIfWaiter
+	 */
+	public StreamingMessageQueueAdaptiveWaitStrategy(final int spinTries, final int yieldTries, final int parkTries, final long maxParkNanos, 
+			final long blockTimeoutMillis, final boolean signalOnlyIfWaiter) {
+		this.spinTries = Math.max(spinTries, 0);
+		this.yieldTries = Math.max(yieldTries, 0);
+		this.parkTries = Math.max(parkTries, 0);
+		this.maxParkNanos = (maxParkNanos > 0 ? maxParkNanos : DEFAULT_MAX_PARK_NANOS);
+		this.blockTimeoutNanos = (blockTimeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis) : 0);
+		this.signalOnlyIfWaiter = signalOnlyIfWaiter;
+	}
+	
+	/**
+	 * Initializes a {@link StreamingMessageQueueAdaptiveWaitStrategy} from the provided queue settings. Missing
+	 * or invalid values are replaced by defaults
+	 * @param properties
+	 * @return
+	 */
+	public static StreamingMessageQueueAdaptiveWaitStrategy fromProperties(final Properties properties) {
+		if(properties == null)
+			return new StreamingMessageQueueAdaptiveWaitStrategy();
+		return new StreamingMessageQueueAdaptiveWaitStrategy(
+				(int)getLong(properties, CFG_SPIN_TRIES, DEFAULT_SPIN_TRIES),
+				(int)getLong(properties, CFG_YIELD_TRIES, DEFAULT_YIELD_TRIES),
+				(int)getLong(properties, CFG_PARK_TRIES, DEFAULT_PARK_TRIES),
+				getLong(properties, CFG_MAX_PARK_NANOS, DEFAULT_MAX_PARK_NANOS),
+				getLong(properties, CFG_BLOCK_TIMEOUT_MILLIS, DEFAULT_BLOCK_TIMEOUT_MILLIS),
+				!StringUtils.equalsIgnoreCase(StringUtils.trim(properties.getProperty(CFG_SIGNAL_ONLY_IF_WAITER)), "false"));
+	}
+	
+	/**
+	 * Reads the referenced value from the properties. If the value is missing or invalid the default is returned
+	 * @param properties
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 */
+	private static long getLong(final Properties properties, final String key, final long defaultValue) {
+		String value = StringUtils.trim(properties.getProperty(key));
+		if(StringUtils.isBlank(value))
+			return defaultValue;
+		try {
+			return Long.parseLong(value);
+		} catch(Exception e) {
+			logger.info("Invalid value found for '"+key+"': " + value + ". Using default: " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#waitFor(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer)
+	 */
+	public StreamingDataMessage waitFor(StreamingMessageQueueConsumer queue) throws InterruptedException {
+		StreamingDataMessage message = null;
+		int step = 0;
+		while((message = queue.next()) == null) {
+			if(step < getBlockThreshold()) {
+				backOff(step++);
+			} else {
+				// announce the consumer before checking the queue a last time to avoid missing signals  
+				this.waiters.incrementAndGet();
+				lock.lock();
+				try {
+					if((message = queue.next()) != null)
+						return message;
+					block();
+				} finally {
+					lock.unlock();
+					this.waiters.decrementAndGet();
+				}
+			}
+		}
+		return message;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#waitFor(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer, long, java.util.concurrent.TimeUnit)
+	 */
+	public StreamingDataMessage waitFor(StreamingMessageQueueConsumer queue, long timeout, TimeUnit timeoutUnit) throws InterruptedException {
+		final long deadline = System.nanoTime() + timeoutUnit.toNanos(timeout);
+		StreamingDataMessage message = null;
+		int step = 0;
+		while((message = queue.next()) == null) {
+			
+			// spinning is cheap enough to skip reading the clock 
+			if(step >= this.spinTries && System.nanoTime() >= deadline)
+				return null;
+
+			if(step < getBlockThreshold()) {
+				backOff(step++);
+			} else {
+				this.waiters.incrementAndGet();
+				lock.lock();
+				try {
+					if((message = queue.next()) != null)
+						return message;
+					final long remainingNanos = deadline - System.nanoTime();
+					condition.awaitNanos(this.blockTimeoutNanos > 0 ? Math.min(this.blockTimeoutNanos, remainingNanos) : remainingNanos);
+				} finally {
+					lock.unlock();
+					this.waiters.decrementAndGet();
+				}
+			}
+		}
+		return message;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#waitForView(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer)
+	 */
+	public StreamingDataMessageView waitForView(StreamingMessageQueueViewConsumer queue) throws InterruptedException {
+		StreamingDataMessageView view = null;
+		int step = 0;
+		while((view = queue.nextView()) == null) {
+			if(step < getBlockThreshold()) {
+				backOff(step++);
+			} else {
+				this.waiters.incrementAndGet();
+				lock.lock();
+				try {
+					if((view = queue.nextView()) != null)
+						return view;
+					block();
+				} finally {
+					lock.unlock();
+					this.waiters.decrementAndGet();
+				}
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * Signals all blocked consumers. If no consumer is blocked, the lock is not acquired at all unless
+	 * {@link #CFG_SIGNAL_ONLY_IF_WAITER} is disabled 
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#forceLockRelease()
+	 */
+	public void forceLockRelease() {
+		// the read-modify-write fences the message published before against reading the counter: 
+		// a consumer not yet counted finds the message when checking the queue again
+		if(this.signalOnlyIfWaiter && this.waiters.getAndAdd(0) == 0)
+			return;
+		
+		lock.lock();
+		try {
+			condition.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Blocks the calling consumer until signaled or - if configured - the block timeout has elapsed. The lock must be held
+	 * @throws InterruptedException
+	 */
+	protected void block() throws InterruptedException {
+		if(this.blockTimeoutNanos > 0)
+			condition.awaitNanos(this.blockTimeoutNanos);
+		else
+			condition.await();
+	}
+	
+	/**
+	 * Backs off according to the phase the provided step belongs to
+	 * @param step number of empty polls so far
+	 */
+	protected void backOff(final int step) {
+		if(step < this.spinTries)
+			return;
+		if(step < this.spinTries + this.yieldTries) {
+			Thread.yield();
+			return;
+		}
+		final int parkStep = step - this.spinTries - this.yieldTries;
+		LockSupport.parkNanos(parkStep < 30 ? Math.min(MIN_PARK_NANOS << parkStep, this.maxParkNanos) : this.maxParkNanos);
+	}
+	
+	/**
+	 * Returns the number of empty polls after which a consumer blocks
+	 * @return
+	 */
+	protected int getBlockThreshold() {
+		return this.spinTries + this.yieldTries + this.parkTries;
+	}
+
+	/**
+	 * Returns the number of consumers currently blocked
+	 * @return
+	 */
+	public int getWaiters() {
+		return this.waiters.get();
+	}
+
+	public int getSpinTries() {
+		return spinTries;
+	}
+
+	public int getYieldTries() {
+		return yieldTries;
+	}
+
+	public int getParkTries() {
+		return parkTries;
+	}
+
+	public long getMaxParkNanos() {
+		return maxParkNanos;
+	}
+
+	public long getBlockTimeoutNanos() {
+		return blockTimeoutNanos;
+	}
+
+	public boolean isSignalOnlyIfWaiter() {
+		return signalOnlyIfWaiter;
+	}
+
+}
@@ -17,18 +17,25 @@ package com.ottogroup.bi.spqr.pipeline.queue.strategy;
 
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
 
 /**
  * Implements a wait strategy in the style of {@link https://github.com/jbrisbin/disruptor/blob/master/src/main/java/com/lmax/disruptor/BlockingWaitStrategy.java}.
  * It tries to read messages from an assigned {@link Queue}. If there is no content the strategy blocks until
  * either a timeout is reached or sleeping is interrupted from the outside. Apply this strategy when throughput and latency may
- * be spoiled in favor of CPU consumption. 
+ * be spoiled in favor of CPU consumption.<br/><br/>
+ * The strategy keeps track of the number of blocked consumers. As long as no consumer is blocked, {@link #forceLockRelease()} 
+ * reduces to a single atomic operation on the counter. Consumers announce themselves before checking the queue a last time, 
+ * producers read the counter with a full fence after publishing. Thus either the consumer finds the message or the producer 
+ * finds the consumer and signals it, which allows consumers to block until signaled.
  * @author mnxfst
  * @since Apr 20, 2015
  */
@@ -38,6 +45,8 @@ public class StreamingMessageQueueBlockingWaitStrategy implements StreamingMessa
 
 	private final Lock lock = new ReentrantLock();
 	private final Condition condition = lock.newCondition();
+	/** number of consumers blocked on or about to block on the condition */
+	private final AtomicInteger waiters = new AtomicInteger(0);
 
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#waitFor(StreamingMessageQueueConsumer))}
@@ -47,7 +56,8 @@ public class StreamingMessageQueueBlockingWaitStrategy implements StreamingMessa
 		StreamingDataMessage message = null;
 		if((message = queue.next()) == null) {
 			
-			// acquire lock			
+			// announce the consumer before acquiring the lock and checking the queue again
+			waiters.incrementAndGet();
 			lock.lock();
 			try {
 				// try to fetch the next element from the queue.
@@ -59,6 +69,7 @@ public class StreamingMessageQueueBlockingWaitStrategy implements StreamingMessa
 			} finally {
 				// release lock
 				lock.unlock();
+				waiters.decrementAndGet();
 			}			
 		}
 		
@@ -74,29 +85,77 @@ public class StreamingMessageQueueBlockingWaitStrategy implements StreamingMessa
 		StreamingDataMessage message = null;		
 		if((message = queue.next()) == null) {
 			
-			// acquire lock			
+			// announce the consumer before acquiring the lock and checking the queue again
+			waiters.incrementAndGet();
 			lock.lock();
 			try {				
 				// try to fetch the next element from the queue.
-				// if there is no entry available, wait for external notification (forceLockRelease required)
+				// if there is no entry available, wait for external notification (forceLockRelease required) 
+				// or return null once the timeout has elapsed
+				final long deadline = System.nanoTime() + timeoutUnit.toNanos(timeout);
 				while((message = queue.next()) == null) {
-					condition.await(timeout, timeoutUnit);
+					final long remainingNanos = deadline - System.nanoTime();
+					if(remainingNanos <= 0)
+						return null;
+					condition.awaitNanos(remainingNanos);
 				}
 				
 			} finally {
 				// release lock
 				lock.unlock();
+				waiters.decrementAndGet();
 			}			
 		}
 		
 		return message;
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#waitForView(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer)
+	 */
+	public StreamingDataMessageView waitForView(StreamingMessageQueueViewConsumer queue) throws InterruptedException {
+		
+		StreamingDataMessageView view = null;
+		if((view = queue.nextView()) == null) {
+			
+			// announce the consumer before acquiring the lock and checking the queue again
+			waiters.incrementAndGet();
+			lock.lock();
+			try {
+				// try to fetch the next element from the queue.
+				// if there is no entry available, wait for external notification (forceLockRelease required)
+				while((view = queue.nextView()) == null) {
+					condition.await();
+				}
+				
+			} finally {
+				// release lock
+				lock.unlock();
+				waiters.decrementAndGet();
+			}			
+		}
+		
+		return view;
+	}
+
+	/**
+	 * Returns the number of consumers currently blocked
+	 * @return
+	 */
+	public int getWaiters() {
+		return waiters.get();
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#forceLockRelease()
 	 */
 	public void forceLockRelease() {
 		
+		// nobody to wake up - skip the lock. The read-modify-write fences the message published before against 
+		// reading the counter: a consumer not yet counted finds the message when checking the queue again
+		if(waiters.getAndAdd(0) == 0)
+			return;
+		
 		// acquire lock
 		lock.lock();
 		try {
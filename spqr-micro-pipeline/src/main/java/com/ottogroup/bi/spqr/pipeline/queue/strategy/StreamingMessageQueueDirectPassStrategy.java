@@ -18,7 +18,9 @@ package com.ottogroup.bi.spqr.pipeline.queue.strategy;
 import java.util.concurrent.TimeUnit;
 
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
 
 /**
  * Default strategy if no other is provided. All timeouts are ignored and calls are directly forwarded
@@ -45,6 +47,13 @@ public class StreamingMessageQueueDirectPassStrategy implements StreamingMessage
 		return queue.next();
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#waitForView(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer)
+	 */
+	public StreamingDataMessageView waitForView(StreamingMessageQueueViewConsumer queue) throws InterruptedException {
+		return queue.nextView();
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#forceLockRelease()
 	 */
@@ -20,7 +20,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
 
 /**
  * Implements a wait strategy in the style of {@link https://github.com/LMAX-Exchange/disruptor/blob/master/src/main/java/com/lmax/disruptor/SleepingWaitStrategy.java}.
@@ -59,6 +61,7 @@ public class StreamingMessageQueueSleepingWaitStrategy implements StreamingMessa
 	 */
 	public StreamingDataMessage waitFor(StreamingMessageQueueConsumer queue, long timeout, TimeUnit timeoutUnit) throws InterruptedException {
 
+		final long deadline = System.nanoTime() + timeoutUnit.toNanos(timeout);
 		StreamingDataMessage message = null;
 		int counter = retries;
 		while((message = queue.next()) == null) {			
@@ -68,12 +71,35 @@ public class StreamingMessageQueueSleepingWaitStrategy implements StreamingMessa
 				--counter;
 				Thread.yield();
 			} else {
+				// the clock is read only after spinning and yielding - return null once the timeout has elapsed
+				if(System.nanoTime() >= deadline)
+					return null;
 				LockSupport.parkNanos(1l);
 			}			
 		}
 		return message;		
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#waitForView(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer)
+	 */
+	public StreamingDataMessageView waitForView(StreamingMessageQueueViewConsumer queue) throws InterruptedException {
+
+		StreamingDataMessageView view = null;
+		int counter = retries;
+		while((view = queue.nextView()) == null) {			
+			if(counter > 100) {
+				--counter;
+			} else if(counter > 0) {
+				--counter;
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(1l);
+			}			
+		}
+		return view;		
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy#forceLockRelease()
 	 */
@@ -18,7 +18,9 @@ package com.ottogroup.bi.spqr.pipeline.queue.strategy;
 import java.util.concurrent.TimeUnit;
 
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
 
 /**
  * Interface to be implemented by all classes providing a wait strategy for
@@ -47,6 +49,15 @@ public interface StreamingMessageQueueWaitStrategy {
 	 */
 	public StreamingDataMessage waitFor(final StreamingMessageQueueConsumer queue, final long timeout, final TimeUnit timeoutUnit) throws InterruptedException;
 	
+	/**
+	 * Wait for next element from referenced {@link StreamingMessageQueueViewConsumer} and return a view on it. The
+	 * view remains valid until the next element is requested from the consumer. 
+	 * @param queue
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public StreamingDataMessageView waitForView(final StreamingMessageQueueViewConsumer queue) throws InterruptedException;
+	
 	/**
 	 * Forces release of existing locks
 	 */
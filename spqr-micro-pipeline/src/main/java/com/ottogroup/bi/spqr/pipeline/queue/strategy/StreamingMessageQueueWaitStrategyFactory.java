@@ -0,0 +1,58 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.queue.strategy;
+
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
+
+/**
+ * Creates {@link StreamingMessageQueueWaitStrategy} instances from the settings of a {@link StreamingMessageQueue}
+ * @author mnxfst
+ * @since Feb 5, 2016
+ */
+public class StreamingMessageQueueWaitStrategyFactory {
+
+	/** setting used by all queue implementations to select the wait strategy */
+	public static final String CFG_QUEUE_MESSAGE_WAIT_STRATEGY = "queue.message.waitStrategy";
+
+	/**
+	 * Return an instance of the referenced {@link StreamingMessageQueueWaitStrategy}
+	 * @param waitStrategyName name of strategy to instantiate (eg. {@link StreamingMessageQueueBlockingWaitStrategy#STRATEGY_NAME} (default))
+	 * @param properties queue settings providing optional strategy tunables
+	 * @return
+	 */
+	public static StreamingMessageQueueWaitStrategy getWaitStrategy(final String waitStrategyName, final Properties properties) {
+		if(StringUtils.equalsIgnoreCase(waitStrategyName, StreamingMessageQueueDirectPassStrategy.STRATEGY_NAME))
+			return new StreamingMessageQueueDirectPassStrategy();
+		else if(StringUtils.equalsIgnoreCase(waitStrategyName, StreamingMessageQueueSleepingWaitStrategy.STRATEGY_NAME))
+			return new StreamingMessageQueueSleepingWaitStrategy();
+		else if(StringUtils.equalsIgnoreCase(waitStrategyName, StreamingMessageQueueAdaptiveWaitStrategy.STRATEGY_NAME))
+			return StreamingMessageQueueAdaptiveWaitStrategy.fromProperties(properties);
+		return new StreamingMessageQueueBlockingWaitStrategy();
+	}
+	
+	/**
+	 * Return an instance of the {@link StreamingMessageQueueWaitStrategy} referenced by {@link #CFG_QUEUE_MESSAGE_WAIT_STRATEGY}
+	 * @param properties
+	 * @return
+	 */
+	public static StreamingMessageQueueWaitStrategy getWaitStrategy(final Properties properties) {
+		return getWaitStrategy((properties != null ? StringUtils.trim(properties.getProperty(CFG_QUEUE_MESSAGE_WAIT_STRATEGY)) : null), properties);
+	}
+}
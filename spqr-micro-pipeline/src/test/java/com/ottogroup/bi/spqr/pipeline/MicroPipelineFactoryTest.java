@@ -17,8 +17,10 @@ package com.ottogroup.bi.spqr.pipeline;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -36,11 +38,15 @@ import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperator;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseOperator;
+import com.ottogroup.bi.spqr.pipeline.component.operator.EventTimeWindowWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware;
 import com.ottogroup.bi.spqr.pipeline.component.operator.MessageCountResponseWaitStrategy;
 import com.ottogroup.bi.spqr.pipeline.exception.UnknownWaitStrategyException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConfiguration;
 import com.ottogroup.bi.spqr.pipeline.queue.chronicle.DefaultStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.ring.RingBufferStreamingMessageQueue;
 import com.ottogroup.bi.spqr.repository.ComponentRepository;
 import com.ottogroup.bi.spqr.repository.exception.ComponentInstantiationFailedException;
 import com.ottogroup.bi.spqr.repository.exception.UnknownComponentException;
@@ -398,6 +404,31 @@ public class MicroPipelineFactoryTest {
 		Assert.assertEquals("The classes must be equal", DefaultStreamingMessageQueue.class, queue.getClass());
 	}
 
+	/**
+	 * Test case for {@link MicroPipelineFactory#initializeQueue(StreamingMessageQueueConfiguration, int)} being provided a
+	 * ring queue written by two components: the multi producer ring must be used unless the single producer ring is configured explicitly
+	 */
+	@Test
+	public void testInitializeQueue_withRingQueueAndMultipleProducers() throws Exception {
+		Properties props = new Properties();
+		props.put(StreamingMessageQueue.CFG_QUEUE_TYPE, RingBufferStreamingMessageQueue.CFG_QUEUE_TYPE);
+		StreamingMessageQueueConfiguration cfg = new StreamingMessageQueueConfiguration();
+		cfg.setProperties(props);
+		cfg.setId("testInitializeQueue_withRingQueueAndMultipleProducers");
+		MicroPipelineFactory factory = new MicroPipelineFactory("id", Mockito.mock(ComponentRepository.class));
+		
+		Assert.assertFalse("Single producer expected", ((RingBufferStreamingMessageQueue)factory.initializeQueue(cfg, 1)).isMultiProducer());
+		Assert.assertTrue("Multi producer expected", ((RingBufferStreamingMessageQueue)factory.initializeQueue(cfg, 2)).isMultiProducer());
+		
+		props.put(RingBufferStreamingMessageQueue.CFG_QUEUE_RING_PRODUCER_TYPE, RingBufferStreamingMessageQueue.PRODUCER_TYPE_SINGLE);
+		try {
+			factory.initializeQueue(cfg, 2);
+			Assert.fail("Single producer ring written by multiple components");
+		} catch(QueueInitializationFailedException e) {
+			// expected
+		}
+	}
+
 	//////////////////////////////////////////////////////////////////////////////////////////////////////////
 	// @see MicroPipelineFactory#initializeComponent
 
@@ -1051,6 +1082,23 @@ public class MicroPipelineFactoryTest {
 		Assert.assertEquals("Types must be equal", MessageCountResponseWaitStrategy.class, strategy.getClass());
 	}
 	
+	/**
+	 * Test case for {@link MicroPipelineFactory#getResponseWaitStrategy(MicroPipelineComponentConfiguration)} being provided
+	 * a configuration that names the event time window strategy and provides window settings
+	 */
+	@Test
+	public void testGetResponseWaitStrategy_withEventTimeWindowStrategy() throws RequiredInputMissingException, UnknownWaitStrategyException {
+		MicroPipelineComponentConfiguration cfg = new MicroPipelineComponentConfiguration();
+		cfg.getSettings().put(DelayedResponseOperator.CFG_WAIT_STRATEGY_NAME, EventTimeWindowWaitStrategy.WAIT_STRATEGY_NAME);
+		cfg.getSettings().put(DelayedResponseOperator.CFG_WAIT_STRATEGY_SETTINGS_PREFIX + EventTimeWindowWaitStrategy.CFG_WINDOW_SIZE, "60000");
+		cfg.getSettings().put(DelayedResponseOperator.CFG_WAIT_STRATEGY_SETTINGS_PREFIX + EventTimeWindowWaitStrategy.CFG_WINDOW_SLIDE, "60000");
+		cfg.getSettings().put(DelayedResponseOperator.CFG_WAIT_STRATEGY_SETTINGS_PREFIX + EventTimeWindowWaitStrategy.CFG_MAX_OUT_OF_ORDERNESS, "500");
+		DelayedResponseOperatorWaitStrategy strategy = new MicroPipelineFactory("id", Mockito.mock(ComponentRepository.class)).getResponseWaitStrategy(cfg);
+		Assert.assertEquals("Types must be equal", EventTimeWindowWaitStrategy.class, strategy.getClass());
+		Assert.assertEquals("Values must be equal", 60000, ((EventTimeWindowWaitStrategy)strategy).getWindowSize());
+		Assert.assertEquals("Values must be equal", 500, ((EventTimeWindowWaitStrategy)strategy).getMaxOutOfOrderness());
+	}
+	
 //	@Test
 //	public void test() throws Exception {
 //		ComponentRepository repo = new ComponentRepository();
@@ -1065,4 +1113,109 @@ public class MicroPipelineFactoryTest {
 //		System.in.read();
 //	}
 //	
+	/**
+	 * Test case for {@link MicroPipelineFactory#getFusableOperatorChains(MicroPipelineConfiguration)} being provided
+	 * a pipeline holding a linear chain of three operators followed by an operator reading from a shared queue
+	 */
+	@Test
+	public void testGetFusableOperatorChains_withLinearChainAndSharedQueue() {
+		MicroPipelineConfiguration cfg = new MicroPipelineConfiguration();
+		cfg.setId("testGetFusableOperatorChains_withLinearChainAndSharedQueue");
+		cfg.getComponents().add(componentCfg("source", MicroPipelineComponentType.SOURCE, null, "q0"));
+		cfg.getComponents().add(componentCfg("op-3", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q2", "q3"));
+		cfg.getComponents().add(componentCfg("op-1", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q0", "q1"));
+		cfg.getComponents().add(componentCfg("op-2", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q1", "q2"));
+		// q3 is read by two components: op-4 must not be fused
+		cfg.getComponents().add(componentCfg("op-4", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q3", "q4"));
+		cfg.getComponents().add(componentCfg("emitter-1", MicroPipelineComponentType.EMITTER, "q3", null));
+		cfg.getComponents().add(componentCfg("emitter-2", MicroPipelineComponentType.EMITTER, "q4", null));
+		
+		MicroPipelineFactory factory = new MicroPipelineFactory("id", Mockito.mock(ComponentRepository.class));
+		Assert.assertTrue("Fusion enabled by default", cfg.isOperatorFusion());
+		List<List<MicroPipelineComponentConfiguration>> chains = factory.getFusableOperatorChains(cfg);
+		Assert.assertEquals("Values must be equal", 1, chains.size());
+		Assert.assertEquals("Values must be equal", 3, chains.get(0).size());
+		Assert.assertEquals("Values must be equal", "op-1", chains.get(0).get(0).getId());
+		Assert.assertEquals("Values must be equal", "op-2", chains.get(0).get(1).getId());
+		Assert.assertEquals("Values must be equal", "op-3", chains.get(0).get(2).getId());
+		
+		Set<String> fusedQueueIds = factory.getFusedQueueIds(chains);
+		Assert.assertEquals("Values must be equal", 2, fusedQueueIds.size());
+		Assert.assertTrue("Queue connects fused operators", fusedQueueIds.contains("q1"));
+		Assert.assertTrue("Queue connects fused operators", fusedQueueIds.contains("q2"));
+		
+		cfg.setOperatorFusion(false);
+		Assert.assertTrue("Fusion disabled", factory.getFusableOperatorChains(cfg).isEmpty());
+	}
+	
+	/**
+	 * Test case for {@link MicroPipelineFactory#getFusableOperatorChains(MicroPipelineConfiguration)} being provided
+	 * operators which write to the same queue or form a cycle
+	 */
+	@Test
+	public void testGetFusableOperatorChains_withMultipleProducersAndCycle() {
+		MicroPipelineConfiguration cfg = new MicroPipelineConfiguration();
+		cfg.setId("testGetFusableOperatorChains_withMultipleProducersAndCycle");
+		cfg.setOperatorFusion(true);
+		cfg.getComponents().add(componentCfg("op-1", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q0", "q1"));
+		cfg.getComponents().add(componentCfg("op-2", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q5", "q1"));
+		cfg.getComponents().add(componentCfg("op-3", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q1", "q2"));
+		cfg.getComponents().add(componentCfg("op-4", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q6", "q7"));
+		cfg.getComponents().add(componentCfg("op-5", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q7", "q6"));
+		Assert.assertTrue("No chain expected", new MicroPipelineFactory("id", Mockito.mock(ComponentRepository.class)).getFusableOperatorChains(cfg).isEmpty());
+	}
+	
+	/**
+	 * Test case for {@link MicroPipelineFactory#getQueueMessageCodecs(MicroPipelineConfiguration, Map)} being provided a pipeline
+	 * holding two codec aware operators between source and emitter: only the queue connecting both operators may use the internal codec
+	 */
+	@Test
+	public void testGetQueueMessageCodecs_withCodecAwareOperators() {
+		MicroPipelineConfiguration cfg = new MicroPipelineConfiguration();
+		cfg.setId("testGetQueueMessageCodecs_withCodecAwareOperators");
+		cfg.getComponents().add(componentCfg("source", MicroPipelineComponentType.SOURCE, null, "q0"));
+		cfg.getComponents().add(componentCfg("op-1", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q0", "q1"));
+		cfg.getComponents().add(componentCfg("op-2", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q1", "q2"));
+		cfg.getComponents().add(componentCfg("op-3", MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, "q2", "q3"));
+		cfg.getComponents().add(componentCfg("emitter", MicroPipelineComponentType.EMITTER, "q3", null));
+		
+		MicroPipelineComponent awareOperator = Mockito.mock(DirectResponseOperator.class, Mockito.withSettings().extraInterfaces(MessageCodecAware.class));
+		Mockito.when(((MessageCodecAware)awareOperator).supportsMessageCodec(StreamingDataMessageCodec.SMILE)).thenReturn(true);
+		Map<String, MicroPipelineComponent> components = new HashMap<>();
+		components.put("source", Mockito.mock(MicroPipelineComponent.class));
+		components.put("op-1", awareOperator);
+		components.put("op-2", awareOperator);
+		components.put("op-3", Mockito.mock(DirectResponseOperator.class));
+		components.put("emitter", Mockito.mock(MicroPipelineComponent.class));
+		
+		MicroPipelineFactory factory = new MicroPipelineFactory("id", Mockito.mock(ComponentRepository.class));
+		Assert.assertTrue("No internal codec configured", factory.getQueueMessageCodecs(cfg, components).isEmpty());
+		cfg.setMessageCodec("unknown");
+		Assert.assertTrue("Unknown codec configured", factory.getQueueMessageCodecs(cfg, components).isEmpty());
+		
+		cfg.setMessageCodec("SMILE");
+		Map<String, StreamingDataMessageCodec> queueCodecs = factory.getQueueMessageCodecs(cfg, components);
+		Assert.assertEquals("Values must be equal", 1, queueCodecs.size());
+		Assert.assertEquals("Values must be equal", StreamingDataMessageCodec.SMILE, queueCodecs.get("q1"));
+		
+		factory.applyMessageCodecs(awareOperator, cfg.getComponents().get(1), queueCodecs);
+		Mockito.verify((MessageCodecAware)awareOperator).setMessageCodecs(StreamingDataMessageCodec.JSON, StreamingDataMessageCodec.SMILE);
+	}
+	
+	/**
+	 * Returns a component configuration for the given input
+	 * @param id
+	 * @param type
+	 * @param fromQueue
+	 * @param toQueue
+	 * @return
+	 */
+	private static MicroPipelineComponentConfiguration componentCfg(final String id, final MicroPipelineComponentType type, final String fromQueue, final String toQueue) {
+		MicroPipelineComponentConfiguration cfg = new MicroPipelineComponentConfiguration();
+		cfg.setId(id);
+		cfg.setType(type);
+		cfg.setFromQueue(fromQueue);
+		cfg.setToQueue(toQueue);
+		return cfg;
+	}
 }
@@ -15,8 +15,10 @@
  */
 package com.ottogroup.bi.spqr.pipeline;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.AfterClass;
@@ -140,6 +142,62 @@ public class MicroPipelineManagerTest {
 		Mockito.verify(factory).instantiatePipeline(cfg, executorService);
 	}
 
+	/**
+	 * Test case for {@link MicroPipelineManager#newBoundedThreadPool(int)} being provided more tasks than threads: 
+	 * the task exceeding the capacity must be rejected instead of being queued
+	 */
+	@Test
+	public void testNewBoundedThreadPool_withExhaustedCapacity() throws Exception {
+		final ExecutorService boundedExecutorService = MicroPipelineManager.newBoundedThreadPool(1);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Runnable blockingRuntimeEnvironment = new Runnable() {			
+			public void run() {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					// do nothing
+				}
+			}
+		};
+		
+		try {
+			boundedExecutorService.submit(blockingRuntimeEnvironment);
+			boundedExecutorService.submit(blockingRuntimeEnvironment);
+			Assert.fail("Executor service exhausted");
+		} catch(RejectedExecutionException e) {
+			// expected
+		} finally {
+			latch.countDown();
+			boundedExecutorService.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test case for {@link MicroPipelineManager#newVirtualThreadExecutor()} which must return an executor service
+	 * on runtimes supporting virtual threads and fail on any other runtime
+	 */
+	@Test
+	public void testNewVirtualThreadExecutor_withAnyRuntime() throws Exception {
+		boolean virtualThreadsSupported = true;
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch(NoSuchMethodException e) {
+			virtualThreadsSupported = false;
+		}
+		
+		try {
+			ExecutorService svc = MicroPipelineManager.newVirtualThreadExecutor();
+			Assert.assertTrue("Virtual threads must be supported", virtualThreadsSupported);
+			Assert.assertTrue("Task must be executed", svc.submit(new Runnable() {
+				public void run() {
+				}
+			}, Boolean.TRUE).get());
+			svc.shutdownNow();
+		} catch(IllegalStateException e) {
+			Assert.assertFalse("Virtual threads must not be supported", virtualThreadsSupported);
+		}
+	}
+
 	/**
 	 * Test case for {@link MicroPipelineManager#executePipeline(MicroPipelineConfiguration)} being provided a
 	 * valid configuration twice which leads to a {@link NonUniqueIdentifierException}
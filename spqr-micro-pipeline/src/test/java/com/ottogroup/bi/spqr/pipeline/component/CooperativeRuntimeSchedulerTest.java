@@ -0,0 +1,94 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.pipeline.component.emitter.CountDownLatchTestEmitter;
+import com.ottogroup.bi.spqr.pipeline.component.emitter.EmitterRuntimeEnvironment;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+
+/**
+ * Test case for {@link CooperativeRuntimeScheduler}
+ * @author mnxfst
+ * @since Feb 8, 2016
+ */
+public class CooperativeRuntimeSchedulerTest {
+
+	/**
+	 * Test case for {@link CooperativeRuntimeScheduler#schedule(CooperativeRuntimeEnvironment)} being provided null
+	 */
+	@Test
+	public void testSchedule_withNullInput() {
+		CooperativeRuntimeScheduler scheduler = new CooperativeRuntimeScheduler(1, 16, TimeUnit.MILLISECONDS.toNanos(1));
+		scheduler.schedule(null);
+		Assert.assertEquals("Values must be equal", 0, scheduler.getNumOfEnvironments());
+		scheduler.shutdown();
+	}
+	
+	/**
+	 * Test case for {@link CooperativeRuntimeScheduler#schedule(CooperativeRuntimeEnvironment)} with more emitters 
+	 * than worker threads, each emitter reading from a queue of its own
+	 */
+	@Test
+	public void testSchedule_withMoreEmittersThanWorkers() throws Exception {
+		
+		final int numOfEmitters = 8;
+		final int numOfMessages = 1000;
+		final CountDownLatch latch = new CountDownLatch(numOfEmitters * numOfMessages);
+		final CooperativeRuntimeScheduler scheduler = new CooperativeRuntimeScheduler(2, 16, TimeUnit.MILLISECONDS.toNanos(1));
+		Assert.assertEquals("Values must be equal", 2, scheduler.getNumOfWorkers());
+		
+		final InMemoryStreamingMessageQueue[] queues = new InMemoryStreamingMessageQueue[numOfEmitters];
+		final EmitterRuntimeEnvironment[] environments = new EmitterRuntimeEnvironment[numOfEmitters];
+		for(int i = 0; i < numOfEmitters; i++) {
+			queues[i] = new InMemoryStreamingMessageQueue();
+			queues[i].setId("testSchedule_withMoreEmittersThanWorkers-" + i);
+			queues[i].initialize(new Properties());
+			
+			CountDownLatchTestEmitter emitter = new CountDownLatchTestEmitter();
+			emitter.setId("emitter-" + i);
+			emitter.setLatch(latch);
+			environments[i] = new EmitterRuntimeEnvironment("node-1", "pipe-1", emitter, queues[i].getConsumer());
+			scheduler.schedule(environments[i]);
+		}
+		Assert.assertEquals("Values must be equal", numOfEmitters, scheduler.getNumOfEnvironments());
+		
+		for(int m = 0; m < numOfMessages; m++)
+			for(int i = 0; i < numOfEmitters; i++)
+				queues[i].insert(new StreamingDataMessage(("message-"+m).getBytes(), System.currentTimeMillis()));
+		
+		Assert.assertTrue("All messages must be emitted", latch.await(10, TimeUnit.SECONDS));
+		
+		// environments being shut down must be removed from their workers
+		for(final EmitterRuntimeEnvironment env : environments)
+			env.shutdown();
+		long timeout = System.currentTimeMillis() + 5000;
+		while(scheduler.getNumOfEnvironments() > 0 && System.currentTimeMillis() < timeout)
+			Thread.sleep(5);
+		Assert.assertEquals("Values must be equal", 0, scheduler.getNumOfEnvironments());
+		
+		scheduler.shutdown();
+		for(final InMemoryStreamingMessageQueue queue : queues)
+			queue.shutdown();
+	}
+}
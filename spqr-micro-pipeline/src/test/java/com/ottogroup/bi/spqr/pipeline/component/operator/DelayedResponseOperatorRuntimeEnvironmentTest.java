@@ -15,18 +15,27 @@
  */
 package com.ottogroup.bi.spqr.pipeline.component.operator;
 
+import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueBlockingWaitStrategy;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
 
 /**
@@ -155,7 +164,7 @@ public class DelayedResponseOperatorRuntimeEnvironmentTest {
 		StreamingDataMessage message = new StreamingDataMessage("test-message".getBytes(), System.currentTimeMillis());		
 		StreamingDataMessage response = new StreamingDataMessage("response-test-message".getBytes(), System.currentTimeMillis());
 		Mockito.when(queueConsumer.getWaitStrategy()).thenReturn(queueConsumerWaitStrategy);
-		Mockito.when(queueConsumerWaitStrategy.waitFor(queueConsumer)).thenReturn(message);
+		Mockito.when(queueConsumerWaitStrategy.waitFor(Mockito.any(StreamingMessageQueueConsumer.class))).thenReturn(message);
 		Mockito.when(delayedResponseOperator.getResult()).thenReturn(new StreamingDataMessage[]{response});
 		Mockito.when(delayedResponseOperator.getId()).thenReturn("test-id");
 		Mockito.when(queueProducer.getWaitStrategy()).thenReturn(queueProducerWaitStrategy);
@@ -167,14 +176,170 @@ public class DelayedResponseOperatorRuntimeEnvironmentTest {
 
 		Mockito.verify(queueConsumer).getWaitStrategy();
 
-		Mockito.verify(queueConsumerWaitStrategy, Mockito.timeout(500).atLeastOnce()).waitFor(queueConsumer);
+		Mockito.verify(queueConsumerWaitStrategy, Mockito.timeout(500).atLeastOnce()).waitFor(Mockito.any(StreamingMessageQueueConsumer.class));
 		Mockito.verify(delayedResponseOperator, Mockito.timeout(500).atLeast(1)).onMessage(message);
 		Mockito.verify(responseWaitStrategy, Mockito.timeout(500).atLeast(1)).onMessage(message);
 		Mockito.verify(delayedResponseOperator, Mockito.timeout(500)).getResult();
 		Mockito.verify(queueProducerWaitStrategy, Mockito.timeout(500)).forceLockRelease();
-		Mockito.verify(queueProducer, Mockito.timeout(500)).insert(response);
+		Mockito.verify(queueProducer, Mockito.timeout(500)).insertBatch(new StreamingDataMessage[]{response});
 		
 		Assert.assertTrue("The environment must be running", env.isRunning());
 		env.shutdown();
 	}
+
+	/**
+	 * Test case for {@link DelayedResponseOperatorRuntimeEnvironment#retrieveMessages()} being called by a foreign thread
+	 * while messages are processed: the result must be fetched by the processing thread
+	 */
+	@Test
+	public void testRetrieveMessages_fromForeignThread() throws Exception {
+		final AtomicReference<Thread> processingThread = new AtomicReference<>();
+		final AtomicReference<Thread> retrievalThread = new AtomicReference<>();
+		DelayedResponseOperator delayedResponseOperator = Mockito.mock(DelayedResponseOperator.class);
+		Mockito.doAnswer(new Answer<Void>() {
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				processingThread.set(Thread.currentThread());
+				return null;
+			}
+		}).when(delayedResponseOperator).onMessage(Mockito.any(StreamingDataMessage.class));
+		Mockito.when(delayedResponseOperator.getResult()).thenAnswer(new Answer<StreamingDataMessage[]>() {
+			public StreamingDataMessage[] answer(InvocationOnMock invocation) throws Throwable {
+				retrievalThread.set(Thread.currentThread());
+				return new StreamingDataMessage[0];
+			}
+		});
+		
+		StreamingMessageQueueConsumer queueConsumer = Mockito.mock(StreamingMessageQueueConsumer.class);
+		StreamingMessageQueueProducer queueProducer = Mockito.mock(StreamingMessageQueueProducer.class);
+		StreamingMessageQueueWaitStrategy queueConsumerWaitStrategy = Mockito.mock(StreamingMessageQueueWaitStrategy.class);
+		Mockito.when(queueConsumer.getWaitStrategy()).thenReturn(queueConsumerWaitStrategy);
+		Mockito.when(queueConsumerWaitStrategy.waitFor(Mockito.any(StreamingMessageQueueConsumer.class))).thenReturn(
+				new StreamingDataMessage("test-message".getBytes(), System.currentTimeMillis()));
+		Mockito.when(queueProducer.getWaitStrategy()).thenReturn(Mockito.mock(StreamingMessageQueueWaitStrategy.class));
+		
+		DelayedResponseOperatorRuntimeEnvironment env = new DelayedResponseOperatorRuntimeEnvironment("proc-1", "pipe-1", delayedResponseOperator, 
+				Mockito.mock(DelayedResponseOperatorWaitStrategy.class), queueConsumer, queueProducer);
+		executorService.submit(env);
+		Mockito.verify(delayedResponseOperator, Mockito.timeout(500).atLeastOnce()).onMessage(Mockito.any(StreamingDataMessage.class));
+		Mockito.verify(delayedResponseOperator, Mockito.never()).getResult();
+		
+		env.retrieveMessages();
+		Mockito.verify(delayedResponseOperator, Mockito.timeout(500)).getResult();
+		Assert.assertNotNull("Result must be fetched", retrievalThread.get());
+		Assert.assertEquals("Values must be equal", processingThread.get(), retrievalThread.get());
+		env.shutdown();
+	}
+	
+	/**
+	 * Test case for {@link DelayedResponseOperatorRuntimeEnvironment#retrieveMessages()} being called while the source
+	 * queue is empty: the result must be forwarded anyway
+	 */
+	@Test
+	public void testRetrieveMessages_withIdleQueue() throws Exception {
+		DelayedResponseOperator delayedResponseOperator = Mockito.mock(DelayedResponseOperator.class);
+		StreamingDataMessage response = new StreamingDataMessage("response-test-message".getBytes(), System.currentTimeMillis());
+		Mockito.when(delayedResponseOperator.getResult()).thenReturn(new StreamingDataMessage[]{response});
+		
+		StreamingMessageQueueConsumer queueConsumer = Mockito.mock(StreamingMessageQueueConsumer.class);
+		StreamingMessageQueueProducer queueProducer = Mockito.mock(StreamingMessageQueueProducer.class);
+		StreamingMessageQueueWaitStrategy queueConsumerWaitStrategy = Mockito.mock(StreamingMessageQueueWaitStrategy.class);
+		Mockito.when(queueConsumer.getWaitStrategy()).thenReturn(queueConsumerWaitStrategy);
+		Mockito.when(queueConsumerWaitStrategy.waitFor(Mockito.any(StreamingMessageQueueConsumer.class))).thenReturn(null);
+		Mockito.when(queueProducer.getWaitStrategy()).thenReturn(Mockito.mock(StreamingMessageQueueWaitStrategy.class));
+		
+		DelayedResponseOperatorRuntimeEnvironment env = new DelayedResponseOperatorRuntimeEnvironment("proc-1", "pipe-1", delayedResponseOperator, 
+				Mockito.mock(DelayedResponseOperatorWaitStrategy.class), queueConsumer, queueProducer);
+		executorService.submit(env);
+		
+		env.retrieveMessages();
+		Mockito.verify(queueProducer, Mockito.timeout(500)).insertBatch(new StreamingDataMessage[]{response});
+		Mockito.verify(delayedResponseOperator, Mockito.never()).onMessage(Mockito.any(StreamingDataMessage.class));
+		env.shutdown();
+	}
+	
+	/**
+	 * Test case for {@link DelayedResponseOperatorRuntimeEnvironment#retrieveMessages()} being called while the source queue
+	 * using the default blocking wait strategy is empty: the idle processing thread must block without polling the queue and 
+	 * the result must reach the destination queue once requested
+	 */
+	@Test
+	public void testRetrieveMessages_withIdleBlockingQueue() throws Exception {
+		DelayedResponseOperator delayedResponseOperator = Mockito.mock(DelayedResponseOperator.class);
+		Mockito.when(delayedResponseOperator.getResult()).thenReturn(new StreamingDataMessage[]{new StreamingDataMessage("response-test-message".getBytes(), System.currentTimeMillis())});
+		
+		InMemoryStreamingMessageQueue inQueue = new InMemoryStreamingMessageQueue();
+		inQueue.setId("testRetrieveMessages_withIdleBlockingQueue-in");
+		inQueue.initialize(new Properties());
+		InMemoryStreamingMessageQueue outQueue = new InMemoryStreamingMessageQueue();
+		outQueue.setId("testRetrieveMessages_withIdleBlockingQueue-out");
+		outQueue.initialize(new Properties());
+		Assert.assertTrue("Default strategy must block", inQueue.getConsumer().getWaitStrategy() instanceof StreamingMessageQueueBlockingWaitStrategy);
+		
+		// count the number of times the processing thread checks the queue
+		final StreamingMessageQueueConsumer inConsumer = inQueue.getConsumer();
+		final AtomicInteger polls = new AtomicInteger(0);
+		StreamingMessageQueueConsumer countingConsumer = Mockito.mock(StreamingMessageQueueConsumer.class);
+		Mockito.when(countingConsumer.getWaitStrategy()).thenReturn(inConsumer.getWaitStrategy());
+		Mockito.when(countingConsumer.next()).thenAnswer(new Answer<StreamingDataMessage>() {
+			public StreamingDataMessage answer(InvocationOnMock invocation) throws Throwable {
+				polls.incrementAndGet();
+				return inConsumer.next();
+			}
+		});
+		
+		DelayedResponseOperatorRuntimeEnvironment env = new DelayedResponseOperatorRuntimeEnvironment("proc-1", "pipe-1", delayedResponseOperator, 
+				Mockito.mock(DelayedResponseOperatorWaitStrategy.class), countingConsumer, outQueue.getProducer());
+		executorService.submit(env);
+		
+		// let the processing thread block on the empty queue
+		StreamingMessageQueueBlockingWaitStrategy inStrategy = (StreamingMessageQueueBlockingWaitStrategy)inConsumer.getWaitStrategy();
+		boolean blocked = false;
+		long start = System.currentTimeMillis();
+		while(!blocked && System.currentTimeMillis() - start < 5000) {
+			blocked = inStrategy.getWaiters() > 0;
+			Thread.sleep(1);
+		}
+		Assert.assertTrue("Processing thread must be blocked", blocked);
+		final int pollsWhenBlocked = polls.get();
+		Thread.sleep(200);
+		Assert.assertEquals("Idle processing thread must not poll", pollsWhenBlocked, polls.get());
+		
+		env.retrieveMessages();
+		StreamingDataMessage response = outQueue.getConsumer().getWaitStrategy().waitFor(outQueue.getConsumer(), 1000, TimeUnit.MILLISECONDS);
+		Assert.assertNotNull("Result must be released", response);
+		Assert.assertEquals("Values must be equal", "response-test-message", new String(response.getBody()));
+		env.shutdown();
+	}
+	
+	/**
+	 * Test case for {@link DelayedResponseOperatorRuntimeEnvironment#processMessage(StreamingDataMessage)} being attached to an
+	 * {@link EventTimeWaitStrategy}: the message closing a window must not be part of the released result
+	 */
+	@Test
+	public void testProcessMessage_withEventTimeWaitStrategy() throws Exception {
+		DelayedResponseOperator delayedResponseOperator = Mockito.mock(DelayedResponseOperator.class);
+		Mockito.when(delayedResponseOperator.getResult()).thenReturn(new StreamingDataMessage[0]);
+		StreamingMessageQueueConsumer queueConsumer = Mockito.mock(StreamingMessageQueueConsumer.class);
+		StreamingMessageQueueProducer queueProducer = Mockito.mock(StreamingMessageQueueProducer.class);
+		Mockito.when(queueConsumer.getWaitStrategy()).thenReturn(Mockito.mock(StreamingMessageQueueWaitStrategy.class));
+		Mockito.when(queueProducer.getWaitStrategy()).thenReturn(Mockito.mock(StreamingMessageQueueWaitStrategy.class));
+		
+		Properties props = new Properties();
+		props.setProperty(EventTimeWindowWaitStrategy.CFG_WINDOW_SIZE, "1000");
+		EventTimeWindowWaitStrategy waitStrategy = new EventTimeWindowWaitStrategy();
+		waitStrategy.initialize(props);
+		
+		DelayedResponseOperatorRuntimeEnvironment env = new DelayedResponseOperatorRuntimeEnvironment("proc-1", "pipe-1", delayedResponseOperator, 
+				waitStrategy, queueConsumer, queueProducer);
+		StreamingDataMessage first = new StreamingDataMessage("first".getBytes(), 10500);
+		StreamingDataMessage second = new StreamingDataMessage("second".getBytes(), 11000);
+		env.processMessage(first);
+		env.processMessage(second);
+		
+		InOrder inOrder = Mockito.inOrder(delayedResponseOperator);
+		inOrder.verify(delayedResponseOperator).onMessage(first);
+		inOrder.verify(delayedResponseOperator).getResult();
+		inOrder.verify(delayedResponseOperator).onMessage(second);
+		env.shutdown();
+	}
 }
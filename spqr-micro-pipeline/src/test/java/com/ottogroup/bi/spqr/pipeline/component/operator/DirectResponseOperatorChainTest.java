@@ -0,0 +1,129 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
+
+/**
+ * Test case for {@link DirectResponseOperatorChain}
+ * @author mnxfst
+ * @since Feb 9, 2016
+ */
+public class DirectResponseOperatorChainTest {
+
+	/**
+	 * Test case for {@link DirectResponseOperatorChain#fromOperators(java.util.List)} being provided invalid input
+	 */
+	@Test
+	public void testFromOperators_withInvalidInput() {
+		try {
+			DirectResponseOperatorChain.fromOperators(null);
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+		try {
+			DirectResponseOperatorChain.fromOperators(Collections.<DirectResponseOperator>emptyList());
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+		try {
+			DirectResponseOperatorChain.fromOperators(Arrays.asList(Mockito.mock(DirectResponseOperator.class), null));
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Test case for {@link DirectResponseOperatorChain#onMessage(StreamingDataMessage)} where the first operator 
+	 * splits the message, the second one drops one part and the third one receives the remaining part
+	 */
+	@Test
+	public void testOnMessage_withSplitAndDrop() throws Exception {
+		final StreamingDataMessage input = new StreamingDataMessage("input".getBytes(), 1);
+		final StreamingDataMessage part1 = new StreamingDataMessage("part-1".getBytes(), 2);
+		final StreamingDataMessage part2 = new StreamingDataMessage("part-2".getBytes(), 3);
+		final StreamingDataMessage output = new StreamingDataMessage("output".getBytes(), 4);
+		
+		DirectResponseOperator splitter = Mockito.mock(DirectResponseOperator.class);
+		Mockito.when(splitter.getId()).thenReturn("splitter");
+		Mockito.when(splitter.onMessage(input)).thenReturn(new StreamingDataMessage[]{part1, part2});
+		DirectResponseOperator filter = Mockito.mock(DirectResponseOperator.class);
+		Mockito.when(filter.onMessage(part1)).thenReturn(new StreamingDataMessage[0]);
+		Mockito.when(filter.onMessage(part2)).thenReturn(new StreamingDataMessage[]{part2});
+		DirectResponseOperator mapper = Mockito.mock(DirectResponseOperator.class);
+		Mockito.when(mapper.onMessage(part2)).thenReturn(new StreamingDataMessage[]{output});
+		
+		DirectResponseOperatorChain chain = DirectResponseOperatorChain.fromOperators(Arrays.asList(splitter, filter, mapper));
+		Assert.assertFalse("No view support expected", chain instanceof DirectResponseViewOperator);
+		Assert.assertEquals("Values must be equal", "splitter", chain.getId());
+		Assert.assertEquals("Values must be equal", 3, chain.getNumOfStages());
+		
+		Counter filterCounter = new Counter();
+		Counter mapperCounter = new Counter();
+		chain.setStageMessageCounter(1, filterCounter);
+		chain.setStageMessageCounter(2, mapperCounter);
+		
+		StreamingDataMessage[] result = chain.onMessage(input);
+		Assert.assertEquals("Values must be equal", 1, result.length);
+		Assert.assertEquals("Values must be equal", output, result[0]);
+		Assert.assertEquals("Values must be equal", 2, filterCounter.getCount());
+		Assert.assertEquals("Values must be equal", 1, mapperCounter.getCount());
+		
+		// first operator drops the message
+		Assert.assertEquals("Values must be equal", 0, chain.onMessage(part1).length);
+		Mockito.verify(mapper, Mockito.times(1)).onMessage(Mockito.any(StreamingDataMessage.class));
+		
+		chain.shutdown();
+		Mockito.verify(splitter).shutdown();
+		Mockito.verify(filter).shutdown();
+		Mockito.verify(mapper).shutdown();
+	}
+	
+	/**
+	 * Test case for {@link DirectResponseViewOperatorChain#onMessageView(StreamingDataMessageView)} 
+	 */
+	@Test
+	public void testOnMessageView_withViewOperatorAsHead() throws Exception {
+		final StreamingDataMessageView view = Mockito.mock(StreamingDataMessageView.class);
+		final StreamingDataMessage match = new StreamingDataMessage("match".getBytes(), 1);
+		final StreamingDataMessage output = new StreamingDataMessage("output".getBytes(), 2);
+		
+		DirectResponseViewOperator filter = Mockito.mock(DirectResponseViewOperator.class);
+		Mockito.when(filter.onMessageView(view)).thenReturn(new StreamingDataMessage[]{match});
+		DirectResponseOperator mapper = Mockito.mock(DirectResponseOperator.class);
+		Mockito.when(mapper.onMessage(match)).thenReturn(new StreamingDataMessage[]{output});
+		
+		DirectResponseOperatorChain chain = DirectResponseOperatorChain.fromOperators(Arrays.asList(filter, mapper));
+		Assert.assertTrue("View support expected", chain instanceof DirectResponseViewOperator);
+		
+		StreamingDataMessage[] result = ((DirectResponseViewOperator)chain).onMessageView(view);
+		Assert.assertEquals("Values must be equal", 1, result.length);
+		Assert.assertEquals("Values must be equal", output, result[0]);
+	}
+}
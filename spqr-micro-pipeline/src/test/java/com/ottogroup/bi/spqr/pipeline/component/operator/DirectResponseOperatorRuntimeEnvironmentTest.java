@@ -15,18 +15,24 @@
  */
 package com.ottogroup.bi.spqr.pipeline.component.operator;
 
+import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessagePool;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
 import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategy;
 
 /**
@@ -151,7 +157,7 @@ public class DirectResponseOperatorRuntimeEnvironmentTest {
 		Mockito.verify(operator, Mockito.timeout(500).atLeastOnce()).onMessage(inputMessage);
 		Mockito.verify(queueConsumerStrategy, Mockito.timeout(500).atLeastOnce()).waitFor(queueConsumer);
 		Mockito.verify(queueProducerStrategy, Mockito.never()).forceLockRelease();
-		Mockito.verify(queueProducer, Mockito.never()).insert(inputMessage);
+		Mockito.verify(queueProducer, Mockito.never()).insertBatch(new StreamingDataMessage[]{inputMessage});
 		
 		Assert.assertTrue("The environment must be running", env.isRunning());
 	}
@@ -183,10 +189,50 @@ public class DirectResponseOperatorRuntimeEnvironmentTest {
 		Mockito.verify(operator, Mockito.timeout(500).atLeastOnce()).onMessage(inputMessage);
 		Mockito.verify(queueConsumerStrategy, Mockito.timeout(500).atLeastOnce()).waitFor(queueConsumer);
 		Mockito.verify(queueProducerStrategy, Mockito.timeout(500).atLeastOnce()).forceLockRelease();
-		Mockito.verify(queueProducer, Mockito.timeout(500).atLeastOnce()).insert(inputMessage);		
+		Mockito.verify(queueProducer, Mockito.timeout(500).atLeastOnce()).insertBatch(new StreamingDataMessage[]{inputMessage});		
 		Assert.assertTrue("The environment must be running", env.isRunning());
 	}
 	
+	/**
+	 * Test case for {@link DirectResponseOperatorRuntimeEnvironment#poll(int)} where handing over the responses to the destination queue fails:
+	 * the input messages must be returned to their pool and the failed responses must not be inserted again along with the next batch
+	 */
+	@Test
+	public void testPoll_withFailingDestinationQueue() throws Exception {
+		StreamingDataMessagePool pool = new StreamingDataMessagePool();
+		InMemoryStreamingMessageQueue inQueue = new InMemoryStreamingMessageQueue();
+		inQueue.setId("testPoll_withFailingDestinationQueue");
+		inQueue.initialize(new Properties());
+		
+		DirectResponseOperator operator = Mockito.mock(DirectResponseOperator.class);
+		Mockito.when(operator.onMessage(Mockito.any(StreamingDataMessage.class))).thenAnswer(new Answer<StreamingDataMessage[]>() {
+			public StreamingDataMessage[] answer(InvocationOnMock invocation) throws Throwable {
+				return new StreamingDataMessage[]{new StreamingDataMessage("response".getBytes(), System.currentTimeMillis())};
+			}
+		});
+		StreamingMessageQueueProducer queueProducer = Mockito.mock(StreamingMessageQueueProducer.class);
+		Mockito.when(queueProducer.getWaitStrategy()).thenReturn(Mockito.mock(StreamingMessageQueueWaitStrategy.class));
+		Mockito.when(queueProducer.insertBatch(Mockito.any(StreamingDataMessage[].class))).thenThrow(new RuntimeException("Failed to insert batch")).thenReturn(1);
+		
+		DirectResponseOperatorRuntimeEnvironment env = new DirectResponseOperatorRuntimeEnvironment("proc-id", "pipe-id", operator, inQueue.getConsumer(), queueProducer);
+		
+		StreamingDataMessage input = pool.acquire(4, System.currentTimeMillis());
+		inQueue.getProducer().insert(input);
+		input.release();
+		Assert.assertEquals("Values must be equal", 1, env.poll(10));
+		Assert.assertEquals("Input must be returned to its pool", 1, pool.getNumOfPooledMessages());
+		
+		input = pool.acquire(4, System.currentTimeMillis());
+		inQueue.getProducer().insert(input);
+		input.release();
+		Assert.assertEquals("Values must be equal", 1, env.poll(10));
+		Assert.assertEquals("Input must be returned to its pool", 1, pool.getNumOfPooledMessages());
+		
+		ArgumentCaptor<StreamingDataMessage[]> batches = ArgumentCaptor.forClass(StreamingDataMessage[].class);
+		Mockito.verify(queueProducer, Mockito.times(2)).insertBatch(batches.capture());
+		Assert.assertEquals("Failed responses must not be inserted again", 1, batches.getAllValues().get(1).length);
+	}
+	
 	/**
 	 * Test case for {@link DirectResponseOperatorRuntimeEnvironment#shutdown()} where the environment previously received valid data.
 	 * The attached mock objects must register the shut down attempt
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Test case for {@link EventTimeWindowWaitStrategy}
+ * @author mnxfst
+ * @since Feb 11, 2016
+ */
+public class EventTimeWindowWaitStrategyTest {
+
+	/**
+	 * Test case for {@link EventTimeWindowWaitStrategy#initialize(Properties)} being provided invalid settings
+	 */
+	@Test
+	public void testInitialize_withInvalidSettings() {
+		Properties props = new Properties();
+		props.setProperty(EventTimeWindowWaitStrategy.CFG_WINDOW_SIZE, "-1");
+		props.setProperty(EventTimeWindowWaitStrategy.CFG_WINDOW_SLIDE, "-1");
+		props.setProperty(EventTimeWindowWaitStrategy.CFG_MAX_OUT_OF_ORDERNESS, "abc");
+		EventTimeWindowWaitStrategy strategy = new EventTimeWindowWaitStrategy();
+		strategy.initialize(props);
+		Assert.assertEquals("Values must be equal", EventTimeWindowWaitStrategy.DEFAULT_WINDOW_SIZE, strategy.getWindowSize());
+		Assert.assertEquals("Values must be equal", EventTimeWindowWaitStrategy.DEFAULT_MAX_OUT_OF_ORDERNESS, strategy.getMaxOutOfOrderness());
+	}
+	
+	/**
+	 * Test case for {@link EventTimeWindowWaitStrategy#initialize(Properties)} being provided a window slide differing
+	 * from the window size: sliding windows are not supported 
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testInitialize_withSlidingWindow() {
+		getStrategy(Mockito.mock(DelayedResponseCollector.class), 1000, 250, 0);
+	}
+	
+	/**
+	 * Test case for {@link EventTimeWindowWaitStrategy#onMessage(StreamingDataMessage)} with tumbling windows: the results
+	 * must be released as soon as the first message of the next window arrives
+	 */
+	@Test
+	public void testOnMessage_withTumblingWindow() {
+		DelayedResponseCollector collector = Mockito.mock(DelayedResponseCollector.class);
+		EventTimeWindowWaitStrategy strategy = getStrategy(collector, 1000, 1000, 0);
+		
+		offer(strategy, 10500);
+		offer(strategy, 10999);
+		Mockito.verify(collector, Mockito.never()).retrieveMessages();
+		offer(strategy, 11000);
+		Mockito.verify(collector, Mockito.times(1)).retrieveMessages();
+		Assert.assertEquals("Values must be equal", 11000, strategy.getWatermark());
+		
+		// skipping multiple windows must lead to a single release
+		offer(strategy, 15200);
+		Mockito.verify(collector, Mockito.times(2)).retrieveMessages();
+		offer(strategy, 15999);
+		Mockito.verify(collector, Mockito.times(2)).retrieveMessages();
+		offer(strategy, 16000);
+		Mockito.verify(collector, Mockito.times(3)).retrieveMessages();
+	}
+	
+	/**
+	 * Test case for {@link EventTimeWindowWaitStrategy#onMessage(StreamingDataMessage)} with messages arriving out of
+	 * order: messages of the next window must be held back until the window closes after the configured out-of-orderness 
+	 * and messages arriving even later must be counted and accounted to the open window
+	 */
+	@Test
+	public void testOnMessage_withOutOfOrderMessages() {
+		WindowRecorder recorder = new WindowRecorder();
+		EventTimeWindowWaitStrategy strategy = getStrategy(recorder, 1000, 1000, 200);
+		
+		recorder.offer(strategy, 10500);
+		recorder.offer(strategy, 11100);
+		Assert.assertEquals("Message of next window must be held back", 1, strategy.getNumOfHeldMessages());
+		recorder.offer(strategy, 10900);
+		Assert.assertTrue("Window must not be closed", recorder.windows.isEmpty());
+		Assert.assertEquals("Values must be equal", 0, strategy.getNumOfLateMessages());
+		
+		recorder.offer(strategy, 11200);
+		Assert.assertEquals("Values must be equal", 11000, strategy.getWatermark());
+		Assert.assertEquals("Values must be equal", 0, strategy.getNumOfHeldMessages());
+		
+		recorder.offer(strategy, 10950);
+		Assert.assertEquals("Values must be equal", 1, strategy.getNumOfLateMessages());
+		recorder.offer(strategy, 12300);
+		
+		Assert.assertEquals("Values must be equal", 2, recorder.windows.size());
+		Assert.assertEquals("Values must be equal", Arrays.asList(10500L, 10900L), recorder.windows.get(0));
+		Assert.assertEquals("Values must be equal", Arrays.asList(11100L, 11200L, 10950L), recorder.windows.get(1));
+		Assert.assertEquals("Values must be equal", Arrays.asList(12300L), recorder.current);
+	}
+	
+	/**
+	 * Test case for {@link EventTimeWindowWaitStrategy#onMessage(StreamingDataMessage)} with held back messages of multiple
+	 * windows getting due at once: each window must be released separately covering its messages only
+	 */
+	@Test
+	public void testOnMessage_withHeldMessagesOfMultipleWindows() {
+		WindowRecorder recorder = new WindowRecorder();
+		EventTimeWindowWaitStrategy strategy = getStrategy(recorder, 1000, 1000, 800);
+		
+		recorder.offer(strategy, 10900);
+		recorder.offer(strategy, 11500);
+		recorder.offer(strategy, 12100);
+		recorder.offer(strategy, 11999);
+		Assert.assertEquals("Values must be equal", 1, recorder.windows.size());
+		Assert.assertEquals("Values must be equal", 1, strategy.getNumOfHeldMessages());
+		
+		recorder.offer(strategy, 13900);
+		Assert.assertEquals("Values must be equal", 3, recorder.windows.size());
+		Assert.assertEquals("Values must be equal", Arrays.asList(10900L), recorder.windows.get(0));
+		Assert.assertEquals("Values must be equal", Arrays.asList(11500L, 11999L), recorder.windows.get(1));
+		Assert.assertEquals("Values must be equal", Arrays.asList(12100L), recorder.windows.get(2));
+		Assert.assertEquals("Values must be equal", Arrays.asList(13900L), recorder.current);
+		Assert.assertEquals("Values must be equal", 0, strategy.getNumOfLateMessages());
+	}
+	
+	/**
+	 * Test case for {@link EventTimeWindowWaitStrategy#getWindowEndAfter(long)} being provided timestamps located
+	 * before, on and after window boundaries
+	 */
+	@Test
+	public void testGetWindowEndAfter_withVariousTimestamps() {
+		EventTimeWindowWaitStrategy strategy = getStrategy(Mockito.mock(DelayedResponseCollector.class), 1000, 1000, 0);
+		Assert.assertEquals("Values must be equal", 1000, strategy.getWindowEndAfter(999));
+		Assert.assertEquals("Values must be equal", 2000, strategy.getWindowEndAfter(1000));
+		Assert.assertEquals("Values must be equal", 1000, strategy.getWindowEndAfter(0));
+		Assert.assertEquals("Values must be equal", 0, strategy.getWindowEndAfter(-1));
+		Assert.assertEquals("Values must be equal", -1000, strategy.getWindowEndAfter(-1001));
+	}
+	
+	/**
+	 * Returns an initialized strategy
+	 * @param collector
+	 * @param size
+	 * @param slide
+	 * @param maxOutOfOrderness
+	 * @return
+	 */
+	private EventTimeWindowWaitStrategy getStrategy(final DelayedResponseCollector collector, final long size, final long slide, final long maxOutOfOrderness) {
+		Properties props = new Properties();
+		props.setProperty(EventTimeWindowWaitStrategy.CFG_WINDOW_SIZE, String.valueOf(size));
+		props.setProperty(EventTimeWindowWaitStrategy.CFG_WINDOW_SLIDE, String.valueOf(slide));
+		props.setProperty(EventTimeWindowWaitStrategy.CFG_MAX_OUT_OF_ORDERNESS, String.valueOf(maxOutOfOrderness));
+		EventTimeWindowWaitStrategy strategy = new EventTimeWindowWaitStrategy();
+		strategy.initialize(props);
+		strategy.setDelayedResponseCollector(collector);
+		return strategy;
+	}
+	
+	/**
+	 * Hands over a message carrying the given timestamp to the strategy and fetches all messages passed on 
+	 * @param strategy
+	 * @param timestamp
+	 */
+	private static void offer(final EventTimeWindowWaitStrategy strategy, final long timestamp) {
+		strategy.onMessage(new StreamingDataMessage("test".getBytes(), timestamp));
+		while(strategy.poll() != null) {
+			// pass on all messages due
+		}
+	}
+	
+	/**
+	 * Records the timestamps of all messages passed on by the strategy and groups them by release
+	 * @author mnxfst
+	 * @since Feb 18, 2016
+	 */
+	private static class WindowRecorder implements DelayedResponseCollector {
+		
+		private final List<List<Long>> windows = new ArrayList<>();
+		private List<Long> current = new ArrayList<>();
+		
+		/**
+		 * Hands over a message carrying the given timestamp to the strategy and records all messages passed on. As the
+		 * strategy releases before passing on the first message of the next window, each release closes the current record   
+		 * @param strategy
+		 * @param timestamp
+		 */
+		private void offer(final EventTimeWindowWaitStrategy strategy, final long timestamp) {
+			strategy.onMessage(new StreamingDataMessage("test".getBytes(), timestamp));
+			StreamingDataMessage message = null;
+			while((message = strategy.poll()) != null)
+				this.current.add(message.getTimestamp());
+		}
+		
+		public void retrieveMessages() {
+			this.windows.add(this.current);
+			this.current = new ArrayList<>();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+
+/**
+ * Test case for {@link HashedWheelReleaseTimer}
+ * @author mnxfst
+ * @since Feb 12, 2016
+ */
+public class HashedWheelReleaseTimerTest {
+
+	/**
+	 * Test case for {@link HashedWheelReleaseTimer#schedule(Runnable, long)} being provided null as callback
+	 */
+	@Test(expected=RequiredInputMissingException.class)
+	public void testSchedule_withNullCallback() throws Exception {
+		HashedWheelReleaseTimer timer = new HashedWheelReleaseTimer();
+		try {
+			timer.schedule(null, 10);
+		} finally {
+			timer.shutdown();
+		}
+	}
+
+	/**
+	 * Test case for {@link HashedWheelReleaseTimer#schedule(Runnable, long)} being provided an invalid interval
+	 */
+	@Test(expected=RequiredInputMissingException.class)
+	public void testSchedule_withInvalidInterval() throws Exception {
+		HashedWheelReleaseTimer timer = new HashedWheelReleaseTimer();
+		try {
+			timer.schedule(Mockito.mock(Runnable.class), 0);
+		} finally {
+			timer.shutdown();
+		}
+	}
+
+	/**
+	 * Test case for {@link HashedWheelReleaseTimer#schedule(Runnable, long)} with many callbacks sharing one thread: each
+	 * callback must be executed periodically - including those having an interval exceeding one round of the wheel - and
+	 * must not be executed any more once cancelled
+	 */
+	@Test
+	public void testSchedule_withMultipleCallbacks() throws Exception {
+		HashedWheelReleaseTimer timer = new HashedWheelReleaseTimer(1, 8);
+		try {
+			final AtomicInteger[] counters = new AtomicInteger[100];
+			final HashedWheelReleaseTimer.Registration[] registrations = new HashedWheelReleaseTimer.Registration[counters.length];
+			for(int i = 0; i < counters.length; i++) {
+				counters[i] = new AtomicInteger(0);
+				final AtomicInteger counter = counters[i];
+				registrations[i] = timer.schedule(new Runnable() {
+					public void run() {
+						counter.incrementAndGet();
+					}
+				}, (i % 2 == 0 ? 10 : 25));
+			}
+			Assert.assertEquals("Values must be equal", counters.length, timer.getNumOfRegistrations());
+
+			Thread.sleep(300);
+			for(int i = 0; i < counters.length; i++)
+				Assert.assertTrue("Callback must have been executed multiple times", counters[i].get() > 3);
+
+			for(final HashedWheelReleaseTimer.Registration registration : registrations)
+				registration.cancel();
+			Thread.sleep(100);
+			Assert.assertEquals("Values must be equal", 0, timer.getNumOfRegistrations());
+
+			final int executions = counters[0].get();
+			Thread.sleep(100);
+			Assert.assertEquals("Values must be equal", executions, counters[0].get());
+		} finally {
+			timer.shutdown();
+		}
+	}
+
+	/**
+	 * Test case for {@link TimerBasedResponseWaitStrategy#register(HashedWheelReleaseTimer)}: releases must be triggered
+	 * by the timer while {@link TimerBasedResponseWaitStrategy#run()} returns immediately
+	 */
+	@Test(timeout=5000)
+	public void testRegister_withTimerBasedStrategy() throws Exception {
+		HashedWheelReleaseTimer timer = new HashedWheelReleaseTimer();
+		try {
+			DelayedResponseCollector collector = Mockito.mock(DelayedResponseCollector.class);
+			Properties props = new Properties();
+			props.setProperty(TimerBasedResponseWaitStrategy.CFG_MAX_DURATION, "20");
+			TimerBasedResponseWaitStrategy strategy = new TimerBasedResponseWaitStrategy();
+			strategy.initialize(props);
+			strategy.setDelayedResponseCollector(collector);
+
+			Assert.assertFalse("Null must not be accepted", strategy.register(null));
+			Assert.assertTrue("Registration must succeed", strategy.register(timer));
+			strategy.run();
+
+			Thread.sleep(200);
+			Mockito.verify(collector, Mockito.atLeast(3)).retrieveMessages();
+
+			strategy.shutdown();
+			Thread.sleep(50);
+			Assert.assertEquals("Values must be equal", 0, timer.getNumOfRegistrations());
+		} finally {
+			timer.shutdown();
+		}
+	}
+}
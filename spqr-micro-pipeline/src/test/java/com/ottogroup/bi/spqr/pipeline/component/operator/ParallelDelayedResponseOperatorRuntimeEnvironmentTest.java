@@ -0,0 +1,412 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.RoundRobinMessagePartitioner;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+
+/**
+ * Test case for {@link ParallelDelayedResponseOperatorRuntimeEnvironment}
+ * @author mnxfst
+ * @since Feb 11, 2016
+ */
+public class ParallelDelayedResponseOperatorRuntimeEnvironmentTest {
+
+	private static ExecutorService executorService = Executors.newCachedThreadPool();
+	
+	@AfterClass
+	public static void shutdown() {
+		if(executorService != null)
+			executorService.shutdownNow();
+	}
+	
+	/**
+	 * Test case for {@link ParallelDelayedResponseOperatorRuntimeEnvironment#ParallelDelayedResponseOperatorRuntimeEnvironment(String, String, List, com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner, DelayedResponseOperatorWaitStrategy, StreamingMessageQueueConsumer, StreamingMessageQueueProducer, ExecutorService)}
+	 * being provided invalid input
+	 */
+	@Test
+	public void testConstructor_withInvalidInput() {
+		try {
+			new ParallelDelayedResponseOperatorRuntimeEnvironment("node-id", "pipe-id", new ArrayList<MergeableDelayedResponseOperator>(), new RoundRobinMessagePartitioner(), 
+					new OperatorTriggeredWaitStrategy(), Mockito.mock(StreamingMessageQueueConsumer.class), Mockito.mock(StreamingMessageQueueProducer.class), executorService);
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+		try {
+			new ParallelDelayedResponseOperatorRuntimeEnvironment("node-id", "pipe-id", Arrays.asList(Mockito.mock(MergeableDelayedResponseOperator.class), null), new RoundRobinMessagePartitioner(), 
+					new OperatorTriggeredWaitStrategy(), Mockito.mock(StreamingMessageQueueConsumer.class), Mockito.mock(StreamingMessageQueueProducer.class), executorService);
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+		try {
+			new ParallelDelayedResponseOperatorRuntimeEnvironment("node-id", "pipe-id", Arrays.asList(Mockito.mock(MergeableDelayedResponseOperator.class)), new RoundRobinMessagePartitioner(), 
+					null, Mockito.mock(StreamingMessageQueueConsumer.class), Mockito.mock(StreamingMessageQueueProducer.class), executorService);
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Test case for {@link ParallelDelayedResponseOperatorRuntimeEnvironment#retrieveMessages()} being triggered from outside
+	 * the lanes: all partial counts must be merged into a single result
+	 */
+	@Test
+	public void testRetrieveMessages_withExternalRelease() throws Exception {
+		List<Long> counts = runParallel("testRetrieveMessages_withExternalRelease", 2000, 0);
+		Assert.assertEquals("Values must be equal", 1, counts.size());
+		Assert.assertEquals("Values must be equal", Long.valueOf(2000), counts.get(0));
+	}
+	
+	/**
+	 * Test case for {@link ParallelDelayedResponseOperatorRuntimeEnvironment#retrieveMessages()} being triggered by operator
+	 * instances while processing messages: no message must be lost or counted twice
+	 */
+	@Test
+	public void testRetrieveMessages_withOperatorTriggeredRelease() throws Exception {
+		List<Long> counts = runParallel("testRetrieveMessages_withOperatorTriggeredRelease", 2000, 100);
+		long total = 0;
+		for(final Long count : counts)
+			total = total + count.longValue();
+		Assert.assertEquals("Values must be equal", 2000, total);
+	}
+	
+	/**
+	 * Test case for {@link ParallelDelayedResponseOperatorRuntimeEnvironment#retrieveMessages()} being triggered by the 
+	 * {@link HashedWheelReleaseTimer} while merging takes long: the timer thread must not be held up, thus another registration 
+	 * keeps on firing at its interval
+	 */
+	@Test
+	public void testRetrieveMessages_withSlowMergeOnReleaseTimer() throws Exception {
+		InMemoryStreamingMessageQueue inQueue = new InMemoryStreamingMessageQueue();
+		inQueue.setId("testRetrieveMessages_withSlowMergeOnReleaseTimer-in");
+		inQueue.initialize(new Properties());
+		InMemoryStreamingMessageQueue outQueue = new InMemoryStreamingMessageQueue();
+		outQueue.setId("testRetrieveMessages_withSlowMergeOnReleaseTimer-out");
+		outQueue.initialize(new Properties());
+		
+		final AtomicLong processed = new AtomicLong(0);
+		final AtomicInteger merges = new AtomicInteger(0);
+		List<MergeableDelayedResponseOperator> operators = new ArrayList<>();
+		for(int i = 0; i < 2; i++)
+			operators.add(new SlowMergingOperator("testRetrieveMessages_withSlowMergeOnReleaseTimer", processed, merges, 200));
+
+		Properties strategyProperties = new Properties();
+		strategyProperties.setProperty(TimerBasedResponseWaitStrategy.CFG_MAX_DURATION, "10");
+		TimerBasedResponseWaitStrategy waitStrategy = new TimerBasedResponseWaitStrategy();
+		waitStrategy.initialize(strategyProperties);
+
+		HashedWheelReleaseTimer releaseTimer = new HashedWheelReleaseTimer();
+		ParallelDelayedResponseOperatorRuntimeEnvironment env = new ParallelDelayedResponseOperatorRuntimeEnvironment("node-id", "pipe-id", operators, 
+				new RoundRobinMessagePartitioner(), waitStrategy, inQueue.getConsumer(), outQueue.getProducer(), executorService, releaseTimer);
+		executorService.submit(env);
+		
+		final AtomicInteger ticks = new AtomicInteger(0);
+		releaseTimer.schedule(new Runnable() {
+			public void run() {
+				ticks.incrementAndGet();
+			}
+		}, 10);
+		
+		for(int i = 0; i < 100; i++)
+			inQueue.insert(new StreamingDataMessage(("message-" + i).getBytes(), i));
+		inQueue.getProducer().getWaitStrategy().forceLockRelease();
+		
+		// each merge takes 200ms - executed on the timer thread the second registration would fire about five times per second 
+		Thread.sleep(1000);
+		final int numOfTicks = ticks.get();
+		
+		env.shutdown();
+		releaseTimer.shutdown();
+		inQueue.shutdown();
+		outQueue.shutdown();
+		
+		Assert.assertTrue("Merging must have started", merges.get() > 0);
+		Assert.assertTrue("Timer must keep on firing while merging, ticks: " + numOfTicks, numOfTicks >= 40);
+	}
+	
+	/**
+	 * Test case for {@link ParallelDelayedResponseOperatorRuntimeEnvironment#retrieveMessages()} being triggered by an 
+	 * {@link EventTimeWindowWaitStrategy} while slow lanes still hold messages of the closed window: each result must contain
+	 * exactly the messages of its window
+	 */
+	@Test
+	public void testRetrieveMessages_withEventTimeWindowAndSlowLanes() throws Exception {
+		InMemoryStreamingMessageQueue inQueue = new InMemoryStreamingMessageQueue();
+		inQueue.setId("testRetrieveMessages_withEventTimeWindowAndSlowLanes-in");
+		inQueue.initialize(new Properties());
+		InMemoryStreamingMessageQueue outQueue = new InMemoryStreamingMessageQueue();
+		outQueue.setId("testRetrieveMessages_withEventTimeWindowAndSlowLanes-out");
+		outQueue.initialize(new Properties());
+		
+		List<MergeableDelayedResponseOperator> operators = new ArrayList<>();
+		for(int i = 0; i < 4; i++)
+			operators.add(new CollectingOperator("testRetrieveMessages_withEventTimeWindowAndSlowLanes", 200000));
+		
+		Properties strategyProperties = new Properties();
+		strategyProperties.setProperty(EventTimeWindowWaitStrategy.CFG_WINDOW_SIZE, "10");
+		EventTimeWindowWaitStrategy waitStrategy = new EventTimeWindowWaitStrategy();
+		waitStrategy.initialize(strategyProperties);
+		
+		ParallelDelayedResponseOperatorRuntimeEnvironment env = new ParallelDelayedResponseOperatorRuntimeEnvironment("node-id", "pipe-id", operators, 
+				new RoundRobinMessagePartitioner(), waitStrategy, inQueue.getConsumer(), outQueue.getProducer(), executorService);
+		executorService.submit(env);
+		
+		// windows [0, 10), [10, 20), ..., [40, 50) - the last one gets closed by the message at 100
+		for(int i = 0; i < 50; i++)
+			inQueue.insert(new StreamingDataMessage(String.valueOf(i).getBytes(), i));
+		inQueue.insert(new StreamingDataMessage("100".getBytes(), 100));
+		inQueue.getProducer().getWaitStrategy().forceLockRelease();
+		
+		final List<String> windows = new ArrayList<>();
+		final long timeout = System.currentTimeMillis() + 20000;
+		while(windows.size() < 5 && System.currentTimeMillis() < timeout) {
+			final StreamingDataMessage response = outQueue.next();
+			if(response != null)
+				windows.add(new String(response.getBody()));
+			else
+				Thread.sleep(1);
+		}
+		
+		env.shutdown();
+		inQueue.shutdown();
+		outQueue.shutdown();
+		
+		Assert.assertEquals("Values must be equal", 5, windows.size());
+		for(int w = 0; w < 5; w++) {
+			final StringBuilder expected = new StringBuilder();
+			for(int i = w * 10; i < (w + 1) * 10; i++)
+				expected.append(expected.length() > 0 ? "," : "").append(i);
+			Assert.assertEquals("Window " + w + " must contain all of its messages only", expected.toString(), windows.get(w));
+		}
+	}
+	
+	/**
+	 * Runs 4 counting operator instances, sends the given number of messages, releases the results and returns all
+	 * counts forwarded to the destination queue
+	 * @param id
+	 * @param numOfMessages
+	 * @param releaseInterval number of messages after which an operator instance triggers a release, 0 = never
+	 * @return
+	 */
+	private List<Long> runParallel(final String id, final int numOfMessages, final int releaseInterval) throws Exception {
+		InMemoryStreamingMessageQueue inQueue = new InMemoryStreamingMessageQueue();
+		inQueue.setId(id + "-in");
+		inQueue.initialize(new Properties());
+		InMemoryStreamingMessageQueue outQueue = new InMemoryStreamingMessageQueue();
+		outQueue.setId(id + "-out");
+		outQueue.initialize(new Properties());
+		
+		final AtomicLong processed = new AtomicLong(0);
+		List<MergeableDelayedResponseOperator> operators = new ArrayList<>();
+		for(int i = 0; i < 4; i++)
+			operators.add(new CountingOperator(id, processed, releaseInterval));
+		
+		OperatorTriggeredWaitStrategy waitStrategy = new OperatorTriggeredWaitStrategy();
+		ParallelDelayedResponseOperatorRuntimeEnvironment env = new ParallelDelayedResponseOperatorRuntimeEnvironment("node-id", "pipe-id", operators, 
+				new RoundRobinMessagePartitioner(), waitStrategy, inQueue.getConsumer(), outQueue.getProducer(), executorService);
+		Assert.assertEquals("Values must be equal", 4, env.getParallelism());
+		executorService.submit(env);
+		
+		for(int i = 0; i < numOfMessages; i++)
+			inQueue.insert(new StreamingDataMessage(("message-" + i).getBytes(), i));
+		inQueue.getProducer().getWaitStrategy().forceLockRelease();
+		
+		long timeout = System.currentTimeMillis() + 20000;
+		while(processed.get() < numOfMessages && System.currentTimeMillis() < timeout)
+			Thread.sleep(1);
+		Assert.assertEquals("Values must be equal", numOfMessages, processed.get());
+		waitStrategy.release();
+		
+		// results are forwarded by the dispatching thread - collect them until all messages are accounted for
+		final List<Long> counts = new ArrayList<>();
+		long total = 0;
+		timeout = System.currentTimeMillis() + 20000;
+		while(total < numOfMessages && System.currentTimeMillis() < timeout) {
+			final StreamingDataMessage response = outQueue.next();
+			if(response == null) {
+				Thread.sleep(1);
+				continue;
+			}
+			final long count = Long.parseLong(new String(response.getBody()));
+			if(count > 0) {
+				counts.add(count);
+				total = total + count;
+			}
+		}
+		
+		env.shutdown();
+		inQueue.shutdown();
+		outQueue.shutdown();
+		return counts;
+	}
+	
+	/**
+	 * Counts the number of messages since last result
+	 * @author mnxfst
+	 * @since Feb 11, 2016
+	 */
+	private static class CountingOperator implements MergeableDelayedResponseOperator {
+		
+		private String id = null;
+		private final AtomicLong processed;
+		private final int releaseInterval;
+		private DelayedResponseOperatorWaitStrategy waitStrategy = null;
+		private long count = 0;
+		private long total = 0;
+		
+		private CountingOperator(final String id, final AtomicLong processed, final int releaseInterval) {
+			this.id = id;
+			this.processed = processed;
+			this.releaseInterval = releaseInterval;
+		}
+		
+		public void onMessage(StreamingDataMessage message) {
+			this.count++;
+			this.total++;
+			if(this.releaseInterval > 0 && this.total % this.releaseInterval == 0)
+				this.waitStrategy.release();
+			this.processed.incrementAndGet();
+		}
+
+		public StreamingDataMessage[] getResult() {
+			final StreamingDataMessage result = new StreamingDataMessage(String.valueOf(this.count).getBytes(), System.currentTimeMillis());
+			this.count = 0;
+			return new StreamingDataMessage[]{result};
+		}
+
+		public void merge(MergeableDelayedResponseOperator partial) {
+			this.count = this.count + ((CountingOperator)partial).count;
+			((CountingOperator)partial).count = 0;
+		}
+
+		public long getNumberOfMessagesSinceLastResult() {
+			return this.count;
+		}
+
+		public void setWaitStrategy(DelayedResponseOperatorWaitStrategy waitStrategy) {
+			this.waitStrategy = waitStrategy;
+		}
+
+		public long getTotalNumOfMessages() {
+			return this.total;
+		}
+
+		public void setId(String id) {
+			this.id = id;
+		}
+
+		public String getId() {
+			return this.id;
+		}
+
+		public void initialize(Properties properties) throws RequiredInputMissingException {
+		}
+
+		public boolean shutdown() {
+			return true;
+		}
+
+		public MicroPipelineComponentType getType() {
+			return MicroPipelineComponentType.DELAYED_RESPONSE_OPERATOR;
+		}
+	}
+	
+	/**
+	 * Collects the timestamps of all messages since last result and returns them sorted as comma separated list
+	 * @author mnxfst
+	 * @since Feb 18, 2016
+	 */
+	private static class CollectingOperator extends CountingOperator {
+		
+		private final long processingNanos;
+		private List<Long> timestamps = new ArrayList<>();
+		
+		private CollectingOperator(final String id, final long processingNanos) {
+			super(id, new AtomicLong(0), 0);
+			this.processingNanos = processingNanos;
+		}
+		
+		public void onMessage(StreamingDataMessage message) {
+			LockSupport.parkNanos(this.processingNanos);
+			this.timestamps.add(message.getTimestamp());
+		}
+		
+		public StreamingDataMessage[] getResult() {
+			Collections.sort(this.timestamps);
+			final StringBuilder result = new StringBuilder();
+			for(final Long timestamp : this.timestamps)
+				result.append(result.length() > 0 ? "," : "").append(timestamp);
+			this.timestamps = new ArrayList<>();
+			return new StreamingDataMessage[]{new StreamingDataMessage(result.toString().getBytes(), System.currentTimeMillis())};
+		}
+		
+		public void merge(MergeableDelayedResponseOperator partial) {
+			this.timestamps.addAll(((CollectingOperator)partial).timestamps);
+			((CollectingOperator)partial).timestamps = new ArrayList<>();
+		}
+	}
+	
+	/**
+	 * Counting operator which takes the given time to merge a partial result
+	 * @author mnxfst
+	 * @since Feb 18, 2016
+	 */
+	private static class SlowMergingOperator extends CountingOperator {
+		
+		private final AtomicInteger merges;
+		private final long mergeMillis;
+		
+		private SlowMergingOperator(final String id, final AtomicLong processed, final AtomicInteger merges, final long mergeMillis) {
+			super(id, processed, 0);
+			this.merges = merges;
+			this.mergeMillis = mergeMillis;
+		}
+		
+		public void merge(MergeableDelayedResponseOperator partial) {
+			this.merges.incrementAndGet();
+			try {
+				Thread.sleep(this.mergeMillis);
+			} catch(InterruptedException e) {
+				// keep on
+			}
+			super.merge(partial);
+		}
+	}
+}
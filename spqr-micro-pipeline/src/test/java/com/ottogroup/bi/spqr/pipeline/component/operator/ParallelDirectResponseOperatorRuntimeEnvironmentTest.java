@@ -0,0 +1,261 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
+import com.ottogroup.bi.spqr.pipeline.component.operator.partition.RoundRobinMessagePartitioner;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessagePool;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+
+/**
+ * Test case for {@link ParallelDirectResponseOperatorRuntimeEnvironment}
+ * @author mnxfst
+ * @since Feb 10, 2016
+ */
+public class ParallelDirectResponseOperatorRuntimeEnvironmentTest {
+
+	private static ExecutorService executorService = Executors.newCachedThreadPool();
+	
+	@AfterClass
+	public static void shutdown() {
+		if(executorService != null)
+			executorService.shutdownNow();
+	}
+	
+	/**
+	 * Test case for {@link ParallelDirectResponseOperatorRuntimeEnvironment#ParallelDirectResponseOperatorRuntimeEnvironment(String, String, List, com.ottogroup.bi.spqr.pipeline.component.operator.partition.MessagePartitioner, boolean, StreamingMessageQueueConsumer, StreamingMessageQueueProducer, ExecutorService)}
+	 * being provided invalid operator input
+	 */
+	@Test
+	public void testConstructor_withInvalidOperators() {
+		try {
+			new ParallelDirectResponseOperatorRuntimeEnvironment("node-id", "pipe-id", new ArrayList<DirectResponseOperator>(), new RoundRobinMessagePartitioner(), false, 
+					Mockito.mock(StreamingMessageQueueConsumer.class), Mockito.mock(StreamingMessageQueueProducer.class), executorService);
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+		try {
+			new ParallelDirectResponseOperatorRuntimeEnvironment("node-id", "pipe-id", Arrays.asList(Mockito.mock(DirectResponseOperator.class), null), new RoundRobinMessagePartitioner(), false, 
+					Mockito.mock(StreamingMessageQueueConsumer.class), Mockito.mock(StreamingMessageQueueProducer.class), executorService);
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Test case for {@link ParallelDirectResponseOperatorRuntimeEnvironment#run()} with order preservation where
+	 * operator instances need different amounts of time to process a message
+	 */
+	@Test
+	public void testRun_withPreservedOrder() throws Exception {
+		List<StreamingDataMessage> responses = runParallel("testRun_withPreservedOrder", true, 2000);
+		for(int i = 0; i < responses.size(); i++)
+			Assert.assertEquals("Values must be equal", "message-" + i, new String(responses.get(i).getBody()));
+	}
+	
+	/**
+	 * Test case for {@link ParallelDirectResponseOperatorRuntimeEnvironment#run()} without order preservation
+	 */
+	@Test
+	public void testRun_withoutPreservedOrder() throws Exception {
+		List<StreamingDataMessage> responses = runParallel("testRun_withoutPreservedOrder", false, 2000);
+		boolean[] received = new boolean[responses.size()];
+		for(final StreamingDataMessage response : responses)
+			received[Integer.parseInt(new String(response.getBody()).substring("message-".length()))] = true;
+		for(int i = 0; i < received.length; i++)
+			Assert.assertTrue("Message " + i + " expected", received[i]);
+	}
+	
+	/**
+	 * Test case for {@link ParallelDirectResponseOperatorRuntimeEnvironment#run()} being provided pooled messages which
+	 * are dropped, forwarded once or forwarded twice by the operators: all messages must return to the pool once the
+	 * responses have been consumed from the destination queue
+	 */
+	@Test
+	public void testRun_withPooledMessages() throws Exception {
+		final int numOfMessages = 1000;
+		InMemoryStreamingMessageQueue inQueue = new InMemoryStreamingMessageQueue();
+		inQueue.setId("testRun_withPooledMessages-in");
+		inQueue.initialize(new Properties());
+		InMemoryStreamingMessageQueue outQueue = new InMemoryStreamingMessageQueue();
+		outQueue.setId("testRun_withPooledMessages-out");
+		outQueue.initialize(new Properties());
+		
+		List<DirectResponseOperator> operators = new ArrayList<>();
+		for(int i = 0; i < 4; i++)
+			operators.add(new ForwardingOperator("op-" + i));
+		ParallelDirectResponseOperatorRuntimeEnvironment env = new ParallelDirectResponseOperatorRuntimeEnvironment("node-id", "pipe-id", operators, 
+				new RoundRobinMessagePartitioner(), false, inQueue.getConsumer(), outQueue.getProducer(), executorService);
+		executorService.submit(env);
+		
+		StreamingDataMessagePool pool = new StreamingDataMessagePool(numOfMessages, 1024, false);
+		int expectedResponses = 0;
+		for(int i = 0; i < numOfMessages; i++) {
+			StreamingDataMessage message = pool.acquire(1, i);
+			inQueue.insert(message);
+			message.release();
+			expectedResponses += (i % 3 == 1 ? 2 : 1);
+		}
+		inQueue.getProducer().getWaitStrategy().forceLockRelease();
+		
+		int responses = 0;
+		final long timeout = System.currentTimeMillis() + 20000;
+		while(responses < expectedResponses && System.currentTimeMillis() < timeout) {
+			StreamingDataMessage response = outQueue.next();
+			if(response != null) {
+				response.release();
+				responses++;
+			} else {
+				Thread.sleep(1);
+			}
+		}
+		Assert.assertEquals("Values must be equal", expectedResponses, responses);
+		Assert.assertEquals("Values must be equal", numOfMessages, pool.getNumOfPooledMessages());
+		
+		env.shutdown();
+		inQueue.shutdown();
+		outQueue.shutdown();
+	}
+	
+	/**
+	 * Runs 4 operator instances, sends the given number of messages and returns all responses 
+	 * @param id
+	 * @param preserveOrder
+	 * @param numOfMessages
+	 * @return
+	 */
+	private List<StreamingDataMessage> runParallel(final String id, final boolean preserveOrder, final int numOfMessages) throws Exception {
+		InMemoryStreamingMessageQueue inQueue = new InMemoryStreamingMessageQueue();
+		inQueue.setId(id + "-in");
+		inQueue.initialize(new Properties());
+		InMemoryStreamingMessageQueue outQueue = new InMemoryStreamingMessageQueue();
+		outQueue.setId(id + "-out");
+		outQueue.initialize(new Properties());
+		
+		List<DirectResponseOperator> operators = new ArrayList<>();
+		for(int i = 0; i < 4; i++) {
+			final long delay = i * 20000;
+			DirectResponseOperator operator = Mockito.mock(DirectResponseOperator.class);
+			Mockito.when(operator.onMessage(Mockito.any(StreamingDataMessage.class))).thenAnswer(new Answer<StreamingDataMessage[]>() {
+				public StreamingDataMessage[] answer(InvocationOnMock invocation) throws Throwable {
+					if(delay > 0)
+						LockSupport.parkNanos(delay);
+					return new StreamingDataMessage[]{(StreamingDataMessage)invocation.getArguments()[0]};
+				}
+			});
+			operators.add(operator);
+		}
+		
+		ParallelDirectResponseOperatorRuntimeEnvironment env = new ParallelDirectResponseOperatorRuntimeEnvironment("node-id", "pipe-id", operators, 
+				new RoundRobinMessagePartitioner(), preserveOrder, inQueue.getConsumer(), outQueue.getProducer(), executorService);
+		Assert.assertEquals("Values must be equal", 4, env.getParallelism());
+		executorService.submit(env);
+		
+		for(int i = 0; i < numOfMessages; i++)
+			inQueue.insert(new StreamingDataMessage(("message-" + i).getBytes(), i));
+		inQueue.getProducer().getWaitStrategy().forceLockRelease();
+		
+		final List<StreamingDataMessage> responses = new ArrayList<>();
+		final long timeout = System.currentTimeMillis() + 20000;
+		while(responses.size() < numOfMessages && System.currentTimeMillis() < timeout) {
+			StreamingDataMessage response = outQueue.next();
+			if(response != null)
+				responses.add(response);
+			else
+				Thread.sleep(1);
+		}
+		Assert.assertEquals("Values must be equal", numOfMessages, responses.size());
+		
+		env.shutdown();
+		for(final DirectResponseOperator operator : operators)
+			Mockito.verify(operator).shutdown();
+		inQueue.shutdown();
+		outQueue.shutdown();
+		return responses;
+	}
+	
+	/**
+	 * Depending on the timestamp, drops the input message while responding with a new one, forwards the input
+	 * message or forwards it twice
+	 * @author mnxfst
+	 * @since Feb 18, 2016
+	 */
+	private static class ForwardingOperator implements DirectResponseOperator {
+		
+		private String id = null;
+		private long total = 0;
+		
+		private ForwardingOperator(final String id) {
+			this.id = id;
+		}
+		
+		public StreamingDataMessage[] onMessage(StreamingDataMessage message) {
+			this.total++;
+			switch((int)(message.getTimestamp() % 3)) {
+				case 0:
+					return new StreamingDataMessage[]{message};
+				case 1:
+					return new StreamingDataMessage[]{message, message};
+				default:
+					return new StreamingDataMessage[]{new StreamingDataMessage(new byte[1], message.getTimestamp())};
+			}
+		}
+
+		public long getTotalNumOfMessages() {
+			return this.total;
+		}
+
+		public void setId(String id) {
+			this.id = id;
+		}
+
+		public String getId() {
+			return this.id;
+		}
+
+		public void initialize(Properties properties) throws RequiredInputMissingException {
+		}
+
+		public boolean shutdown() {
+			return true;
+		}
+
+		public MicroPipelineComponentType getType() {
+			return MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR;
+		}
+	}
+}
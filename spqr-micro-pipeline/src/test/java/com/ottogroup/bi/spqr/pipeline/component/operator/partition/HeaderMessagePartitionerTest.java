@@ -0,0 +1,74 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator.partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageHeaders;
+
+/**
+ * Test case for {@link HeaderMessagePartitioner}
+ * @author mnxfst
+ * @since Feb 12, 2016
+ */
+public class HeaderMessagePartitionerTest {
+
+	/**
+	 * Test case for {@link HeaderMessagePartitioner#HeaderMessagePartitioner(String)} being provided a reference without header name
+	 */
+	@Test(expected=RequiredInputMissingException.class)
+	public void testConstructor_withEmptyHeaderName() throws Exception {
+		new HeaderMessagePartitioner(" @ ");
+	}
+	
+	/**
+	 * Test case for {@link HeaderMessagePartitioner#isHeaderReference(String)} being provided different partition keys
+	 */
+	@Test
+	public void testIsHeaderReference_withDifferentKeys() {
+		Assert.assertTrue("Header reference", HeaderMessagePartitioner.isHeaderReference(" @key"));
+		Assert.assertFalse("JSON path", HeaderMessagePartitioner.isHeaderReference("user.id"));
+		Assert.assertFalse("Null", HeaderMessagePartitioner.isHeaderReference(null));
+	}
+	
+	/**
+	 * Test case for {@link HeaderMessagePartitioner#partition(StreamingDataMessage, int)} where messages sharing
+	 * a key must be assigned to the same partition without looking at the body
+	 */
+	@Test
+	public void testPartition_withSharedKeys() throws Exception {
+		HeaderMessagePartitioner partitioner = new HeaderMessagePartitioner("@key");
+		for(int i = 0; i < 100; i++) {
+			final int expected = partitioner.partition(message("not json", "k-"+i), 7);
+			Assert.assertTrue("Valid partition expected", expected >= 0 && expected < 7);
+			Assert.assertEquals("Values must be equal", expected, partitioner.partition(message("{}", "k-"+i), 7));
+		}
+		Assert.assertEquals("Values must be equal", 0, partitioner.partition(new StreamingDataMessage("{\"key\":\"k-1\"}".getBytes(), 1), 7));
+	}
+	
+	/**
+	 * Returns a message carrying the given key header
+	 * @param body
+	 * @param key
+	 * @return
+	 */
+	private static StreamingDataMessage message(final String body, final String key) {
+		return new StreamingDataMessage(body.getBytes(), 1, new StreamingDataMessageHeaders().setKey(key));
+	}
+}
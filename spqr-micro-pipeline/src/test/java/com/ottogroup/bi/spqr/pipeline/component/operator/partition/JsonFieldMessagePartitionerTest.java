@@ -0,0 +1,72 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.operator.partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Test case for {@link JsonFieldMessagePartitioner}
+ * @author mnxfst
+ * @since Feb 10, 2016
+ */
+public class JsonFieldMessagePartitionerTest {
+
+	/**
+	 * Test case for {@link JsonFieldMessagePartitioner#JsonFieldMessagePartitioner(String)} being provided an empty key
+	 */
+	@Test
+	public void testConstructor_withEmptyKey() {
+		try {
+			new JsonFieldMessagePartitioner(" ");
+			Assert.fail("Missing required input");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Test case for {@link JsonFieldMessagePartitioner#extractKey(byte[])} being provided different documents
+	 */
+	@Test
+	public void testExtractKey_withNestedField() throws Exception {
+		JsonFieldMessagePartitioner partitioner = new JsonFieldMessagePartitioner("user.id");
+		Assert.assertEquals("Values must be equal", "42", partitioner.extractKey("{\"tags\":[1,{\"id\":7}],\"user\":{\"name\":\"x\",\"id\":42}}".getBytes()));
+		Assert.assertEquals("Values must be equal", "abc", partitioner.extractKey("{\"user\":{\"id\":\"abc\"},\"id\":1}".getBytes()));
+		Assert.assertNull("Field is missing", partitioner.extractKey("{\"id\":42,\"other\":{\"id\":1}}".getBytes()));
+		Assert.assertNull("Non-scalar value", partitioner.extractKey("{\"user\":{\"id\":{\"value\":1}}}".getBytes()));
+		Assert.assertNull("Non-object on path", partitioner.extractKey("{\"user\":\"id\"}".getBytes()));
+		Assert.assertNull("Invalid content", partitioner.extractKey("not json".getBytes()));
+	}
+	
+	/**
+	 * Test case for {@link JsonFieldMessagePartitioner#partition(StreamingDataMessage, int)} where messages sharing
+	 * a key must be assigned to the same partition
+	 */
+	@Test
+	public void testPartition_withSharedKeys() throws Exception {
+		JsonFieldMessagePartitioner partitioner = new JsonFieldMessagePartitioner("key");
+		for(int i = 0; i < 100; i++) {
+			final int expected = partitioner.partition(new StreamingDataMessage(("{\"key\":\"k-"+i+"\"}").getBytes(), 1), 7);
+			Assert.assertTrue("Valid partition expected", expected >= 0 && expected < 7);
+			Assert.assertEquals("Values must be equal", expected, partitioner.partition(new StreamingDataMessage(("{\"other\":1,\"key\":\"k-"+i+"\"}").getBytes(), 2), 7));
+		}
+		Assert.assertEquals("Values must be equal", 0, partitioner.partition(new StreamingDataMessage("{}".getBytes(), 1), 7));
+	}
+}
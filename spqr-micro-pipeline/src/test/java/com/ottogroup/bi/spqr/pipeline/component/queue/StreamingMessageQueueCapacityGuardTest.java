@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.queue;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.pipeline.exception.QueueCapacityExceededException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueCapacityGuard;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueOverflowPolicy;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+
+/**
+ * Test case for {@link StreamingMessageQueueCapacityGuard}
+ * @author mnxfst
+ * @since Feb 3, 2016
+ */
+public class StreamingMessageQueueCapacityGuardTest {
+
+	/**
+	 * Test case for {@link StreamingMessageQueueCapacityGuard#fromProperties(String, Properties)} being provided
+	 * missing or invalid capacity settings which must lead to an unbounded queue
+	 */
+	@Test
+	public void testFromProperties_withMissingOrInvalidCapacity() {
+		Assert.assertNull("Null properties denote an unbounded queue", StreamingMessageQueueCapacityGuard.fromProperties("test", null));
+		Properties props = new Properties();
+		Assert.assertNull("Missing capacity denotes an unbounded queue", StreamingMessageQueueCapacityGuard.fromProperties("test", props));
+		props.setProperty(StreamingMessageQueue.CFG_QUEUE_CAPACITY, "no-number");
+		Assert.assertNull("Invalid capacity denotes an unbounded queue", StreamingMessageQueueCapacityGuard.fromProperties("test", props));
+		props.setProperty(StreamingMessageQueue.CFG_QUEUE_CAPACITY, "0");
+		Assert.assertNull("Capacity below 1 denotes an unbounded queue", StreamingMessageQueueCapacityGuard.fromProperties("test", props));
+		props.setProperty(StreamingMessageQueue.CFG_QUEUE_CAPACITY, "10");
+		StreamingMessageQueueCapacityGuard guard = StreamingMessageQueueCapacityGuard.fromProperties("test", props);
+		Assert.assertEquals("Values must be equal", 10, guard.getCapacity());
+		Assert.assertEquals("Block is the default policy", StreamingMessageQueueOverflowPolicy.BLOCK, guard.getOverflowPolicy());
+	}
+
+	/**
+	 * Test case for {@link StreamingMessageQueueCapacityGuard#acquire()} with policy {@link StreamingMessageQueueOverflowPolicy#DROP_NEWEST}
+	 */
+	@Test
+	public void testAcquire_withDropNewest() {
+		StreamingMessageQueueCapacityGuard guard = new StreamingMessageQueueCapacityGuard("test", 2, StreamingMessageQueueOverflowPolicy.DROP_NEWEST);
+		Assert.assertTrue("Capacity available", guard.acquire());
+		Assert.assertTrue("Capacity available", guard.acquire());
+		Assert.assertFalse("Capacity exceeded", guard.acquire());
+		Assert.assertEquals("Values must be equal", 1, guard.getDroppedMessages());
+		Assert.assertTrue("Message must not be discarded", guard.release());
+		Assert.assertTrue("Capacity available", guard.acquire());
+		Assert.assertEquals("Values must be equal", 2, guard.getSize());
+	}
+
+	/**
+	 * Test case for {@link StreamingMessageQueueCapacityGuard#acquire()} with policy {@link StreamingMessageQueueOverflowPolicy#FAIL}
+	 */
+	@Test
+	public void testAcquire_withFail() {
+		StreamingMessageQueueCapacityGuard guard = new StreamingMessageQueueCapacityGuard("test", 1, StreamingMessageQueueOverflowPolicy.FAIL);
+		Assert.assertTrue("Capacity available", guard.acquire());
+		try {
+			guard.acquire();
+			Assert.fail("Capacity exceeded");
+		} catch(QueueCapacityExceededException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test case for {@link StreamingMessageQueueCapacityGuard#acquire()} with policy {@link StreamingMessageQueueOverflowPolicy#BLOCK}
+	 * where the producer must wait until the consumer frees capacity
+	 */
+	@Test
+	public void testAcquire_withBlock() throws Exception {
+		final StreamingMessageQueueCapacityGuard guard = new StreamingMessageQueueCapacityGuard("test", 1, StreamingMessageQueueOverflowPolicy.BLOCK);
+		Assert.assertTrue("Capacity available", guard.acquire());
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<Boolean> blockedProducer = executor.submit(new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return guard.acquire();
+			}
+		});
+		
+		Thread.sleep(50);
+		Assert.assertFalse("Producer must be blocked", blockedProducer.isDone());
+		Assert.assertTrue("Message must not be discarded", guard.release());
+		Assert.assertTrue("Producer must be released", blockedProducer.get(5, TimeUnit.SECONDS));
+		
+		// closing the guard releases blocked producers without accepting their messages
+		blockedProducer = executor.submit(new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return guard.acquire();
+			}
+		});
+		Thread.sleep(50);
+		guard.close();
+		Assert.assertFalse("Producer must be released without capacity", blockedProducer.get(5, TimeUnit.SECONDS));
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Test case for {@link InMemoryStreamingMessageQueue} being configured with policy {@link StreamingMessageQueueOverflowPolicy#DROP_OLDEST}
+	 * where the consumer must receive the most recent messages only
+	 */
+	@Test
+	public void testInMemoryQueue_withDropOldest() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(StreamingMessageQueue.CFG_QUEUE_CAPACITY, "3");
+		props.setProperty(StreamingMessageQueue.CFG_QUEUE_OVERFLOW_POLICY, StreamingMessageQueueOverflowPolicy.DROP_OLDEST.getName());
+		InMemoryStreamingMessageQueue queue = new InMemoryStreamingMessageQueue();
+		queue.setId("testInMemoryQueue_withDropOldest");
+		queue.initialize(props);
+		
+		for(int i = 0; i < 5; i++)
+			Assert.assertTrue("Message must be accepted", queue.getProducer().insert(new StreamingDataMessage(("msg-"+i).getBytes(), i)));
+		Assert.assertEquals("Values must be equal", 3, queue.getSize());
+		
+		for(int i = 2; i < 5; i++)
+			Assert.assertEquals("Values must be equal", "msg-"+i, new String(queue.getConsumer().next().getBody()));
+		Assert.assertNull("Queue must be empty", queue.getConsumer().next());
+		Assert.assertEquals("Values must be equal", 0, queue.getSize());
+	}
+}
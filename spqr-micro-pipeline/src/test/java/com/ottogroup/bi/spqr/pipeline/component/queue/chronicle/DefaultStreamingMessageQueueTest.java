@@ -16,6 +16,7 @@
 package com.ottogroup.bi.spqr.pipeline.component.queue.chronicle;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -32,9 +33,14 @@ import org.junit.Test;
 
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageHeaders;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueViewConsumer;
 import com.ottogroup.bi.spqr.pipeline.queue.chronicle.DefaultStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.chronicle.DefaultStreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.chronicle.DefaultStreamingMessageQueueProducer;
 
 import net.openhft.chronicle.Chronicle;
 
@@ -143,6 +149,213 @@ public class DefaultStreamingMessageQueueTest {
 		Assert.assertEquals("Values must be equal", timestamp, msg.getTimestamp());		
 	}
 	
+	/**
+	 * Test case for {@link DefaultStreamingMessageQueueProducer#insertBatch(StreamingDataMessage[])} and 
+	 * {@link DefaultStreamingMessageQueueConsumer#drainTo(StreamingDataMessage[], int)} where all messages
+	 * must be returned in order and draining must stop at the provided maximum
+	 */
+	@Test
+	public void testDrainTo_withBatchInsert() throws RequiredInputMissingException {
+		Properties props = new Properties();
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_DELETE_ON_EXIT, "true");
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_PATH, System.getProperty("java.io.tmpdir"));
+		DefaultStreamingMessageQueue inbox = new DefaultStreamingMessageQueue();
+		inbox.setId("testDrainTo_withBatchInsert");
+		inbox.initialize(props);
+		
+		StreamingDataMessage[] messages = new StreamingDataMessage[5];
+		for(int i = 0; i < messages.length; i++)
+			messages[i] = (i == 2 ? null : new StreamingDataMessage(("msg-"+i).getBytes(), i));
+		Assert.assertEquals("Null entries must be ignored", 4, inbox.getProducer().insertBatch(messages));
+		
+		StreamingDataMessage[] buffer = new StreamingDataMessage[10];
+		Assert.assertEquals("Draining must stop at max", 3, inbox.getConsumer().drainTo(buffer, 3));
+		Assert.assertEquals("Values must be equal", "msg-0", new String(buffer[0].getBody()));
+		Assert.assertEquals("Values must be equal", "msg-1", new String(buffer[1].getBody()));
+		Assert.assertEquals("Values must be equal", "msg-3", new String(buffer[2].getBody()));
+		Assert.assertEquals("Values must be equal", 1, inbox.getConsumer().drainTo(buffer, 10));
+		Assert.assertEquals("Values must be equal", "msg-4", new String(buffer[0].getBody()));
+		Assert.assertEquals("Values must be equal", 4, buffer[0].getTimestamp());
+		Assert.assertEquals("Queue must be empty", 0, inbox.getConsumer().drainTo(buffer, 10));
+	}
+	
+	/**
+	 * Test case for {@link DefaultStreamingMessageQueueConsumer#nextView()} reading views on the chronicle and mixing them with copying reads
+	 */
+	@Test
+	public void testNextView_withMixedReads() throws Exception {
+		Properties props = new Properties();
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_DELETE_ON_EXIT, "true");
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_PATH, System.getProperty("java.io.tmpdir"));
+		DefaultStreamingMessageQueue inbox = new DefaultStreamingMessageQueue();
+		inbox.setId("testNextView_withMixedReads");
+		inbox.initialize(props);
+		
+		for(int i = 0; i < 3; i++)
+			inbox.insert(new StreamingDataMessage(("msg-"+i).getBytes(), i));
+		
+		StreamingMessageQueueViewConsumer consumer = (StreamingMessageQueueViewConsumer)inbox.getConsumer();
+		StreamingDataMessageView view = consumer.nextView();
+		Assert.assertNotNull("View must not be null", view);
+		Assert.assertEquals("Values must be equal", 0, view.getTimestamp());
+		Assert.assertEquals("Values must be equal", 5, view.getBodyLength());
+		Assert.assertEquals("Values must be equal", 'm', view.getByte(0));
+		Assert.assertEquals("Values must be equal", '0', view.getByte(4));
+		
+		ByteBuffer body = view.getBody();
+		Assert.assertTrue("Body must be read-only", body.isReadOnly());
+		Assert.assertEquals("Values must be equal", 5, body.remaining());
+		byte[] content = new byte[body.remaining()];
+		body.get(content);
+		Assert.assertEquals("Values must be equal", "msg-0", new String(content));
+		Assert.assertEquals("Values must be equal", "msg-0", new String(view.toMessage().getBody()));
+		
+		Assert.assertEquals("Values must be equal", "msg-1", new String(consumer.next().getBody()));
+		view = consumer.nextView();
+		Assert.assertEquals("Values must be equal", 2, view.getTimestamp());
+		Assert.assertEquals("Values must be equal", "msg-2", new String(view.toMessage().getBody()));
+		Assert.assertNull("No more views available", consumer.nextView());
+		Assert.assertNull("No more messages available", consumer.next());
+	}
+	
+	/**
+	 * Test case for {@link DefaultStreamingMessageQueueProducer#insert(StreamingDataMessage)} being provided messages carrying
+	 * {@link StreamingDataMessageHeaders headers}: headers must be available via copying reads and views while messages without
+	 * headers must not get any
+	 */
+	@Test
+	public void testNext_withHeaders() throws Exception {
+		Properties props = new Properties();
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_DELETE_ON_EXIT, "true");
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_PATH, System.getProperty("java.io.tmpdir"));
+		DefaultStreamingMessageQueue inbox = new DefaultStreamingMessageQueue();
+		inbox.setId("testNext_withHeaders");
+		inbox.initialize(props);
+		
+		StreamingDataMessage message = new StreamingDataMessage("msg-0".getBytes(), 0);
+		message.setHeader(StreamingDataMessageHeaders.KEY, "user-1");
+		message.setHeader(StreamingDataMessageHeaders.TRACE_ID, "trace-1");
+		message.setHeader("custom", "value");
+		inbox.insert(message);
+		inbox.insert(new StreamingDataMessage("msg-1".getBytes(), 1));
+		inbox.insert(message);
+		
+		StreamingMessageQueueViewConsumer consumer = (StreamingMessageQueueViewConsumer)inbox.getConsumer();
+		StreamingDataMessage result = consumer.next();
+		Assert.assertEquals("Values must be equal", "msg-0", new String(result.getBody()));
+		Assert.assertEquals("Values must be equal", 3, result.getHeaders().size());
+		Assert.assertEquals("Values must be equal", "user-1", result.getHeaders().getKey());
+		Assert.assertEquals("Values must be equal", "trace-1", result.getHeaders().getTraceId());
+		Assert.assertEquals("Values must be equal", "value", result.getHeader("custom"));
+		
+		result = consumer.next();
+		Assert.assertEquals("Values must be equal", "msg-1", new String(result.getBody()));
+		Assert.assertFalse("Message must not have any headers", result.hasHeaders());
+		
+		StreamingDataMessageView view = consumer.nextView();
+		Assert.assertEquals("Values must be equal", "user-1", view.getHeaders().getKey());
+		Assert.assertEquals("Values must be equal", 5, view.getBodyLength());
+		Assert.assertEquals("Values must be equal", "msg-0", new String(view.toMessage().getBody()));
+		Assert.assertEquals("Values must be equal", "value", view.toMessage().getHeader("custom"));
+	}
+	
+	/**
+	 * Test case for {@link DefaultStreamingMessageQueueConsumer#next()} with message pooling enabled: messages must be 
+	 * taken from the pool once released
+	 */
+	@Test
+	public void testNext_withMessagePooling() throws Exception {
+		Properties props = new Properties();
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_DELETE_ON_EXIT, "true");
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_PATH, System.getProperty("java.io.tmpdir"));
+		props.put(DefaultStreamingMessageQueue.CFG_QUEUE_MESSAGE_POOLING, "true");
+		DefaultStreamingMessageQueue inbox = new DefaultStreamingMessageQueue();
+		inbox.setId("testNext_withMessagePooling");
+		inbox.initialize(props);
+		
+		inbox.insert(new StreamingDataMessage("msg-0".getBytes(), 0));
+		inbox.insert(new StreamingDataMessage("msg-1".getBytes(), 1));
+		
+		StreamingDataMessage first = inbox.next();
+		Assert.assertTrue("Message must be pooled", first.isPooled());
+		Assert.assertEquals("Values must be equal", "msg-0", new String(first.getBody()));
+		Assert.assertTrue("Message must be returned to pool", first.release());
+		
+		StreamingDataMessage second = inbox.next();
+		Assert.assertSame("Message must be reused", first, second);
+		Assert.assertEquals("Values must be equal", "msg-1", new String(second.getBody()));
+		Assert.assertEquals("Values must be equal", 1, second.getTimestamp());
+	}
+	
+	/**
+	 * Test case for {@link DefaultStreamingMessageQueueProducer#insert(StreamingDataMessage)} being called by multiple threads concurrently
+	 */
+	@Test
+	public void testInsert_withConcurrentWriters() throws Exception {
+		Properties props = new Properties();
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_DELETE_ON_EXIT, "true");
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_PATH, System.getProperty("java.io.tmpdir"));
+		final DefaultStreamingMessageQueue inbox = new DefaultStreamingMessageQueue();
+		inbox.setId("testInsert_withConcurrentWriters");
+		inbox.initialize(props);
+		
+		final int numberOfWriters = 3;
+		final int messagesPerWriter = 1000;
+		ExecutorService svc = Executors.newFixedThreadPool(numberOfWriters);
+		for(int w = 0; w < numberOfWriters; w++) {
+			final int writerId = w;
+			svc.submit(new Runnable() {
+				public void run() {
+					for(int i = 0; i < messagesPerWriter; i++)
+						inbox.getProducer().insert(new StreamingDataMessage((writerId + ":" + i).getBytes(), writerId));
+				}
+			});
+		}
+		svc.shutdown();
+		Assert.assertTrue("Writers must finish", svc.awaitTermination(30, TimeUnit.SECONDS));
+		
+		// messages of all writers must be available, the order per writer must be preserved
+		int[] expected = new int[numberOfWriters];
+		StreamingDataMessage message = null;
+		while((message = inbox.next()) != null) {
+			String[] content = new String(message.getBody()).split(":");
+			int writerId = Integer.parseInt(content[0]);
+			Assert.assertEquals("Values must be equal", expected[writerId], Integer.parseInt(content[1]));
+			expected[writerId]++;
+		}
+		for(int w = 0; w < numberOfWriters; w++)
+			Assert.assertEquals("Values must be equal", messagesPerWriter, expected[w]);
+	}
+	
+	/**
+	 * Test case for {@link DefaultStreamingMessageQueue#getConsumer(String)} with broadcast mode enabled: each consumer must see all messages
+	 */
+	@Test
+	public void testGetConsumer_withBroadcast() throws Exception {
+		Properties props = new Properties();
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_DELETE_ON_EXIT, "true");
+		props.put(DefaultStreamingMessageQueue.CFG_CHRONICLE_QUEUE_PATH, System.getProperty("java.io.tmpdir"));
+		props.put(DefaultStreamingMessageQueue.CFG_QUEUE_BROADCAST, "true");
+		DefaultStreamingMessageQueue inbox = new DefaultStreamingMessageQueue();
+		inbox.setId("testGetConsumer_withBroadcast");
+		inbox.initialize(props);
+		
+		StreamingMessageQueueConsumer consumer1 = inbox.getConsumer("operator-1");
+		StreamingMessageQueueConsumer consumer2 = inbox.getConsumer("operator-2");
+		Assert.assertNotSame("Consumers must differ", consumer1, consumer2);
+		Assert.assertSame("Consumers must be equal", consumer1, inbox.getConsumer("operator-1"));
+		
+		for(int i = 0; i < 3; i++)
+			inbox.insert(new StreamingDataMessage(("msg-"+i).getBytes(), i));
+		
+		for(int i = 0; i < 3; i++) {
+			Assert.assertEquals("Values must be equal", "msg-"+i, new String(consumer1.next().getBody()));
+			Assert.assertEquals("Values must be equal", "msg-"+i, new String(consumer2.next().getBody()));
+		}
+		Assert.assertNull("No more messages available", consumer1.next());
+		Assert.assertNull("No more messages available", consumer2.next());
+	}
+	
 	/**
 	 * Inserts a configurable number of messages into a {@link Chronicle} and measures the
 	 * duration it takes to read the content from it using the {@link DefaultStreamingMessageQueue} implementation
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.queue.ring;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueOverflowPolicy;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+import com.ottogroup.bi.spqr.pipeline.queue.ring.RingBufferStreamingMessageQueue;
+
+/**
+ * Test case for {@link RingBufferStreamingMessageQueue}
+ * @author mnxfst
+ * @since Feb 2, 2016
+ */
+public class RingBufferStreamingMessageQueueTest {
+
+	/**
+	 * Test case for {@link RingBufferStreamingMessageQueue#initialize(Properties)} being provided
+	 * null where an exception is the expected behavior
+	 */
+	@Test
+	public void testInitialize_withNullProperties() {
+		try {
+			RingBufferStreamingMessageQueue queue = new RingBufferStreamingMessageQueue();
+			queue.setId("testInitialize_withNullProperties");
+			queue.initialize(null);
+			Assert.fail("Missing required properties");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test case for {@link RingBufferStreamingMessageQueue#initialize(Properties)} being provided
+	 * a properties set but no queue identifier
+	 */
+	@Test
+	public void testInitialize_withMissingId() {
+		try {
+			new RingBufferStreamingMessageQueue().initialize(new Properties());
+			Assert.fail("Missing required queue identifier");
+		} catch(RequiredInputMissingException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test case for {@link RingBufferStreamingMessageQueue#initialize(Properties)} being provided
+	 * a capacity which is not a power of two
+	 */
+	@Test
+	public void testInitialize_withCapacityRoundedUp() throws RequiredInputMissingException {
+		Properties props = new Properties();
+		props.setProperty(RingBufferStreamingMessageQueue.CFG_QUEUE_RING_CAPACITY, "100");
+		RingBufferStreamingMessageQueue queue = new RingBufferStreamingMessageQueue();
+		queue.setId("testInitialize_withCapacityRoundedUp");
+		queue.initialize(props);
+		Assert.assertEquals("Capacity must be rounded up to next power of two", 128, queue.getCapacity());
+		Assert.assertFalse("Single producer is the default", queue.isMultiProducer());
+	}
+
+	/**
+	 * Test case for {@link RingBufferStreamingMessageQueue#insert(StreamingDataMessage)} where the ring
+	 * is full and insertion must be rejected as policy {@link StreamingMessageQueueOverflowPolicy#DROP_NEWEST} applies
+	 */
+	@Test
+	public void testInsert_withFullRing() throws RequiredInputMissingException {
+		Properties props = new Properties();
+		props.setProperty(RingBufferStreamingMessageQueue.CFG_QUEUE_RING_CAPACITY, "4");
+		props.setProperty(RingBufferStreamingMessageQueue.CFG_QUEUE_OVERFLOW_POLICY, StreamingMessageQueueOverflowPolicy.DROP_NEWEST.getName());
+		RingBufferStreamingMessageQueue queue = new RingBufferStreamingMessageQueue();
+		queue.setId("testInsert_withFullRing");
+		queue.initialize(props);
+
+		for(int i = 0; i < 4; i++)
+			Assert.assertTrue("Insertion must succeed", queue.insert(new StreamingDataMessage(("msg-"+i).getBytes(), i)));
+		Assert.assertFalse("Ring is full", queue.insert(new StreamingDataMessage("overflow".getBytes(), 4)));
+		Assert.assertEquals("Ring must hold 4 elements", 4, queue.getSize());
+
+		for(int i = 0; i < 4; i++)
+			Assert.assertEquals("Values must be equal", "msg-"+i, new String(queue.next().getBody()));
+		Assert.assertNull("Ring must be empty", queue.next());
+		Assert.assertTrue("Insertion must succeed again", queue.insert(new StreamingDataMessage("again".getBytes(), 5)));
+	}
+
+	/**
+	 * Test case for {@link RingBufferStreamingMessageQueue} being configured for multiple producers which concurrently
+	 * insert messages
+	 */
+	@Test
+	public void testInsert_withMultipleProducers() throws Exception {
+		final int numberOfProducers = 4;
+		final int messagesPerProducer = 10000;
+
+		Properties props = new Properties();
+		props.setProperty(RingBufferStreamingMessageQueue.CFG_QUEUE_RING_CAPACITY, "1024");
+		props.setProperty(RingBufferStreamingMessageQueue.CFG_QUEUE_RING_PRODUCER_TYPE, RingBufferStreamingMessageQueue.PRODUCER_TYPE_MULTI);
+		final RingBufferStreamingMessageQueue queue = new RingBufferStreamingMessageQueue();
+		queue.setId("testInsert_withMultipleProducers");
+		queue.initialize(props);
+		Assert.assertTrue("Multi producer expected", queue.isMultiProducer());
+
+		final StreamingMessageQueueProducer producer = queue.getProducer();
+		final StreamingMessageQueueConsumer consumer = queue.getConsumer();
+		final CountDownLatch latch = new CountDownLatch(numberOfProducers);
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfProducers);
+		for(int p = 0; p < numberOfProducers; p++) {
+			final int producerId = p;
+			executor.submit(new Runnable() {
+				public void run() {
+					for(int i = 0; i < messagesPerProducer; i++) {
+						StreamingDataMessage msg = new StreamingDataMessage(new byte[]{(byte)producerId}, i);
+						while(!producer.insert(msg))
+							Thread.yield();
+					}
+					latch.countDown();
+				}
+			});
+		}
+
+		long[] lastSeen = new long[numberOfProducers];
+		for(int p = 0; p < numberOfProducers; p++)
+			lastSeen[p] = -1;
+		int received = 0;
+		long deadline = System.currentTimeMillis() + 30000;
+		while(received < numberOfProducers * messagesPerProducer && System.currentTimeMillis() < deadline) {
+			StreamingDataMessage msg = consumer.next();
+			if(msg == null) {
+				Thread.yield();
+				continue;
+			}
+			int producerId = msg.getBody()[0];
+			Assert.assertTrue("Messages of a single producer must arrive in order", msg.getTimestamp() > lastSeen[producerId]);
+			lastSeen[producerId] = msg.getTimestamp();
+			received++;
+		}
+
+		Assert.assertTrue("All producers must have finished", latch.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals("All messages must be received", numberOfProducers * messagesPerProducer, received);
+		Assert.assertNull("Ring must be empty", consumer.next());
+		executor.shutdownNow();
+	}
+}
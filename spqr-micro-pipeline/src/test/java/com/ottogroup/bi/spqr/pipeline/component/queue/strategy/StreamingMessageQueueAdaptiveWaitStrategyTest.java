@@ -0,0 +1,104 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.queue.strategy;
+
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueAdaptiveWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueWaitStrategyFactory;
+
+/**
+ * Test case for {@link StreamingMessageQueueAdaptiveWaitStrategy}
+ * @author mnxfst
+ * @since Feb 5, 2016
+ */
+public class StreamingMessageQueueAdaptiveWaitStrategyTest {
+
+	/**
+	 * Test case for {@link StreamingMessageQueueAdaptiveWaitStrategy#fromProperties(Properties)} being provided valid and invalid settings
+	 */
+	@Test
+	public void testFromProperties_withValidAndInvalidSettings() {
+		Properties props = new Properties();
+		props.setProperty(StreamingMessageQueueWaitStrategyFactory.CFG_QUEUE_MESSAGE_WAIT_STRATEGY, StreamingMessageQueueAdaptiveWaitStrategy.STRATEGY_NAME);
+		props.setProperty(StreamingMessageQueueAdaptiveWaitStrategy.CFG_SPIN_TRIES, "10");
+		props.setProperty(StreamingMessageQueueAdaptiveWaitStrategy.CFG_YIELD_TRIES, "invalid");
+		props.setProperty(StreamingMessageQueueAdaptiveWaitStrategy.CFG_MAX_PARK_NANOS, "5000");
+		props.setProperty(StreamingMessageQueueAdaptiveWaitStrategy.CFG_SIGNAL_ONLY_IF_WAITER, "false");
+		
+		StreamingMessageQueueAdaptiveWaitStrategy strategy = (StreamingMessageQueueAdaptiveWaitStrategy)StreamingMessageQueueWaitStrategyFactory.getWaitStrategy(props);
+		Assert.assertEquals("Values must be equal", 10, strategy.getSpinTries());
+		Assert.assertEquals("Values must be equal", StreamingMessageQueueAdaptiveWaitStrategy.DEFAULT_YIELD_TRIES, strategy.getYieldTries());
+		Assert.assertEquals("Values must be equal", StreamingMessageQueueAdaptiveWaitStrategy.DEFAULT_PARK_TRIES, strategy.getParkTries());
+		Assert.assertEquals("Values must be equal", 5000, strategy.getMaxParkNanos());
+		Assert.assertFalse("Signal must always be sent", strategy.isSignalOnlyIfWaiter());
+	}
+	
+	/**
+	 * Test case for {@link StreamingMessageQueueAdaptiveWaitStrategy#waitFor(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer, long, TimeUnit)}
+	 * being applied on an empty queue
+	 */
+	@Test
+	public void testWaitFor_withTimeoutOnEmptyQueue() throws Exception {
+		InMemoryStreamingMessageQueue queue = new InMemoryStreamingMessageQueue();
+		queue.setId("testWaitFor_withTimeoutOnEmptyQueue");
+		queue.initialize(new Properties());
+		
+		StreamingMessageQueueAdaptiveWaitStrategy strategy = new StreamingMessageQueueAdaptiveWaitStrategy(10, 10, 10, 1000, 1000, true);
+		long start = System.currentTimeMillis();
+		Assert.assertNull("Queue is empty", strategy.waitFor(queue.getConsumer(), 50, TimeUnit.MILLISECONDS));
+		Assert.assertTrue("Timeout must be respected", System.currentTimeMillis() - start < 1000);
+		Assert.assertEquals("No waiters expected", 0, strategy.getWaiters());
+	}
+	
+	/**
+	 * Test case for {@link StreamingMessageQueueAdaptiveWaitStrategy#waitFor(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer)}
+	 * where the consumer blocks and gets woken up by the producer
+	 */
+	@Test
+	public void testWaitFor_withBlockedConsumer() throws Exception {
+		final InMemoryStreamingMessageQueue queue = new InMemoryStreamingMessageQueue();
+		queue.setId("testWaitFor_withBlockedConsumer");
+		queue.initialize(new Properties());
+
+		// block timeout is large enough to ensure that the consumer is woken up by the signal
+		final StreamingMessageQueueAdaptiveWaitStrategy strategy = new StreamingMessageQueueAdaptiveWaitStrategy(0, 0, 0, 1000, 60000, true);
+		strategy.forceLockRelease();
+		
+		ScheduledExecutorService svc = Executors.newSingleThreadScheduledExecutor();
+		svc.schedule(new Runnable() {
+			public void run() {
+				queue.insert(new StreamingDataMessage("test".getBytes(), 1));
+				strategy.forceLockRelease();
+			}
+		}, 100, TimeUnit.MILLISECONDS);
+		
+		long start = System.currentTimeMillis();
+		StreamingDataMessage message = strategy.waitFor(queue.getConsumer());
+		Assert.assertEquals("Values must be equal", "test", new String(message.getBody()));
+		Assert.assertTrue("Consumer must be signaled", System.currentTimeMillis() - start < 30000);
+		Assert.assertEquals("No waiters expected", 0, strategy.getWaiters());
+		svc.shutdownNow();
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2015 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.queue.strategy;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.memory.InMemoryStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.ring.RingBufferStreamingMessageQueue;
+import com.ottogroup.bi.spqr.pipeline.queue.strategy.StreamingMessageQueueBlockingWaitStrategy;
+
+/**
+ * Test case for {@link StreamingMessageQueueBlockingWaitStrategy}
+ * @author mnxfst
+ * @since Feb 5, 2016
+ */
+public class StreamingMessageQueueBlockingWaitStrategyTest {
+
+	/**
+	 * Test case for {@link StreamingMessageQueueBlockingWaitStrategy#waitFor(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer)}
+	 * where the consumer blocks and gets woken up by {@link StreamingMessageQueueBlockingWaitStrategy#forceLockRelease()}
+	 */
+	@Test
+	public void testWaitFor_withBlockedConsumer() throws Exception {
+		final InMemoryStreamingMessageQueue queue = new InMemoryStreamingMessageQueue();
+		queue.setId("testWaitFor_withBlockedConsumer");
+		queue.initialize(new Properties());
+		final StreamingMessageQueueBlockingWaitStrategy strategy = new StreamingMessageQueueBlockingWaitStrategy();
+		
+		// no waiters: signaling must return immediately
+		strategy.forceLockRelease();
+		Assert.assertEquals("No waiters expected", 0, strategy.getWaiters());
+		
+		ExecutorService svc = Executors.newSingleThreadExecutor();
+		Future<StreamingDataMessage> result = svc.submit(new Callable<StreamingDataMessage>() {
+			public StreamingDataMessage call() throws Exception {
+				return strategy.waitFor(queue.getConsumer());
+			}
+		});
+		
+		long start = System.currentTimeMillis();
+		while(strategy.getWaiters() == 0 && System.currentTimeMillis() - start < 5000)
+			Thread.sleep(1);
+		Assert.assertEquals("Consumer must be blocked", 1, strategy.getWaiters());
+		
+		queue.insert(new StreamingDataMessage("test".getBytes(), 1));
+		strategy.forceLockRelease();
+		Assert.assertEquals("Values must be equal", "test", new String(result.get(5, TimeUnit.SECONDS).getBody()));
+		Assert.assertEquals("No waiters expected", 0, strategy.getWaiters());
+		svc.shutdownNow();
+	}
+
+	/**
+	 * Test case for {@link StreamingMessageQueueBlockingWaitStrategy#waitFor(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer, long, TimeUnit)}
+	 * being called on an empty queue: null must be returned once the timeout has elapsed
+	 */
+	@Test
+	public void testWaitFor_withTimeoutOnEmptyQueue() throws Exception {
+		final InMemoryStreamingMessageQueue queue = new InMemoryStreamingMessageQueue();
+		queue.setId("testWaitFor_withTimeoutOnEmptyQueue");
+		queue.initialize(new Properties());
+		final StreamingMessageQueueBlockingWaitStrategy strategy = new StreamingMessageQueueBlockingWaitStrategy();
+		
+		long start = System.nanoTime();
+		Assert.assertNull("Timeout must lead to null", strategy.waitFor(queue.getConsumer(), 20, TimeUnit.MILLISECONDS));
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		Assert.assertTrue("Must wait for the timeout", elapsedMillis >= 19);
+		Assert.assertTrue("Must not block beyond the timeout", elapsedMillis < 1000);
+		Assert.assertEquals("No waiters expected", 0, strategy.getWaiters());
+		
+		queue.insert(new StreamingDataMessage("test".getBytes(), 1));
+		Assert.assertEquals("Values must be equal", "test", new String(strategy.waitFor(queue.getConsumer(), 20, TimeUnit.MILLISECONDS).getBody()));
+	}
+
+	/**
+	 * Test case for {@link StreamingMessageQueueBlockingWaitStrategy#waitFor(com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueConsumer)}
+	 * where the consumer blocks until signaled and the producer publishes each message with an ordered store right when the 
+	 * consumer is about to block: no signal must get lost
+	 */
+	@Test
+	public void testWaitFor_withLazilyPublishingProducer() throws Exception {
+		final int numOfMessages = 20000;
+		final RingBufferStreamingMessageQueue queue = new RingBufferStreamingMessageQueue();
+		queue.setId("testWaitFor_withLazilyPublishingProducer");
+		queue.initialize(new Properties());
+		final StreamingMessageQueueBlockingWaitStrategy strategy = new StreamingMessageQueueBlockingWaitStrategy();
+		final AtomicInteger consumed = new AtomicInteger(0);
+		
+		ExecutorService svc = Executors.newSingleThreadExecutor();
+		Future<Integer> result = svc.submit(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				for(int i = 0; i < numOfMessages; i++) {
+					strategy.waitFor(queue.getConsumer());
+					consumed.incrementAndGet();
+				}
+				return consumed.get();
+			}
+		});
+		
+		// publish the next message as soon as the previous one got consumed to hit the consumer while it announces itself
+		for(int i = 0; i < numOfMessages; i++) {
+			while(consumed.get() < i)
+				Thread.yield();
+			queue.getProducer().insert(new StreamingDataMessage("test".getBytes(), i));
+			strategy.forceLockRelease();
+		}
+		Assert.assertEquals("Values must be equal", numOfMessages, result.get(30, TimeUnit.SECONDS).intValue());
+		Assert.assertEquals("No waiters expected", 0, strategy.getWaiters());
+		svc.shutdownNow();
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link IntervalTree}
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class IntervalTreeTest {
+
+	/**
+	 * Test case for {@link IntervalTree#stab(double, HitCounter)} being provided bounds, open and empty intervals
+	 */
+	@Test
+	public void testStab_withBoundsAndOpenIntervals() {
+		IntervalTree tree = new IntervalTree(Arrays.asList(
+				new IntervalTree.Interval(10, 20, false, false, 0),
+				new IntervalTree.Interval(10, 20, true, true, 1),
+				new IntervalTree.Interval(Double.NEGATIVE_INFINITY, 10, false, true, 2),
+				new IntervalTree.Interval(15, Double.POSITIVE_INFINITY, false, false, 3),
+				new IntervalTree.Interval(5, 5, true, false, 4)));
+		Assert.assertEquals("Empty interval must be ignored", 4, tree.size());
+
+		assertStab(tree, 10, 1, 0, 0, 0, 0);
+		assertStab(tree, 9.99, 0, 0, 1, 0, 0);
+		assertStab(tree, 15, 1, 1, 0, 1, 0);
+		assertStab(tree, 20, 1, 0, 0, 1, 0);
+		assertStab(tree, 1e9, 0, 0, 0, 1, 0);
+		assertStab(tree, Double.NaN, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Test case for {@link IntervalTree#stab(double, HitCounter)} being compared with a linear scan over random intervals
+	 */
+	@Test
+	public void testStab_withRandomIntervals() {
+		final Random random = new Random(4711);
+		final List<IntervalTree.Interval> intervals = new ArrayList<>();
+		for(int i = 0; i < 500; i++) {
+			final double lower = random.nextInt(1000);
+			intervals.add(new IntervalTree.Interval(lower, lower + random.nextInt(100), random.nextBoolean(), random.nextBoolean(), i));
+		}
+		final IntervalTree tree = new IntervalTree(intervals);
+
+		for(int i = 0; i < 2000; i++) {
+			final double value = random.nextInt(1200) - 50 + (random.nextBoolean() ? 0.5 : 0);
+			final int[] expected = new int[intervals.size()];
+			for(final IntervalTree.Interval interval : intervals)
+				if(interval.contains(value))
+					expected[interval.getId()]++;
+			Assert.assertArrayEquals("Values must be equal for " + value, expected, stab(tree, value, intervals.size()));
+		}
+	}
+
+	/**
+	 * Stabs the tree at the given value and compares the counters with the expected ones
+	 * @param tree
+	 * @param value
+	 * @param expected
+	 */
+	private static void assertStab(final IntervalTree tree, final double value, final int... expected) {
+		Assert.assertArrayEquals("Values must be equal for " + value, expected, stab(tree, value, expected.length));
+	}
+
+	/**
+	 * Stabs the tree at the given value and returns the hits of all intervals
+	 * @param tree
+	 * @param value
+	 * @param numOfIntervals
+	 * @return
+	 */
+	private static int[] stab(final IntervalTree tree, final double value, final int numOfIntervals) {
+		final HitCounter counters = new HitCounter(numOfIntervals);
+		tree.stab(value, counters);
+		final int[] hits = new int[numOfIntervals];
+		for(int i = 0; i < numOfIntervals; i++)
+			hits[i] = counters.getHits(i);
+		return hits;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+
+/**
+ * Test case for {@link SharedSourceIndex}
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class SharedSourceIndexTest {
+
+	/**
+	 * Test case for {@link SharedSourceSubscription#SharedSourceSubscription(String, String, Properties, StreamingMessageQueueProducer)}
+	 * being provided an operator which cannot be indexed
+	 */
+	@Test(expected=ComponentInitializationFailedException.class)
+	public void testSubscription_withUnsupportedOperator() throws Exception {
+		subscription("pipe", "field.1.path", "a", "field.1.operator", "regex", "field.1.expression", "a.*");
+	}
+
+	/**
+	 * Test case for {@link SharedSourceIndex#match(StreamingDataMessage)} being provided messages matching equality, set, range
+	 * and combined conditions
+	 */
+	@Test
+	public void testMatch_withEqualityAndRangeConditions() throws Exception {
+		final SharedSourceSubscription all = subscription("all");
+		final SharedSourceSubscription host = subscription("host", "field.1.path", "data.host", "field.1.expression", "www.otto.de");
+		final SharedSourceSubscription country = subscription("country", "field.1.path", "country", "field.1.operator", "in", "field.1.expression", "DE, AT");
+		final SharedSourceSubscription price = subscription("price", "field.1.path", "price", "field.1.operator", "range", "field.1.expression", "10,20");
+		final SharedSourceSubscription combined = subscription("combined", "field.1.path", "country", "field.1.expression", "DE",
+				"field.2.path", "price", "field.2.operator", ">", "field.2.expression", "15", "field.3.path", "price", "field.3.operator", "in", "field.3.expression", "17,17.0,18");
+		final SharedSourceSubscription code = subscription("code", "field.1.path", "code", "field.1.operator", "in", "field.1.expression", "1,2");
+		final SharedSourceIndex index = new SharedSourceIndex(Arrays.asList(all, host, country, price, combined, code));
+		Assert.assertEquals("Values must be equal", 4, index.getNumOfFields());
+
+		assertMatches(index, "{\"data\":{\"host\":\"www.otto.de\"},\"country\":\"FR\",\"price\":9}", "all", "host");
+		assertMatches(index, "{\"country\":\"DE\",\"price\":17.0}", "all", "country", "price", "combined");
+		assertMatches(index, "{\"country\":\"DE\",\"price\":\"18\"}", "all", "country", "price", "combined");
+		assertMatches(index, "{\"country\":\"DE\",\"price\":15}", "all", "country", "price");
+		assertMatches(index, "{\"country\":\"AT\",\"price\":20.01,\"code\":2.0}", "all", "country", "code");
+		assertMatches(index, "{\"code\":\"1\",\"price\":\"ten\"}", "all", "code");
+		assertMatches(index, "this is no json", "all");
+	}
+
+	/**
+	 * Test case for {@link SharedSourceIndex#match(StreamingDataMessage)} being provided subscriptions without conditions only
+	 */
+	@Test
+	public void testMatch_withoutConditions() throws Exception {
+		final SharedSourceIndex index = new SharedSourceIndex(Arrays.asList(subscription("a"), subscription("b")));
+		Assert.assertEquals("Values must be equal", 0, index.getNumOfFields());
+		assertMatches(index, "no json required", "a", "b");
+		Assert.assertTrue("Empty index must not match", new SharedSourceIndex(new ArrayList<SharedSourceSubscription>()).match(new StreamingDataMessage("{}".getBytes(), 1)).isEmpty());
+	}
+
+	/**
+	 * Asserts that the provided content is matched by the referenced pipelines only
+	 * @param index
+	 * @param content
+	 * @param pipelineIds
+	 */
+	private static void assertMatches(final SharedSourceIndex index, final String content, final String... pipelineIds) {
+		final List<String> matches = new ArrayList<>();
+		for(final SharedSourceSubscription subscription : index.match(new StreamingDataMessage(content.getBytes(), 1)))
+			matches.add(subscription.getPipelineId());
+		Assert.assertEquals("Values must be equal for " + content, Arrays.asList(pipelineIds), matches);
+	}
+
+	/**
+	 * Returns a subscription for the given pipeline using the provided settings given as name/value pairs
+	 * @param pipelineId
+	 * @param settings
+	 * @return
+	 * @throws Exception
+	 */
+	protected static SharedSourceSubscription subscription(final String pipelineId, final String... settings) throws Exception {
+		final Properties props = new Properties();
+		for(int i = 0; i < settings.length; i += 2)
+			props.setProperty(settings[i], settings[i + 1]);
+		return new SharedSourceSubscription(pipelineId, "source", props, Mockito.mock(StreamingMessageQueueProducer.class));
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.pipeline.component.source.shared;
+
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.codahale.metrics.Counter;
+import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentConfiguration;
+import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
+import com.ottogroup.bi.spqr.pipeline.component.source.IncomingMessageCallback;
+import com.ottogroup.bi.spqr.pipeline.component.source.Source;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.queue.StreamingMessageQueueProducer;
+
+/**
+ * Test case for {@link SharedSourceRegistry}
+ * @author mnxfst
+ * @since Feb 17, 2016
+ */
+public class SharedSourceRegistryTest {
+
+	/**
+	 * Test case for {@link SharedSourceRegistry#getShareKey(MicroPipelineComponentConfiguration)} being provided configurations
+	 * differing in subscription and settings
+	 */
+	@Test
+	public void testGetShareKey_withDifferentSettings() {
+		MicroPipelineComponentConfiguration first = sourceCfg("src-1", "topic", "clicks", "country", "DE");
+		MicroPipelineComponentConfiguration second = sourceCfg("src-2", "topic", "clicks", "country", "AT");
+		Assert.assertEquals("Subscription must not be part of the key", SharedSourceRegistry.getShareKey(first), SharedSourceRegistry.getShareKey(second));
+		Assert.assertNotEquals("Settings must be part of the key", SharedSourceRegistry.getShareKey(first),
+				SharedSourceRegistry.getShareKey(sourceCfg("src-1", "topic", "orders", "country", "DE")));
+	}
+
+	/**
+	 * Test case for {@link SharedSourceRegistry#subscribe(String, MicroPipelineComponentConfiguration, Source, StreamingMessageQueueProducer, ExecutorService)}
+	 * being provided two pipelines subscribing to the same source: a single instance must be started, messages must be routed by subscription and the
+	 * source must be shut down with the last subscription
+	 */
+	@Test
+	public void testSubscribe_withTwoPipelines() throws Exception {
+		ExecutorService executorService = Mockito.mock(ExecutorService.class);
+		Source firstSource = Mockito.mock(Source.class);
+		Source secondSource = Mockito.mock(Source.class);
+		StreamingMessageQueueProducer firstProducer = Mockito.mock(StreamingMessageQueueProducer.class);
+		StreamingMessageQueueProducer secondProducer = Mockito.mock(StreamingMessageQueueProducer.class);
+		Mockito.when(firstProducer.insert(Mockito.any(StreamingDataMessage.class))).thenReturn(true);
+		Mockito.when(secondProducer.insert(Mockito.any(StreamingDataMessage.class))).thenReturn(true);
+
+		SharedSourceRegistry registry = new SharedSourceRegistry("node");
+		SharedSourceSubscription first = registry.subscribe("pipe-1", sourceCfg("src", "topic", "clicks", "country", "DE"), firstSource, firstProducer, executorService);
+		SharedSourceSubscription second = registry.subscribe("pipe-2", sourceCfg("src", "topic", "clicks", "country", "AT"), secondSource, secondProducer, executorService);
+		Assert.assertEquals("Values must be equal", 1, registry.getNumOfSharedSources());
+		Assert.assertSame("Environments must be the same", first.getEnvironment(), second.getEnvironment());
+		Mockito.verify(executorService, Mockito.times(1)).submit(firstSource);
+		Mockito.verify(secondSource).shutdown();
+
+		ArgumentCaptor<IncomingMessageCallback> callback = ArgumentCaptor.forClass(IncomingMessageCallback.class);
+		Mockito.verify(firstSource).setIncomingMessageCallback(callback.capture());
+		StreamingDataMessage de = new StreamingDataMessage("{\"country\":\"DE\"}".getBytes(), 1);
+		StreamingDataMessage at = new StreamingDataMessage("{\"country\":\"AT\"}".getBytes(), 2);
+		Assert.assertTrue("Message must be accepted", callback.getValue().onMessage(de));
+		Assert.assertTrue("Message must be accepted", callback.getValue().onMessage(at));
+		Mockito.verify(firstProducer).insert(de);
+		Mockito.verify(firstProducer, Mockito.never()).insert(at);
+		Mockito.verify(secondProducer).insert(at);
+		Mockito.verify(secondProducer, Mockito.never()).insert(de);
+
+		first.cancel();
+		Assert.assertEquals("Values must be equal", 1, registry.getNumOfSharedSources());
+		Mockito.verify(firstSource, Mockito.never()).shutdown();
+		second.cancel();
+		Assert.assertEquals("Values must be equal", 0, registry.getNumOfSharedSources());
+		Mockito.verify(firstSource).shutdown();
+	}
+
+	/**
+	 * Test case for {@link SharedSourceSubscription#insert(StreamingDataMessage)} being attached to a queue which rejects the message:
+	 * the message must be reported as not accepted and must not be counted
+	 */
+	@Test
+	public void testInsert_withRejectingQueue() throws Exception {
+		Source source = Mockito.mock(Source.class);
+		StreamingMessageQueueProducer producer = Mockito.mock(StreamingMessageQueueProducer.class);
+		Mockito.when(producer.insert(Mockito.any(StreamingDataMessage.class))).thenReturn(false);
+
+		SharedSourceSubscription subscription = new SharedSourceRegistry("node").subscribe("pipe-1", sourceCfg("src", "topic", "clicks", "country", "DE"), 
+				source, producer, Mockito.mock(ExecutorService.class));
+		Counter messageCounter = new Counter();
+		subscription.setMessageCounter(messageCounter);
+
+		ArgumentCaptor<IncomingMessageCallback> callback = ArgumentCaptor.forClass(IncomingMessageCallback.class);
+		Mockito.verify(source).setIncomingMessageCallback(callback.capture());
+		Assert.assertFalse("Message must not be accepted", callback.getValue().onMessage(new StreamingDataMessage("{\"country\":\"DE\"}".getBytes(), 1)));
+		Assert.assertEquals("Values must be equal", 0, messageCounter.getCount());
+	}
+
+	/**
+	 * Returns a shared source configuration subscribing to messages holding the given value in the referenced field
+	 * @param id
+	 * @param settingName
+	 * @param settingValue
+	 * @param field
+	 * @param value
+	 * @return
+	 */
+	private static MicroPipelineComponentConfiguration sourceCfg(final String id, final String settingName, final String settingValue, final String field, final String value) {
+		MicroPipelineComponentConfiguration cfg = new MicroPipelineComponentConfiguration();
+		cfg.setId(id);
+		cfg.setName("kafkaSource");
+		cfg.setVersion("0.0.1");
+		cfg.setType(MicroPipelineComponentType.SOURCE);
+		cfg.setShared(true);
+		cfg.getSettings().setProperty(settingName, settingValue);
+		Properties subscription = new Properties();
+		subscription.setProperty("field.1.path", field);
+		subscription.setProperty("field.1.expression", value);
+		cfg.setSubscription(subscription);
+		return cfg;
+	}
+}
@@ -97,8 +97,9 @@ public class SPQRNodeServer extends Application<SPQRNodeServerConfiguration> {
 		}
 
 		// initialize the micro pipeline manager
-		this.microPipelineManager = new MicroPipelineManager(this.nodeId, loadAndDeployApplicationRepository(configuration.getSpqrNode().getComponentRepositoryFolder()), configuration.getSpqrNode().getNumOfThreads());
-		logger.info("pipeline manager initialized [threads="+configuration.getSpqrNode().getNumOfThreads()+", repo="+configuration.getSpqrNode().getComponentRepositoryFolder()+"]");
+		this.microPipelineManager = new MicroPipelineManager(this.nodeId, loadAndDeployApplicationRepository(configuration.getSpqrNode().getComponentRepositoryFolder()), configuration.getSpqrNode().getNumOfThreads(),
+				configuration.getSpqrNode().getExecutionMode(), configuration.getSpqrNode().getSchedulerThreads());
+		logger.info("pipeline manager initialized [threads="+configuration.getSpqrNode().getNumOfThreads()+", executionMode="+configuration.getSpqrNode().getExecutionMode()+", repo="+configuration.getSpqrNode().getComponentRepositoryFolder()+"]");
 
 		// register exposed resources
 		environment.jersey().register(new MicroPipelineResource(this.microPipelineManager));
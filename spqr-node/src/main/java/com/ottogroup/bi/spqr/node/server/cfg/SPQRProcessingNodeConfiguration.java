@@ -42,6 +42,12 @@ public class SPQRProcessingNodeConfiguration implements Serializable {
 	/** number of threads assigned to internal executor service, default: 0 -- cached thread pool will be used */
 	@JsonProperty(value="numOfThreads", required=true)
 	private int numOfThreads = 0;
+	/** runtime environment execution mode: threadPerComponent (default), cooperative or virtualThreads (numOfThreads is ignored) */
+	@JsonProperty(value="executionMode", required=false)
+	private String executionMode = "threadPerComponent";
+	/** number of worker threads used in cooperative execution mode, default: 0 -- one thread per core */
+	@JsonProperty(value="schedulerThreads", required=false)
+	private int schedulerThreads = 0;
 	/** host - forwarded to resource manager during startup */
 	@JsonProperty(value="host", required=true)
 	private String host = null;
@@ -84,6 +90,18 @@ public class SPQRProcessingNodeConfiguration implements Serializable {
 	public void setNumOfThreads(int numOfThreads) {
 		this.numOfThreads = numOfThreads;
 	}
+	public String getExecutionMode() {
+		return executionMode;
+	}
+	public void setExecutionMode(String executionMode) {
+		this.executionMode = executionMode;
+	}
+	public int getSchedulerThreads() {
+		return schedulerThreads;
+	}
+	public void setSchedulerThreads(int schedulerThreads) {
+		this.schedulerThreads = schedulerThreads;
+	}
 	public String getHost() {
 		return host;
 	}
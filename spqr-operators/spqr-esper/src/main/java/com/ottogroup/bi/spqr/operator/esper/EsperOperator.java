@@ -33,22 +33,24 @@ import com.espertech.esper.client.EPServiceProviderManager;
 import com.espertech.esper.client.EPStatement;
 import com.espertech.esper.client.EPStatementException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
 import com.ottogroup.bi.spqr.pipeline.component.annotation.SPQRComponent;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperator;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
 
 /**
- * Integrates the {@link http://espertech.com/ ESPER} project into SPQR pipelines.
+ * Integrates the {@link http://espertech.com/ ESPER} project into SPQR pipelines. Incoming messages and results may use
+ * any {@link StreamingDataMessageCodec codec}.
  * @author mnxfst
  * @since Apr 23, 2015
  */
 @SPQRComponent(type=MicroPipelineComponentType.DELAYED_RESPONSE_OPERATOR, name="esperOperator", version="0.0.1", description="ESPER integration operator")
-public class EsperOperator implements DelayedResponseOperator {
+public class EsperOperator implements DelayedResponseOperator, MessageCodecAware {
 	
 	/** our faithful logging facility ... ;-) */
 	private static final Logger logger = Logger.getLogger(EsperOperator.class);
@@ -62,6 +64,7 @@ public class EsperOperator implements DelayedResponseOperator {
 	public static final String CFG_ESPER_TYPE_DEF_EVENT_SUFFIX = ".event";
 	public static final String CFG_ESPER_TYPE_DEF_NAME_SUFFIX = ".name";
 	public static final String CFG_ESPER_TYPE_DEF_TYPE_SUFFIX = ".type";
+	private static final TypeReference<Map<String, Object>> EVENT_BODY_TYPE = new TypeReference<Map<String, Object>>() {};
 	
 	private String id = null;
 	private long totalNumOfMessages = 0;
@@ -70,7 +73,8 @@ public class EsperOperator implements DelayedResponseOperator {
 	
 	private EPServiceProvider esperServiceProvider = null;
 	private EPRuntime esperRuntime = null;
-	private final ObjectMapper mapper = new ObjectMapper();
+	private StreamingDataMessageCodec inputCodec = StreamingDataMessageCodec.JSON;
+	private StreamingDataMessageCodec outputCodec = StreamingDataMessageCodec.JSON;
 
 	private StreamingDataMessage[] result = null;
 	
@@ -187,7 +191,7 @@ public class EsperOperator implements DelayedResponseOperator {
 		Map<String, Object> event = new HashMap<String, Object>();
 		event.put("timestamp", message.getTimestamp());
 		try {
-			event.put("body", mapper.readValue(message.getBody(), new TypeReference<Map<String, Object>>() {}));
+			event.put("body", inputCodec.getObjectMapper().readValue(message.getBody(), EVENT_BODY_TYPE));
 		} catch(IOException e) {
 			logger.error("Failed to parse incoming message to structured JSON map. Error: " + e.getMessage());
 			event.put("body", Collections.emptyMap());
@@ -218,9 +222,10 @@ public class EsperOperator implements DelayedResponseOperator {
 
 		if(body != null) {
 			try {
-				byte[] messageBody = mapper.writeValueAsBytes(body);
+				byte[] messageBody = outputCodec.writeValueAsBytes(body);
 				if(messageBody != null && messageBody.length > 0) {
 					result = new StreamingDataMessage[]{new StreamingDataMessage(messageBody, (timestamp != null ? timestamp.longValue() : System.currentTimeMillis()))};
+					outputCodec.applyContentType(result[0]);
 					this.waitStrategy.release();
 				}
 			} catch(IOException e) {
@@ -257,6 +262,21 @@ public class EsperOperator implements DelayedResponseOperator {
 		return this.id;
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware#supportsMessageCodec(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec)
+	 */
+	public boolean supportsMessageCodec(StreamingDataMessageCodec codec) {
+		return codec != null;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware#setMessageCodecs(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec, com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec)
+	 */
+	public void setMessageCodecs(StreamingDataMessageCodec inputCodec, StreamingDataMessageCodec outputCodec) {
+		this.inputCodec = (inputCodec != null ? inputCodec : StreamingDataMessageCodec.JSON);
+		this.outputCodec = (outputCodec != null ? outputCodec : StreamingDataMessageCodec.JSON);
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperator#setWaitStrategy(com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy)
 	 */
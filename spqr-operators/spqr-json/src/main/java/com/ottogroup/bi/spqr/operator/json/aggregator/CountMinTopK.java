@@ -0,0 +1,253 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the most frequent strings using a Count-Min sketch (see Cormode and Muthukrishnan, "An improved data stream summary:
+ * the count-min sketch and its applications") along with a min-heap holding the <i>k</i> strings of largest estimated count.
+ * Memory is fixed by depth, width and <i>k</i> - independent of the number of distinct strings. Estimates never fall below the
+ * exact count and exceed it by at most 2/width of all values added with a probability of 1 - (1/2)^depth.<br/><br/>
+ * Sketches of equal dimensions are merged by adding up their tables and re-ranking the candidates of both heaps. Instances are
+ * not thread-safe.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class CountMinTopK {
+
+	/** default number of hash functions / rows */
+	public static final int DEFAULT_DEPTH = 4;
+	/** default number of counters per row */
+	public static final int DEFAULT_WIDTH = 2048;
+
+	/** number of rows */
+	private final int depth;
+	/** number of counters per row - power of two */
+	private final int width;
+	/** max. number of strings reported */
+	private final int k;
+	/** counters referenced by row * width + column */
+	private final long[] counters;
+	/** strings of the min-heap - the one having the smallest count at position zero */
+	private final String[] heapKeys;
+	/** estimated counts of the min-heap */
+	private final long[] heapCounts;
+	/** heap position by string */
+	private final Map<String, Integer> heapPositions;
+	/** number of strings in heap */
+	private int heapSize = 0;
+
+	/**
+	 * Initializes the sketch using {@link #DEFAULT_DEPTH} and {@link #DEFAULT_WIDTH}
+	 * @param k max. number of strings reported
+	 */
+	public CountMinTopK(final int k) {
+		this(k, DEFAULT_DEPTH, DEFAULT_WIDTH);
+	}
+
+	/**
+	 * Initializes the sketch using the provided dimensions
+	 * @param k max. number of strings reported
+	 * @param depth number of hash functions
+	 * @param width number of counters per hash function - rounded up to the next power of two
+	 */
+	public CountMinTopK(final int k, final int depth, final int width) {
+		if(k < 1)
+			throw new IllegalArgumentException("Number of strings reported must be larger than 0");
+		if(depth < 1 || width < 1)
+			throw new IllegalArgumentException("Depth and width must be larger than 0");
+		this.k = k;
+		this.depth = depth;
+		this.width = (Integer.bitCount(width) == 1 ? width : Integer.highestOneBit(width) << 1);
+		this.counters = new long[this.depth * this.width];
+		this.heapKeys = new String[k];
+		this.heapCounts = new long[k];
+		this.heapPositions = new HashMap<>(k * 2);
+	}
+
+	/**
+	 * Counts an occurrence of the provided value
+	 * @param value
+	 */
+	public void add(final String value) {
+		final long hash = StringHash.hash64(value);
+		final int h1 = (int)hash;
+		final int h2 = (int)(hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for(int row = 0; row < this.depth; row++) {
+			final int index = row * this.width + ((h1 + row * h2) & (this.width - 1));
+			final long count = ++this.counters[index];
+			if(count < estimate)
+				estimate = count;
+		}
+		offer(value, estimate);
+	}
+
+	/**
+	 * Returns the estimated count of the provided value
+	 * @param value
+	 * @return
+	 */
+	public long estimate(final String value) {
+		final long hash = StringHash.hash64(value);
+		final int h1 = (int)hash;
+		final int h2 = (int)(hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for(int row = 0; row < this.depth; row++)
+			estimate = Math.min(estimate, this.counters[row * this.width + ((h1 + row * h2) & (this.width - 1))]);
+		return estimate;
+	}
+
+	/**
+	 * Returns the most frequent strings ordered by descending count. Their counts are provided by {@link #estimate(String)}
+	 * @return
+	 */
+	public String[] getTopKeys() {
+		final Integer[] order = new Integer[this.heapSize];
+		for(int i = 0; i < this.heapSize; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Long.compare(heapCounts[b], heapCounts[a]);
+			}
+		});
+		final String[] keys = new String[this.heapSize];
+		for(int i = 0; i < this.heapSize; i++)
+			keys[i] = this.heapKeys[order[i]];
+		return keys;
+	}
+
+	/**
+	 * Returns true if no value has been added
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.heapSize == 0;
+	}
+
+	/**
+	 * Merges the provided sketch which must use the same dimensions
+	 * @param other
+	 */
+	public void merge(final CountMinTopK other) {
+		if(other.depth != this.depth || other.width != this.width || other.k != this.k)
+			throw new IllegalArgumentException("Dimensions of sketches to merge must be equal");
+		for(int i = 0; i < this.counters.length; i++)
+			this.counters[i] += other.counters[i];
+
+		// re-rank the candidates of both heaps using the merged counters
+		final String[] candidates = Arrays.copyOf(this.heapKeys, this.heapSize + other.heapSize);
+		System.arraycopy(other.heapKeys, 0, candidates, this.heapSize, other.heapSize);
+		clearHeap();
+		for(final String candidate : candidates)
+			if(!this.heapPositions.containsKey(candidate))
+				offer(candidate, estimate(candidate));
+	}
+
+	/**
+	 * Removes all values
+	 */
+	public void reset() {
+		Arrays.fill(this.counters, 0);
+		clearHeap();
+	}
+
+	/**
+	 * Updates the heap with the estimated count of the provided value
+	 * @param value
+	 * @param estimate
+	 */
+	private void offer(final String value, final long estimate) {
+		final Integer position = this.heapPositions.get(value);
+		if(position != null) {
+			// estimates only grow, thus the value may need to move towards the leaves
+			this.heapCounts[position] = estimate;
+			siftDown(position);
+		} else if(this.heapSize < this.k) {
+			this.heapKeys[this.heapSize] = value;
+			this.heapCounts[this.heapSize] = estimate;
+			this.heapPositions.put(value, this.heapSize);
+			siftUp(this.heapSize++);
+		} else if(estimate > this.heapCounts[0]) {
+			this.heapPositions.remove(this.heapKeys[0]);
+			this.heapKeys[0] = value;
+			this.heapCounts[0] = estimate;
+			this.heapPositions.put(value, 0);
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Moves the referenced heap entry towards the root until its parent has a smaller count
+	 * @param position
+	 */
+	private void siftUp(int position) {
+		while(position > 0) {
+			final int parent = (position - 1) >>> 1;
+			if(this.heapCounts[parent] <= this.heapCounts[position])
+				return;
+			swap(parent, position);
+			position = parent;
+		}
+	}
+
+	/**
+	 * Moves the referenced heap entry towards the leaves until its children have larger counts
+	 * @param position
+	 */
+	private void siftDown(int position) {
+		while(true) {
+			final int left = 2 * position + 1;
+			if(left >= this.heapSize)
+				return;
+			final int right = left + 1;
+			final int smallest = (right < this.heapSize && this.heapCounts[right] < this.heapCounts[left] ? right : left);
+			if(this.heapCounts[position] <= this.heapCounts[smallest])
+				return;
+			swap(position, smallest);
+			position = smallest;
+		}
+	}
+
+	/**
+	 * Swaps two heap entries
+	 * @param a
+	 * @param b
+	 */
+	private void swap(final int a, final int b) {
+		final String key = this.heapKeys[a];
+		final long count = this.heapCounts[a];
+		this.heapKeys[a] = this.heapKeys[b];
+		this.heapCounts[a] = this.heapCounts[b];
+		this.heapKeys[b] = key;
+		this.heapCounts[b] = count;
+		this.heapPositions.put(this.heapKeys[a], a);
+		this.heapPositions.put(this.heapKeys[b], b);
+	}
+
+	/**
+	 * Removes all strings from the heap
+	 */
+	private void clearHeap() {
+		Arrays.fill(this.heapKeys, null);
+		this.heapPositions.clear();
+		this.heapSize = 0;
+	}
+}
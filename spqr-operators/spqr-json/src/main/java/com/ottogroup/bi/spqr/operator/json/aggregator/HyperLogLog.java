@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the number of distinct strings using a fixed number of registers (see Flajolet et al., "HyperLogLog: the analysis
+ * of a near-optimal cardinality estimation algorithm"). Using the default precision of 14 the sketch occupies 16KB independent
+ * of the cardinality while the standard error is about 0.8%. Sketches of equal precision are merged by keeping the larger one
+ * of two registers. Instances are not thread-safe.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class HyperLogLog {
+
+	/** default number of hash bits used to address registers */
+	public static final int DEFAULT_PRECISION = 14;
+
+	/** number of hash bits used to address registers */
+	private final int precision;
+	/** max. number of leading zeros plus one observed per register */
+	private final byte[] registers;
+
+	/**
+	 * Initializes the sketch using the {@link #DEFAULT_PRECISION}
+	 */
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+
+	/**
+	 * Initializes the sketch using 2^precision registers
+	 * @param precision value between 4 and 18
+	 */
+	public HyperLogLog(final int precision) {
+		if(precision < 4 || precision > 18)
+			throw new IllegalArgumentException("Precision must be between 4 and 18");
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	/**
+	 * Adds the provided value
+	 * @param value
+	 */
+	public void add(final String value) {
+		final long hash = StringHash.hash64(value);
+		final int register = (int)(hash >>> (64 - this.precision));
+		// the guard bit limits the rank if all remaining bits are zero
+		final byte rank = (byte)(Long.numberOfLeadingZeros((hash << this.precision) | (1L << (this.precision - 1))) + 1);
+		if(rank > this.registers[register])
+			this.registers[register] = rank;
+	}
+
+	/**
+	 * Returns the estimated number of distinct values added
+	 * @return
+	 */
+	public long estimate() {
+		final int m = this.registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for(int i = 0; i < m; i++) {
+			sum += 1.0 / (1L << this.registers[i]);
+			if(this.registers[i] == 0)
+				zeros++;
+		}
+		final double estimate = (0.7213 / (1 + 1.079 / m)) * m * m / sum;
+		// small cardinalities are estimated more accurately by linear counting
+		if(estimate <= 2.5 * m && zeros > 0)
+			return Math.round(m * Math.log((double)m / zeros));
+		return Math.round(estimate);
+	}
+
+	/**
+	 * Returns true if no value has been added
+	 * @return
+	 */
+	public boolean isEmpty() {
+		for(int i = 0; i < this.registers.length; i++)
+			if(this.registers[i] != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Merges the provided sketch which must use the same precision
+	 * @param other
+	 */
+	public void merge(final HyperLogLog other) {
+		if(other.precision != this.precision)
+			throw new IllegalArgumentException("Precision of sketches to merge must be equal");
+		for(int i = 0; i < this.registers.length; i++)
+			if(other.registers[i] > this.registers[i])
+				this.registers[i] = other.registers[i];
+	}
+
+	/**
+	 * Removes all values
+	 */
+	public void reset() {
+		Arrays.fill(this.registers, (byte)0);
+	}
+}
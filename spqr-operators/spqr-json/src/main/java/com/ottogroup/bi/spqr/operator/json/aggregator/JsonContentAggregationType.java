@@ -0,0 +1,27 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+/**
+ * Aggregation applied to field values by the {@link JsonContentAggregator}: EXACT counts of string values or min, max and sum
+ * of numerical values, DISTINCT counts and TOP_K values of strings as well as QUANTILES of numerical values. All but EXACT
+ * are estimated by sketches of fixed size
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public enum JsonContentAggregationType {
+	EXACT, DISTINCT, TOP_K, QUANTILES
+}
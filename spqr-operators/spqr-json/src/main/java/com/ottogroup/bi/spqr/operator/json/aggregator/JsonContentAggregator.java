@@ -17,17 +17,13 @@ package com.ottogroup.bi.spqr.operator.json.aggregator;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.operator.json.JsonContentType;
@@ -35,15 +31,31 @@ import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
 import com.ottogroup.bi.spqr.pipeline.component.annotation.SPQRComponent;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperator;
 import com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy;
+import com.ottogroup.bi.spqr.pipeline.component.operator.MergeableDelayedResponseOperator;
+import com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldExtractor;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldValues;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
 
 /**
- * Aggregates content of JSON documents provided
+ * Aggregates content of JSON documents provided. Partial results of multiple instances running in parallel may be merged
+ * as counts and sums are added up while min and max values are compared. Incoming messages and result documents may use
+ * any {@link StreamingDataMessageCodec codec}. Values are aggregated into a {@link JsonContentAggregatorState} which keeps
+ * counts, min, max and sum in primitive slots - the result document is not built before it gets requested.<br/><br/>
+ * Raw data forwarded along with the aggregated values may be capped per window: <code>rawDataMode=first</code> keeps the
+ * first <code>rawDataLimit</code> messages, <code>rawDataMode=sample</code> keeps a uniform random sample of that size.
+ * The default <code>rawDataMode=all</code> keeps all messages.<br/><br/>
+ * Besides <code>STRING</code> (exact counts) and <code>NUMERICAL</code> (min, max and sum) the <code>field.[id].type</code> setting
+ * accepts types estimated by sketches of fixed size for fields of high cardinality: <code>DISTINCT</code> reports the number of
+ * distinct values, <code>TOPK</code> the <code>field.[id].topK</code> most frequent values along with their counts and
+ * <code>QUANTILES</code> the <code>field.[id].quantiles</code> of numerical values, eg. <code>p50</code> for 0.5. Quantiles are
+ * estimated on fractional values and reported as floating point numbers
  * @author mnxfst
  * @since Mar 17, 2015
  */
 @SPQRComponent(type=MicroPipelineComponentType.DELAYED_RESPONSE_OPERATOR, name="jsonContentAggregator", version="0.0.1", description="Aggregates arbitrary JSON content")
-public class JsonContentAggregator implements DelayedResponseOperator {
+public class JsonContentAggregator implements MergeableDelayedResponseOperator, MessageCodecAware {
 
 	/** our faithful logging facility .... ;-) */
 	private static final Logger logger = Logger.getLogger(JsonContentAggregator.class);
@@ -56,6 +68,20 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 	public static final String CFG_DOCUMENT_TYPE = "documentType";
 	/** store and forward raw data - default: true */
 	public static final String CFG_FORWARD_RAW_DATA = "forwardRawData";
+	/** strategy applied to decide which raw data to keep: all, first or sample - default: all */
+	public static final String CFG_RAW_DATA_MODE = "rawDataMode";
+	/** max. number of raw data entries kept per window by modes first and sample - default: 1000 */
+	public static final String CFG_RAW_DATA_LIMIT = "rawDataLimit";
+	/** default max. number of raw data entries kept per window by modes first and sample */
+	public static final int DEFAULT_RAW_DATA_LIMIT = 1000;
+	/** suffix to field settings holding the number of values reported by type TOPK - default: 10 */
+	public static final String CFG_TOP_K_SUFFIX = ".topK";
+	/** suffix to field settings holding the comma separated quantiles reported by type QUANTILES - default: 0.5,0.9,0.99 */
+	public static final String CFG_QUANTILES_SUFFIX = ".quantiles";
+	/** default number of values reported by type TOPK */
+	public static final int DEFAULT_TOP_K = 10;
+	/** default quantiles reported by type QUANTILES */
+	public static final String DEFAULT_QUANTILES = "0.5,0.9,0.99";
 	/** prefix to all field settings - required: field.1.name, field.1.path and field.1.type (settings must use continuous enumeration starting with value 1 */
 	public static final String CFG_FIELD_PREFIX = "field.";
 	//
@@ -63,8 +89,14 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 
 	/** component identifier assigned by caller */
 	private String id = null;
-	/** maps inbound strings into object representations and json strings vice versa */
-	private final ObjectMapper jsonMapper = new ObjectMapper();
+	/** extracts the values of all configured fields in a single pass */
+	private JsonFieldExtractor fieldExtractor = null;
+	/** receives the field values of the message currently processed */
+	private JsonFieldValues fieldValues = null;
+	/** codec used by incoming messages */
+	private StreamingDataMessageCodec inputCodec = StreamingDataMessageCodec.JSON;
+	/** codec used for result documents */
+	private StreamingDataMessageCodec outputCodec = StreamingDataMessageCodec.JSON;
 	/** identifier as assigned to surrounding pipeline */
 	private String pipelineId = null;
 	/** document identifier added to each output message */
@@ -77,8 +109,8 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 	private boolean storeForwardRawData = true;
 	/** fields considered to be relevant mapped to aggregator that must be applied to values - none = data is added to raw output only */
 	private List<JsonContentAggregatorFieldSetting> fields = new ArrayList<>();
-	/** result document - reset after specified duration */
-	private JsonContentAggregatorResult resultDocument = null;
+	/** aggregation state of the current window - reset after specified duration */
+	private JsonContentAggregatorState state = null;
 
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#initialize(java.util.Properties)
@@ -95,6 +127,24 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 		if(StringUtils.equalsIgnoreCase(properties.getProperty(CFG_FORWARD_RAW_DATA), "false"))
 			this.storeForwardRawData = false;
 		
+		JsonContentAggregatorRawData.Mode rawDataMode = JsonContentAggregatorRawData.Mode.ALL;
+		if(StringUtils.isNotBlank(properties.getProperty(CFG_RAW_DATA_MODE))) {
+			try {
+				rawDataMode = JsonContentAggregatorRawData.Mode.valueOf(StringUtils.upperCase(StringUtils.trim(properties.getProperty(CFG_RAW_DATA_MODE))));
+			} catch(IllegalArgumentException e) {
+				throw new ComponentInitializationFailedException("Unsupported raw data mode '"+properties.getProperty(CFG_RAW_DATA_MODE)+"'");
+			}
+		}
+		int rawDataLimit = DEFAULT_RAW_DATA_LIMIT;
+		if(StringUtils.isNotBlank(properties.getProperty(CFG_RAW_DATA_LIMIT))) {
+			try {
+				rawDataLimit = Integer.parseInt(StringUtils.trim(properties.getProperty(CFG_RAW_DATA_LIMIT)));
+			} catch(NumberFormatException e) {
+				throw new ComponentInitializationFailedException("Failed to parse raw data limit '"+properties.getProperty(CFG_RAW_DATA_LIMIT)+"' into a number");
+			}
+			if(rawDataLimit < 1)
+				throw new ComponentInitializationFailedException("Raw data limit must be larger than 0");
+		}
 
 		for(int i = 1; i < Integer.MAX_VALUE; i++) {
 			String name = properties.getProperty(CFG_FIELD_PREFIX + i + ".name");
@@ -104,8 +154,28 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 			String path = properties.getProperty(CFG_FIELD_PREFIX + i + ".path");
 			String valueType = properties.getProperty(CFG_FIELD_PREFIX + i + ".type");
 			
-			this.fields.add(new JsonContentAggregatorFieldSetting(name, path.split("\\."), StringUtils.equalsIgnoreCase("STRING", valueType) ? JsonContentType.STRING : JsonContentType.NUMERICAL));
+			if(StringUtils.equalsIgnoreCase("DISTINCT", valueType)) {
+				this.fields.add(new JsonContentAggregatorFieldSetting(name, path.split("\\."), JsonContentType.STRING, JsonContentAggregationType.DISTINCT));
+			} else if(StringUtils.equalsIgnoreCase("TOPK", valueType)) {
+				final JsonContentAggregatorFieldSetting fieldSettings = new JsonContentAggregatorFieldSetting(name, path.split("\\."), JsonContentType.STRING, JsonContentAggregationType.TOP_K);
+				fieldSettings.setTopK(parseTopK(properties.getProperty(CFG_FIELD_PREFIX + i + CFG_TOP_K_SUFFIX)));
+				this.fields.add(fieldSettings);
+			} else if(StringUtils.equalsIgnoreCase("QUANTILES", valueType)) {
+				final JsonContentAggregatorFieldSetting fieldSettings = new JsonContentAggregatorFieldSetting(name, path.split("\\."), JsonContentType.NUMERICAL, JsonContentAggregationType.QUANTILES);
+				fieldSettings.setQuantiles(parseQuantiles(properties.getProperty(CFG_FIELD_PREFIX + i + CFG_QUANTILES_SUFFIX, DEFAULT_QUANTILES)));
+				this.fields.add(fieldSettings);
+			} else {
+				this.fields.add(new JsonContentAggregatorFieldSetting(name, path.split("\\."), StringUtils.equalsIgnoreCase("STRING", valueType) ? JsonContentType.STRING : JsonContentType.NUMERICAL));
+			}
 		}
+		
+		final List<String[]> paths = new ArrayList<>();
+		for(final JsonContentAggregatorFieldSetting fieldSettings : this.fields)
+			paths.add(fieldSettings.getPath());
+		this.fieldExtractor = new JsonFieldExtractor(paths);
+		this.fieldValues = this.fieldExtractor.newValues();
+		this.state = new JsonContentAggregatorState(this.fields,
+				(storeForwardRawData ? new JsonContentAggregatorRawData(this.fields, rawDataMode, rawDataLimit, new Random()) : null));
 		/////////////////////////////////////////////////////////////////////////////////////
 		
 		if(logger.isDebugEnabled())
@@ -113,6 +183,49 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 		
 	}
 
+	/**
+	 * Parses the number of values reported by a TOPK field - default: {@link #DEFAULT_TOP_K}
+	 * @param topK
+	 * @return
+	 * @throws ComponentInitializationFailedException
+	 */
+	protected static int parseTopK(final String topK) throws ComponentInitializationFailedException {
+		if(StringUtils.isBlank(topK))
+			return DEFAULT_TOP_K;
+		final int value;
+		try {
+			value = Integer.parseInt(StringUtils.trim(topK));
+		} catch(NumberFormatException e) {
+			throw new ComponentInitializationFailedException("Failed to parse top k '"+topK+"' into a number");
+		}
+		if(value < 1)
+			throw new ComponentInitializationFailedException("Top k must be larger than 0");
+		return value;
+	}
+
+	/**
+	 * Parses the comma separated quantiles reported by a QUANTILES field
+	 * @param quantiles
+	 * @return
+	 * @throws ComponentInitializationFailedException
+	 */
+	protected static double[] parseQuantiles(final String quantiles) throws ComponentInitializationFailedException {
+		final String[] values = StringUtils.split(quantiles, ',');
+		if(values == null || values.length < 1)
+			throw new ComponentInitializationFailedException("Missing required quantiles");
+		final double[] result = new double[values.length];
+		for(int i = 0; i < values.length; i++) {
+			try {
+				result[i] = Double.parseDouble(StringUtils.trim(values[i]));
+			} catch(NumberFormatException e) {
+				throw new ComponentInitializationFailedException("Failed to parse quantile '"+values[i]+"' into a number");
+			}
+			if(!(result[i] >= 0 && result[i] <= 1))
+				throw new ComponentInitializationFailedException("Quantile '"+values[i]+"' must be between 0 and 1");
+		}
+		return result;
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperator#onMessage(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage)
 	 */
@@ -125,26 +238,19 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 		if(message == null || message.getBody() == null || message.getBody().length < 1)
 			return;
 		
-		JsonNode jsonNode = null;
-		try {
-			jsonNode = jsonMapper.readTree(message.getBody());
-		} catch(IOException e) {
-			logger.error("Failed to read message body to json node. Ignoring message. Error: " + e.getMessage());
-		}
-		
-		// return null in case the message could not be parsed into 
-		// an object representation - the underlying processor does
-		// not forward any NULL messages
-		if(jsonNode == null)
+		// ignore messages which could not be parsed
+		if(!fieldExtractor.extract(inputCodec.getFactory(), message.getBody(), fieldValues)) {
+			logger.error("Failed to read fields from message body. Ignoring message.");
 			return;
+		}
 		
-		// initialize the result document if not already done
-		if(this.resultDocument == null)
-			this.resultDocument = new JsonContentAggregatorResult(this.pipelineId, this.documentType);
-		
-		Map<String, Object> rawData = new HashMap<>();
-		// step through fields considered to be relevant, extract values and apply aggregation function
-		for(final JsonContentAggregatorFieldSetting fieldSettings : fields) {
+		// step through fields considered to be relevant, read extracted values and apply aggregation function
+		for(int i = 0; i < fields.size(); i++) {
+			final JsonContentAggregatorFieldSetting fieldSettings = fields.get(i);
+			
+			// fields missing in the event are ignored
+			if(!fieldValues.isFound(i))
+				continue;
 			
 			// switch between string and numerical field values
 			// string values may be counted only
@@ -153,45 +259,21 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 			// string values may be counted only
 			if(fieldSettings.getValueType() == JsonContentType.STRING) {
 
-				try {
-					// read value into string representation and add it to raw data dump
-					String value = getTextFieldValue(jsonNode, fieldSettings.getPath());
-					if(storeForwardRawData)
-						rawData.put(fieldSettings.getField(), value);
-					
-					// count occurrences of value
-					try {
-						this.resultDocument.incAggregatedValue(fieldSettings.getField(), value, 1);
-					} catch (RequiredInputMissingException e) {
-						logger.error("Field '"+fieldSettings.getField()+"' not found in event. Ignoring value. Error: " +e.getMessage());
-					}
-				} catch(Exception e) {
-				}
+				// count occurrences of value
+				this.state.count(i, fieldValues.getText(i));
+			} else if(fieldSettings.getAggregationType() == JsonContentAggregationType.QUANTILES) {
+
+				// estimate quantiles on fractional values
+				this.state.observe(i, fieldValues.getDouble(i));
 			} else if(fieldSettings.getValueType() == JsonContentType.NUMERICAL) {			
 				
-				try {
-					// read value into numerical representation and add it to raw data map
-					long value = getNumericalFieldValue(jsonNode, fieldSettings.getPath());
-					if(storeForwardRawData)
-						rawData.put(fieldSettings.getField(), value);
-					
-					// compute min, max and sum and add these values to result document
-					try {
-						this.resultDocument.evalMinAggregatedValue(fieldSettings.getField(), "min", value);
-						this.resultDocument.evalMaxAggregatedValue(fieldSettings.getField(), "max", value);
-						this.resultDocument.incAggregatedValue(fieldSettings.getField(), "sum", value);
-					} catch(RequiredInputMissingException e) {
-						logger.error("Field '"+fieldSettings.getField()+"' not found in event. Ignoring value. Error: " +e.getMessage());
-					}				
-					
-				} catch(Exception e) {
-				}
+				// compute min, max and sum
+				this.state.aggregate(i, fieldValues.getLong(i));
 			}			
 		}
 		
-		// add raw data to document
-		if(storeForwardRawData)
-			this.resultDocument.addRawData(rawData);
+		// offer raw data to document - kept depending on the raw data mode
+		this.state.addRawData(fieldValues);
 	}
 
 	/**
@@ -202,50 +284,35 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 		
 		StreamingDataMessage message = null;
 		try {			
-			message = new StreamingDataMessage(jsonMapper.writeValueAsBytes(this.resultDocument), System.currentTimeMillis());
-		} catch (JsonProcessingException e) {
+			message = new StreamingDataMessage(this.state.toBytes(outputCodec, this.pipelineId, this.documentType), System.currentTimeMillis());
+			outputCodec.applyContentType(message);
+		} catch (IOException e) {
 			logger.error("Failed to convert result document into JSON");
 		}
-		this.resultDocument = new JsonContentAggregatorResult(this.pipelineId, this.documentType);
+		this.state.reset();
 		return new StreamingDataMessage[]{message};
 	}
 
 	/**
-	 * Walks along the path provided and reads out the leaf value which is returned as string 
-	 * @param jsonNode
-	 * @param fieldPath
-	 * @return
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.MergeableDelayedResponseOperator#merge(com.ottogroup.bi.spqr.pipeline.component.operator.MergeableDelayedResponseOperator)
 	 */
-	protected String getTextFieldValue(final JsonNode jsonNode, final String[] fieldPath) {
-
-		int fieldAccessStep = 0;
-		JsonNode contentNode = jsonNode;
-		while(fieldAccessStep < fieldPath.length) {
-			contentNode = contentNode.get(fieldPath[fieldAccessStep]);
-			fieldAccessStep++;
-		}	
-
-		return contentNode.textValue();
+	public void merge(MergeableDelayedResponseOperator partial) {
+		
+		if(partial == null || partial == this || !(partial instanceof JsonContentAggregator))
+			return;
+		
+		final JsonContentAggregator partialAggregator = (JsonContentAggregator)partial;
+		this.messagesSinceLastResult = this.messagesSinceLastResult + partialAggregator.messagesSinceLastResult;
+		partialAggregator.messagesSinceLastResult = 0;
+		
+		if(partialAggregator.state == null || this.state == null)
+			return;
+		
+		// counts and sums are added up, min and max values compared
+		this.state.merge(partialAggregator.state);
+		partialAggregator.state.reset();
 	}
-	
-	/**
-	 * Walks along the path provided and reads out the leaf value which is returned as long value
-	 * @param jsonNode
-	 * @param fieldPath
-	 * @return
-	 */
-	protected long getNumericalFieldValue(final JsonNode jsonNode, final String[] fieldPath) {
 
-		int fieldAccessStep = 0;
-		JsonNode contentNode = jsonNode;
-		while(fieldAccessStep < fieldPath.length) {
-			contentNode = contentNode.get(fieldPath[fieldAccessStep]);
-			fieldAccessStep++;
-		}	
-
-		return contentNode.asLong();
-	}
-	
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperator#setWaitStrategy(com.ottogroup.bi.spqr.pipeline.component.operator.DelayedResponseOperatorWaitStrategy)
 	 */
@@ -267,6 +334,21 @@ public class JsonContentAggregator implements DelayedResponseOperator {
 		return this.messagesSinceLastResult;
 	}
 
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware#supportsMessageCodec(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec)
+	 */
+	public boolean supportsMessageCodec(StreamingDataMessageCodec codec) {
+		return codec != null;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware#setMessageCodecs(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec, com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec)
+	 */
+	public void setMessageCodecs(StreamingDataMessageCodec inputCodec, StreamingDataMessageCodec outputCodec) {
+		this.inputCodec = (inputCodec != null ? inputCodec : StreamingDataMessageCodec.JSON);
+		this.outputCodec = (outputCodec != null ? outputCodec : StreamingDataMessageCodec.JSON);
+	}
+
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#getType()
 	 */
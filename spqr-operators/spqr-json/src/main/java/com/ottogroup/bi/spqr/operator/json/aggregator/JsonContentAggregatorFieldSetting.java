@@ -32,6 +32,11 @@ public class JsonContentAggregatorFieldSetting implements Serializable {
 	private String field = null;
 	private String[] path = null;
 	private JsonContentType valueType = JsonContentType.UNKNOWN;
+	private JsonContentAggregationType aggregationType = JsonContentAggregationType.EXACT;
+	/** number of values reported by aggregation type TOP_K */
+	private int topK = 0;
+	/** quantiles reported by aggregation type QUANTILES */
+	private double[] quantiles = null;
 	
 	/**
 	 * Default constructor
@@ -50,6 +55,18 @@ public class JsonContentAggregatorFieldSetting implements Serializable {
 		this.path = path;
 		this.valueType = valueType;
 	}
+	
+	/**
+	 * Initializes the settings using the provided input
+	 * @param field
+	 * @param path
+	 * @param valueType
+	 * @param aggregationType
+	 */
+	public JsonContentAggregatorFieldSetting(final String field, final String[] path, final JsonContentType valueType, final JsonContentAggregationType aggregationType) {
+		this(field, path, valueType);
+		this.aggregationType = aggregationType;
+	}
 
 	public String getField() {
 		return field;
@@ -74,5 +91,29 @@ public class JsonContentAggregatorFieldSetting implements Serializable {
 	public void setValueType(JsonContentType valueType) {
 		this.valueType = valueType;
 	}
+
+	public JsonContentAggregationType getAggregationType() {
+		return aggregationType;
+	}
+
+	public void setAggregationType(JsonContentAggregationType aggregationType) {
+		this.aggregationType = aggregationType;
+	}
+
+	public int getTopK() {
+		return topK;
+	}
+
+	public void setTopK(int topK) {
+		this.topK = topK;
+	}
+
+	public double[] getQuantiles() {
+		return quantiles;
+	}
+
+	public void setQuantiles(double[] quantiles) {
+		this.quantiles = quantiles;
+	}
 	
 }
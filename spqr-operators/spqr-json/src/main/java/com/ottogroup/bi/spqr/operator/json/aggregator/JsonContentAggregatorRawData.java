@@ -0,0 +1,307 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.ottogroup.bi.spqr.operator.json.JsonContentType;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldValues;
+
+/**
+ * Raw data forwarded by the {@link JsonContentAggregator} along with the aggregated values of a window. Instead of a map per
+ * message the field values are kept in rows of flat arrays which are written straight to the result document. Depending on
+ * the {@link Mode} the number of rows is capped:
+ * <ul>
+ *   <li>{@link Mode#ALL} keeps all rows - the arrays grow with the number of messages</li>
+ *   <li>{@link Mode#FIRST} keeps the first <i>limit</i> rows of a window</li>
+ *   <li>{@link Mode#SAMPLE} keeps a uniform random sample of <i>limit</i> rows using reservoir sampling</li>
+ * </ul>
+ * Capped modes allocate their rows once and never grow. Instances are not thread-safe.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class JsonContentAggregatorRawData {
+
+	/** number of rows allocated initially by {@link Mode#ALL} */
+	private static final int DEFAULT_NUM_OF_ROWS = 64;
+
+	/**
+	 * Strategy applied to decide which rows to keep
+	 * @author mnxfst
+	 * @since Feb 18, 2016
+	 */
+	public enum Mode {
+		/** keep all rows */
+		ALL,
+		/** keep the first rows up to the limit */
+		FIRST,
+		/** keep a uniform random sample of rows up to the limit */
+		SAMPLE
+	}
+
+	/** names of all fields as used in raw data documents */
+	private final String[] fieldNames;
+	/** value types of all fields */
+	private final JsonContentType[] valueTypes;
+	/** strategy applied to decide which rows to keep */
+	private final Mode mode;
+	/** max. number of rows kept by capped modes */
+	private final int limit;
+	/** random numbers used for sampling */
+	private final Random random;
+	/** number of rows offered since last reset - may exceed the number of rows kept */
+	private long numOfOffered = 0;
+	/** number of rows kept */
+	private int numOfRows = 0;
+	/** string values referenced by row * number of fields + field */
+	private String[] texts;
+	/** numerical values referenced by row * number of fields + field */
+	private long[] numbers;
+	/** true if the value was found in the message, referenced by row * number of fields + field */
+	private boolean[] found;
+
+	/**
+	 * Initializes the raw data for the provided fields
+	 * @param fields
+	 * @param mode
+	 * @param limit max. number of rows kept - ignored by {@link Mode#ALL}
+	 * @param random
+	 */
+	public JsonContentAggregatorRawData(final List<JsonContentAggregatorFieldSetting> fields, final Mode mode, final int limit, final Random random) {
+		this.fieldNames = new String[fields.size()];
+		this.valueTypes = new JsonContentType[fields.size()];
+		for(int i = 0; i < fields.size(); i++) {
+			this.fieldNames[i] = fields.get(i).getField();
+			this.valueTypes[i] = fields.get(i).getValueType();
+		}
+		this.mode = mode;
+		this.limit = limit;
+		this.random = random;
+		allocate(mode == Mode.ALL ? DEFAULT_NUM_OF_ROWS : limit);
+	}
+
+	/**
+	 * Offers the provided field values as row. Values without any field found are ignored
+	 * @param values
+	 */
+	public void add(final JsonFieldValues values) {
+		boolean anyFound = false;
+		for(int i = 0; i < this.fieldNames.length && !anyFound; i++)
+			anyFound = values.isFound(i);
+		if(!anyFound)
+			return;
+
+		final int row = nextRow();
+		if(row < 0)
+			return;
+
+		final int offset = row * this.fieldNames.length;
+		for(int i = 0; i < this.fieldNames.length; i++) {
+			this.found[offset + i] = values.isFound(i);
+			if(!values.isFound(i))
+				continue;
+			if(this.valueTypes[i] == JsonContentType.STRING)
+				this.texts[offset + i] = values.getText(i);
+			else
+				this.numbers[offset + i] = values.getLong(i);
+		}
+	}
+
+	/**
+	 * Merges the rows of the provided raw data which must have been initialized for the same fields. Samples are merged
+	 * by drawing rows from both sides with probabilities proportional to the number of rows offered to each of them
+	 * @param partial
+	 */
+	public void merge(final JsonContentAggregatorRawData partial) {
+		if(this.mode != Mode.SAMPLE || this.numOfRows + partial.numOfRows <= this.limit) {
+			for(int row = 0; row < partial.numOfRows; row++) {
+				final int target = (this.mode == Mode.ALL ? appendRow() : (this.numOfRows < this.limit ? this.numOfRows++ : -1));
+				if(target < 0)
+					break;
+				copyRow(partial, row, target);
+			}
+			this.numOfOffered += partial.numOfOffered;
+			return;
+		}
+
+		// draw the merged sample from both reservoirs without replacement
+		final JsonContentAggregatorRawData merged = new JsonContentAggregatorRawData(this, this.limit);
+		final JsonContentAggregatorRawData[] sources = new JsonContentAggregatorRawData[]{this, partial};
+		final int[] remainingRows = new int[]{this.numOfRows, partial.numOfRows};
+		final int[][] rowIndexes = new int[][]{rowIndexes(this.numOfRows), rowIndexes(partial.numOfRows)};
+		final long[] remainingOffered = new long[]{this.numOfOffered, partial.numOfOffered};
+		while(merged.numOfRows < this.limit && (remainingRows[0] > 0 || remainingRows[1] > 0)) {
+			final int source;
+			if(remainingRows[0] == 0)
+				source = 1;
+			else if(remainingRows[1] == 0)
+				source = 0;
+			else
+				source = (this.random.nextDouble() * (remainingOffered[0] + remainingOffered[1]) < remainingOffered[0] ? 0 : 1);
+
+			final int pick = this.random.nextInt(remainingRows[source]);
+			merged.copyRow(sources[source], rowIndexes[source][pick], merged.numOfRows++);
+			rowIndexes[source][pick] = rowIndexes[source][--remainingRows[source]];
+			remainingOffered[source] = Math.max(remainingOffered[source] - 1, remainingRows[source]);
+		}
+
+		this.texts = merged.texts;
+		this.numbers = merged.numbers;
+		this.found = merged.found;
+		this.numOfRows = merged.numOfRows;
+		this.numOfOffered += partial.numOfOffered;
+	}
+
+	/**
+	 * Removes all rows. Capped modes keep their arrays, {@link Mode#ALL} releases arrays grown beyond four times the rows of the previous window
+	 */
+	public void reset() {
+		if(this.mode == Mode.ALL && this.found.length > Math.max(DEFAULT_NUM_OF_ROWS, this.numOfRows) * this.fieldNames.length * 4) {
+			allocate(Math.max(DEFAULT_NUM_OF_ROWS, this.numOfRows));
+		} else {
+			Arrays.fill(this.texts, 0, this.numOfRows * this.fieldNames.length, null);
+		}
+		this.numOfRows = 0;
+		this.numOfOffered = 0;
+	}
+
+	/**
+	 * Writes all rows as array to the provided generator
+	 * @param generator
+	 * @throws IOException
+	 */
+	public void write(final JsonGenerator generator) throws IOException {
+		generator.writeStartArray();
+		for(int row = 0; row < this.numOfRows; row++) {
+			final int offset = row * this.fieldNames.length;
+			generator.writeStartObject();
+			for(int i = 0; i < this.fieldNames.length; i++) {
+				if(!this.found[offset + i])
+					continue;
+				if(this.valueTypes[i] == JsonContentType.STRING)
+					generator.writeStringField(this.fieldNames[i], this.texts[offset + i]);
+				else
+					generator.writeNumberField(this.fieldNames[i], this.numbers[offset + i]);
+			}
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+	}
+
+	/**
+	 * Returns the number of rows kept
+	 * @return
+	 */
+	public int getNumOfRows() {
+		return this.numOfRows;
+	}
+
+	/**
+	 * Returns the number of rows offered since last reset
+	 * @return
+	 */
+	public long getNumOfOffered() {
+		return this.numOfOffered;
+	}
+
+	/**
+	 * Initializes empty raw data using the settings of the provided template
+	 * @param template
+	 * @param numOfRows
+	 */
+	private JsonContentAggregatorRawData(final JsonContentAggregatorRawData template, final int numOfRows) {
+		this.fieldNames = template.fieldNames;
+		this.valueTypes = template.valueTypes;
+		this.mode = template.mode;
+		this.limit = template.limit;
+		this.random = template.random;
+		allocate(numOfRows);
+	}
+
+	/**
+	 * Counts the offered row and returns the row its values must be written to or -1 if the row is to be dropped
+	 * @return
+	 */
+	private int nextRow() {
+		this.numOfOffered++;
+		switch(this.mode) {
+			case ALL:
+				return appendRow();
+			case FIRST:
+				return (this.numOfRows < this.limit ? this.numOfRows++ : -1);
+			default: {
+				if(this.numOfRows < this.limit)
+					return this.numOfRows++;
+				// replace a random row with probability limit / offered
+				final long candidate = (long)(this.random.nextDouble() * this.numOfOffered);
+				return (candidate < this.limit ? (int)candidate : -1);
+			}
+		}
+	}
+
+	/**
+	 * Appends a row, grows the arrays if required and returns the row index
+	 * @return
+	 */
+	private int appendRow() {
+		if((this.numOfRows + 1) * this.fieldNames.length > this.found.length) {
+			final int size = Math.max(DEFAULT_NUM_OF_ROWS, this.numOfRows * 2) * this.fieldNames.length;
+			this.texts = Arrays.copyOf(this.texts, size);
+			this.numbers = Arrays.copyOf(this.numbers, size);
+			this.found = Arrays.copyOf(this.found, size);
+		}
+		return this.numOfRows++;
+	}
+
+	/**
+	 * Copies a row of the provided raw data into the referenced row
+	 * @param source
+	 * @param sourceRow
+	 * @param targetRow
+	 */
+	private void copyRow(final JsonContentAggregatorRawData source, final int sourceRow, final int targetRow) {
+		final int numOfFields = this.fieldNames.length;
+		System.arraycopy(source.texts, sourceRow * numOfFields, this.texts, targetRow * numOfFields, numOfFields);
+		System.arraycopy(source.numbers, sourceRow * numOfFields, this.numbers, targetRow * numOfFields, numOfFields);
+		System.arraycopy(source.found, sourceRow * numOfFields, this.found, targetRow * numOfFields, numOfFields);
+	}
+
+	/**
+	 * Allocates empty arrays holding the given number of rows
+	 * @param numOfRows
+	 */
+	private void allocate(final int numOfRows) {
+		this.texts = new String[numOfRows * this.fieldNames.length];
+		this.numbers = new long[numOfRows * this.fieldNames.length];
+		this.found = new boolean[numOfRows * this.fieldNames.length];
+	}
+
+	/**
+	 * Returns the indexes 0 to n-1
+	 * @param n
+	 * @return
+	 */
+	private static int[] rowIndexes(final int n) {
+		final int[] indexes = new int[n];
+		for(int i = 0; i < n; i++)
+			indexes[i] = i;
+		return indexes;
+	}
+}
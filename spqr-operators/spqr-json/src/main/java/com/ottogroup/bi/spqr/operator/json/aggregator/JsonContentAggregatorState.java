@@ -0,0 +1,307 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.ottogroup.bi.spqr.operator.json.JsonContentType;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldValues;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
+
+/**
+ * Aggregation state of the {@link JsonContentAggregator} for a single window. Values of string fields are counted in
+ * {@link StringLongOpenHashMap primitive maps}, numerical fields keep their min, max and sum in primitive slots. Thus
+ * aggregating a value allocates neither map entries nor boxed numbers. Fields of {@link JsonContentAggregationType aggregation types}
+ * other than EXACT are kept in sketches of fixed size. Quantiles are estimated on fractional values and reported as
+ * floating point numbers. The result document - having the layout of {@link JsonContentAggregatorResult} - is streamed from the state
+ * when the window gets released.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class JsonContentAggregatorState {
+
+	/** names of all fields as used in the result document, eg. lower cased and trimmed */
+	private final String[] fieldKeys;
+	/** value types of all fields */
+	private final JsonContentType[] valueTypes;
+	/** per string field: occurrences by value - null for numerical fields */
+	private final StringLongOpenHashMap[] counters;
+	/** per numerical field: smallest value */
+	private final long[] min;
+	/** per numerical field: largest value */
+	private final long[] max;
+	/** per numerical field: sum of all values */
+	private final long[] sum;
+	/** per numerical field: true if at least one value has been aggregated */
+	private final boolean[] aggregated;
+	/** per DISTINCT field: distinct count sketch - null for other fields */
+	private final HyperLogLog[] distinct;
+	/** per TOP_K field: most frequent values sketch - null for other fields */
+	private final CountMinTopK[] topK;
+	/** per QUANTILES field: quantile sketch - null for other fields */
+	private final TDigest[] digests;
+	/** per QUANTILES field: quantiles to report */
+	private final double[][] quantiles;
+	/** per QUANTILES field: names of quantiles used in the result document, eg. p50 for 0.5 */
+	private final String[][] quantileKeys;
+	/** raw input used to compute aggregated values - null if raw data is not forwarded */
+	private final JsonContentAggregatorRawData rawData;
+
+	/**
+	 * Initializes the state for the provided fields
+	 * @param fields
+	 * @param rawData raw data forwarded along with the aggregated values - may be null
+	 */
+	public JsonContentAggregatorState(final List<JsonContentAggregatorFieldSetting> fields, final JsonContentAggregatorRawData rawData) {
+		final int numOfFields = fields.size();
+		this.fieldKeys = new String[numOfFields];
+		this.valueTypes = new JsonContentType[numOfFields];
+		this.counters = new StringLongOpenHashMap[numOfFields];
+		this.min = new long[numOfFields];
+		this.max = new long[numOfFields];
+		this.sum = new long[numOfFields];
+		this.aggregated = new boolean[numOfFields];
+		this.distinct = new HyperLogLog[numOfFields];
+		this.topK = new CountMinTopK[numOfFields];
+		this.digests = new TDigest[numOfFields];
+		this.quantiles = new double[numOfFields][];
+		this.quantileKeys = new String[numOfFields][];
+		this.rawData = rawData;
+
+		for(int i = 0; i < numOfFields; i++) {
+			final JsonContentAggregatorFieldSetting field = fields.get(i);
+			this.fieldKeys[i] = StringUtils.lowerCase(StringUtils.trim(field.getField()));
+			this.valueTypes[i] = field.getValueType();
+			switch(field.getAggregationType()) {
+				case DISTINCT: {
+					this.distinct[i] = new HyperLogLog();
+					break;
+				}
+				case TOP_K: {
+					this.topK[i] = new CountMinTopK(field.getTopK());
+					break;
+				}
+				case QUANTILES: {
+					this.digests[i] = new TDigest();
+					this.quantiles[i] = field.getQuantiles();
+					this.quantileKeys[i] = new String[field.getQuantiles().length];
+					for(int q = 0; q < field.getQuantiles().length; q++)
+						this.quantileKeys[i][q] = "p" + BigDecimal.valueOf(field.getQuantiles()[q]).movePointRight(2).stripTrailingZeros().toPlainString();
+					break;
+				}
+				default: {
+					if(this.valueTypes[i] == JsonContentType.STRING)
+						this.counters[i] = new StringLongOpenHashMap();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts an occurrence of the value in the referenced string field. Values are lower cased and trimmed, blank values are ignored
+	 * @param field
+	 * @param value
+	 */
+	public void count(final int field, final String value) {
+		if(StringUtils.isBlank(value))
+			return;
+		final String key = StringUtils.lowerCase(StringUtils.trim(value));
+		if(this.counters[field] != null)
+			this.counters[field].add(key, 1);
+		else if(this.distinct[field] != null)
+			this.distinct[field].add(key);
+		else if(this.topK[field] != null)
+			this.topK[field].add(key);
+	}
+
+	/**
+	 * Updates min, max and sum - or the quantiles - of the referenced numerical field
+	 * @param field
+	 * @param value
+	 */
+	public void aggregate(final int field, final long value) {
+		if(this.digests[field] != null) {
+			this.digests[field].add(value);
+			return;
+		}
+		if(!this.aggregated[field]) {
+			this.min[field] = value;
+			this.max[field] = value;
+			this.sum[field] = value;
+			this.aggregated[field] = true;
+			return;
+		}
+		if(value < this.min[field])
+			this.min[field] = value;
+		if(value > this.max[field])
+			this.max[field] = value;
+		this.sum[field] += value;
+	}
+
+	/**
+	 * Adds the value to the quantiles of the referenced QUANTILES field keeping its fraction
+	 * @param field
+	 * @param value
+	 */
+	public void observe(final int field, final double value) {
+		this.digests[field].add(value);
+	}
+
+	/**
+	 * Offers the provided field values to the raw data - ignored if raw data is not forwarded
+	 * @param values
+	 */
+	public void addRawData(final JsonFieldValues values) {
+		if(this.rawData != null)
+			this.rawData.add(values);
+	}
+
+	/**
+	 * Merges the provided state which must have been initialized for the same fields: counts and sums are added up, min and max values compared
+	 * @param partial
+	 */
+	public void merge(final JsonContentAggregatorState partial) {
+		for(int i = 0; i < this.fieldKeys.length; i++) {
+			if(this.counters[i] != null) {
+				this.counters[i].addAll(partial.counters[i]);
+			} else if(this.distinct[i] != null) {
+				this.distinct[i].merge(partial.distinct[i]);
+			} else if(this.topK[i] != null) {
+				this.topK[i].merge(partial.topK[i]);
+			} else if(this.digests[i] != null) {
+				this.digests[i].merge(partial.digests[i]);
+			} else if(partial.aggregated[i]) {
+				if(!this.aggregated[i]) {
+					this.min[i] = partial.min[i];
+					this.max[i] = partial.max[i];
+					this.sum[i] = partial.sum[i];
+					this.aggregated[i] = true;
+				} else {
+					this.min[i] = Math.min(this.min[i], partial.min[i]);
+					this.max[i] = Math.max(this.max[i], partial.max[i]);
+					this.sum[i] += partial.sum[i];
+				}
+			}
+		}
+		if(this.rawData != null && partial.rawData != null)
+			this.rawData.merge(partial.rawData);
+	}
+
+	/**
+	 * Resets the state for the next window. Counter tables are retained as long as they fit the cardinality of the previous window
+	 */
+	public void reset() {
+		for(int i = 0; i < this.fieldKeys.length; i++) {
+			if(this.counters[i] != null)
+				this.counters[i].clear();
+			else if(this.distinct[i] != null)
+				this.distinct[i].reset();
+			else if(this.topK[i] != null)
+				this.topK[i].reset();
+			else if(this.digests[i] != null)
+				this.digests[i].reset();
+			this.aggregated[i] = false;
+		}
+		if(this.rawData != null)
+			this.rawData.reset();
+	}
+
+	/**
+	 * Serializes the state into a result document using the provided codec
+	 * @param codec
+	 * @param pipelineId
+	 * @param documentType
+	 * @return
+	 * @throws IOException
+	 */
+	public byte[] toBytes(final StreamingDataMessageCodec codec, final String pipelineId, final String documentType) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(JsonGenerator generator = codec.getObjectMapper().getFactory().createGenerator(out)) {
+			write(generator, pipelineId, documentType);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes the state as result document to the provided generator
+	 * @param generator
+	 * @param pipelineId
+	 * @param documentType
+	 * @throws IOException
+	 */
+	protected void write(final JsonGenerator generator, final String pipelineId, final String documentType) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("pid", pipelineId);
+		generator.writeStringField("typ", documentType);
+
+		generator.writeObjectFieldStart("agr");
+		for(int i = 0; i < this.fieldKeys.length; i++) {
+			if(this.counters[i] != null) {
+				final StringLongOpenHashMap values = this.counters[i];
+				if(values.isEmpty())
+					continue;
+				generator.writeObjectFieldStart(this.fieldKeys[i]);
+				for(int slot = 0; slot < values.capacity(); slot++) {
+					if(values.keyAt(slot) != null)
+						generator.writeNumberField(values.keyAt(slot), values.valueAt(slot));
+				}
+				generator.writeEndObject();
+			} else if(this.distinct[i] != null) {
+				if(this.distinct[i].isEmpty())
+					continue;
+				generator.writeObjectFieldStart(this.fieldKeys[i]);
+				generator.writeNumberField("distinct", this.distinct[i].estimate());
+				generator.writeEndObject();
+			} else if(this.topK[i] != null) {
+				if(this.topK[i].isEmpty())
+					continue;
+				generator.writeObjectFieldStart(this.fieldKeys[i]);
+				for(final String key : this.topK[i].getTopKeys())
+					generator.writeNumberField(key, this.topK[i].estimate(key));
+				generator.writeEndObject();
+			} else if(this.digests[i] != null) {
+				if(this.digests[i].isEmpty())
+					continue;
+				generator.writeObjectFieldStart(this.fieldKeys[i]);
+				for(int q = 0; q < this.quantiles[i].length; q++)
+					generator.writeNumberField(this.quantileKeys[i][q], this.digests[i].quantile(this.quantiles[i][q]));
+				generator.writeEndObject();
+			} else if(this.aggregated[i]) {
+				generator.writeObjectFieldStart(this.fieldKeys[i]);
+				generator.writeNumberField("min", this.min[i]);
+				generator.writeNumberField("max", this.max[i]);
+				generator.writeNumberField("sum", this.sum[i]);
+				generator.writeEndObject();
+			}
+		}
+		generator.writeEndObject();
+
+		generator.writeFieldName("raw");
+		if(this.rawData != null) {
+			this.rawData.write(generator);
+		} else {
+			generator.writeStartArray();
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+	}
+}
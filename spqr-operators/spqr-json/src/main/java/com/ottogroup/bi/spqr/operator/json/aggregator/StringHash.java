@@ -0,0 +1,47 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+/**
+ * 64 bit hash of strings used by sketches: FNV-1a over all characters followed by the finalizer of MurmurHash3 to spread
+ * the bits evenly. Results do not depend on the JVM instance, thus sketches of different nodes may be merged
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+final class StringHash {
+
+	private StringHash() {
+	}
+
+	/**
+	 * Returns the 64 bit hash of the provided value
+	 * @param value
+	 * @return
+	 */
+	static long hash64(final String value) {
+		long h = 0xcbf29ce484222325L ^ value.length();
+		for(int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= (h >>> 33);
+		return h;
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Map of strings to primitive long values using open addressing with linear probing. Compared to a {@link java.util.HashMap}
+ * neither entries nor boxed values are allocated: keys and values are kept in two parallel arrays. The map does not support
+ * removal of single keys but may be {@link #clear() cleared} as a whole, which retains the table unless it is oversized
+ * for the number of keys it held before. Thus a map reused across windows of similar cardinality does not rehash.<br/><br/>
+ * Entries are iterated by slot: <code>for(int i = 0; i &lt; map.capacity(); i++) if(map.keyAt(i) != null) ...</code>.<br/><br/>
+ * Hash codes are mixed with a seed chosen per instance. Otherwise {@link #addAll(StringLongOpenHashMap) merging} a map iterated
+ * in slot order would fill the target table in the order of its own probe sequences, which clusters keys badly as long as the target
+ * is smaller than the source. Instances are not thread-safe.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class StringLongOpenHashMap {
+
+	/** default number of slots */
+	public static final int DEFAULT_CAPACITY = 16;
+	/** max. ratio of occupied slots before the table grows */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/** keys referenced by slot - null marks empty slots */
+	private String[] keys;
+	/** values referenced by slot */
+	private long[] values;
+	/** number of keys */
+	private int size = 0;
+	/** number of keys which leads to growing the table */
+	private int threshold;
+	/** capacity assigned during initialization */
+	private final int initialCapacity;
+	/** mixed into the hash codes of all keys */
+	private final int seed = ThreadLocalRandom.current().nextInt();
+
+	/**
+	 * Initializes the map using the {@link #DEFAULT_CAPACITY}
+	 */
+	public StringLongOpenHashMap() {
+		this.initialCapacity = DEFAULT_CAPACITY;
+		allocate(this.initialCapacity);
+	}
+
+	/**
+	 * Initializes the map to hold the given number of keys without growing
+	 * @param expectedSize
+	 */
+	public StringLongOpenHashMap(final int expectedSize) {
+		this.initialCapacity = tableSizeFor(expectedSize);
+		allocate(this.initialCapacity);
+	}
+
+	/**
+	 * Adds the increment to the value of the provided key. Missing keys are inserted with value 0 before
+	 * @param key
+	 * @param inc
+	 * @return the new value
+	 */
+	public long add(final String key, final long inc) {
+		final int slot = slot(key);
+		if(this.keys[slot] == null) {
+			insert(slot, key, inc);
+			return inc;
+		}
+		return (this.values[slot] += inc);
+	}
+
+	/**
+	 * Adds the values of all keys contained in the provided map
+	 * @param other
+	 */
+	public void addAll(final StringLongOpenHashMap other) {
+		for(int i = 0; i < other.keys.length; i++)
+			if(other.keys[i] != null)
+				add(other.keys[i], other.values[i]);
+	}
+
+	/**
+	 * Removes all keys. The table is retained unless more than four times the size required for the number of removed keys
+	 */
+	public void clear() {
+		final int required = Math.max(this.initialCapacity, tableSizeFor(this.size));
+		if(this.keys.length > required * 4) {
+			allocate(required);
+		} else {
+			Arrays.fill(this.keys, null);
+		}
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of keys
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if the map does not hold any key
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns the number of slots
+	 * @return
+	 */
+	public int capacity() {
+		return this.keys.length;
+	}
+
+	/**
+	 * Returns the key kept in the referenced slot or null if the slot is empty
+	 * @param slot
+	 * @return
+	 */
+	public String keyAt(final int slot) {
+		return this.keys[slot];
+	}
+
+	/**
+	 * Returns the value kept in the referenced slot
+	 * @param slot
+	 * @return
+	 */
+	public long valueAt(final int slot) {
+		return this.values[slot];
+	}
+
+	/**
+	 * Returns the slot holding the key or the empty slot it must be inserted into
+	 * @param key
+	 * @return
+	 */
+	private int slot(final String key) {
+		final int mask = this.keys.length - 1;
+		int slot = mix(key.hashCode() ^ this.seed) & mask;
+		while(this.keys[slot] != null && !this.keys[slot].equals(key))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Inserts the key into the provided empty slot and grows the table if required
+	 * @param slot
+	 * @param key
+	 * @param value
+	 */
+	private void insert(final int slot, final String key, final long value) {
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		if(++this.size > this.threshold)
+			rehash(this.keys.length << 1);
+	}
+
+	/**
+	 * Moves all keys into a table of the given capacity
+	 * @param capacity
+	 */
+	private void rehash(final int capacity) {
+		final String[] oldKeys = this.keys;
+		final long[] oldValues = this.values;
+		allocate(capacity);
+		final int mask = capacity - 1;
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] == null)
+				continue;
+			int slot = mix(oldKeys[i].hashCode() ^ this.seed) & mask;
+			while(this.keys[slot] != null)
+				slot = (slot + 1) & mask;
+			this.keys[slot] = oldKeys[i];
+			this.values[slot] = oldValues[i];
+		}
+	}
+
+	/**
+	 * Allocates an empty table of the given capacity
+	 * @param capacity
+	 */
+	private void allocate(final int capacity) {
+		this.keys = new String[capacity];
+		this.values = new long[capacity];
+		this.threshold = (int)(capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Spreads the bits of the hash code as linear probing is sensitive to clustered hash codes
+	 * @param hash
+	 * @return
+	 */
+	private static int mix(final int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the power of two table size holding the given number of keys without growing
+	 * @param expectedSize
+	 * @return
+	 */
+	private static int tableSizeFor(final int expectedSize) {
+		final long required = Math.max(DEFAULT_CAPACITY, (long)Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1);
+		return (int)Math.min(1 << 30, Long.highestOneBit(required - 1) << 1);
+	}
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.util.Arrays;
+
+/**
+ * Estimates quantiles of numerical values using a merging t-digest (see Dunning and Ertl, "Computing extremely accurate quantiles
+ * using t-digests"). Values are buffered and periodically merged into a sorted list of centroids whose weights are limited by
+ * the arcsine scale function - thus the number of centroids never exceeds the compression plus one while quantiles near the
+ * tails remain accurate. Memory is fixed by the compression, independent of the number of values added.<br/><br/>
+ * Digests are merged by merging their sorted centroids. Instances are not thread-safe.
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class TDigest {
+
+	/** default compression */
+	public static final int DEFAULT_COMPRESSION = 100;
+
+	/** limits the number of centroids */
+	private final double compression;
+	/** centroid means - sorted ascending */
+	private double[] means;
+	/** centroid weights */
+	private double[] weights;
+	/** number of centroids */
+	private int numOfCentroids = 0;
+	/** receives the means of the next merge */
+	private double[] mergeMeans;
+	/** receives the weights of the next merge */
+	private double[] mergeWeights;
+	/** values added since the last merge */
+	private final double[] buffer;
+	/** number of values buffered */
+	private int numOfBuffered = 0;
+	/** weight of all centroids */
+	private double centroidWeight = 0;
+	/** smallest value added */
+	private double min = Double.POSITIVE_INFINITY;
+	/** largest value added */
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Initializes the digest using the {@link #DEFAULT_COMPRESSION}
+	 */
+	public TDigest() {
+		this(DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Initializes the digest using the provided compression
+	 * @param compression
+	 */
+	public TDigest(final int compression) {
+		if(compression < 10)
+			throw new IllegalArgumentException("Compression must be at least 10");
+		this.compression = compression;
+		this.means = new double[compression + 2];
+		this.weights = new double[compression + 2];
+		this.mergeMeans = new double[compression + 2];
+		this.mergeWeights = new double[compression + 2];
+		this.buffer = new double[compression * 5];
+	}
+
+	/**
+	 * Adds the provided value - NaN is ignored
+	 * @param value
+	 */
+	public void add(final double value) {
+		if(Double.isNaN(value))
+			return;
+		if(value < this.min)
+			this.min = value;
+		if(value > this.max)
+			this.max = value;
+		this.buffer[this.numOfBuffered++] = value;
+		if(this.numOfBuffered == this.buffer.length)
+			flush();
+	}
+
+	/**
+	 * Returns the estimated value at the provided quantile or NaN if no value has been added
+	 * @param q value between 0 and 1
+	 * @return
+	 */
+	public double quantile(final double q) {
+		flush();
+		if(this.numOfCentroids == 0)
+			return Double.NaN;
+		if(this.numOfCentroids == 1)
+			return this.means[0];
+
+		final double index = Math.max(0, Math.min(1, q)) * this.centroidWeight;
+		// left of the first centroid's center: interpolate between min and its mean
+		if(index < this.weights[0] / 2)
+			return this.min + (this.means[0] - this.min) * index / (this.weights[0] / 2);
+
+		double cumulated = 0;
+		for(int i = 0; i < this.numOfCentroids - 1; i++) {
+			final double center = cumulated + this.weights[i] / 2;
+			final double nextCenter = cumulated + this.weights[i] + this.weights[i + 1] / 2;
+			if(index <= nextCenter)
+				return this.means[i] + (this.means[i + 1] - this.means[i]) * (index - center) / (nextCenter - center);
+			cumulated += this.weights[i];
+		}
+
+		// right of the last centroid's center: interpolate between its mean and max
+		final int last = this.numOfCentroids - 1;
+		final double center = this.centroidWeight - this.weights[last] / 2;
+		return Math.min(this.max, this.means[last] + (this.max - this.means[last]) * (index - center) / (this.weights[last] / 2));
+	}
+
+	/**
+	 * Returns the number of values added
+	 * @return
+	 */
+	public long count() {
+		return Math.round(this.centroidWeight) + this.numOfBuffered;
+	}
+
+	/**
+	 * Returns true if no value has been added
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.numOfCentroids == 0 && this.numOfBuffered == 0;
+	}
+
+	/**
+	 * Merges the provided digest into this one
+	 * @param other
+	 */
+	public void merge(final TDigest other) {
+		flush();
+		other.flush();
+		if(other.numOfCentroids == 0)
+			return;
+		this.min = Math.min(this.min, other.min);
+		this.max = Math.max(this.max, other.max);
+		merge(other.means, other.weights, other.numOfCentroids, other.centroidWeight);
+	}
+
+	/**
+	 * Removes all values
+	 */
+	public void reset() {
+		this.numOfCentroids = 0;
+		this.numOfBuffered = 0;
+		this.centroidWeight = 0;
+		this.min = Double.POSITIVE_INFINITY;
+		this.max = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Merges all buffered values into the centroids
+	 */
+	private void flush() {
+		if(this.numOfBuffered == 0)
+			return;
+		Arrays.sort(this.buffer, 0, this.numOfBuffered);
+		merge(this.buffer, null, this.numOfBuffered, this.numOfBuffered);
+		this.numOfBuffered = 0;
+	}
+
+	/**
+	 * Merges the centroids with the provided ones sorted by mean. Adjacent centroids are combined as long as the quantile range
+	 * they cover does not exceed a single unit of the scale function
+	 * @param otherMeans
+	 * @param otherWeights weights of the provided centroids - null if all of them have a weight of one
+	 * @param otherSize number of provided centroids
+	 * @param otherWeight sum of weights of the provided centroids
+	 */
+	private void merge(final double[] otherMeans, final double[] otherWeights, final int otherSize, final double otherWeight) {
+		final double totalWeight = this.centroidWeight + otherWeight;
+		int merged = 0;
+		double mergedWeight = 0;
+		double mean = 0;
+		double weight = 0;
+		int i = 0;
+		int j = 0;
+		while(i < this.numOfCentroids || j < otherSize) {
+			final double nextMean;
+			final double nextWeight;
+			if(j >= otherSize || (i < this.numOfCentroids && this.means[i] <= otherMeans[j])) {
+				nextMean = this.means[i];
+				nextWeight = this.weights[i++];
+			} else {
+				nextMean = otherMeans[j];
+				nextWeight = (otherWeights != null ? otherWeights[j] : 1);
+				j++;
+			}
+
+			if(weight == 0) {
+				mean = nextMean;
+				weight = nextWeight;
+			} else if(merged == this.mergeMeans.length - 1 || scale((mergedWeight + weight + nextWeight) / totalWeight) - scale(mergedWeight / totalWeight) <= 1) {
+				weight += nextWeight;
+				mean += (nextMean - mean) * nextWeight / weight;
+			} else {
+				this.mergeMeans[merged] = mean;
+				this.mergeWeights[merged++] = weight;
+				mergedWeight += weight;
+				mean = nextMean;
+				weight = nextWeight;
+			}
+		}
+		if(weight > 0) {
+			this.mergeMeans[merged] = mean;
+			this.mergeWeights[merged++] = weight;
+		}
+
+		final double[] swapMeans = this.means;
+		final double[] swapWeights = this.weights;
+		this.means = this.mergeMeans;
+		this.weights = this.mergeWeights;
+		this.mergeMeans = swapMeans;
+		this.mergeWeights = swapWeights;
+		this.numOfCentroids = merged;
+		this.centroidWeight = totalWeight;
+	}
+
+	/**
+	 * Arcsine scale function mapping the quantile to a range of compression / 2 units
+	 * @param q
+	 * @return
+	 */
+	private double scale(final double q) {
+		return this.compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+	}
+}
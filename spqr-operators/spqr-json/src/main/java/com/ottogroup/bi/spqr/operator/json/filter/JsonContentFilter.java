@@ -19,22 +19,24 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.operator.json.JsonContentType;
 import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent;
 import com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponentType;
 import com.ottogroup.bi.spqr.pipeline.component.annotation.SPQRComponent;
-import com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseOperator;
+import com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseViewOperator;
+import com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldExtractor;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldValues;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 
 /**
  * Filters the content of incoming {@link StreamingDataMessage} for specific content. All non-matching messages
@@ -43,14 +45,20 @@ import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
  * To configure a content filter instance the properties must show the following settings: (id = enumeration value starting with value 1)
  * <ul>
  *   <li><i>field.[id].path</i> - path to field (eg. data.wt.cs-host)</li>
- *   <li><i>field.[id].expression</i> - regular expression applied on field content (see {@linkplain http://en.wikipedia.org/wiki/Regular_expression} for more information)</li>
+ *   <li><i>field.[id].expression</i> - regular expression applied on field content (see {@linkplain http://en.wikipedia.org/wiki/Regular_expression} for more information) or operand of the configured operator</li>
  *   <lI><i>field.[id].type</i> - string, numerical or boolean (required for content conversion and expression application: type-to-string)</li>
+ *   <li><i>field.[id].operator</i> - optional, one of regex (default), ==, !=, &lt;, &lt;=, &gt;, &gt;=, range, in, prefix or suffix (see {@link JsonContentFilterPredicate})</li>
  * </ul> 
+ * Typed operators compare numbers as numbers and look up set members via hash set, thus regular expressions should be used only
+ * if none of them fits.
+ * If attached to a queue supporting {@link StreamingDataMessageView views}, the filter parses the content directly from 
+ * the queue storage and copies only matching messages. Any {@link StreamingDataMessageCodec codec} is supported for incoming
+ * and outgoing messages, matching messages are converted if both codecs differ.
  * @author mnxfst
  * @since Apr 8, 2015
  */
 @SPQRComponent(type=MicroPipelineComponentType.DIRECT_RESPONSE_OPERATOR, name="jsonContentFilter", version="0.0.1", description="Filters arbitrary JSON content")
-public class JsonContentFilter implements DirectResponseOperator {
+public class JsonContentFilter implements DirectResponseViewOperator, MessageCodecAware {
 
 	/** our faithful logging facility .... ;-) */ 
 	private static final Logger logger = Logger.getLogger(JsonContentFilter.class);	
@@ -59,6 +67,8 @@ public class JsonContentFilter implements DirectResponseOperator {
 	
 	/** prefix to all field settings - required: field.1.path, field.1.expression and field.1.type (settings must use continuous enumeration starting with value 1) */
 	public static final String CFG_FIELD_PREFIX = "field.";
+	/** suffix of the optional operator setting following the field prefix and enumeration value, eg. field.1.operator */
+	public static final String CFG_OPERATOR_SUFFIX = ".operator";
 
 	/** unique component identifier */
 	private String id = null;
@@ -66,8 +76,14 @@ public class JsonContentFilter implements DirectResponseOperator {
 	private int totalNumOfMessages = 0;
 	/** fields considered to be relevant mapped to aggregator that must be applied to values - none = data is added to raw output only */
 	private final List<JsonContentFilterFieldSetting> fields = new ArrayList<>();
-	/** maps inbound strings into object representations and json strings vice versa */
-	private final ObjectMapper jsonMapper = new ObjectMapper();
+	/** extracts the values of all configured fields in a single pass */
+	private JsonFieldExtractor fieldExtractor = null;
+	/** receives the field values of the message currently processed */
+	private JsonFieldValues fieldValues = null;
+	/** codec used by incoming messages */
+	private StreamingDataMessageCodec inputCodec = StreamingDataMessageCodec.JSON;
+	/** codec expected for outgoing messages */
+	private StreamingDataMessageCodec outputCodec = StreamingDataMessageCodec.JSON;
 
 	/**
 	 * @see com.ottogroup.bi.spqr.pipeline.component.MicroPipelineComponent#initialize(java.util.Properties)
@@ -84,14 +100,18 @@ public class JsonContentFilter implements DirectResponseOperator {
 			
 			String path = properties.getProperty(CFG_FIELD_PREFIX + i + ".path");
 			String valueType = properties.getProperty(CFG_FIELD_PREFIX + i + ".type");
+			String operator = properties.getProperty(CFG_FIELD_PREFIX + i + CFG_OPERATOR_SUFFIX);
 			
-			try {
-				this.fields.add(new JsonContentFilterFieldSetting(path.split("\\."), Pattern.compile(expression), StringUtils.equalsIgnoreCase("STRING", valueType) ? JsonContentType.STRING : JsonContentType.NUMERICAL));
-			} catch(PatternSyntaxException e) {
-				throw new ComponentInitializationFailedException("Failed to parse '"+expression+"' into a valid pattern expression");
-			}
+			final JsonContentType contentType = StringUtils.equalsIgnoreCase("STRING", valueType) ? JsonContentType.STRING : JsonContentType.NUMERICAL;
+			this.fields.add(new JsonContentFilterFieldSetting(path.split("\\."), JsonContentFilterPredicate.compile(operator, expression, contentType), contentType));
 		}
 		
+		final List<String[]> paths = new ArrayList<>();
+		for(final JsonContentFilterFieldSetting fieldSettings : this.fields)
+			paths.add(fieldSettings.getPath());
+		this.fieldExtractor = new JsonFieldExtractor(paths);
+		this.fieldValues = this.fieldExtractor.newValues();
+		
 		if(logger.isDebugEnabled())
 			logger.debug("json content filter [id="+id+"] initialized");		
 	}
@@ -115,51 +135,84 @@ public class JsonContentFilter implements DirectResponseOperator {
 		if(message == null || message.getBody() == null || message.getBody().length < 1)
 			return EMPTY_MESSAGES_ARRAY;
 		
-		JsonNode jsonNode = null;
-		try {
-			jsonNode = jsonMapper.readTree(message.getBody());
-		} catch(IOException e) {
-			logger.error("Failed to read message body to json node. Ignoring message. Error: " + e.getMessage());
+		// messages which could not be parsed are not forwarded
+		if(!fieldExtractor.extract(inputCodec.getFactory(), message.getBody(), fieldValues)) {
+			logger.error("Failed to read fields from message body. Ignoring message.");
+			return EMPTY_MESSAGES_ARRAY;
 		}
 		
-		// return null in case the message could not be parsed into 
-		// an object representation - the underlying processor does
-		// not forward any NULL messages
-		if(jsonNode == null)
+		if(!matches(fieldValues))
+			return EMPTY_MESSAGES_ARRAY;
+		
+		return toOutput(message);
+	}
+	
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.DirectResponseViewOperator#onMessageView(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView)
+	 */
+	public StreamingDataMessage[] onMessageView(StreamingDataMessageView message) {
+		
+		// increment number of messages processed so far 
+		this.totalNumOfMessages++; 
+		
+		// do nothing if either the event or the body is empty
+		if(message == null || message.getBodyLength() < 1)
+			return EMPTY_MESSAGES_ARRAY;
+		
+		if(!fieldExtractor.extract(inputCodec.getFactory(), new ByteBufferBackedInputStream(message.getBody()), fieldValues)) {
+			logger.error("Failed to read fields from message body. Ignoring message.");
 			return EMPTY_MESSAGES_ARRAY;
-
-		// step through fields considered to be relevant, extract values and apply filtering function
-		for(final JsonContentFilterFieldSetting fieldSettings : fields) {
-			
-			// read value into string representation for further investigation
-			String value = getTextFieldValue(jsonNode, fieldSettings.getPath());
-			
-			if(!fieldSettings.getExpression().matcher(StringUtils.trim(value)).matches())
-				return EMPTY_MESSAGES_ARRAY;
 		}
 		
-		return new StreamingDataMessage[]{message};
+		if(!matches(fieldValues))
+			return EMPTY_MESSAGES_ARRAY;
+		
+		// copy content as the view becomes invalid after returning
+		return toOutput(message.toMessage());
 	}
 	
-
 	/**
-	 * Walks along the path provided and reads out the leaf value which is returned as string 
-	 * @param jsonNode
-	 * @param fieldPath
+	 * Returns the matching message converted into the format of outgoing messages - if required
+	 * @param message
 	 * @return
 	 */
-	protected String getTextFieldValue(final JsonNode jsonNode, final String[] fieldPath) {
-
-		int fieldAccessStep = 0;
-		JsonNode contentNode = jsonNode;
-		while(fieldAccessStep < fieldPath.length) {
-			contentNode = contentNode.get(fieldPath[fieldAccessStep]);
-			fieldAccessStep++;
-		}	
-
-		if(contentNode != null)
-			return contentNode.textValue();
-		return "";
+	protected StreamingDataMessage[] toOutput(final StreamingDataMessage message) {
+		if(inputCodec == outputCodec)
+			return new StreamingDataMessage[]{message};
+		try {
+			return new StreamingDataMessage[]{inputCodec.transcode(message, outputCodec)};
+		} catch(IOException e) {
+			logger.error("Failed to convert message body [from="+inputCodec+", to="+outputCodec+"]. Ignoring message. Error: " + e.getMessage());
+			return EMPTY_MESSAGES_ARRAY;
+		}
+	}
+	
+	/**
+	 * Steps through fields considered to be relevant and applies the compiled predicates to the extracted values
+	 * @param values
+	 * @return true if all fields match the configured predicates
+	 */
+	protected boolean matches(final JsonFieldValues values) {
+		for(int i = 0; i < fields.size(); i++) {
+			if(!fields.get(i).getPredicate().matches(values, i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware#supportsMessageCodec(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec)
+	 */
+	public boolean supportsMessageCodec(StreamingDataMessageCodec codec) {
+		return codec != null;
+	}
+
+	/**
+	 * @see com.ottogroup.bi.spqr.pipeline.component.operator.MessageCodecAware#setMessageCodecs(com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec, com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageCodec)
+	 */
+	public void setMessageCodecs(StreamingDataMessageCodec inputCodec, StreamingDataMessageCodec outputCodec) {
+		this.inputCodec = (inputCodec != null ? inputCodec : StreamingDataMessageCodec.JSON);
+		this.outputCodec = (outputCodec != null ? outputCodec : StreamingDataMessageCodec.JSON);
 	}
 
 	/**
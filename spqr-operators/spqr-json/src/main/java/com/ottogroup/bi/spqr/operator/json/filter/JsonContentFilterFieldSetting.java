@@ -30,6 +30,7 @@ public class JsonContentFilterFieldSetting {
 	private final String[] path;
 	private final Pattern expression;
 	private final JsonContentType valueType;
+	private final JsonContentFilterPredicate predicate;
 
 	/**
 	 * Initializes the settings using the provided input
@@ -41,6 +42,20 @@ public class JsonContentFilterFieldSetting {
 		this.expression = expression;
 		this.path = path;
 		this.valueType = valueType;
+		this.predicate = null;
+	}
+
+	/**
+	 * Initializes the settings using the provided input
+	 * @param path
+	 * @param predicate
+	 * @param valueType
+	 */
+	public JsonContentFilterFieldSetting(final String[] path, final JsonContentFilterPredicate predicate, final JsonContentType valueType) {
+		this.expression = null;
+		this.path = path;
+		this.valueType = valueType;
+		this.predicate = predicate;
 	}
 
 	public String[] getPath() {
@@ -55,5 +70,9 @@ public class JsonContentFilterFieldSetting {
 		return valueType;
 	}
 
+	public JsonContentFilterPredicate getPredicate() {
+		return predicate;
+	}
+
 
 }
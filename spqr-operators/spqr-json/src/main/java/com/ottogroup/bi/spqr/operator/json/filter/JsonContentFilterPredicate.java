@@ -0,0 +1,370 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.filter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
+import com.ottogroup.bi.spqr.operator.json.JsonContentType;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldValues;
+
+/**
+ * Condition applied by {@link JsonContentFilter} on a single extracted field value. Predicates are compiled once from the
+ * configured operator, expression and value type. Supported operators:
+ * <ul>
+ *   <li><i>regex</i> (default) - the trimmed textual value must match the expression, missing values are matched as empty string</li>
+ *   <li><i>==</i>, <i>!=</i> - the value must (not) equal the expression</li>
+ *   <li><i>&lt;</i>, <i>&lt;=</i>, <i>&gt;</i>, <i>&gt;=</i> - the value is compared with the expression</li>
+ *   <li><i>range</i> - the value must lie within the inclusive bounds given as <code>lower,upper</code></li>
+ *   <li><i>in</i> - the value must be one of the comma separated expression values (hash set lookup)</li>
+ *   <li><i>prefix</i>, <i>suffix</i> - the textual value must start / end with the expression</li>
+ * </ul>
+ * Values of type {@link JsonContentType#NUMERICAL} are compared as numbers, all others as strings. Numerical comparisons
+ * accept numbers as well as strings holding a number. Except for <i>regex</i>, missing values and values of the wrong type never match.
+ * @author mnxfst
+ * @since Feb 16, 2016
+ */
+public abstract class JsonContentFilterPredicate {
+
+	public static final String OPERATOR_REGEX = "regex";
+	public static final String OPERATOR_EQUAL = "==";
+	public static final String OPERATOR_NOT_EQUAL = "!=";
+	public static final String OPERATOR_LESS = "<";
+	public static final String OPERATOR_LESS_OR_EQUAL = "<=";
+	public static final String OPERATOR_GREATER = ">";
+	public static final String OPERATOR_GREATER_OR_EQUAL = ">=";
+	public static final String OPERATOR_RANGE = "range";
+	public static final String OPERATOR_IN = "in";
+	public static final String OPERATOR_PREFIX = "prefix";
+	public static final String OPERATOR_SUFFIX = "suffix";
+
+	/**
+	 * Returns true if the referenced field value satisfies the predicate
+	 * @param values
+	 * @param field
+	 * @return
+	 */
+	public abstract boolean matches(final JsonFieldValues values, final int field);
+
+	/**
+	 * Compiles the predicate described by the provided input
+	 * @param operator operator - blank leads to {@link #OPERATOR_REGEX}
+	 * @param expression
+	 * @param valueType
+	 * @return
+	 * @throws ComponentInitializationFailedException
+	 */
+	public static JsonContentFilterPredicate compile(final String operator, final String expression, final JsonContentType valueType) throws ComponentInitializationFailedException {
+
+		if(expression == null)
+			throw new ComponentInitializationFailedException("Missing required expression");
+		final String op = StringUtils.lowerCase(StringUtils.trim(operator));
+		final boolean numerical = (valueType == JsonContentType.NUMERICAL);
+
+		if(StringUtils.isBlank(op) || StringUtils.equals(op, OPERATOR_REGEX)) {
+			try {
+				return new RegexPredicate(Pattern.compile(expression));
+			} catch(PatternSyntaxException e) {
+				throw new ComponentInitializationFailedException("Failed to parse '"+expression+"' into a valid pattern expression");
+			}
+		}
+
+		if(StringUtils.equals(op, OPERATOR_PREFIX))
+			return new PrefixPredicate(expression, true);
+		if(StringUtils.equals(op, OPERATOR_SUFFIX))
+			return new PrefixPredicate(expression, false);
+
+		if(StringUtils.equals(op, OPERATOR_IN)) {
+			final String[] elements = StringUtils.split(expression, ',');
+			if(numerical) {
+				final Set<Double> numbers = new HashSet<>();
+				for(final String element : elements)
+					numbers.add(toNumber(element));
+				return new NumericalSetPredicate(numbers);
+			}
+			final Set<String> strings = new HashSet<>();
+			for(final String element : elements)
+				strings.add(StringUtils.trim(element));
+			return new StringSetPredicate(strings);
+		}
+
+		if(StringUtils.equals(op, OPERATOR_RANGE)) {
+			final String[] bounds = StringUtils.split(expression, ',');
+			if(bounds.length != 2)
+				throw new ComponentInitializationFailedException("Range '"+expression+"' must provide lower and upper bound separated by comma");
+			if(numerical)
+				return new NumericalComparison(toNumber(bounds[0]), toNumber(bounds[1]));
+			return new StringComparison(StringUtils.trim(bounds[0]), StringUtils.trim(bounds[1]));
+		}
+
+		/////////////////////////////////////////////////////////////
+		// comparisons are mapped onto ranges having optionally exclusive bounds
+		final int comparison;
+		if(StringUtils.equals(op, OPERATOR_EQUAL) || StringUtils.equals(op, "eq"))
+			comparison = 0;
+		else if(StringUtils.equals(op, OPERATOR_NOT_EQUAL) || StringUtils.equals(op, "ne"))
+			comparison = 1;
+		else if(StringUtils.equals(op, OPERATOR_LESS) || StringUtils.equals(op, "lt"))
+			comparison = 2;
+		else if(StringUtils.equals(op, OPERATOR_LESS_OR_EQUAL) || StringUtils.equals(op, "le"))
+			comparison = 3;
+		else if(StringUtils.equals(op, OPERATOR_GREATER) || StringUtils.equals(op, "gt"))
+			comparison = 4;
+		else if(StringUtils.equals(op, OPERATOR_GREATER_OR_EQUAL) || StringUtils.equals(op, "ge"))
+			comparison = 5;
+		else
+			throw new ComponentInitializationFailedException("Unknown filter operator '"+operator+"'");
+
+		if(numerical) {
+			final double value = toNumber(expression);
+			switch(comparison) {
+				case 0: return new NumericalComparison(value, value);
+				case 1: return new NegatedPredicate(new NumericalComparison(value, value));
+				case 2: return new NumericalComparison(Double.NEGATIVE_INFINITY, value, false, true);
+				case 3: return new NumericalComparison(Double.NEGATIVE_INFINITY, value);
+				case 4: return new NumericalComparison(value, Double.POSITIVE_INFINITY, true, false);
+				default: return new NumericalComparison(value, Double.POSITIVE_INFINITY);
+			}
+		}
+		switch(comparison) {
+			case 0: return new StringSetPredicate(Collections.singleton(expression));
+			case 1: return new NegatedPredicate(new StringSetPredicate(Collections.singleton(expression)));
+			case 2: return new StringComparison(null, expression, false, true);
+			case 3: return new StringComparison(null, expression);
+			case 4: return new StringComparison(expression, null, true, false);
+			default: return new StringComparison(expression, null);
+		}
+		/////////////////////////////////////////////////////////////
+	}
+
+	/**
+	 * Converts the provided expression into a number
+	 * @param expression
+	 * @return
+	 * @throws ComponentInitializationFailedException
+	 */
+	private static double toNumber(final String expression) throws ComponentInitializationFailedException {
+		final String value = StringUtils.trim(expression);
+		try {
+			// adding zero turns -0.0 into 0.0 which is required for set lookups
+			return Double.parseDouble(value) + 0.0;
+		} catch(NumberFormatException | NullPointerException e) {
+			throw new ComponentInitializationFailedException("Failed to parse '"+expression+"' into a number");
+		}
+	}
+
+	/**
+	 * Returns true if the referenced value is a number or a string holding one
+	 * @param values
+	 * @param field
+	 * @return
+	 */
+	protected static boolean isNumerical(final JsonFieldValues values, final int field) {
+		return values.isNumber(field) || (values.getToken(field) == JsonToken.VALUE_STRING && isDecimal(values.getText(field)));
+	}
+
+	/**
+	 * Returns true if the trimmed value is a plain decimal number, eg. -1.5 or 2e3. Hex values, type suffixes like 1L or 2f,
+	 * NaN and Infinity are rejected as they are not parsed into the number they denote when reading the value
+	 * @param value
+	 * @return
+	 */
+	protected static boolean isDecimal(final String value) {
+		if(value == null)
+			return false;
+		int start = 0;
+		int end = value.length();
+		while(start < end && value.charAt(start) <= ' ')
+			start++;
+		while(end > start && value.charAt(end - 1) <= ' ')
+			end--;
+
+		int i = start;
+		if(i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+			i++;
+		int digits = 0;
+		for(; i < end && isDigit(value.charAt(i)); i++)
+			digits++;
+		if(i < end && value.charAt(i) == '.')
+			for(i++; i < end && isDigit(value.charAt(i)); i++)
+				digits++;
+		if(digits == 0)
+			return false;
+
+		if(i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+			i++;
+			if(i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+				i++;
+			final int exponentStart = i;
+			while(i < end && isDigit(value.charAt(i)))
+				i++;
+			if(i == exponentStart)
+				return false;
+		}
+		return i == end;
+	}
+
+	/**
+	 * Returns true if the character is one of the ASCII digits 0 to 9
+	 * @param c
+	 * @return
+	 */
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Matches the trimmed textual value against a regular expression
+	 */
+	private static class RegexPredicate extends JsonContentFilterPredicate {
+		private final Pattern pattern;
+		private RegexPredicate(final Pattern pattern) {
+			this.pattern = pattern;
+		}
+		public boolean matches(JsonFieldValues values, int field) {
+			final String value = values.getText(field);
+			return this.pattern.matcher(value != null ? StringUtils.trim(value) : "").matches();
+		}
+		public String toString() {
+			return this.pattern.pattern();
+		}
+	}
+
+	/**
+	 * Checks whether the textual value starts or ends with a given string
+	 */
+	private static class PrefixPredicate extends JsonContentFilterPredicate {
+		private final String expression;
+		private final boolean prefix;
+		private PrefixPredicate(final String expression, final boolean prefix) {
+			this.expression = expression;
+			this.prefix = prefix;
+		}
+		public boolean matches(JsonFieldValues values, int field) {
+			final String value = values.getText(field);
+			if(value == null)
+				return false;
+			return (this.prefix ? value.startsWith(this.expression) : value.endsWith(this.expression));
+		}
+	}
+
+	/**
+	 * Looks up the textual value in a set of strings
+	 */
+	private static class StringSetPredicate extends JsonContentFilterPredicate {
+		private final Set<String> elements;
+		private StringSetPredicate(final Set<String> elements) {
+			this.elements = elements;
+		}
+		public boolean matches(JsonFieldValues values, int field) {
+			final String value = values.getText(field);
+			return value != null && this.elements.contains(value);
+		}
+	}
+
+	/**
+	 * Looks up the numerical value in a set of numbers
+	 */
+	private static class NumericalSetPredicate extends JsonContentFilterPredicate {
+		private final Set<Double> elements;
+		private NumericalSetPredicate(final Set<Double> elements) {
+			this.elements = elements;
+		}
+		public boolean matches(JsonFieldValues values, int field) {
+			return isNumerical(values, field) && this.elements.contains(values.getDouble(field) + 0.0);
+		}
+	}
+
+	/**
+	 * Checks whether the numerical value lies within the given bounds
+	 */
+	private static class NumericalComparison extends JsonContentFilterPredicate {
+		private final double lower;
+		private final double upper;
+		private final boolean lowerExclusive;
+		private final boolean upperExclusive;
+		private NumericalComparison(final double lower, final double upper) {
+			this(lower, upper, false, false);
+		}
+		private NumericalComparison(final double lower, final double upper, final boolean lowerExclusive, final boolean upperExclusive) {
+			this.lower = lower;
+			this.upper = upper;
+			this.lowerExclusive = lowerExclusive;
+			this.upperExclusive = upperExclusive;
+		}
+		public boolean matches(JsonFieldValues values, int field) {
+			if(!isNumerical(values, field))
+				return false;
+			final double value = values.getDouble(field);
+			return (this.lowerExclusive ? value > this.lower : value >= this.lower) && (this.upperExclusive ? value < this.upper : value <= this.upper);
+		}
+	}
+
+	/**
+	 * Checks whether the textual value lies within the given bounds (lexicographical order) - a null bound is unlimited
+	 */
+	private static class StringComparison extends JsonContentFilterPredicate {
+		private final String lower;
+		private final String upper;
+		private final boolean lowerExclusive;
+		private final boolean upperExclusive;
+		private StringComparison(final String lower, final String upper) {
+			this(lower, upper, false, false);
+		}
+		private StringComparison(final String lower, final String upper, final boolean lowerExclusive, final boolean upperExclusive) {
+			this.lower = lower;
+			this.upper = upper;
+			this.lowerExclusive = lowerExclusive;
+			this.upperExclusive = upperExclusive;
+		}
+		public boolean matches(JsonFieldValues values, int field) {
+			final String value = values.getText(field);
+			if(value == null)
+				return false;
+			if(this.lower != null) {
+				final int result = value.compareTo(this.lower);
+				if(result < 0 || (result == 0 && this.lowerExclusive))
+					return false;
+			}
+			if(this.upper != null) {
+				final int result = value.compareTo(this.upper);
+				if(result > 0 || (result == 0 && this.upperExclusive))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Negates the result of another predicate for values found, missing values never match
+	 */
+	private static class NegatedPredicate extends JsonContentFilterPredicate {
+		private final JsonContentFilterPredicate predicate;
+		private NegatedPredicate(final JsonContentFilterPredicate predicate) {
+			this.predicate = predicate;
+		}
+		public boolean matches(JsonFieldValues values, int field) {
+			return values.isFound(field) && !this.predicate.matches(values, field);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link CountMinTopK}
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class CountMinTopKTest {
+
+	/**
+	 * Test case for {@link CountMinTopK#getTopKeys()} being provided a few frequent values among many rare ones
+	 */
+	@Test
+	public void testGetTopKeys_withFrequentValues() {
+		final CountMinTopK sketch = new CountMinTopK(3);
+		for(int i = 0; i < 50000; i++) {
+			sketch.add("rare-" + i);
+			if(i % 10 == 0)
+				sketch.add("first");
+			if(i % 20 == 0)
+				sketch.add("second");
+			if(i % 40 == 0)
+				sketch.add("third");
+		}
+		Assert.assertEquals("Values must be equal", Arrays.asList("first", "second", "third"), Arrays.asList(sketch.getTopKeys()));
+		Assert.assertTrue("Estimate must not be smaller than count", sketch.estimate("first") >= 5000);
+		Assert.assertEquals("Values must be close", 5000, sketch.estimate("first"), 100);
+		Assert.assertEquals("Values must be close", 1250, sketch.estimate("third"), 100);
+	}
+
+	/**
+	 * Test case for {@link CountMinTopK#merge(CountMinTopK)} being provided sketches whose top values differ
+	 */
+	@Test
+	public void testMerge_withDifferentTopValues() {
+		final CountMinTopK first = new CountMinTopK(2);
+		final CountMinTopK second = new CountMinTopK(2);
+		for(int i = 0; i < 100; i++) {
+			first.add("a");
+			if(i < 50)
+				second.add("b");
+			if(i < 60) {
+				first.add("c");
+				second.add("c");
+			}
+		}
+		Assert.assertEquals("Values must be equal", Arrays.asList("a", "c"), Arrays.asList(first.getTopKeys()));
+		Assert.assertEquals("Values must be equal", Arrays.asList("c", "b"), Arrays.asList(second.getTopKeys()));
+		first.merge(second);
+		Assert.assertEquals("Values must be equal", Arrays.asList("c", "a"), Arrays.asList(first.getTopKeys()));
+		Assert.assertEquals("Values must be equal", 120, first.estimate("c"));
+		Assert.assertEquals("Values must be equal", 50, first.estimate("b"));
+
+		first.reset();
+		Assert.assertTrue("Sketch must be empty", first.isEmpty());
+		Assert.assertEquals("Values must be equal", 0, first.estimate("a"));
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link HyperLogLog}
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class HyperLogLogTest {
+
+	/**
+	 * Test case for {@link HyperLogLog#estimate()} being provided small and large cardinalities including duplicates
+	 */
+	@Test
+	public void testEstimate_withVaryingCardinalities() {
+		for(final int cardinality : new int[]{1, 100, 10000, 500000}) {
+			final HyperLogLog sketch = new HyperLogLog();
+			for(int i = 0; i < cardinality; i++) {
+				sketch.add("user-" + i);
+				sketch.add("user-" + (i / 2));
+			}
+			Assert.assertEquals("Values must be close for " + cardinality, cardinality, sketch.estimate(), Math.max(1, cardinality * 0.03));
+		}
+		Assert.assertTrue("Sketch must be empty", new HyperLogLog().isEmpty());
+		Assert.assertEquals("Values must be equal", 0, new HyperLogLog().estimate());
+	}
+
+	/**
+	 * Test case for {@link HyperLogLog#merge(HyperLogLog)} being provided overlapping sketches
+	 */
+	@Test
+	public void testMerge_withOverlappingSketches() {
+		final HyperLogLog first = new HyperLogLog();
+		final HyperLogLog second = new HyperLogLog();
+		for(int i = 0; i < 60000; i++)
+			first.add("user-" + i);
+		for(int i = 40000; i < 100000; i++)
+			second.add("user-" + i);
+		first.merge(second);
+		Assert.assertEquals("Values must be close", 100000, first.estimate(), 3000);
+
+		first.reset();
+		Assert.assertTrue("Sketch must be empty", first.isEmpty());
+	}
+
+	/**
+	 * Test case for {@link HyperLogLog#merge(HyperLogLog)} being provided a sketch of different precision
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testMerge_withDifferentPrecision() {
+		new HyperLogLog(12).merge(new HyperLogLog(14));
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ottogroup.bi.spqr.operator.json.JsonContentType;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldExtractor;
+import com.ottogroup.bi.spqr.pipeline.message.JsonFieldValues;
+
+/**
+ * Test case for {@link JsonContentAggregatorRawData}
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class JsonContentAggregatorRawDataTest {
+
+	private final JsonFactory factory = new JsonFactory();
+	private final List<JsonContentAggregatorFieldSetting> fields = Arrays.asList(
+			new JsonContentAggregatorFieldSetting("source", new String[]{"source"}, JsonContentType.STRING),
+			new JsonContentAggregatorFieldSetting("seq", new String[]{"seq"}, JsonContentType.NUMERICAL));
+	private final JsonFieldExtractor extractor;
+
+	public JsonContentAggregatorRawDataTest() throws Exception {
+		this.extractor = new JsonFieldExtractor(Arrays.asList(new String[]{"source"}, new String[]{"seq"}));
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregatorRawData#add(JsonFieldValues)} using {@link JsonContentAggregatorRawData.Mode#SAMPLE}:
+	 * each row must be kept with the same probability
+	 */
+	@Test
+	public void testAdd_withUniformSample() throws Exception {
+		final Random random = new Random(4711);
+		final int[] hits = new int[10];
+		for(int run = 0; run < 2000; run++) {
+			final JsonContentAggregatorRawData rawData = new JsonContentAggregatorRawData(fields, JsonContentAggregatorRawData.Mode.SAMPLE, 5, random);
+			for(int i = 0; i < 100; i++)
+				add(rawData, "a", i);
+			Assert.assertEquals("Values must be equal", 5, rawData.getNumOfRows());
+			Assert.assertEquals("Values must be equal", 100, rawData.getNumOfOffered());
+			for(final Map<String, Object> row : rows(rawData))
+				hits[((Number)row.get("seq")).intValue() / 10]++;
+		}
+		// each decile is expected to be hit 2000 * 5 / 10 = 1000 times
+		for(int i = 0; i < hits.length; i++)
+			Assert.assertEquals("Values must be close for decile " + i, 1000, hits[i], 100);
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregatorRawData#merge(JsonContentAggregatorRawData)} using {@link JsonContentAggregatorRawData.Mode#SAMPLE}:
+	 * rows must be drawn proportionally to the number of rows offered to each side
+	 */
+	@Test
+	public void testMerge_withWeightedSamples() throws Exception {
+		final Random random = new Random(4711);
+		int fromSmall = 0;
+		for(int run = 0; run < 1000; run++) {
+			final JsonContentAggregatorRawData small = new JsonContentAggregatorRawData(fields, JsonContentAggregatorRawData.Mode.SAMPLE, 10, random);
+			final JsonContentAggregatorRawData large = new JsonContentAggregatorRawData(fields, JsonContentAggregatorRawData.Mode.SAMPLE, 10, random);
+			for(int i = 0; i < 100; i++)
+				add(small, "small", i);
+			for(int i = 0; i < 900; i++)
+				add(large, "large", i);
+			small.merge(large);
+			Assert.assertEquals("Values must be equal", 10, small.getNumOfRows());
+			Assert.assertEquals("Values must be equal", 1000, small.getNumOfOffered());
+			for(final Map<String, Object> row : rows(small))
+				if("small".equals(row.get("source")))
+					fromSmall++;
+		}
+		// 10% of 1000 * 10 rows are expected to originate from the smaller side
+		Assert.assertEquals("Values must be close", 1000, fromSmall, 100);
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregatorRawData#reset()} using {@link JsonContentAggregatorRawData.Mode#ALL}
+	 */
+	@Test
+	public void testReset_withAllRows() throws Exception {
+		final JsonContentAggregatorRawData rawData = new JsonContentAggregatorRawData(fields, JsonContentAggregatorRawData.Mode.ALL, 1, new Random());
+		for(int i = 0; i < 1000; i++)
+			add(rawData, "a", i);
+		Assert.assertEquals("Values must be equal", 1000, rawData.getNumOfRows());
+		Assert.assertEquals("Values must be equal", 999, ((Number)rows(rawData).get(999).get("seq")).intValue());
+		rawData.reset();
+		Assert.assertEquals("Values must be equal", 0, rawData.getNumOfRows());
+		Assert.assertTrue("Rows must be empty", rows(rawData).isEmpty());
+	}
+
+	/**
+	 * Offers a row holding the provided values
+	 * @param rawData
+	 * @param source
+	 * @param seq
+	 */
+	private void add(final JsonContentAggregatorRawData rawData, final String source, final int seq) {
+		final JsonFieldValues values = extractor.newValues();
+		Assert.assertTrue("Content must be parsed", extractor.extract(factory, ("{\"source\":\""+source+"\",\"seq\":"+seq+"}").getBytes(), values));
+		rawData.add(values);
+	}
+
+	/**
+	 * Writes the rows and parses them into a list of maps
+	 * @param rawData
+	 * @return
+	 */
+	private List<Map<String, Object>> rows(final JsonContentAggregatorRawData rawData) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(JsonGenerator generator = factory.createGenerator(out)) {
+			rawData.write(generator);
+		}
+		return new ObjectMapper().readValue(out.toByteArray(), new TypeReference<List<Map<String, Object>>>() {});
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+
+/**
+ * Test case for {@link JsonContentAggregator}
+ * @author mnxfst
+ * @since Feb 11, 2016
+ */
+public class JsonContentAggregatorTest {
+
+	/**
+	 * Test case for {@link JsonContentAggregator#merge(com.ottogroup.bi.spqr.pipeline.component.operator.MergeableDelayedResponseOperator)} 
+	 * being provided null
+	 */
+	@Test
+	public void testMerge_withNullInput() throws Exception {
+		JsonContentAggregator aggregator = getAggregator("agg-1");
+		aggregator.onMessage(new StreamingDataMessage("{\"host\":\"a\", \"size\":10}".getBytes(), System.currentTimeMillis()));
+		aggregator.merge(null);
+		Assert.assertEquals("Values must be equal", 1, aggregator.getNumberOfMessagesSinceLastResult());
+	}
+	
+	/**
+	 * Test case for {@link JsonContentAggregator#merge(com.ottogroup.bi.spqr.pipeline.component.operator.MergeableDelayedResponseOperator)} 
+	 * being provided a partial result: counts and sums must be added, min/max values compared and the partial instance reset
+	 */
+	@Test
+	public void testMerge_withPartialResult() throws Exception {
+		JsonContentAggregator aggregator = getAggregator("agg-1");
+		JsonContentAggregator partial = getAggregator("agg-2");
+		
+		aggregator.onMessage(new StreamingDataMessage("{\"host\":\"a\", \"size\":10}".getBytes(), System.currentTimeMillis()));
+		aggregator.onMessage(new StreamingDataMessage("{\"host\":\"b\", \"size\":20}".getBytes(), System.currentTimeMillis()));
+		partial.onMessage(new StreamingDataMessage("{\"host\":\"a\", \"size\":5}".getBytes(), System.currentTimeMillis()));
+		partial.onMessage(new StreamingDataMessage("{\"host\":\"a\", \"size\":30}".getBytes(), System.currentTimeMillis()));
+		
+		aggregator.merge(partial);
+		Assert.assertEquals("Values must be equal", 4, aggregator.getNumberOfMessagesSinceLastResult());
+		Assert.assertEquals("Values must be equal", 0, partial.getNumberOfMessagesSinceLastResult());
+		
+		StreamingDataMessage[] result = aggregator.getResult();
+		Assert.assertEquals("Values must be equal", 1, result.length);
+		JsonContentAggregatorResult doc = new ObjectMapper().readValue(result[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertEquals("Values must be equal", 3, doc.getAggregatedValue("host", "a"));
+		Assert.assertEquals("Values must be equal", 1, doc.getAggregatedValue("host", "b"));
+		Assert.assertEquals("Values must be equal", 5, doc.getAggregatedValue("size", "min"));
+		Assert.assertEquals("Values must be equal", 30, doc.getAggregatedValue("size", "max"));
+		Assert.assertEquals("Values must be equal", 65, doc.getAggregatedValue("size", "sum"));
+		Assert.assertEquals("Values must be equal", 4, doc.getRawData().size());
+		
+		JsonContentAggregatorResult partialDoc = new ObjectMapper().readValue(partial.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertTrue("Partial result must be empty", partialDoc.getAggregatedValues().isEmpty());
+	}
+	
+	/**
+	 * Test case for {@link JsonContentAggregator#getResult()} being called for consecutive windows: values must not leak into the
+	 * next window and empty windows must be reported as empty documents
+	 */
+	@Test
+	public void testGetResult_withConsecutiveWindows() throws Exception {
+		JsonContentAggregator aggregator = getAggregator("agg-1");
+		JsonContentAggregatorResult doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertTrue("Result must be empty", doc.getAggregatedValues().isEmpty());
+
+		aggregator.onMessage(new StreamingDataMessage("{\"host\":\" A \", \"size\":-10}".getBytes(), System.currentTimeMillis()));
+		aggregator.onMessage(new StreamingDataMessage("{\"host\":\"a\", \"size\":-20}".getBytes(), System.currentTimeMillis()));
+		doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertEquals("Values must be equal", 2, doc.getAggregatedValue("host", "a"));
+		Assert.assertEquals("Values must be equal", -20, doc.getAggregatedValue("size", "min"));
+		Assert.assertEquals("Values must be equal", -10, doc.getAggregatedValue("size", "max"));
+		Assert.assertEquals("Values must be equal", -30, doc.getAggregatedValue("size", "sum"));
+
+		aggregator.onMessage(new StreamingDataMessage("{\"host\":\"b\", \"size\":7}".getBytes(), System.currentTimeMillis()));
+		doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertEquals("Values must be equal", 1, doc.getAggregatedValues().get("host").size());
+		Assert.assertEquals("Values must be equal", 1, doc.getAggregatedValue("host", "b"));
+		Assert.assertEquals("Values must be equal", 7, doc.getAggregatedValue("size", "min"));
+		Assert.assertEquals("Values must be equal", 7, doc.getAggregatedValue("size", "max"));
+		Assert.assertEquals("Values must be equal", 1, doc.getRawData().size());
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregator#getResult()} being configured to keep the first raw data entries only
+	 */
+	@Test
+	public void testGetResult_withFirstRawData() throws Exception {
+		JsonContentAggregator aggregator = getAggregator("agg-1", JsonContentAggregator.CFG_RAW_DATA_MODE, "first", JsonContentAggregator.CFG_RAW_DATA_LIMIT, "2");
+		JsonContentAggregator partial = getAggregator("agg-2", JsonContentAggregator.CFG_RAW_DATA_MODE, "first", JsonContentAggregator.CFG_RAW_DATA_LIMIT, "2");
+		for(int i = 1; i <= 3; i++)
+			aggregator.onMessage(new StreamingDataMessage(("{\"host\":\"a\", \"size\":"+i+"}").getBytes(), System.currentTimeMillis()));
+		partial.onMessage(new StreamingDataMessage("{\"host\":\"b\", \"size\":4}".getBytes(), System.currentTimeMillis()));
+		aggregator.merge(partial);
+
+		JsonContentAggregatorResult doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertEquals("Values must be equal", 3, doc.getAggregatedValue("host", "a"));
+		Assert.assertEquals("Values must be equal", 1, doc.getAggregatedValue("host", "b"));
+		Assert.assertEquals("Values must be equal", 2, doc.getRawData().size());
+		Assert.assertEquals("Values must be equal", "a", doc.getRawData().get(0).get("host"));
+		Assert.assertEquals("Values must be equal", 1, ((Number)doc.getRawData().get(0).get("size")).intValue());
+		Assert.assertEquals("Values must be equal", 2, ((Number)doc.getRawData().get(1).get("size")).intValue());
+
+		aggregator.onMessage(new StreamingDataMessage("{\"size\":5}".getBytes(), System.currentTimeMillis()));
+		doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertEquals("Values must be equal", 1, doc.getRawData().size());
+		Assert.assertFalse("Missing field must not be forwarded", doc.getRawData().get(0).containsKey("host"));
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregator#getResult()} being configured to keep a sample of raw data entries: sample size
+	 * must be capped by the limit while aggregated values cover all messages
+	 */
+	@Test
+	public void testGetResult_withSampledRawData() throws Exception {
+		JsonContentAggregator aggregator = getAggregator("agg-1", JsonContentAggregator.CFG_RAW_DATA_MODE, "sample", JsonContentAggregator.CFG_RAW_DATA_LIMIT, "10");
+		JsonContentAggregator partial = getAggregator("agg-2", JsonContentAggregator.CFG_RAW_DATA_MODE, "sample", JsonContentAggregator.CFG_RAW_DATA_LIMIT, "10");
+		for(int i = 0; i < 1000; i++) {
+			aggregator.onMessage(new StreamingDataMessage(("{\"host\":\"a\", \"size\":"+i+"}").getBytes(), System.currentTimeMillis()));
+			partial.onMessage(new StreamingDataMessage(("{\"host\":\"b\", \"size\":"+i+"}").getBytes(), System.currentTimeMillis()));
+		}
+		aggregator.merge(partial);
+
+		JsonContentAggregatorResult doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertEquals("Values must be equal", 1000, doc.getAggregatedValue("host", "a"));
+		Assert.assertEquals("Values must be equal", 1000, doc.getAggregatedValue("host", "b"));
+		Assert.assertEquals("Values must be equal", 999, doc.getAggregatedValue("size", "max"));
+		Assert.assertEquals("Values must be equal", 10, doc.getRawData().size());
+		for(Map<String, Object> rawData : doc.getRawData())
+			Assert.assertEquals("Values must be equal", 2, rawData.size());
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregator#merge(com.ottogroup.bi.spqr.pipeline.component.operator.MergeableDelayedResponseOperator)}
+	 * being provided partial results of sketch based fields: distinct counts, top values and quantiles must cover both instances
+	 */
+	@Test
+	public void testMerge_withSketchFields() throws Exception {
+		final String[] settings = new String[]{
+				JsonContentAggregator.CFG_FORWARD_RAW_DATA, "false",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "3.name", "user", JsonContentAggregator.CFG_FIELD_PREFIX + "3.path", "user", JsonContentAggregator.CFG_FIELD_PREFIX + "3.type", "DISTINCT",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "4.name", "page", JsonContentAggregator.CFG_FIELD_PREFIX + "4.path", "page", JsonContentAggregator.CFG_FIELD_PREFIX + "4.type", "TOPK",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "4" + JsonContentAggregator.CFG_TOP_K_SUFFIX, "2",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "5.name", "latency", JsonContentAggregator.CFG_FIELD_PREFIX + "5.path", "latency", JsonContentAggregator.CFG_FIELD_PREFIX + "5.type", "QUANTILES",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "5" + JsonContentAggregator.CFG_QUANTILES_SUFFIX, "0.5, 0.999"};
+		JsonContentAggregator aggregator = getAggregator("agg-1", settings);
+		JsonContentAggregator partial = getAggregator("agg-2", settings);
+		for(int i = 0; i < 1000; i++) {
+			final String page = (i % 2 == 0 ? "home" : (i % 3 == 0 ? "cart" : "item-" + i));
+			(i < 500 ? aggregator : partial).onMessage(new StreamingDataMessage(("{\"user\":\"u-"+(i % 400)+"\", \"page\":\""+page+"\", \"latency\":"+(i + 1)+"}").getBytes(), System.currentTimeMillis()));
+		}
+		aggregator.merge(partial);
+
+		JsonContentAggregatorResult doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertEquals("Values must be close", 400, doc.getAggregatedValue("user", "distinct"), 4);
+		Assert.assertEquals("Values must be equal", 2, doc.getAggregatedValues().get("page").size());
+		Assert.assertEquals("Values must be equal", 500, doc.getAggregatedValue("page", "home"));
+		Assert.assertEquals("Values must be equal", 167, doc.getAggregatedValue("page", "cart"));
+		Assert.assertEquals("Values must be close", 500, doc.getAggregatedValue("latency", "p50"), 5);
+		Assert.assertEquals("Values must be close", 999, doc.getAggregatedValue("latency", "p99.9"), 2);
+		Assert.assertTrue("Raw data must be empty", doc.getRawData().isEmpty());
+
+		doc = new ObjectMapper().readValue(aggregator.getResult()[0].getBody(), JsonContentAggregatorResult.class);
+		Assert.assertTrue("Result must be empty", doc.getAggregatedValues().isEmpty());
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregator#onMessage(StreamingDataMessage)} being provided fractional values for a QUANTILES field:
+	 * quantiles must be estimated and reported on the fractional values
+	 */
+	@Test
+	public void testOnMessage_withFractionalQuantiles() throws Exception {
+		JsonContentAggregator aggregator = getAggregator("agg-1", JsonContentAggregator.CFG_FORWARD_RAW_DATA, "false",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "3.name", "latency", JsonContentAggregator.CFG_FIELD_PREFIX + "3.path", "latency",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "3.type", "QUANTILES", JsonContentAggregator.CFG_FIELD_PREFIX + "3" + JsonContentAggregator.CFG_QUANTILES_SUFFIX, "0.1,0.5,0.9");
+		for(int i = 0; i < 1000; i++)
+			aggregator.onMessage(new StreamingDataMessage(("{\"latency\":"+(i < 500 ? "0.7" : "2.6")+"}").getBytes(), System.currentTimeMillis()));
+
+		// quantiles are written as floating point numbers which the result document would truncate to long values
+		JsonNode latency = new ObjectMapper().readTree(aggregator.getResult()[0].getBody()).get("agr").get("latency");
+		Assert.assertTrue("Value must be floating point", latency.get("p10").isFloatingPointNumber());
+		Assert.assertEquals("Values must be close", 0.7, latency.get("p10").doubleValue(), 0.01);
+		Assert.assertEquals("Values must be close", 2.6, latency.get("p90").doubleValue(), 0.01);
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregator#initialize(Properties)} being provided quantiles outside the range of 0 and 1
+	 */
+	@Test(expected=ComponentInitializationFailedException.class)
+	public void testInitialize_withInvalidQuantiles() throws Exception {
+		getAggregator("agg-1", JsonContentAggregator.CFG_FIELD_PREFIX + "3.name", "latency", JsonContentAggregator.CFG_FIELD_PREFIX + "3.path", "latency",
+				JsonContentAggregator.CFG_FIELD_PREFIX + "3.type", "QUANTILES", JsonContentAggregator.CFG_FIELD_PREFIX + "3" + JsonContentAggregator.CFG_QUANTILES_SUFFIX, "0.5,1.5");
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregator#initialize(Properties)} being provided an unsupported raw data mode
+	 */
+	@Test(expected=ComponentInitializationFailedException.class)
+	public void testInitialize_withUnknownRawDataMode() throws Exception {
+		getAggregator("agg-1", JsonContentAggregator.CFG_RAW_DATA_MODE, "last");
+	}
+
+	/**
+	 * Test case for {@link JsonContentAggregator#initialize(Properties)} being provided an invalid raw data limit
+	 */
+	@Test(expected=ComponentInitializationFailedException.class)
+	public void testInitialize_withInvalidRawDataLimit() throws Exception {
+		getAggregator("agg-1", JsonContentAggregator.CFG_RAW_DATA_MODE, "sample", JsonContentAggregator.CFG_RAW_DATA_LIMIT, "0");
+	}
+
+	/**
+	 * Returns an initialized aggregator counting the field 'host' and computing min, max and sum of field 'size'
+	 * @param id
+	 * @param settings additional settings given as name/value pairs
+	 * @return
+	 */
+	private JsonContentAggregator getAggregator(final String id, final String... settings) throws Exception {
+		Properties props = new Properties();
+		for(int i = 0; i < settings.length; i += 2)
+			props.setProperty(settings[i], settings[i + 1]);
+		props.setProperty(JsonContentAggregator.CFG_FIELD_PREFIX + "1.name", "host");
+		props.setProperty(JsonContentAggregator.CFG_FIELD_PREFIX + "1.path", "host");
+		props.setProperty(JsonContentAggregator.CFG_FIELD_PREFIX + "1.type", "STRING");
+		props.setProperty(JsonContentAggregator.CFG_FIELD_PREFIX + "2.name", "size");
+		props.setProperty(JsonContentAggregator.CFG_FIELD_PREFIX + "2.path", "size");
+		props.setProperty(JsonContentAggregator.CFG_FIELD_PREFIX + "2.type", "NUMERICAL");
+		JsonContentAggregator aggregator = new JsonContentAggregator();
+		aggregator.setId(id);
+		aggregator.initialize(props);
+		return aggregator;
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link StringLongOpenHashMap}
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class StringLongOpenHashMapTest {
+
+	/**
+	 * Test case for {@link StringLongOpenHashMap#add(String, long)} being provided more keys than the initial table holds
+	 */
+	@Test
+	public void testAdd_withGrowingTable() {
+		StringLongOpenHashMap map = new StringLongOpenHashMap();
+		for(int i = 0; i < 1000; i++) {
+			map.add("key-" + i, i);
+			map.add("key-" + (i / 2), 1);
+		}
+		Assert.assertEquals("Values must be equal", 1000, map.size());
+		Assert.assertTrue("Table must have grown", map.capacity() > StringLongOpenHashMap.DEFAULT_CAPACITY);
+		Assert.assertEquals("Values must be equal", Long.valueOf(2), valueOf(map, "key-0"));
+		Assert.assertEquals("Values must be equal", Long.valueOf(999), valueOf(map, "key-999"));
+		Assert.assertEquals("Values must be equal", Long.valueOf(10 + 2), valueOf(map, "key-10"));
+		Assert.assertEquals("Values must be equal", 12, map.add("key-10", 0));
+		Assert.assertNull("Key must not exist", valueOf(map, "key-1000"));
+
+		int keys = 0;
+		for(int i = 0; i < map.capacity(); i++)
+			if(map.keyAt(i) != null)
+				keys++;
+		Assert.assertEquals("Values must be equal", map.size(), keys);
+	}
+
+	/**
+	 * Test case for {@link StringLongOpenHashMap#addAll(StringLongOpenHashMap)} merging a densely filled map into an empty one
+	 * which grows while keys are inserted in slot order of the source map
+	 */
+	@Test
+	public void testAddAll_withLargeSourceMap() {
+		StringLongOpenHashMap other = new StringLongOpenHashMap();
+		for(int i = 0; i < 180000; i++)
+			other.add("key-" + i, i);
+		StringLongOpenHashMap map = new StringLongOpenHashMap();
+		map.addAll(other);
+		Assert.assertEquals("Values must be equal", 180000, map.size());
+		for(int i = 0; i < 180000; i += 997)
+			Assert.assertEquals("Values must be equal", Long.valueOf(i), valueOf(map, "key-" + i));
+	}
+
+	/**
+	 * Test case for {@link StringLongOpenHashMap#addAll(StringLongOpenHashMap)}
+	 */
+	@Test
+	public void testAddAll_withOverlappingKeys() {
+		StringLongOpenHashMap map = new StringLongOpenHashMap();
+		map.add("a", 1);
+		map.add("b", 2);
+		StringLongOpenHashMap other = new StringLongOpenHashMap();
+		other.add("b", 3);
+		other.add("c", 4);
+		map.addAll(other);
+		Assert.assertEquals("Values must be equal", 3, map.size());
+		Assert.assertEquals("Values must be equal", Long.valueOf(1), valueOf(map, "a"));
+		Assert.assertEquals("Values must be equal", Long.valueOf(5), valueOf(map, "b"));
+		Assert.assertEquals("Values must be equal", Long.valueOf(4), valueOf(map, "c"));
+	}
+
+	/**
+	 * Test case for {@link StringLongOpenHashMap#clear()}: the table must be retained for similar cardinalities and shrunk after a peak
+	 */
+	@Test
+	public void testClear_withRetainedAndShrunkTable() {
+		StringLongOpenHashMap map = new StringLongOpenHashMap();
+		for(int i = 0; i < 100; i++)
+			map.add("key-" + i, 1);
+		final int capacity = map.capacity();
+		map.clear();
+		Assert.assertTrue("Map must be empty", map.isEmpty());
+		Assert.assertEquals("Table must be retained", capacity, map.capacity());
+		Assert.assertNull("Key must not exist", valueOf(map, "key-1"));
+
+		for(int i = 0; i < 100; i++)
+			map.add("key-" + i, 1);
+		Assert.assertEquals("Table must not grow", capacity, map.capacity());
+
+		map.clear();
+		map.add("single", 1);
+		map.clear();
+		Assert.assertEquals("Table must be shrunk", StringLongOpenHashMap.DEFAULT_CAPACITY, map.capacity());
+	}
+
+	/**
+	 * Returns the value of the provided key by iterating all slots or null if the key does not exist
+	 * @param map
+	 * @param key
+	 * @return
+	 */
+	private static Long valueOf(final StringLongOpenHashMap map, final String key) {
+		for(int i = 0; i < map.capacity(); i++)
+			if(key.equals(map.keyAt(i)))
+				return map.valueAt(i);
+		return null;
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ottogroup.bi.spqr.operator.json.aggregator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link TDigest}
+ * @author mnxfst
+ * @since Feb 18, 2016
+ */
+public class TDigestTest {
+
+	/**
+	 * Test case for {@link TDigest#quantile(double)} being provided uniformly distributed values merged from two digests
+	 */
+	@Test
+	public void testQuantile_withMergedUniformValues() {
+		final Random random = new Random(4711);
+		final TDigest first = new TDigest();
+		final TDigest second = new TDigest();
+		final double[] values = new double[100000];
+		for(int i = 0; i < values.length; i++) {
+			values[i] = random.nextDouble() * 1000;
+			(i % 2 == 0 ? first : second).add(values[i]);
+		}
+		first.merge(second);
+		Arrays.sort(values);
+
+		Assert.assertEquals("Values must be equal", values.length, first.count());
+		Assert.assertEquals("Values must be equal", values[0], first.quantile(0), 0);
+		Assert.assertEquals("Values must be equal", values[values.length - 1], first.quantile(1), 0);
+		for(final double q : new double[]{0.001, 0.01, 0.25, 0.5, 0.75, 0.99, 0.999})
+			Assert.assertEquals("Values must be close for " + q, values[(int)(q * values.length)], first.quantile(q), 5);
+	}
+
+	/**
+	 * Test case for {@link TDigest#quantile(double)} being provided few values or none
+	 */
+	@Test
+	public void testQuantile_withFewValues() {
+		final TDigest digest = new TDigest();
+		Assert.assertTrue("Digest must be empty", digest.isEmpty());
+		Assert.assertTrue("Quantile must not be a number", Double.isNaN(digest.quantile(0.5)));
+		for(int i = 1; i <= 5; i++)
+			digest.add(i);
+		digest.add(Double.NaN);
+		Assert.assertEquals("Values must be equal", 5, digest.count());
+		Assert.assertEquals("Values must be equal", 1, digest.quantile(0), 0);
+		Assert.assertEquals("Values must be equal", 3, digest.quantile(0.5), 0);
+		Assert.assertEquals("Values must be equal", 5, digest.quantile(1), 0);
+
+		digest.reset();
+		Assert.assertTrue("Digest must be empty", digest.isEmpty());
+	}
+}
@@ -16,13 +16,17 @@
 package com.ottogroup.bi.spqr.operator.json.filter;
 
 
+import java.nio.ByteBuffer;
 import java.util.Properties;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.ottogroup.bi.spqr.exception.ComponentInitializationFailedException;
 import com.ottogroup.bi.spqr.exception.RequiredInputMissingException;
 import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessage;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageHeaders;
+import com.ottogroup.bi.spqr.pipeline.message.StreamingDataMessageView;
 
 /**
  * Test case for {@link JsonContentFilter}
@@ -206,4 +210,116 @@ public class JsonContentFilterTest {
 		Assert.assertEquals("Result size must be 0", 0, messages.length);
 	}
 	
+/**
+	 * Test case for {@link JsonContentFilter#onMessageView(StreamingDataMessageView)} being provided views on matching and non-matching content
+	 */
+	@Test
+	public void testOnMessageView_withMatchingAndNonMatchingContent() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("field.1.path", "field.value");
+		props.setProperty("field.1.expression", "va..e");
+		props.setProperty("field.1.type", "STRING");
+		JsonContentFilter filter = new JsonContentFilter();
+		filter.initialize(props);
+		
+		StreamingDataMessage[] messages = filter.onMessageView(toView("{\"field\":{\"value\":\"value\"}}".getBytes(), 123));
+		Assert.assertEquals("Result size must be 1", 1, messages.length);
+		Assert.assertEquals("Values must be equal", "{\"field\":{\"value\":\"value\"}}", new String(messages[0].getBody()));
+		Assert.assertEquals("Values must be equal", 123, messages[0].getTimestamp());
+		
+		messages = filter.onMessageView(toView("{\"field\":{\"value\":\"test\"}}".getBytes(), 124));
+		Assert.assertEquals("Result size must be 0", 0, messages.length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessageView(null).length);
+		Assert.assertEquals("Values must be equal", 3, filter.getTotalNumOfMessages());
+	}
+	
+	/**
+	 * Test case for {@link JsonContentFilter#onMessage(StreamingDataMessage)} being configured with typed operators
+	 */
+	@Test
+	public void testOnMessage_withTypedOperators() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("field.1.path", "order.total");
+		props.setProperty("field.1.expression", "100");
+		props.setProperty("field.1.type", "NUMERICAL");
+		props.setProperty("field.1.operator", ">=");
+		props.setProperty("field.2.path", "order.country");
+		props.setProperty("field.2.expression", "DE, AT,CH");
+		props.setProperty("field.2.type", "STRING");
+		props.setProperty("field.2.operator", "in");
+		JsonContentFilter filter = new JsonContentFilter();
+		filter.initialize(props);
+		
+		Assert.assertEquals("Result size must be 1", 1, filter.onMessage(new StreamingDataMessage("{\"order\":{\"total\":100.0,\"country\":\"AT\"}}".getBytes(), 1)).length);
+		Assert.assertEquals("Result size must be 1", 1, filter.onMessage(new StreamingDataMessage("{\"order\":{\"total\":\"250\",\"country\":\"DE\"}}".getBytes(), 2)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"order\":{\"total\":99.99,\"country\":\"DE\"}}".getBytes(), 3)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"order\":{\"total\":120,\"country\":\"FR\"}}".getBytes(), 4)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"order\":{\"country\":\"DE\"}}".getBytes(), 5)).length);
+	}
+	
+	/**
+	 * Test case for {@link JsonContentFilter#onMessage(StreamingDataMessage)} being provided numerical operators and strings which hold
+	 * hex values or type suffixes: such strings are no decimal numbers and must not match
+	 */
+	@Test
+	public void testOnMessage_withNonDecimalNumericalStrings() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("field.1.path", "total");
+		props.setProperty("field.1.expression", "10");
+		props.setProperty("field.1.type", "NUMERICAL");
+		props.setProperty("field.1.operator", "<=");
+		JsonContentFilter filter = new JsonContentFilter();
+		filter.initialize(props);
+		
+		Assert.assertEquals("Result size must be 1", 1, filter.onMessage(new StreamingDataMessage("{\"total\":\" 5 \"}".getBytes(), 1)).length);
+		Assert.assertEquals("Result size must be 1", 1, filter.onMessage(new StreamingDataMessage("{\"total\":\"-1.5e1\"}".getBytes(), 2)).length);
+		Assert.assertEquals("Result size must be 1", 1, filter.onMessage(new StreamingDataMessage("{\"total\":\".5\"}".getBytes(), 3)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"total\":\"0x1F\"}".getBytes(), 4)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"total\":\"1L\"}".getBytes(), 5)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"total\":\"2f\"}".getBytes(), 6)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"total\":\"1e\"}".getBytes(), 7)).length);
+		Assert.assertEquals("Result size must be 0", 0, filter.onMessage(new StreamingDataMessage("{\"total\":\"-Infinity\"}".getBytes(), 8)).length);
+	}
+	
+	/**
+	 * Test case for {@link JsonContentFilter#initialize(java.util.Properties)} being provided an unknown operator
+	 */
+	@Test(expected=ComponentInitializationFailedException.class)
+	public void testInitialize_withUnknownOperator() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("field.1.path", "field");
+		props.setProperty("field.1.expression", "1");
+		props.setProperty("field.1.operator", "~=");
+		new JsonContentFilter().initialize(props);
+	}
+	
+	/**
+	 * Returns a {@link StreamingDataMessageView} on the provided content
+	 * @param body
+	 * @param timestamp
+	 * @return
+	 */
+	protected StreamingDataMessageView toView(final byte[] body, final long timestamp) {
+		return new StreamingDataMessageView() {
+			public long getTimestamp() {
+				return timestamp;
+			}
+			public StreamingDataMessageHeaders getHeaders() {
+				return null;
+			}
+			public int getBodyLength() {
+				return body.length;
+			}
+			public byte getByte(int index) {
+				return body[index];
+			}
+			public ByteBuffer getBody() {
+				return ByteBuffer.wrap(body).asReadOnlyBuffer();
+			}
+			public StreamingDataMessage toMessage() {
+				return new StreamingDataMessage(body.clone(), timestamp);
+			}
+		};
+	}
+	
 }
@@ -154,7 +154,8 @@ public class KafkaTopicEmitter implements Emitter {
 	 */
 	public boolean onMessage(StreamingDataMessage message) {
 		if(message != null && message.getBody() != null && message.getBody().length > 0) {
-			this.kafkaProducer.send(new KeyedMessage<byte[], byte[]>(this.topicId, message.getBody()));
+			// pooled bodies are reused once the message has been processed while the producer may send asynchronously
+			this.kafkaProducer.send(new KeyedMessage<byte[], byte[]>(this.topicId, (message.isPooled() ? message.getBody().clone() : message.getBody())));
 			this.messageCounter++;
 		}
 		return true;
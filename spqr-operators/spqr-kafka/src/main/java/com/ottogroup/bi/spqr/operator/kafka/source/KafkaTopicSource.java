@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -31,6 +32,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
 import uk.co.real_logic.queues.BlockingWaitStrategy;
+import uk.co.real_logic.queues.ManyToOneConcurrentArrayQueue;
 import uk.co.real_logic.queues.MessageWaitStrategy;
 import uk.co.real_logic.queues.OneToOneConcurrentArrayQueue3;
 
@@ -100,7 +102,7 @@ public class KafkaTopicSource implements Source {
 	/** kafka topic client - establishes and manages the connection with a kafak topic */
 	private ConsumerConnector kafkaConsumerConnector = null;
 	/** message queue used to send incoming messages from partition consumers to websocket emitter */
-	private OneToOneConcurrentArrayQueue3<byte[]> messages;
+	private Queue<byte[]> messages;
 	/** wait strategy applied on queue */
 	private MessageWaitStrategy<byte[]> messageWaitStrategy;
 
@@ -261,7 +263,12 @@ public class KafkaTopicSource implements Source {
 		// create a fixed thread pool which has capacity for number of available streams 
 		this.executorService = Executors.newFixedThreadPool(streams.size());
 		
-		this.messages = new OneToOneConcurrentArrayQueue3<byte[]>(internalQueueCapacity);
+		// bounded queue: partition consumers stop reading from kafka as soon as it is full. queue must support
+		// concurrent writers if more than one stream is assigned
+		if(streams.size() > 1)
+			this.messages = new ManyToOneConcurrentArrayQueue<byte[]>(internalQueueCapacity);
+		else
+			this.messages = new OneToOneConcurrentArrayQueue3<byte[]>(internalQueueCapacity);
 		this.messageWaitStrategy = new BlockingWaitStrategy();
 		
 		// iterate through streams and assign each to a partition reader
@@ -293,6 +300,7 @@ public class KafkaTopicSource implements Source {
 			}
 			
 			if(message != null && message.length > 0) {
+				// blocks while the pipeline applies backpressure - the internal queue fills up and partition consumers pause 
 				this.messageCallback.onMessage(new StreamingDataMessage(message, System.currentTimeMillis()));
 			} 
 		}
@@ -15,13 +15,13 @@
  */
 package com.ottogroup.bi.spqr.operator.kafka.source;
 
+import java.util.Queue;
 import java.util.concurrent.locks.LockSupport;
 
 import kafka.consumer.ConsumerIterator;
 import kafka.consumer.KafkaStream;
 import kafka.message.MessageAndMetadata;
 import uk.co.real_logic.queues.MessageWaitStrategy;
-import uk.co.real_logic.queues.OneToOneConcurrentArrayQueue3;
 
 /**
  * Reads content from an assigned {@link KafkaStream} and writes the data to a provided queue.   
@@ -33,7 +33,7 @@ public class KafkaTopicStreamConsumer implements Runnable {
 	/** stream instance to read messages from */
 	private final KafkaStream<byte[], byte[]> kafkaTopicPartitionStream;
 	/** externally provided queue to use for exchanging messages with underlying kafka emitter */
-	private final OneToOneConcurrentArrayQueue3<byte[]> messages;
+	private final Queue<byte[]> messages;
 	/** indicates whether the consumer is running or not */
 	private boolean running = false;
 	private static final int RETRIES = 200;
@@ -46,7 +46,7 @@ public class KafkaTopicStreamConsumer implements Runnable {
 	 * @param messageWaitStrategy optional wait strategy applied when consuming data from queue. if provided it may be used to signal new elements 
 	 */
 	public KafkaTopicStreamConsumer(final KafkaStream<byte[], byte[]> kafkaTopicStream, 
-			final OneToOneConcurrentArrayQueue3<byte[]> messages, final MessageWaitStrategy<byte[]> messageWaitStrategy)  {
+			final Queue<byte[]> messages, final MessageWaitStrategy<byte[]> messageWaitStrategy)  {
 		this.kafkaTopicPartitionStream = kafkaTopicStream;
 		this.messages = messages;
 		this.messageWaitStrategy = messageWaitStrategy;
@@ -75,7 +75,10 @@ public class KafkaTopicStreamConsumer implements Runnable {
 			if(message != null && message.message() != null && message.message().length > 0) {
 				// if the message is neither null nor empty, insert it into the queue and signal the wait strategy to 
 				// release any existing locks -- if there is a wait strategy provided at all
-				this.messages.add(message.message());
+				// if the queue is full the consumer waits and thus stops reading from kafka until the source catches up
+				counter = RETRIES;
+				while(!this.messages.offer(message.message()) && running)
+					counter = waitFor(counter);
 				if(messageWaitStrategy != null)
 					messageWaitStrategy.forceLockRelease();
 			}